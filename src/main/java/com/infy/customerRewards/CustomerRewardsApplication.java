@@ -1,13 +1,78 @@
 package com.infy.customerRewards;
 
+import org.modelmapper.ModelMapper;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.infy.customerRewards.utility.NativeRuntimeHints;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Entry point of the rewards application.
+ * With the fast-start profile, beans are created on first use; see {@link #eagerStartupBeans()} for the exceptions.
+ * The reflection the native executable needs beyond what AOT processing detects is declared in {@link NativeRuntimeHints}.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
 @SpringBootApplication
+@EnableScheduling
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class CustomerRewardsApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(CustomerRewardsApplication.class, args);
 	}
 
+	@Bean
+	public ModelMapper modelMapper() {
+		return new ModelMapper();
+	}
+
+	/**
+	 * Encoder of the phone numbers stored with each customer.
+	 */
+	@Bean
+	public PasswordEncoder passwordEncoder() {
+		return new BCryptPasswordEncoder();
+	}
+
+	/**
+	 * CBOR converter for the compact binary representation (application/cbor) of the reward DTOs.
+	 * Built from the application's Jackson builder so dates and other settings match the JSON output.
+	 */
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(
+				builder.factory(new CBORFactory()).build());
+	}
+
+	/**
+	 * Keeps beans with scheduled tasks or startup loading eager under spring.main.lazy-initialization:
+	 * a lazy bean nobody asks for would never schedule its tasks, and one that loads its state at startup,
+	 * such as the journal replay or the leaderboard, would do so during the first request instead.
+	 */
+	@Bean
+	public static LazyInitializationExcludeFilter eagerStartupBeans() {
+		return (beanName, beanDefinition, beanType) -> !MethodIntrospector.selectMethods(beanType,
+				(MethodIntrospector.MetadataLookup<Boolean>) method ->
+						AnnotatedElementUtils.hasAnnotation(method, Scheduled.class)
+								|| AnnotatedElementUtils.hasAnnotation(method, PostConstruct.class) ? Boolean.TRUE : null)
+				.isEmpty();
+	}
+
 }
@@ -0,0 +1,37 @@
+package com.infy.customerRewards.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import com.infy.customerRewards.dto.PointsBalanceDTO;
+import com.infy.customerRewards.exception.CustomException;
+import com.infy.customerRewards.utility.PointsIndex;
+
+/**
+ * REST Controller for latency-sensitive point balance lookups, such as during checkout.
+ * Balances are read from the off-heap points index and never from the database.
+ * 
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/rewards")
+public class PointsController {
+
+    @Autowired
+    private PointsIndex pointsIndex;
+
+    /**
+     * Retrieves the current month and lifetime reward points of a customer.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @return ResponseEntity containing the customer's points, zero if the customer has none
+     * @throws CustomException if the points index is disabled
+     */
+    @GetMapping("/customers/{customerId}/points")
+    public ResponseEntity<PointsBalanceDTO> getPoints(@PathVariable Long customerId) {
+        return ResponseEntity.ok(pointsIndex.lookup(customerId));
+    }
+}
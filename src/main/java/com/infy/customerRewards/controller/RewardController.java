@@ -1,20 +1,48 @@
 package com.infy.customerRewards.controller;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.infy.customerRewards.dto.CustomerDTO;
 import com.infy.customerRewards.dto.CustomerResponseDTO;
+import com.infy.customerRewards.dto.IngestionReceiptDTO;
+import com.infy.customerRewards.dto.LeaderboardDTO;
 import com.infy.customerRewards.dto.RewardResponseDTO;
+import com.infy.customerRewards.dto.RewardView;
 import com.infy.customerRewards.dto.TransactionDTO;
+import com.infy.customerRewards.exception.CustomException;
 import com.infy.customerRewards.service.RewardService;
 
-import java.time.LocalDate; import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * REST Controller for handling customer rewards and transactions.
  * Provides endpoints for customer management, transaction retrieval, and reward calculations.
+ * Read endpoints negotiate between JSON and the compact binary CBOR encoding via the Accept header,
+ * and carry strong ETags derived from the customer's transaction version so that clients
+ * revalidating with If-None-Match get a 304 before any transactions are read.
  * 
  * @author Infy
  * @version 1.0
@@ -26,6 +54,21 @@ public class RewardController {
     
     @Autowired
     private RewardService rewardService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+    /**
+     * How long clients may cache rewards of periods that ended before the current month.
+     */
+    @Value("${rewards.http.closed-period-max-age:7d}")
+    private Duration closedPeriodMaxAge = Duration.ofDays(7);
     
     /**
      * Creates a new customer with their associated transactions.
@@ -40,16 +83,69 @@ public class RewardController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Ingests transactions of an existing customer, such as a point-of-sale feed, without waiting for the database.
+     * The transactions are acknowledged once durable in the local journal and inserted in the background.
+     * Clients retrying a request send the same Idempotency-Key, so that it is ingested only once.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @param idempotencyKey the key identifying the request across retries, optional
+     * @param transactions the transactions to ingest, each with date, amount and product
+     * @return ResponseEntity with status 202 containing the journal sequence number of the last transaction,
+     *         or status 200 with the original receipt if the Idempotency-Key was already used
+     * @throws CustomException if the journal is disabled, the key is invalid or a transaction is incomplete
+     */
+    @PostMapping("/customers/{customerId}/transactions")
+    public ResponseEntity<IngestionReceiptDTO> ingestTransactions(
+            @PathVariable Long customerId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody List<TransactionDTO> transactions) {
+        IngestionReceiptDTO receipt = rewardService.ingestTransactions(customerId, idempotencyKey, transactions);
+        return ResponseEntity.status(receipt.getDuplicate() ? HttpStatus.OK : HttpStatus.ACCEPTED).body(receipt);
+    }
+
     /**
      * Retrieves all transactions for a specific customer.
+     * The list is serialized straight to the response while the transactions are read, so the
+     * memory used per request does not depend on how many transactions the customer has.
      * 
      * @param customerId the unique identifier of the customer
-     * @return ResponseEntity containing a list of transaction DTOs for the specified customer
+     * @param headers the request headers, used for If-None-Match and Accept
+     * @return ResponseEntity streaming the transaction DTOs of the specified customer as a JSON or CBOR array,
+     *         or 304 Not Modified if the client's ETag is still current
      * @throws ResourceNotFoundException if no customer is found with the given ID
      */
-    @GetMapping("/customers/{customerId}/transactions")
-    public ResponseEntity<List<TransactionDTO>> getCustomerTransactions(@PathVariable Long customerId) {
-        return ResponseEntity.ok(rewardService.getCustomerTransactions(customerId));
+    @GetMapping(value = "/customers/{customerId}/transactions",
+            produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
+    public ResponseEntity<StreamingResponseBody> getCustomerTransactions(@PathVariable Long customerId,
+                                                                         @RequestHeader HttpHeaders headers) {
+        String eTag = eTag(headers, "transactions", customerId, rewardService.getTransactionsVersion(customerId));
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (isNotModified(headers, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+        boolean cbor = acceptsCbor(headers);
+        ObjectMapper writer = cbor ? cborConverter.getObjectMapper() : objectMapper;
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = writer.getFactory().createGenerator(out)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.writeStartArray();
+                rewardService.streamCustomerTransactions(customerId, dto -> {
+                    try {
+                        writer.writeValue(generator, dto);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(cbor ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON)
+                .body(body);
     }
     
     /**
@@ -59,15 +155,146 @@ public class RewardController {
      * @param customerId the unique identifier of the customer
      * @param startDate the start date of the period for reward calculation (inclusive)
      * @param endDate the end date of the period for reward calculation (inclusive)
-     * @return ResponseEntity containing the reward response with total points and monthly breakdown
+     * @param rolling whether to reuse the customer's cached daily partial sums and only read the days that changed;
+     *                applies to the summary and monthly views
+     * @param view the level of detail: summary (total only), monthly (total and monthly breakdown) or full
+     * @param fillGaps whether months of the period without points are listed in the monthly breakdown with zero points
+     * @param headers the request headers, used for If-None-Match and Accept
+     * @return ResponseEntity containing the reward response with the fields selected by the view,
+     *         or 304 Not Modified if the client's ETag is still current
      * @throws IllegalArgumentException if dates are invalid or startDate is after endDate
+     * @throws CustomException if the view is not one of summary, monthly or full
      * @throws ResourceNotFoundException if no customer is found with the given ID
      */
-    @GetMapping("/customers/{customerId}/rewards")
+    @GetMapping(value = "/customers/{customerId}/rewards",
+            produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE })
     public ResponseEntity<RewardResponseDTO> getRewardsForCustomer(
             @PathVariable Long customerId,
             @RequestParam("startDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
-            @RequestParam("endDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate) {
-        return ResponseEntity.ok(rewardService.getRewardsForCustomer(customerId, startDate, endDate));
+            @RequestParam("endDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+            @RequestParam(value = "rolling", defaultValue = "false") boolean rolling,
+            @RequestParam(value = "view", defaultValue = "full") String view,
+            @RequestParam(value = "fillGaps", defaultValue = "false") boolean fillGaps,
+            @RequestHeader HttpHeaders headers) {
+        RewardView rewardView = RewardView.from(view);
+        String eTag = Observation.createNotStarted("rewards.etag", observationRegistry)
+                .contextualName("RewardController.eTag")
+                .observe(() -> eTag(headers, "rewards", customerId, rewardService.getTransactionsVersion(customerId),
+                        startDate, endDate, rewardView, fillGaps));
+        CacheControl cacheControl = rewardsCacheControl(endDate);
+        if (isNotModified(headers, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+
+        RewardResponseDTO response = rolling
+                ? rewardService.getRollingRewardsForCustomer(customerId, startDate, endDate, rewardView, fillGaps)
+                : rewardService.getRewardsForCustomer(customerId, startDate, endDate, rewardView, fillGaps);
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(acceptsCbor(headers) ? MediaType.APPLICATION_CBOR : MediaType.APPLICATION_JSON)
+                .body(response);
+    }
+
+    /**
+     * Retrieves the customers with the most reward points in a month, one page at a time.
+     * Customers with equal points are ordered by ascending customer ID.
+     * 
+     * @param month the month in yyyy-MM format, defaults to the current month
+     * @param page the zero-based page number
+     * @param size the number of customers per page, at most 1000
+     * @return ResponseEntity containing the ranked customers of the page
+     * @throws CustomException if page or size are invalid, or the month is not covered by the leaderboard
+     */
+    @GetMapping("/leaderboard")
+    public ResponseEntity<LeaderboardDTO> getLeaderboard(
+            @RequestParam(value = "month", required = false) YearMonth month,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "100") int size) {
+        if (page < 0) {
+            throw new CustomException("page must not be negative");
+        }
+        if (size < 1 || size > 1000) {
+            throw new CustomException("size must be between 1 and 1000");
+        }
+        return ResponseEntity.ok(rewardService.getLeaderboard(month == null ? YearMonth.now() : month, page, size));
+    }
+
+    /**
+     * Builds a strong ETag from the customer's transaction version and the request parameters
+     * that shape the representation, including whether CBOR was requested.
+     * 
+     * @param headers the request headers
+     * @param parts the values identifying the representation
+     * @return the quoted ETag value
+     */
+    private String eTag(HttpHeaders headers, Object... parts) {
+        StringBuilder key = new StringBuilder();
+        for (Object part : parts) {
+            key.append(part).append('|');
+        }
+        key.append(acceptsCbor(headers) ? "cbor" : "json");
+        return "\"" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Negotiates between JSON and CBOR like the produces lists of the read endpoints: the accepted media types
+     * are tried by descending quality, concrete ones before wildcards, and the first one compatible with JSON
+     * or CBOR decides. Parameters such as charset and wildcards like application/* are matched with
+     * isCompatibleWith, and JSON is the default when nothing matches.
+     * 
+     * @param headers the request headers
+     * @return true if the representation should be encoded as CBOR
+     */
+    private boolean acceptsCbor(HttpHeaders headers) {
+        List<MediaType> accepted = new ArrayList<>(headers.getAccept());
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed()
+                .thenComparing(MediaType::isWildcardType)
+                .thenComparing(MediaType::isWildcardSubtype));
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                break;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return false;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether any of the client's If-None-Match values matches the current ETag.
+     * Uses the weak comparison required for If-None-Match.
+     * 
+     * @param headers the request headers
+     * @param eTag the current ETag
+     * @return true if the client's copy is still current
+     */
+    private boolean isNotModified(HttpHeaders headers, String eTag) {
+        for (String candidate : headers.getIfNoneMatch()) {
+            String value = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+            if ("*".equals(value) || eTag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rewards of periods that ended before the current month are closed and can be cached for long;
+     * open periods must be revalidated on every use.
+     * 
+     * @param endDate the end date of the requested period
+     * @return the Cache-Control for the rewards response
+     */
+    private CacheControl rewardsCacheControl(LocalDate endDate) {
+        if (endDate.isBefore(LocalDate.now().withDayOfMonth(1))) {
+            return CacheControl.maxAge(closedPeriodMaxAge).cachePrivate();
+        }
+        return CacheControl.noCache().cachePrivate();
     }
 }
@@ -0,0 +1,39 @@
+package com.infy.customerRewards.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.infy.customerRewards.utility.RewardEventStream;
+
+/**
+ * REST Controller streaming reward change events to subscribers as server-sent events,
+ * so that downstream systems react to new points instead of polling the rewards endpoint.
+ * 
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/rewards")
+public class RewardEventController {
+
+    @Autowired
+    private RewardEventStream rewardEventStream;
+
+    /**
+     * Subscribes to "points-earned" events, each carrying the points of one transaction and the new totals.
+     * 
+     * @param customerId optional customer whose events are streamed; every customer's if omitted
+     * @param lastEventId optional ID of the last event received, to resume after a reconnect; a client resuming
+     *                    from an ID this instance did not issue, or whose next events were overwritten, gets a
+     *                    "reset" event before the buffered events
+     * @return the event stream
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestParam(required = false) Long customerId,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return rewardEventStream.subscribe(lastEventId, customerId);
+    }
+}
@@ -0,0 +1,178 @@
+package com.infy.customerRewards.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.infy.customerRewards.dto.ConnectionPoolStatsDTO;
+import com.infy.customerRewards.dto.IdempotencyStatsDTO;
+import com.infy.customerRewards.dto.RewardsCacheStatsDTO;
+import com.infy.customerRewards.dto.RewardsReportDTO;
+import com.infy.customerRewards.dto.SqlProfileDTO;
+import com.infy.customerRewards.exception.CustomException;
+import com.infy.customerRewards.utility.ColumnarTransactionStore;
+import com.infy.customerRewards.utility.ConnectionPoolMetrics;
+import com.infy.customerRewards.utility.FlightRecording;
+import com.infy.customerRewards.utility.IdempotencyKeys;
+import com.infy.customerRewards.utility.PointsIndex;
+import com.infy.customerRewards.utility.SqlProfiler;
+import com.infy.customerRewards.utility.TwoLevelRewardsCache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * REST Controller for administrative reward reports across all customers.
+ * Reports are computed from the in-memory columnar transaction store rather than the database.
+ * 
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class RewardReportController {
+
+    private static final Set<String> SQL_PROFILE_ORDERS = Set.of("total", "mean", "max", "executions", "rows");
+
+    @Autowired
+    private ColumnarTransactionStore columnarTransactionStore;
+
+    @Autowired
+    private PointsIndex pointsIndex;
+
+    @Autowired
+    private IdempotencyKeys idempotencyKeys;
+
+    @Autowired
+    private TwoLevelRewardsCache rewardsCache;
+
+    @Autowired
+    private ConnectionPoolMetrics connectionPoolMetrics;
+
+    @Autowired
+    private SqlProfiler sqlProfiler;
+
+    @Autowired
+    private FlightRecording flightRecording;
+
+    /**
+     * Calculates the total reward points of every customer within a date range.
+     * 
+     * @param startDate the start date of the period (inclusive)
+     * @param endDate the end date of the period (inclusive)
+     * @param top the number of customers with the most points to include
+     * @return ResponseEntity containing the totals over all customers and the top customers
+     * @throws CustomException if the dates or top are invalid, or the columnar store is disabled
+     */
+    @GetMapping("/rewards-report")
+    public ResponseEntity<RewardsReportDTO> getRewardsReport(
+            @RequestParam("startDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+            @RequestParam("endDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+            @RequestParam(value = "top", defaultValue = "100") int top) {
+        if (startDate.isAfter(endDate)) {
+            throw new CustomException("startDate must not be after endDate");
+        }
+        if (top < 0 || top > 10_000) {
+            throw new CustomException("top must be between 0 and 10000");
+        }
+        return ResponseEntity.ok(columnarTransactionStore.report(startDate, endDate, top));
+    }
+
+    /**
+     * Rebuilds the off-heap points index from the transactions table.
+     * 
+     * @return ResponseEntity containing the number of customers in the rebuilt index
+     * @throws CustomException if the points index is disabled
+     */
+    @PostMapping("/points-index/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildPointsIndex() {
+        return ResponseEntity.ok(Map.of("customers", pointsIndex.rebuild()));
+    }
+
+    /**
+     * Reports the memory footprint and false-positive rate of the idempotency key filter.
+     * 
+     * @return ResponseEntity containing the configured, estimated and observed filter figures
+     */
+    @GetMapping("/idempotency-filter")
+    public ResponseEntity<IdempotencyStatsDTO> getIdempotencyFilterStats() {
+        return ResponseEntity.ok(idempotencyKeys.getStats());
+    }
+
+    /**
+     * Reports how often this instance served rewards from its near cache, the shared cache or the database.
+     * 
+     * @return ResponseEntity containing the hit counts of the rewards cache
+     */
+    @GetMapping("/rewards-cache")
+    public ResponseEntity<RewardsCacheStatsDTO> getRewardsCacheStats() {
+        return ResponseEntity.ok(rewardsCache.getStats());
+    }
+
+    /**
+     * Reports the connections of every database pool and how long requests waited for and held them.
+     * 
+     * @return ResponseEntity containing one entry per pool, with the endpoints that waited longest for connections
+     */
+    @GetMapping("/connection-pools")
+    public ResponseEntity<List<ConnectionPoolStatsDTO>> getConnectionPoolStats() {
+        return ResponseEntity.ok(connectionPoolMetrics.getStats());
+    }
+
+    /**
+     * Reports the most expensive SQL statement shapes executed within the profiling window, with the endpoints
+     * that executed them.
+     * 
+     * @param top the number of shapes reported
+     * @param by total, mean, max, executions or rows
+     * @return ResponseEntity containing the profile, with the top shapes in descending order
+     * @throws CustomException if top is out of range or by names no order
+     */
+    @GetMapping("/sql-profile")
+    public ResponseEntity<SqlProfileDTO> getSqlProfile(
+            @RequestParam(value = "top", defaultValue = "20") int top,
+            @RequestParam(value = "by", defaultValue = "total") String by) {
+        if (top < 1 || top > 1000) {
+            throw new CustomException("top must be between 1 and 1000");
+        }
+        if (!SQL_PROFILE_ORDERS.contains(by)) {
+            throw new CustomException("by must be one of total, mean, max, executions or rows");
+        }
+        return ResponseEntity.ok(sqlProfiler.getProfile(top, by));
+    }
+
+    /**
+     * Dumps the running flight recordings, with the rewards request events, for opening in JDK Mission Control
+     * or the jfr tool. The dump is written to a temporary file, which is deleted once it was sent.
+     * 
+     * @return ResponseEntity streaming the recording file
+     * @throws IOException if the dump cannot be written
+     * @throws CustomException if no recording is running
+     */
+    @GetMapping("/flight-recording")
+    public ResponseEntity<StreamingResponseBody> dumpFlightRecording() throws IOException {
+        Path file = flightRecording.dump();
+        StreamingResponseBody body = out -> {
+            try {
+                Files.copy(file, out);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .contentLength(Files.size(file))
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(body);
+    }
+}
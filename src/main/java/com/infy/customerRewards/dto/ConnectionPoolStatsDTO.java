@@ -0,0 +1,39 @@
+package com.infy.customerRewards.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * State of a database connection pool and its acquisition and usage times since the application started.
+ * Percentiles are upper bounds of power-of-two microsecond buckets, so they overstate by less than a factor of two.
+ * Acquisitions and slow acquisitions include the requests that timed out waiting, also counted as timeouts.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+public class ConnectionPoolStatsDTO {
+    private String poolName;
+    private int active;
+    private int idle;
+    private int pending;
+    private int total;
+    private int maximumPoolSize;
+    private int minimumIdle;
+    private long acquisitions;
+    private double acquireMeanMillis;
+    private double acquireP50Millis;
+    private double acquireP99Millis;
+    private double acquireMaxMillis;
+    // upper bound in microseconds of each non-empty bucket to the number of acquisitions in it
+    private Map<Long, Long> acquireHistogramMicros;
+    private double usageMeanMillis;
+    private double usageP99Millis;
+    private double usageMaxMillis;
+    private long timeouts;
+    private long slowAcquires;
+    private Map<String, Long> slowAcquiresByEndpoint;
+    private long resizes;
+}
@@ -0,0 +1,20 @@
+package com.infy.customerRewards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Total reward points of one customer in a rewards report.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerPointsDTO {
+    private Long customerId;
+    private Long points;
+}
@@ -0,0 +1,28 @@
+package com.infy.customerRewards.dto;
+
+import lombok.Data;
+
+/**
+ * Sizing and effectiveness of the idempotency key filter.
+ * The observed false-positive rate is the share of keys the filter reported as possibly seen
+ * that turned out to be new when looked up in the database.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+public class IdempotencyStatsDTO {
+    private long expectedInsertions;
+    private double configuredFalsePositiveProbability;
+    private double estimatedFalsePositiveProbability;
+    private double observedFalsePositiveRate;
+    private long bits;
+    private int hashFunctions;
+    private long memoryBytes;
+    private long insertions;
+    private long definitelyNew;
+    private long databaseLookups;
+    private long falsePositives;
+    private long duplicates;
+}
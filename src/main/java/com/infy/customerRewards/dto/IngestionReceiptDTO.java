@@ -0,0 +1,21 @@
+package com.infy.customerRewards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Acknowledgement of ingested transactions.
+ * A request repeating an idempotency key gets the receipt of the original request with duplicate set.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionReceiptDTO {
+    private Long sequence;
+    private Boolean duplicate;
+}
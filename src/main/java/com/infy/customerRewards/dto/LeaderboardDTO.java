@@ -0,0 +1,23 @@
+package com.infy.customerRewards.dto;
+
+import java.time.YearMonth;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * One page of the monthly points leaderboard.
+ * Customers are ranked by points, highest first, and customers with equal points by ascending customer ID.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+public class LeaderboardDTO {
+    private YearMonth month;
+    private Integer page;
+    private Integer size;
+    private Integer totalCustomers;
+    private List<LeaderboardEntryDTO> entries;
+}
@@ -0,0 +1,21 @@
+package com.infy.customerRewards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One ranked customer of the monthly points leaderboard.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderboardEntryDTO {
+    private Integer rank;
+    private Long customerId;
+    private Long points;
+}
@@ -0,0 +1,20 @@
+package com.infy.customerRewards.dto;
+
+/**
+ * Projection of the per-month reward aggregate computed by the database.
+ * Used by the summary and monthly views of the rewards endpoint so that no transaction rows are fetched.
+ * 
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public interface MonthlyPointsSummary {
+
+    Integer getYear();
+
+    Integer getMonth();
+
+    Long getTransactionCount();
+
+    Long getPoints();
+}
@@ -1,6 +1,13 @@
 package com.infy.customerRewards.dto;
 
-import lombok.Builder;
+import java.time.Month;
+import java.time.YearMonth;
+import java.time.format.TextStyle;
+import java.util.Locale;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+
 import lombok.Data;
 
 /**
@@ -12,12 +19,21 @@ import lombok.Data;
  * @since 2024
  */
 @Data
-@Builder
+@JsonDeserialize(builder = MonthlyRewardDTO.Builder.class)
 public class MonthlyRewardDTO {
     private Integer year;
     private String month;
     private Integer points;
 
+    // Full English month names indexed by month value - 1, computed once instead of per request
+    private static final String[] MONTH_NAMES = new String[12];
+
+    static {
+        for (Month month : Month.values()) {
+            MONTH_NAMES[month.ordinal()] = month.getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+        }
+    }
+
     // Private constructor
     private MonthlyRewardDTO(Builder builder) {
         this.year = builder.year;
@@ -30,7 +46,8 @@ public class MonthlyRewardDTO {
     public String getMonth() { return month; }
     public Integer getPoints() { return points; }
 
-    // Builder class
+    // Builder class, also used by Jackson when decoding JSON/CBOR responses
+    @JsonPOJOBuilder(withPrefix = "")
     public static class Builder {
         private Integer year;
         private String month;
@@ -59,4 +76,19 @@ public class MonthlyRewardDTO {
     public static Builder builder() {
         return new Builder();
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates the monthly reward entry of a calendar month.
+     * 
+     * @param month the year and month
+     * @param points the reward points earned in the month
+     * @return MonthlyRewardDTO with year, full month name and points
+     */
+    public static MonthlyRewardDTO of(YearMonth month, int points) {
+        return builder()
+                .year(month.getYear())
+                .month(MONTH_NAMES[month.getMonthValue() - 1])
+                .points(points)
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.infy.customerRewards.dto;
+
+import java.time.YearMonth;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Running reward points of a customer as held by the points index.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PointsBalanceDTO {
+    private Long customerId;
+    private YearMonth month;
+    private Long monthPoints;
+    private Long lifetimePoints;
+}
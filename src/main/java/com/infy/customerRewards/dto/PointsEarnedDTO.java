@@ -0,0 +1,26 @@
+package com.infy.customerRewards.dto;
+
+import java.time.Instant;
+import java.time.YearMonth;
+
+import lombok.Data;
+
+/**
+ * Change event emitted for every recorded transaction that earned reward points.
+ * Carries the points of the transaction and the customer's totals right after it, so that consumers
+ * can update their copy of the rewards without calling the rewards endpoint.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+public class PointsEarnedDTO {
+    private Long sequence;
+    private Long customerId;
+    private YearMonth month;
+    private Integer delta;
+    private Long monthPoints;
+    private Long lifetimePoints;
+    private Instant occurredAt;
+}
@@ -3,6 +3,9 @@ package com.infy.customerRewards.dto;
 import java.util.List;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonSetter;
+
 import lombok.Builder;
 import lombok.Data;
 
@@ -13,10 +16,12 @@ import java.util.Map;
  * Data Transfer Object for customer reward response.
  * Contains comprehensive reward information including structured monthly breakdown,
  * transaction details, and reward calculations for a specific time period.
+ * Sections left out by the summary and monthly views are omitted from the payload.
  * @author Infy
  * @version 1.0
  * @since 2024
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class RewardResponseDTO {
     
     private Long customerId;
@@ -143,8 +148,10 @@ public class RewardResponseDTO {
 
     /**
      * Sets the structured monthly rewards breakdown.
+     * Marked as the setter Jackson uses when decoding JSON/CBOR payloads.
      * @param monthlyRewards the list of monthly reward DTOs to set
      */
+    @JsonSetter("monthlyRewards")
     public void setMonthlyRewards(List<MonthlyRewardDTO> monthlyRewards) {
         this.monthlyRewards = monthlyRewards;
     }
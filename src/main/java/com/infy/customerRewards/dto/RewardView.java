@@ -0,0 +1,34 @@
+package com.infy.customerRewards.dto;
+
+import com.infy.customerRewards.exception.CustomException;
+
+/**
+ * Level of detail returned by the rewards endpoint.
+ * SUMMARY returns only the total, MONTHLY adds the monthly breakdown and FULL
+ * also includes every transaction of the period.
+ * 
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public enum RewardView {
+    SUMMARY,
+    MONTHLY,
+    FULL;
+
+    /**
+     * Parses the view request parameter, ignoring case.
+     * 
+     * @param value the request parameter value
+     * @return the matching view
+     * @throws CustomException if the value does not name a view
+     */
+    public static RewardView from(String value) {
+        for (RewardView view : values()) {
+            if (view.name().equalsIgnoreCase(value)) {
+                return view;
+            }
+        }
+        throw new CustomException("Invalid view: " + value + ". Expected one of summary, monthly, full");
+    }
+}
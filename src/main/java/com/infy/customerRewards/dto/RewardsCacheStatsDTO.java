@@ -0,0 +1,21 @@
+package com.infy.customerRewards.dto;
+
+import lombok.Data;
+
+/**
+ * Hit counts of the two-level rewards cache of this instance since it started.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+public class RewardsCacheStatsDTO {
+    private boolean enabled;
+    private int nearCustomers;
+    private long nearHits;
+    private long remoteHits;
+    private long misses;
+    private long versionChecks;
+    private long invalidations;
+}
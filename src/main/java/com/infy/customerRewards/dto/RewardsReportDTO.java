@@ -0,0 +1,25 @@
+package com.infy.customerRewards.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Data Transfer Object for the admin rewards report.
+ * Aggregates reward points of all customers over a date range and lists the customers with the most points.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+public class RewardsReportDTO {
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private long scannedTransactions;
+    private int customersWithPoints;
+    private long totalPoints;
+    private List<CustomerPointsDTO> topCustomers;
+    private long elapsedMillis;
+}
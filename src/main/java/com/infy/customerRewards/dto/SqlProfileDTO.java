@@ -0,0 +1,24 @@
+package com.infy.customerRewards.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * SQL statements executed by this instance within a sliding window, with the most expensive statement shapes.
+ * Times include executing a statement and fetching its rows, but not the work done between fetches.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+public class SqlProfileDTO {
+    private boolean enabled;
+    private long windowSeconds;
+    private String orderedBy;
+    private long executions;
+    private double totalMillis;
+    private int shapes;
+    private List<SqlShapeStatsDTO> top;
+}
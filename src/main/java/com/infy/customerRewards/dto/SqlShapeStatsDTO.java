@@ -0,0 +1,26 @@
+package com.infy.customerRewards.dto;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Executions of one SQL statement shape, the statement with its literals and value lists collapsed,
+ * within the sliding window of the SQL profile.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+public class SqlShapeStatsDTO {
+    private String shape;
+    private long executions;
+    private double totalMillis;
+    private double meanMillis;
+    private double maxMillis;
+    private long rows;
+    private double meanRows;
+    // endpoint, or thread outside of requests, to its total time in milliseconds, the most expensive first
+    private Map<String, Double> endpointMillis;
+}
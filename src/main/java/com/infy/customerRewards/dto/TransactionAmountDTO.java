@@ -0,0 +1,22 @@
+package com.infy.customerRewards.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Date and amount of one transaction, the only columns reward sums are calculated from.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionAmountDTO {
+    private LocalDate date;
+    private Double amount;
+}
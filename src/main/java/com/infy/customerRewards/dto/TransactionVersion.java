@@ -0,0 +1,17 @@
+package com.infy.customerRewards.dto;
+
+/**
+ * Projection of a cheap per-customer version of the transaction data.
+ * Transactions are only ever inserted, so the count together with the highest ID
+ * changes whenever the customer's transactions change.
+ * 
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public interface TransactionVersion {
+
+    Long getTransactionCount();
+
+    Long getLastTransactionId();
+}
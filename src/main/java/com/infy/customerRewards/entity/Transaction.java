@@ -2,6 +2,8 @@ package com.infy.customerRewards.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDate;
 
@@ -9,13 +11,16 @@ import java.time.LocalDate;
  * Entity class representing a transaction in the rewards system.
  * Stores transaction details and maintains a many-to-one relationship with customers.
  * Each transaction is associated with a customer and used for reward point calculations.
+ * The table is range partitioned by month on date (see tableScript.sql); queries should bound
+ * the raw date column so the database only reads the partitions they touch.
  * @author Infy
  * @version 1.0
  * @since 2024
  */
 @Data
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions",
+        indexes = @Index(name = "idx_transactions_customer_date", columnList = "customer_id, date"))
 public class Transaction {
     
     /**
@@ -29,7 +34,9 @@ public class Transaction {
     /**
      * Date when the transaction occurred.
      * Used for filtering transactions by time period and monthly reward calculations.
+     * Partitioning column of the transactions table.
      */
+    @Column(nullable = false)
     private LocalDate date;
     
     /**
@@ -41,16 +48,20 @@ public class Transaction {
     /**
      * Monetary amount of the transaction.
      * Used as the basis for calculating reward points.
+     * Stored as DECIMAL(10,2) like in tableScript.sql, so that schema validation accepts the column.
      */
+    @Column(nullable = false, precision = 10, scale = 2)
+    @JdbcTypeCode(SqlTypes.DECIMAL)
     private Double amount;
 
     /**
      * Customer who made this transaction.
      * Maintains bidirectional relationship with Customer entity.
      * Uses lazy fetching for performance optimization.
+     * No foreign key is generated because MySQL does not support them on partitioned tables.
      */
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "customer_id", nullable = false)
+    @JoinColumn(name = "customer_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Customer customer;
 
     /**
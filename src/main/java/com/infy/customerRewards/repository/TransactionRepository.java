@@ -1,19 +1,141 @@
 package com.infy.customerRewards.repository;
 
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.infy.customerRewards.dto.CustomerPointsDTO;
+import com.infy.customerRewards.dto.MonthlyPointsSummary;
+import com.infy.customerRewards.dto.TransactionAmountDTO;
+import com.infy.customerRewards.dto.TransactionVersion;
 import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.utility.RewardCalculator;
+
+import jakarta.persistence.QueryHint;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     List<Transaction> findByCustomerId(Long customerId);
 
-    List<Transaction> findByCustomerIdAndDateBetween(Long customerId, LocalDate startDate, LocalDate endDate);
+    /**
+     * Streams the transactions of a customer with a bounded JDBC fetch size instead of materializing the list.
+     * Must be consumed inside a transaction and closed after use.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select t from Transaction t where t.customer.id = :customerId")
+    Stream<Transaction> streamByCustomerId(@Param("customerId") Long customerId);
+
+    /**
+     * Loads the transactions of a customer within a date range (inclusive).
+     * The range is applied to the raw date column, without functions or casts, so that MySQL prunes
+     * the monthly partitions of the transactions table to those overlapping the range and then uses
+     * the (customer_id, date) index within them. BETWEEN prunes just as well; the date queries of this
+     * repository are written with >= and <= only for uniformity.
+     */
+    @Query("select t from Transaction t "
+            + "where t.customer.id = :customerId and t.date >= :startDate and t.date <= :endDate")
+    List<Transaction> findByCustomerIdAndDateBetween(@Param("customerId") Long customerId,
+                                                     @Param("startDate") LocalDate startDate,
+                                                     @Param("endDate") LocalDate endDate);
+
+    /**
+     * Loads only the date and amount of the transactions of a customer within a date range (inclusive),
+     * for sums that do not need the rest of the entity. Bounded like findByCustomerIdAndDateBetween.
+     */
+    @Query("select new com.infy.customerRewards.dto.TransactionAmountDTO(t.date, t.amount) from Transaction t "
+            + "where t.customer.id = :customerId and t.date >= :startDate and t.date <= :endDate")
+    List<TransactionAmountDTO> findAmountsByCustomerIdAndDateBetween(@Param("customerId") Long customerId,
+                                                                     @Param("startDate") LocalDate startDate,
+                                                                     @Param("endDate") LocalDate endDate);
+
+    /**
+     * Aggregates reward points per month in the database, without fetching transaction rows.
+     * Points are calculated by RewardCalculator.POINTS_JPQL.
+     */
+    @Query("select year(t.date) as year, month(t.date) as month, count(t) as transactionCount, "
+            + "cast(sum(" + RewardCalculator.POINTS_JPQL + ") as Long) as points "
+            + "from Transaction t "
+            + "where t.customer.id = :customerId and t.date >= :startDate and t.date <= :endDate "
+            + "group by year(t.date), month(t.date) "
+            + "order by year(t.date), month(t.date)")
+    List<MonthlyPointsSummary> sumPointsByMonth(@Param("customerId") Long customerId,
+                                                @Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+    /**
+     * Sums the reward points of all transactions of a customer still in the database.
+     * Points are calculated by RewardCalculator.POINTS_JPQL.
+     */
+    @Query("select coalesce(cast(sum(" + RewardCalculator.POINTS_JPQL + ") as Long), 0) "
+            + "from Transaction t where t.customer.id = :customerId")
+    long sumPointsByCustomerId(@Param("customerId") Long customerId);
+
+    /**
+     * Aggregates reward points per customer over a date range in the database, for ranking customers.
+     * Only transactions up to an ID are summed, so that later ones can be added as they are caught up with.
+     * Points are calculated by RewardCalculator.POINTS_JPQL; customers without points are left out.
+     */
+    @Query("select new com.infy.customerRewards.dto.CustomerPointsDTO(t.customer.id, "
+            + "cast(sum(" + RewardCalculator.POINTS_JPQL + ") as Long)) "
+            + "from Transaction t "
+            + "where t.date >= :startDate and t.date <= :endDate and t.amount > 50 and t.id <= :maxId "
+            + "group by t.customer.id")
+    List<CustomerPointsDTO> sumPointsByCustomer(@Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate,
+                                                @Param("maxId") Long maxId);
+
+    /**
+     * Reads the transaction count and highest transaction ID of a customer, served from the customer_id index.
+     */
+    @Query("select count(t) as transactionCount, coalesce(max(t.id), 0) as lastTransactionId "
+            + "from Transaction t where t.customer.id = :customerId")
+    TransactionVersion findVersionByCustomerId(@Param("customerId") Long customerId);
+
+    /**
+     * Reads the date of the oldest transaction still in the database, or null if there is none.
+     */
+    @Query("select min(t.date) from Transaction t")
+    LocalDate findOldestDate();
+
+    /**
+     * Streams the transactions of a date range ordered by customer and date, as written to archive segments.
+     * Must be consumed inside a transaction and closed after use.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select t from Transaction t where t.date >= :startDate and t.date <= :endDate "
+            + "order by t.customer.id, t.date, t.id")
+    Stream<Transaction> streamByDateBetweenOrderByCustomer(@Param("startDate") LocalDate startDate,
+                                                           @Param("endDate") LocalDate endDate);
+
+    /**
+     * Counts the transactions of a date range (inclusive).
+     */
+    @Query("select count(t) from Transaction t where t.date >= :startDate and t.date <= :endDate")
+    long countByDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    /**
+     * Deletes archived transactions by ID. Only the IDs written to the archive are passed, so rows added to
+     * the date range after it was read are kept; the date bounds let MySQL prune the partitions.
+     */
+    @Modifying
+    @Query("delete from Transaction t where t.date >= :startDate and t.date <= :endDate and t.id in :ids")
+    int deleteArchived(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate,
+                       @Param("ids") List<Long> ids);
 
 }
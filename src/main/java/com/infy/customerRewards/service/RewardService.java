@@ -3,11 +3,16 @@ package com.infy.customerRewards.service;
 
 import com.infy.customerRewards.dto.CustomerDTO;
 import com.infy.customerRewards.dto.CustomerResponseDTO;
+import com.infy.customerRewards.dto.IngestionReceiptDTO;
+import com.infy.customerRewards.dto.LeaderboardDTO;
 import com.infy.customerRewards.dto.RewardResponseDTO;
+import com.infy.customerRewards.dto.RewardView;
 import com.infy.customerRewards.dto.TransactionDTO;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service interface for managing customer rewards and transactions.
@@ -39,6 +44,15 @@ public interface RewardService {
      * @throws ResourceNotFoundException if no customer exists with the provided customerId
      */
     List<TransactionDTO> getCustomerTransactions(Long customerId);
+
+    /**
+     * Streams all transactions of a customer to the consumer one at a time, with reward points calculated.
+     * Unlike {@link #getCustomerTransactions(Long)} the transactions are never held in memory all at once.
+     * 
+     * @param customerId the unique identifier of the customer whose transactions are to be streamed
+     * @param consumer receives each transaction DTO in turn
+     */
+    void streamCustomerTransactions(Long customerId, Consumer<TransactionDTO> consumer);
     
     /**
      * Calculates and retrieves reward points for a customer within a specified date range.
@@ -53,4 +67,71 @@ public interface RewardService {
      * @throws ResourceNotFoundException if no customer exists with the provided customerId
      */
     RewardResponseDTO getRewardsForCustomer(Long customerId, LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Retrieves reward points for a customer within a specified date range at the requested level of detail.
+     * The summary and monthly views are aggregated by the database and never load individual transactions.
+     * 
+     * @param customerId the unique identifier of the customer for whom rewards are calculated
+     * @param startDate the start date of the reward calculation period (inclusive)
+     * @param endDate the end date of the reward calculation period (inclusive)
+     * @param view the level of detail of the response
+     * @param fillGaps whether months of the period without points are listed with zero points
+     * @return RewardResponseDTO containing the fields selected by the view, with monthly rewards in chronological order
+     * @throws ResourceNotFoundException if no customer exists with the provided customerId
+     */
+    RewardResponseDTO getRewardsForCustomer(Long customerId, LocalDate startDate, LocalDate endDate, RewardView view,
+                                            boolean fillGaps);
+
+    /**
+     * Retrieves reward points for a customer within a rolling date range.
+     * Keeps per-customer daily partial sums between calls so that only days entering the range are read
+     * and days leaving it are subtracted, instead of reloading every transaction of the range.
+     * The full view lists every transaction of the range and is therefore calculated as without rolling.
+     * 
+     * @param customerId the unique identifier of the customer for whom rewards are calculated
+     * @param startDate the start date of the reward calculation period (inclusive)
+     * @param endDate the end date of the reward calculation period (inclusive)
+     * @param view the level of detail of the response
+     * @param fillGaps whether months of the period without points are listed with zero points
+     * @return RewardResponseDTO containing the fields selected by the view, with monthly rewards in chronological order
+     * @throws ResourceNotFoundException if no customer exists with the provided customerId
+     */
+    RewardResponseDTO getRollingRewardsForCustomer(Long customerId, LocalDate startDate, LocalDate endDate, RewardView view,
+                                                   boolean fillGaps);
+
+    /**
+     * Returns a cheap version stamp of a customer's transaction data, used to build HTTP entity tags.
+     * The stamp changes whenever a transaction is added to or removed from the customer.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @return the version stamp of the customer's transactions
+     */
+    String getTransactionsVersion(Long customerId);
+
+    /**
+     * Retrieves one page of the customers with the most reward points in a month.
+     * 
+     * @param month the month to rank customers in
+     * @param page the zero-based page number
+     * @param size the number of customers per page
+     * @return LeaderboardDTO with the ranked customers of the page
+     * @throws CustomException if the month is not covered by the leaderboard
+     */
+    LeaderboardDTO getLeaderboard(YearMonth month, int page, int size);
+
+    /**
+     * Accepts transactions of an existing customer through the write-behind journal.
+     * Returns once the transactions are durable in the journal; they are inserted into the database
+     * in the background and only then show up in transactions and rewards.
+     * A request repeating an idempotency key is not ingested again and gets the original sequence number.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @param idempotencyKey the client-supplied key identifying the request across retries, or null
+     * @param transactions the transactions to ingest
+     * @return IngestionReceiptDTO with the journal sequence number of the last transaction and whether it was a duplicate
+     * @throws CustomException if the journal is disabled, the key is invalid or already used with different
+     *         transactions, or a transaction is incomplete
+     */
+    IngestionReceiptDTO ingestTransactions(Long customerId, String idempotencyKey, List<TransactionDTO> transactions);
 }
\ No newline at end of file
@@ -22,33 +22,67 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.env.Environment;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.infy.customerRewards.dto.CustomerDTO;
 import com.infy.customerRewards.dto.CustomerResponseDTO;
+import com.infy.customerRewards.dto.IngestionReceiptDTO;
+import com.infy.customerRewards.dto.LeaderboardDTO;
+import com.infy.customerRewards.dto.MonthlyPointsSummary;
 import com.infy.customerRewards.dto.MonthlyRewardDTO;
 import com.infy.customerRewards.dto.RewardResponseDTO;
+import com.infy.customerRewards.dto.RewardView;
+import com.infy.customerRewards.dto.TransactionAmountDTO;
 import com.infy.customerRewards.dto.TransactionDTO;
+import com.infy.customerRewards.dto.TransactionVersion;
 import com.infy.customerRewards.entity.Customer;
 import com.infy.customerRewards.entity.Transaction;
 import com.infy.customerRewards.repository.CustomerRepository;
 import com.infy.customerRewards.repository.TransactionRepository;
 import com.infy.customerRewards.service.RewardService;
+import com.infy.customerRewards.exception.CustomException;
+import com.infy.customerRewards.utility.IdempotencyKeys;
 import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.RewardEventOutbox;
+import com.infy.customerRewards.utility.RewardLeaderboard;
+import com.infy.customerRewards.utility.RewardsRequestEvent;
+import com.infy.customerRewards.utility.RollingRewardsWindow;
+import com.infy.customerRewards.utility.ShardRouter;
+import com.infy.customerRewards.utility.TransactionArchive;
+import com.infy.customerRewards.utility.TransactionJournal;
+import com.infy.customerRewards.utility.TransactionsRecordedEvent;
+import com.infy.customerRewards.utility.TwoLevelRewardsCache;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service implementation for customer rewards management.
  * Handles business logic for customer creation, transaction retrieval, and reward calculations.
+ * Read-only methods run in read-only transactions so that they can be served by a read replica.
  * 
  * @author Infy
  * @version 1.0
@@ -75,9 +109,48 @@ public class RewardServiceImpl implements RewardService {
     @Autowired
     private RewardCalculator rewardCalculator;
 
+    @Autowired
+    private RollingRewardsWindow rollingRewardsWindow;
+
+    @Autowired
+    private TransactionArchive transactionArchive;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RewardLeaderboard rewardLeaderboard;
+
+    @Autowired
+    private TransactionJournal transactionJournal;
+
+    @Autowired
+    private IdempotencyKeys idempotencyKeys;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private RewardEventOutbox rewardEventOutbox;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TwoLevelRewardsCache rewardsCache;
+
+    @Autowired
+    private ObservationRegistry observationRegistry = ObservationRegistry.NOOP;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Creates a new customer with associated transactions and encodes sensitive information.
      * Establishes bidirectional relationship between customer and transactions.
+     * Writes the reward events of the transactions in the same database transaction as the customer,
+     * and publishes a TransactionsRecordedEvent for the saved transactions once it committed.
+     * The customer is created on the shard picked by the shard router, which its generated ID encodes.
      * 
      * @param customerDTO the customer data transfer object containing customer details and transactions
      * @return CustomerResponseDTO with saved customer information and generated ID
@@ -91,7 +164,19 @@ public class RewardServiceImpl implements RewardService {
             customer.getTransactions().forEach(tx -> tx.setCustomer(customer));
         }
         customer.setPhoneNo(passwordEncoder.encode(customer.getPhoneNo()));
-        Customer savedCustomer = customerRepository.save(customer);
+        Customer savedCustomer = shardRouter.onShard(shardRouter.allocateShard(), () -> {
+            Customer saved = new TransactionTemplate(transactionManager).execute(status -> {
+                Customer inserted = customerRepository.save(customer);
+                if (inserted.getTransactions() != null && !inserted.getTransactions().isEmpty()) {
+                    rewardEventOutbox.record(Map.of(inserted.getId(), inserted.getTransactions()));
+                }
+                return inserted;
+            });
+            if (saved.getTransactions() != null && !saved.getTransactions().isEmpty()) {
+                eventPublisher.publishEvent(new TransactionsRecordedEvent(saved.getId(), saved.getTransactions()));
+            }
+            return saved;
+        });
         return mapper.map(savedCustomer, CustomerResponseDTO.class);
     }
     
@@ -103,6 +188,7 @@ public class RewardServiceImpl implements RewardService {
      * @throws RuntimeException if customer is not found or data access error occurs
      */
     @Override
+    @Transactional(readOnly = true)
     public List<TransactionDTO> getCustomerTransactions(Long customerId) {
         List<Transaction> transactions = transactionRepository.findByCustomerId(customerId);
 
@@ -115,6 +201,27 @@ public class RewardServiceImpl implements RewardService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Streams all transactions for a specific customer with calculated reward points.
+     * Rows are read with a bounded fetch size and detached once handed to the consumer,
+     * so memory use does not grow with the number of transactions.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @param consumer receives each transaction DTO in turn
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamCustomerTransactions(Long customerId, Consumer<TransactionDTO> consumer) {
+        try (Stream<Transaction> transactions = transactionRepository.streamByCustomerId(customerId)) {
+            transactions.forEach(tx -> {
+                TransactionDTO dto = mapper.map(tx, TransactionDTO.class);
+                dto.setRewardPoints(rewardCalculator.calculatePoints(tx.getAmount()));
+                consumer.accept(dto);
+                entityManager.detach(tx);
+            });
+        }
+    }
+
     /**
      * Calculates rewards for a customer within a specified date range.
      * Validates customer existence and transaction availability before reward calculation.
@@ -126,43 +233,315 @@ public class RewardServiceImpl implements RewardService {
      * @throws RuntimeException if customer not found, no transactions in date range, or calculation error
      */
     @Override
+    @Transactional(readOnly = true)
     public RewardResponseDTO getRewardsForCustomer(Long customerId, LocalDate startDate, LocalDate endDate) {
-        Customer customer = customerRepository.findById(customerId)
+        return getRewardsForCustomer(customerId, startDate, endDate, RewardView.FULL, false);
+    }
+
+    /**
+     * Calculates rewards for a customer within a specified date range at the requested level of detail.
+     * The summary and monthly views use a grouped aggregate query instead of fetching and mapping
+     * every transaction row; the full view behaves like {@link #getRewardsForCustomer(Long, LocalDate, LocalDate)}.
+     * Months moved to the transaction archive are read from their segment files.
+     * Responses are served from the two-level rewards cache until the customer's transactions change.
+     * Each call is recorded as a {@link RewardsRequestEvent} while Flight Recorder records it, and observed as a
+     * span of the request's trace with the repository, calculator and response building spans within it.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @param startDate the start date of the reward calculation period (inclusive)
+     * @param endDate the end date of the reward calculation period (inclusive)
+     * @param view the level of detail of the response
+     * @param fillGaps whether months of the period without points are listed with zero points
+     * @return RewardResponseDTO containing the fields selected by the view
+     * @throws RuntimeException if customer not found or no transactions in date range
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public RewardResponseDTO getRewardsForCustomer(Long customerId, LocalDate startDate, LocalDate endDate, RewardView view,
+                                                   boolean fillGaps) {
+        RewardsRequestEvent event = RewardsRequestEvent.begin(customerId, startDate, endDate, view.name());
+        try {
+            return observe("RewardService.getRewardsForCustomer", customerId, view,
+                    () -> rewardsCache.get(customerId, startDate + ":" + endDate + ":" + view + ":" + fillGaps,
+                            () -> calculateRewards(customerId, startDate, endDate, view, fillGaps)));
+        } finally {
+            RewardsRequestEvent.serviceReturned(event);
+        }
+    }
+
+    /**
+     * Calculates the rewards of {@link #getRewardsForCustomer(Long, LocalDate, LocalDate, RewardView, boolean)} on a cache miss.
+     */
+    private RewardResponseDTO calculateRewards(Long customerId, LocalDate startDate, LocalDate endDate, RewardView view,
+                                               boolean fillGaps) {
+        RewardsRequestEvent event = RewardsRequestEvent.current();
+        if (event != null) {
+            event.calculated();
+        }
+        Customer customer = RewardsRequestEvent.timeDatabase(() -> findCustomer(customerId));
+
+        if (view == RewardView.FULL) {
+            List<Transaction> transactions = RewardsRequestEvent.timeDatabase(
+                    () -> loadTransactions(customerId, startDate, endDate));
+
+            if (transactions.isEmpty()) {
+                throw new RuntimeException(env.getProperty("transaction.notfound", "No transactions found"));
+            }
+            RewardCalculator.RewardCalculationResult calculationResult = rewardCalculator.calculateRewards(transactions);
+            return RewardsRequestEvent.timeMapping(() -> observeBuild(
+                    () -> buildRewardResponse(customer, calculationResult, startDate, endDate, fillGaps)));
+        }
+
+        int totalRewards = 0;
+        SortedMap<YearMonth, Integer> monthlyPoints = new TreeMap<>();
+        List<Transaction> archived = RewardsRequestEvent.timeDatabase(
+                () -> transactionArchive.load(customerId, startDate, endDate));
+        long calculationStart = System.nanoTime();
+        for (Transaction tx : archived) {
+            int points = rewardCalculator.calculatePoints(tx.getAmount());
+            monthlyPoints.merge(YearMonth.from(tx.getDate()), points, Integer::sum);
+            totalRewards += points;
+        }
+        if (event != null && !archived.isEmpty()) {
+            event.addCalculation(archived.size(), System.nanoTime() - calculationStart, 0);
+        }
+        List<MonthlyPointsSummary> months = RewardsRequestEvent.timeDatabase(
+                () -> transactionRepository.sumPointsByMonth(customerId, startDate, endDate));
+        for (MonthlyPointsSummary month : months) {
+            int points = month.getPoints().intValue();
+            monthlyPoints.merge(YearMonth.of(month.getYear(), month.getMonth()), points, Integer::sum);
+            totalRewards += points;
+        }
+
+        if (monthlyPoints.isEmpty()) {
+            throw new RuntimeException(env.getProperty("transaction.notfound", "No transactions found"));
+        }
+        List<MonthlyRewardDTO> monthlyRewards = view == RewardView.MONTHLY
+                ? toMonthlyRewards(monthlyPoints, startDate, endDate, fillGaps)
+                : null;
+
+        return RewardResponseDTO.builder()
+                .customerId(customer.getId())
+                .custName(customer.getCustName())
+                .phoneNo(customer.getPhoneNo())
+                .monthlyRewards(monthlyRewards)
+                .totalRewards(totalRewards)
+                .timeFrame(timeFrame(startDate, endDate))
+                .build();
+    }
+
+    /**
+     * Calculates rewards for a customer within a rolling date range.
+     * Only the days that entered the range since the previous call are read from the database;
+     * days that left the range are subtracted from the cached partial sums.
+     * The window keeps sums only, so the full view, which lists every transaction, is calculated as without
+     * rolling.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @param startDate the start date of the reward calculation period (inclusive)
+     * @param endDate the end date of the reward calculation period (inclusive)
+     * @param view the level of detail of the response
+     * @param fillGaps whether months of the period without points are listed with zero points
+     * @return RewardResponseDTO containing the fields selected by the view
+     * @throws RuntimeException if customer not found or no transactions in date range
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public RewardResponseDTO getRollingRewardsForCustomer(Long customerId, LocalDate startDate, LocalDate endDate,
+                                                          RewardView view, boolean fillGaps) {
+        if (view == RewardView.FULL) {
+            return getRewardsForCustomer(customerId, startDate, endDate, view, fillGaps);
+        }
+        RewardsRequestEvent event = RewardsRequestEvent.begin(customerId, startDate, endDate, view.name());
+        try {
+            return observe("RewardService.getRollingRewardsForCustomer", customerId, view,
+                    () -> calculateRollingRewards(customerId, startDate, endDate, view, fillGaps, event));
+        } finally {
+            RewardsRequestEvent.serviceReturned(event);
+        }
+    }
+
+    /**
+     * Calculates the rewards of {@link #getRollingRewardsForCustomer(Long, LocalDate, LocalDate, RewardView, boolean)}.
+     */
+    private RewardResponseDTO calculateRollingRewards(Long customerId, LocalDate startDate, LocalDate endDate,
+                                                      RewardView view, boolean fillGaps, RewardsRequestEvent event) {
+        if (event != null) {
+            event.calculated();
+        }
+        Customer customer = RewardsRequestEvent.timeDatabase(() -> findCustomer(customerId));
+
+        RollingRewardsWindow.Sums sums = rollingRewardsWindow.slide(customerId, startDate, endDate,
+                (from, to) -> RewardsRequestEvent.timeDatabase(() -> loadAmounts(customerId, from, to)));
+
+        if (sums.transactionCount() == 0) {
+            throw new RuntimeException(env.getProperty("transaction.notfound", "No transactions found"));
+        }
+
+        return RewardsRequestEvent.timeMapping(() -> observeBuild(() -> RewardResponseDTO.builder()
+                .customerId(customer.getId())
+                .custName(customer.getCustName())
+                .phoneNo(customer.getPhoneNo())
+                .monthlyRewards(view == RewardView.MONTHLY
+                        ? toMonthlyRewards(sums.monthlyRewards(), startDate, endDate, fillGaps)
+                        : null)
+                .totalRewards(sums.totalRewards())
+                .timeFrame(timeFrame(startDate, endDate))
+                .build()));
+    }
+
+    /**
+     * Returns the version stamp of a customer's transactions as "count-lastId".
+     * Reads a single aggregate row instead of the transactions themselves.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @return the version stamp of the customer's transactions
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public String getTransactionsVersion(Long customerId) {
+        TransactionVersion version = transactionRepository.findVersionByCustomerId(customerId);
+        return version.getTransactionCount() + "-" + version.getLastTransactionId();
+    }
+
+    /**
+     * Retrieves one page of the monthly leaderboard, read from the incrementally maintained ranking.
+     * 
+     * @param month the month to rank customers in
+     * @param page the zero-based page number
+     * @param size the number of customers per page
+     * @return LeaderboardDTO with the ranked customers of the page
+     * @throws CustomException if the month is not covered by the leaderboard
+     */
+    @Override
+    public LeaderboardDTO getLeaderboard(YearMonth month, int page, int size) {
+        return rewardLeaderboard.page(month, page, size);
+    }
+
+    /**
+     * Accepts transactions of an existing customer through the write-behind journal.
+     * Only the customer's existence is checked against the database; nothing is written to it here.
+     * Idempotency keys are checked against an in-memory filter first, so a new key usually costs no lookup.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @param idempotencyKey the client-supplied key identifying the request across retries, or null
+     * @param transactions the transactions to ingest
+     * @return IngestionReceiptDTO with the journal sequence number of the last transaction and whether it was a duplicate
+     * @throws RuntimeException if customer is not found
+     * @throws CustomException if the journal is disabled, the key is invalid or already used with different
+     *         transactions, or a transaction is incomplete
+     */
+    @Override
+    public IngestionReceiptDTO ingestTransactions(Long customerId, String idempotencyKey, List<TransactionDTO> transactions) {
+        if (!customerRepository.existsById(customerId)) {
+            throw new RuntimeException(
+                    String.format("%s %d", env.getProperty("customer.notfound", "Customer not found:"), customerId));
+        }
+        if (idempotencyKey == null) {
+            return new IngestionReceiptDTO(transactionJournal.append(customerId, null, transactions), false);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > 64) {
+            throw new CustomException("Idempotency-Key must be between 1 and 64 characters");
+        }
+        IdempotencyKeys.Claim claim = idempotencyKeys.claim(customerId, idempotencyKey, transactions,
+                () -> transactionJournal.append(customerId, idempotencyKey, transactions));
+        return new IngestionReceiptDTO(claim.sequence(), claim.duplicate());
+    }
+
+    /**
+     * Runs a rewards calculation as an observation, a span of the request's trace.
+     */
+    private RewardResponseDTO observe(String name, Long customerId, RewardView view, Supplier<RewardResponseDTO> calculation) {
+        return Observation.createNotStarted("rewards.service", observationRegistry)
+                .contextualName(name)
+                .lowCardinalityKeyValue("view", view.name())
+                .highCardinalityKeyValue("customer.id", String.valueOf(customerId))
+                .observe(calculation);
+    }
+
+    /**
+     * Builds a reward response as an observation, a span of the request's trace.
+     */
+    private RewardResponseDTO observeBuild(Supplier<RewardResponseDTO> build) {
+        return Observation.createNotStarted("rewards.response", observationRegistry)
+                .contextualName("RewardService.buildRewardResponse")
+                .observe(build);
+    }
+
+    /**
+     * Loads a customer by ID.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @return the customer entity
+     * @throws RuntimeException if customer is not found
+     */
+    private Customer findCustomer(Long customerId) {
+        return customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException(
                         String.format("%s %d", env.getProperty("customer.notfound", "Customer not found:"), customerId)
                 ));
+    }
 
-        List<Transaction> transactions = transactionRepository
-                .findByCustomerIdAndDateBetween(customerId, startDate, endDate);
-
-        if (transactions.isEmpty()) {
-            throw new RuntimeException(env.getProperty("transaction.notfound", "No transactions found"));
+    /**
+     * Loads the transactions of a customer within a date range: those of the archived months from the
+     * archive segments, and every transaction still in the database, including rows left in archived months.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @param startDate the start date of the range (inclusive)
+     * @param endDate the end date of the range (inclusive)
+     * @return the transactions of the range, archived ones first
+     */
+    private List<Transaction> loadTransactions(Long customerId, LocalDate startDate, LocalDate endDate) {
+        List<Transaction> archived = transactionArchive.load(customerId, startDate, endDate);
+        List<Transaction> stored = transactionRepository.findByCustomerIdAndDateBetween(customerId, startDate, endDate);
+        if (archived.isEmpty()) {
+            return stored;
         }
+        List<Transaction> transactions = new ArrayList<>(archived);
+        transactions.addAll(stored);
+        return transactions;
+    }
 
-        return buildRewardResponse(customer, transactions, startDate, endDate);
+    /**
+     * Loads the date and amount of the transactions of a customer within a date range, like
+     * {@link #loadTransactions(Long, LocalDate, LocalDate)} but projecting only these columns from the database.
+     * 
+     * @param customerId the unique identifier of the customer
+     * @param startDate the start date of the range (inclusive)
+     * @param endDate the end date of the range (inclusive)
+     * @return the dates and amounts of the range, archived ones first
+     */
+    private List<TransactionAmountDTO> loadAmounts(Long customerId, LocalDate startDate, LocalDate endDate) {
+        List<Transaction> archived = transactionArchive.load(customerId, startDate, endDate);
+        List<TransactionAmountDTO> stored = transactionRepository.findAmountsByCustomerIdAndDateBetween(customerId, startDate, endDate);
+        if (archived.isEmpty()) {
+            return stored;
+        }
+        List<TransactionAmountDTO> amounts = new ArrayList<>();
+        for (Transaction transaction : archived) {
+            amounts.add(new TransactionAmountDTO(transaction.getDate(), transaction.getAmount()));
+        }
+        amounts.addAll(stored);
+        return amounts;
     }
 
     /**
-     * Builds the reward response DTO by calculating rewards and organizing response data.
-     * Transforms monthly rewards from simple key-value pairs to structured objects.
+     * Builds the reward response DTO from calculated rewards and organizes response data.
+     * Transforms monthly rewards from the calculator's month-keyed sums to structured objects.
      * 
      * @param customer the customer entity for which rewards are calculated
-     * @param transactions list of transactions within the specified date range
+     * @param calculationResult the calculated rewards of the transactions within the specified date range
      * @param startDate the start date of the reward period
      * @param endDate the end date of the reward period
+     * @param fillGaps whether months of the period without points are listed with zero points
      * @return RewardResponseDTO containing structured reward information and time frame details
      */
-    private RewardResponseDTO buildRewardResponse(Customer customer, List<Transaction> transactions, 
-                                                 LocalDate startDate, LocalDate endDate) {
-        RewardCalculator.RewardCalculationResult calculationResult = rewardCalculator.calculateRewards(transactions);
-        
+    private RewardResponseDTO buildRewardResponse(Customer customer, RewardCalculator.RewardCalculationResult calculationResult,
+                                                 LocalDate startDate, LocalDate endDate, boolean fillGaps) {
         // Transform the monthly rewards to structured format
-        List<MonthlyRewardDTO> structuredMonthlyRewards = transformMonthlyRewards(calculationResult.monthlyRewards());
+        List<MonthlyRewardDTO> structuredMonthlyRewards = toMonthlyRewards(
+                calculationResult.monthlyRewards(), startDate, endDate, fillGaps);
         
-        Map<String, String> timeFrame = new HashMap<>();
-        timeFrame.put("startDate", startDate.toString());
-        timeFrame.put("endDate", endDate.toString());
-
         return RewardResponseDTO.builder()
                 .customerId(customer.getId())
                 .custName(customer.getCustName())
@@ -170,54 +549,47 @@ public class RewardServiceImpl implements RewardService {
                 .transactions(calculationResult.transactionDTOs())
                 .monthlyRewards(structuredMonthlyRewards) // Use the transformed structured data
                 .totalRewards(calculationResult.totalRewards())
-                .timeFrame(timeFrame)
+                .timeFrame(timeFrame(startDate, endDate))
                 .build();
     }
 
     /**
-     * Transforms monthly rewards from Map<String, Integer> format to structured MonthlyRewardDTO objects.
-     * Converts keys like "2025-07" to objects with year, month name, and points.
+     * Builds the time frame section of the reward response.
      * 
-     * @param monthlyRewardsMap the original monthly rewards map with format {"YYYY-MM": points}
-     * @return List of MonthlyRewardDTO objects with structured data
-     */
-    private List<MonthlyRewardDTO> transformMonthlyRewards(Map<String, Integer> monthlyRewardsMap) {
-        return monthlyRewardsMap.entrySet().stream()
-                .map(entry -> {
-                    String[] yearMonthParts = entry.getKey().split("-");
-                    int year = Integer.parseInt(yearMonthParts[0]);
-                    int monthValue = Integer.parseInt(yearMonthParts[1]);
-                    return MonthlyRewardDTO.builder()
-                            .year(year)
-                            .month(getMonthName(monthValue))
-                            .points(entry.getValue())
-                            .build();
-                })
-                .collect(Collectors.toList());
+     * @param startDate the start date of the reward period
+     * @param endDate the end date of the reward period
+     * @return map containing startDate and endDate as strings
+     */
+    private Map<String, String> timeFrame(LocalDate startDate, LocalDate endDate) {
+        Map<String, String> timeFrame = new HashMap<>();
+        timeFrame.put("startDate", startDate.toString());
+        timeFrame.put("endDate", endDate.toString());
+        return timeFrame;
     }
 
     /**
-     * Converts month number (1-12) to full month name.
+     * Transforms month-keyed reward sums to structured MonthlyRewardDTO objects in chronological order.
+     * With gap filling, every month between the start and end date is listed, with zero points where
+     * the customer earned none.
      * 
-     * @param monthValue the month number (1 for January, 12 for December)
-     * @return the full month name as a string
-     * @throws IllegalArgumentException if monthValue is not between 1 and 12
-     */
-    private String getMonthName(int monthValue) {
-        switch (monthValue) {
-            case 1: return "January";
-            case 2: return "February";
-            case 3: return "March";
-            case 4: return "April";
-            case 5: return "May";
-            case 6: return "June";
-            case 7: return "July";
-            case 8: return "August";
-            case 9: return "September";
-            case 10: return "October";
-            case 11: return "November";
-            case 12: return "December";
-            default: throw new IllegalArgumentException("Invalid month value: " + monthValue);
-        }
-    }
-}
\ No newline at end of file
+     * @param monthlyPoints the reward points per month, ordered by month
+     * @param startDate the start date of the reward period
+     * @param endDate the end date of the reward period
+     * @param fillGaps whether months without points are listed with zero points
+     * @return List of MonthlyRewardDTO objects with year, month name, and points
+     */
+    private List<MonthlyRewardDTO> toMonthlyRewards(SortedMap<YearMonth, Integer> monthlyPoints,
+                                                    LocalDate startDate, LocalDate endDate, boolean fillGaps) {
+        if (!fillGaps) {
+            List<MonthlyRewardDTO> monthlyRewards = new ArrayList<>(monthlyPoints.size());
+            monthlyPoints.forEach((month, points) -> monthlyRewards.add(MonthlyRewardDTO.of(month, points)));
+            return monthlyRewards;
+        }
+        YearMonth last = YearMonth.from(endDate);
+        List<MonthlyRewardDTO> monthlyRewards = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(last); month = month.plusMonths(1)) {
+            monthlyRewards.add(MonthlyRewardDTO.of(month, monthlyPoints.getOrDefault(month, 0)));
+        }
+        return monthlyRewards;
+    }
+}
@@ -0,0 +1,128 @@
+package com.infy.customerRewards.utility;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Scheduled task that resizes the connection pools within bounds, from the wait and usage times recorded by
+ * {@link ConnectionPoolMetrics} over each interval. A pool that was fully borrowed while requests waited longer
+ * for a connection than a fraction of the time they then held it grows by a quarter; when the database latency
+ * rose by half since the last growth, the extra connections only queued up in the database, and the pool gives
+ * one back instead. A pool with at least two connections unused throughout an interval without waiting shrinks
+ * by one. Shrinking lowers the maximum and minimum idle sizes, and surplus connections close as they idle out.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+@ConditionalOnProperty(name = "rewards.datasource.pool.adaptive.enabled", havingValue = "true")
+public class AdaptivePoolSizer {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    // Database latency increase, relative to the latency before the last growth, that reverts the growth
+    private static final double DATABASE_SLOWDOWN = 1.5;
+    // Shorter waits are the cost of handing over and validating connections rather than a shortage of them
+    private static final double MIN_WAIT_MILLIS = 1;
+
+    private final ConnectionPoolMetrics connectionPoolMetrics;
+    private final int minSize;
+    private final int maxSize;
+    private final double waitRatio;
+
+    // Mean usage time of each pool in the interval before it last grew; only accessed by the scheduler thread
+    private final Map<String, Double> usageBeforeGrowth = new HashMap<>();
+
+    /**
+     * Constructs an AdaptivePoolSizer.
+     *
+     * @param connectionPoolMetrics the recorded acquisitions and usages of every pool
+     * @param minSize the smallest maximum pool size set
+     * @param maxSize the largest maximum pool size set
+     * @param waitRatio mean wait for a connection, relative to the mean time it is then held, above which pools grow
+     */
+    public AdaptivePoolSizer(ConnectionPoolMetrics connectionPoolMetrics,
+                             @Value("${rewards.datasource.pool.adaptive.min-size:5}") int minSize,
+                             @Value("${rewards.datasource.pool.adaptive.max-size:30}") int maxSize,
+                             @Value("${rewards.datasource.pool.adaptive.wait-ratio:0.1}") double waitRatio) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("rewards.datasource.pool.adaptive sizes must satisfy 1 <= min-size <= max-size");
+        }
+        this.connectionPoolMetrics = connectionPoolMetrics;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.waitRatio = waitRatio;
+    }
+
+    /**
+     * Resizes every running pool from its last interval.
+     */
+    @Scheduled(fixedDelayString = "${rewards.datasource.pool.adaptive.interval-ms:10000}")
+    public void adjust() {
+        connectionPoolMetrics.runningPools().forEach((dataSource, tracker) -> {
+            String poolName = dataSource.getPoolName();
+            HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+            ConnectionPoolMetrics.Interval interval = tracker.nextInterval();
+            int current = config.getMaximumPoolSize();
+            int next = nextPoolSize(current, minSize, maxSize, interval, waitRatio,
+                    usageBeforeGrowth.getOrDefault(poolName, 0.0));
+            if (next == current) {
+                return;
+            }
+            if (next > current) {
+                usageBeforeGrowth.put(poolName, interval.meanUsageMillis());
+            } else if (interval.peakBorrowed() < current) {
+                usageBeforeGrowth.remove(poolName);
+            }
+            resize(dataSource, next);
+            tracker.recordResize();
+            log.info("Resized connection pool {} from {} to {} (mean wait {} ms, mean usage {} ms, {} borrowed at most)",
+                    poolName, current, next, String.format("%.1f", interval.meanWaitMillis()),
+                    String.format("%.1f", interval.meanUsageMillis()), interval.peakBorrowed());
+        });
+    }
+
+    private static void resize(HikariDataSource dataSource, int size) {
+        HikariConfigMXBean config = dataSource.getHikariConfigMXBean();
+        if (config.getMinimumIdle() > size) {
+            config.setMinimumIdle(size);
+        }
+        config.setMaximumPoolSize(size);
+    }
+
+    /**
+     * Calculates the size of a pool after an interval.
+     *
+     * @param current the current maximum pool size
+     * @param minSize the smallest size returned
+     * @param maxSize the largest size returned
+     * @param interval the acquisitions and usages of the pool over the interval
+     * @param waitRatio mean wait relative to mean usage above which the pool grows
+     * @param usageBeforeGrowth the mean usage time before the pool last grew, or 0 if it has not grown since shrinking
+     * @return the new maximum pool size
+     */
+    public static int nextPoolSize(int current, int minSize, int maxSize, ConnectionPoolMetrics.Interval interval,
+                                   double waitRatio, double usageBeforeGrowth) {
+        boolean waiting = interval.acquisitions() > 0 && interval.meanWaitMillis() >= MIN_WAIT_MILLIS
+                && interval.meanWaitMillis() > waitRatio * interval.meanUsageMillis();
+        int next = current;
+        if (waiting && interval.peakBorrowed() >= current) {
+            boolean databaseSlower = usageBeforeGrowth > 0
+                    && interval.meanUsageMillis() > DATABASE_SLOWDOWN * usageBeforeGrowth;
+            next = databaseSlower ? current - 1 : current + Math.max(1, current / 4);
+        } else if (!waiting && interval.peakBorrowed() <= current - 2) {
+            next = current - 1;
+        }
+        return Math.max(minSize, Math.min(maxSize, next));
+    }
+}
@@ -0,0 +1,430 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.entity.Transaction;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only, compressed, columnar file holding the archived transactions of one month.
+ * Rows are sorted by customer ID and date and cut into blocks of {@value #BLOCK_ROWS} rows.
+ * Each block stores its columns one after another (delta-encoded customer IDs, IDs, day of month,
+ * amounts in cents, dictionary-encoded products) and is Deflate-compressed on its own.
+ * A sparse index at the end of the file keeps the first and last customer ID of every block, so a
+ * lookup only inflates the blocks that can contain the customer. Files are read through a memory map.
+ *
+ * <pre>
+ * "RWSG" version:int
+ * block*
+ * index: (firstCustomerId:long lastCustomerId:long offset:long compressedLength:int rawLength:int)*
+ * footer: indexOffset:long blockCount:int rowCount:long "RWSG"
+ * </pre>
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public final class ArchiveSegment {
+
+    static final int BLOCK_ROWS = 4096;
+
+    private static final byte[] MAGIC = "RWSG".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int INDEX_ENTRY_BYTES = 8 + 8 + 8 + 4 + 4;
+    private static final int FOOTER_BYTES = 8 + 4 + 8 + MAGIC.length;
+
+    private final YearMonth month;
+    private final MappedByteBuffer buffer;
+    private final long[] firstCustomerIds;
+    private final long[] lastCustomerIds;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+    private final long rowCount;
+
+    private ArchiveSegment(YearMonth month, MappedByteBuffer buffer) {
+        this.month = month;
+        this.buffer = buffer;
+
+        int footer = buffer.capacity() - FOOTER_BYTES;
+        if (footer < MAGIC.length || !hasMagic(footer + 8 + 4 + 8) || !hasMagic(0)) {
+            throw new IllegalStateException("Not an archive segment: " + month);
+        }
+        long indexOffset = buffer.getLong(footer);
+        int blockCount = buffer.getInt(footer + 8);
+        this.rowCount = buffer.getLong(footer + 12);
+
+        firstCustomerIds = new long[blockCount];
+        lastCustomerIds = new long[blockCount];
+        offsets = new long[blockCount];
+        compressedLengths = new int[blockCount];
+        rawLengths = new int[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            int entry = (int) indexOffset + i * INDEX_ENTRY_BYTES;
+            firstCustomerIds[i] = buffer.getLong(entry);
+            lastCustomerIds[i] = buffer.getLong(entry + 8);
+            offsets[i] = buffer.getLong(entry + 16);
+            compressedLengths[i] = buffer.getInt(entry + 24);
+            rawLengths[i] = buffer.getInt(entry + 28);
+        }
+    }
+
+    private boolean hasMagic(int position) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(position + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Memory-maps an existing segment file.
+     *
+     * @param month the month held by the segment
+     * @param file the segment file
+     * @return the opened segment
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static ArchiveSegment open(YearMonth month, Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ArchiveSegment(month, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open archive segment " + file, e);
+        }
+    }
+
+    /**
+     * Writes the transactions of a month to a new segment file.
+     * The file is written next to the target and moved into place once complete, so readers never see
+     * a partial segment.
+     *
+     * @param file the segment file to create
+     * @param transactions the transactions of the month, sorted by customer ID and then date
+     * @return the number of rows written
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public static long write(Path file, Iterator<Transaction> transactions) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream index = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(index);
+            long offset = writeFully(channel, ByteBuffer.allocate(MAGIC.length + 4).put(MAGIC).putInt(VERSION).flip());
+            long rows = 0;
+            int blockCount = 0;
+
+            List<Transaction> block = new ArrayList<>(BLOCK_ROWS);
+            while (transactions.hasNext() || !block.isEmpty()) {
+                if (transactions.hasNext()) {
+                    block.add(transactions.next());
+                }
+                if (block.size() == BLOCK_ROWS || (!transactions.hasNext() && !block.isEmpty())) {
+                    byte[] raw = encodeBlock(block);
+                    byte[] compressed = deflate(raw);
+                    indexOut.writeLong(block.get(0).getCustomer().getId());
+                    indexOut.writeLong(block.get(block.size() - 1).getCustomer().getId());
+                    indexOut.writeLong(offset);
+                    indexOut.writeInt(compressed.length);
+                    indexOut.writeInt(raw.length);
+                    offset += writeFully(channel, ByteBuffer.wrap(compressed));
+                    rows += block.size();
+                    blockCount++;
+                    block.clear();
+                }
+            }
+
+            long indexOffset = offset;
+            writeFully(channel, ByteBuffer.wrap(index.toByteArray()));
+            writeFully(channel, ByteBuffer.allocate(FOOTER_BYTES)
+                    .putLong(indexOffset).putInt(blockCount).putLong(rows).put(MAGIC).flip());
+            channel.force(true);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write archive segment " + file, e);
+        }
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        long written = 0;
+        while (data.hasRemaining()) {
+            written += channel.write(data);
+        }
+        return written;
+    }
+
+    private static byte[] encodeBlock(List<Transaction> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(rows.size());
+
+        long previousCustomerId = 0;
+        for (Transaction row : rows) {
+            long customerId = row.getCustomer().getId();
+            writeVarLong(out, customerId - previousCustomerId);
+            previousCustomerId = customerId;
+        }
+        for (Transaction row : rows) {
+            writeVarLong(out, row.getId());
+        }
+        for (Transaction row : rows) {
+            out.writeByte(row.getDate().getDayOfMonth());
+        }
+        for (Transaction row : rows) {
+            long cents = Math.round(row.getAmount() * 100);
+            writeVarLong(out, (cents << 1) ^ (cents >> 63));
+        }
+
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> products = new ArrayList<>();
+        int[] productCodes = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            productCodes[i] = dictionary.computeIfAbsent(rows.get(i).getProduct(), product -> {
+                products.add(product);
+                return products.size() - 1;
+            });
+        }
+        out.writeInt(products.size());
+        for (String product : products) {
+            out.writeUTF(product);
+        }
+        for (int code : productCodes) {
+            writeVarLong(out, code);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 3 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Returns the transactions of a customer within a date range.
+     * Only blocks whose customer ID range contains the customer are inflated.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param from the start date (inclusive)
+     * @param to the end date (inclusive)
+     * @return the archived transactions, sorted by date; the customer is not set
+     */
+    public List<Transaction> find(long customerId, LocalDate from, LocalDate to) {
+        List<Transaction> result = new ArrayList<>();
+        int block = firstBlockEndingAtOrAfter(customerId);
+        for (; block < firstCustomerIds.length && firstCustomerIds[block] <= customerId; block++) {
+            decodeBlock(block, customerId, from, to, result);
+        }
+        return result;
+    }
+
+    /**
+     * Visits every archived row, block by block in customer ID order, for rebuilding views of all customers.
+     *
+     * @param consumer receives the customer ID, date and amount of each row
+     */
+    public void forEachRow(RowConsumer consumer) {
+        for (int block = 0; block < firstCustomerIds.length; block++) {
+            ByteBuffer raw = ByteBuffer.wrap(inflate(block));
+            int rows = raw.getInt();
+            long[] customerIds = new long[rows];
+            long previous = 0;
+            for (int i = 0; i < rows; i++) {
+                previous += readVarLong(raw);
+                customerIds[i] = previous;
+            }
+            for (int i = 0; i < rows; i++) {
+                readVarLong(raw); // transaction ID
+            }
+            byte[] days = new byte[rows];
+            raw.get(days);
+            for (int i = 0; i < rows; i++) {
+                long zigzag = readVarLong(raw);
+                consumer.accept(customerIds[i], month.atDay(days[i]), ((zigzag >>> 1) ^ -(zigzag & 1)) / 100.0);
+            }
+        }
+    }
+
+    private int firstBlockEndingAtOrAfter(long customerId) {
+        int low = 0;
+        int high = lastCustomerIds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lastCustomerIds[mid] < customerId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void decodeBlock(int block, long customerId, LocalDate from, LocalDate to, List<Transaction> result) {
+        ByteBuffer raw = ByteBuffer.wrap(inflate(block));
+        int rows = raw.getInt();
+
+        long[] customerIds = new long[rows];
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            previous += readVarLong(raw);
+            customerIds[i] = previous;
+        }
+        int start = Arrays.binarySearch(customerIds, customerId);
+        if (start < 0) {
+            return;
+        }
+        while (start > 0 && customerIds[start - 1] == customerId) {
+            start--;
+        }
+        int end = start;
+        while (end < rows && customerIds[end] == customerId) {
+            end++;
+        }
+
+        long[] ids = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            ids[i] = readVarLong(raw);
+        }
+        byte[] days = new byte[rows];
+        raw.get(days);
+        long[] cents = new long[rows];
+        for (int i = 0; i < rows; i++) {
+            long zigzag = readVarLong(raw);
+            cents[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        String[] products = new String[raw.getInt()];
+        for (int i = 0; i < products.length; i++) {
+            byte[] utf = new byte[raw.getShort() & 0xFFFF];
+            raw.get(utf);
+            products[i] = new String(utf, StandardCharsets.UTF_8);
+        }
+        int[] productCodes = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            productCodes[i] = (int) readVarLong(raw);
+        }
+
+        for (int i = start; i < end; i++) {
+            LocalDate date = month.atDay(days[i]);
+            if (date.isBefore(from) || date.isAfter(to)) {
+                continue;
+            }
+            Transaction transaction = new Transaction();
+            transaction.setId(ids[i]);
+            transaction.setDate(date);
+            transaction.setAmount(cents[i] / 100.0);
+            transaction.setProduct(products[productCodes[i]]);
+            result.add(transaction);
+        }
+    }
+
+    private byte[] inflate(int block) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(buffer.slice((int) offsets[block], compressedLengths[block]));
+            byte[] raw = new byte[rawLengths[block]];
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                length += inflater.inflate(raw, length, raw.length - length);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt block " + block + " in archive segment " + month, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Receives the rows visited by {@link #forEachRow(RowConsumer)}.
+     */
+    @FunctionalInterface
+    public interface RowConsumer {
+
+        /**
+         * Accepts one archived row.
+         *
+         * @param customerId the unique identifier of the customer
+         * @param date the date of the transaction
+         * @param amount the amount of the transaction
+         */
+        void accept(long customerId, LocalDate date, double amount);
+    }
+
+    /**
+     * Gets the month held by the segment.
+     * @return the month
+     */
+    public YearMonth getMonth() {
+        return month;
+    }
+
+    /**
+     * Gets the number of archived transactions in the segment.
+     * @return the row count
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of compressed blocks, i.e. entries of the sparse index.
+     * @return the block count
+     */
+    public int getBlockCount() {
+        return firstCustomerIds.length;
+    }
+}
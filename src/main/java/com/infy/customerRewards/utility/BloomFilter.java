@@ -0,0 +1,147 @@
+package com.infy.customerRewards.utility;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter of strings.
+ * Answers "definitely not added" or "possibly added"; the share of wrong "possibly added" answers stays near
+ * the configured false-positive probability while no more than the expected number of keys is added.
+ * The bit array is sized as m = -n ln p / (ln 2)^2 with k = m/n ln 2 hash functions, derived from two
+ * 64-bit hashes of the key by double hashing.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashFunctions;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * Constructs an empty BloomFilter.
+     *
+     * @param expectedInsertions number of keys the filter is sized for
+     * @param falsePositiveProbability target probability that a key never added is reported as possibly added
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0 || falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("expectedInsertions must be positive and falsePositiveProbability in (0, 1)");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (Math.max(optimalBits, 64) + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bits = wordCount * 64L;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) bits / expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param key the key to add
+     */
+    public void put(String key) {
+        long[] hashes = hash(key);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hashes[0] + i * hashes[1], bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        insertions.incrementAndGet();
+    }
+
+    /**
+     * Checks whether a key may have been added.
+     *
+     * @param key the key to check
+     * @return false if the key was definitely never added, true if it possibly was
+     */
+    public boolean mightContain(String key) {
+        long[] hashes = hash(key);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(hashes[0] + i * hashes[1], bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimates the current false-positive probability from the share of bits set, (set / m)^k.
+     *
+     * @return the expected probability that a key never added is reported as possibly added
+     */
+    public double estimatedFalsePositiveProbability() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) set / bits, hashFunctions);
+    }
+
+    /**
+     * Gets the size of the bit array.
+     * @return the number of bits
+     */
+    public long getBits() {
+        return bits;
+    }
+
+    /**
+     * Gets the number of hash functions.
+     * @return the number of bits set per key
+     */
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * Gets the number of keys added, counting repeated keys each time.
+     * @return the number of insertions
+     */
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    /**
+     * Gets the heap memory taken by the bit array.
+     * @return the size of the bit array in bytes
+     */
+    public long getMemoryBytes() {
+        return bits / 8;
+    }
+
+    /**
+     * Computes two independent 64-bit hashes of the UTF-8 bytes of a key:
+     * FNV-1a and a multiplicative hash, both finished with the murmur3 64-bit mixer.
+     */
+    private static long[] hash(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long fnv = 0xcbf29ce484222325L;
+        long multiplicative = 0x9E3779B97F4A7C15L;
+        for (byte b : bytes) {
+            fnv = (fnv ^ (b & 0xFF)) * 0x100000001b3L;
+            multiplicative = (multiplicative + (b & 0xFF)) * 0xC2B2AE3D27D4EB4FL;
+        }
+        // An odd second hash visits distinct bits for every i < k when the bit count is a power of two
+        return new long[] { mix(fnv), mix(multiplicative) | 1 };
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
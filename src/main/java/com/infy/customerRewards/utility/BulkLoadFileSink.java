@@ -0,0 +1,92 @@
+package com.infy.customerRewards.utility;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Synthetic row sink writing tab-separated customers.tsv and transactions.tsv files, with a load.sql script
+ * of MySQL LOAD DATA statements, for loading volumes where even batched inserts are too slow:
+ * {@code mysql --local-infile=1 rewardsdb < load.sql}.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class BulkLoadFileSink implements SyntheticRowSink {
+
+    static final String CUSTOMERS_FILE = "customers.tsv";
+    static final String TRANSACTIONS_FILE = "transactions.tsv";
+    static final String SCRIPT_FILE = "load.sql";
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final BufferedWriter customers;
+    private final BufferedWriter transactions;
+
+    /**
+     * Constructs a BulkLoadFileSink, replacing the files in the directory.
+     *
+     * @param directory the directory the files are written to, created if missing
+     */
+    public BulkLoadFileSink(Path directory) {
+        this.directory = directory.toAbsolutePath();
+        try {
+            Files.createDirectories(directory);
+            this.customers = writer(CUSTOMERS_FILE);
+            this.transactions = writer(TRANSACTIONS_FILE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create synthetic data files in " + directory, e);
+        }
+    }
+
+    private BufferedWriter writer(String file) throws IOException {
+        return new BufferedWriter(Files.newBufferedWriter(directory.resolve(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void customer(long id, String custName, String phoneNo) {
+        write(customers, id + "\t" + custName + "\t" + phoneNo);
+    }
+
+    @Override
+    public void transaction(long customerId, LocalDate date, String product, double amount) {
+        write(transactions, customerId + "\t" + date + "\t" + product + "\t" + amount);
+    }
+
+    private void write(BufferedWriter writer, String line) {
+        try {
+            writer.write(line);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write synthetic data to " + directory, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try (customers; transactions) {
+            Files.writeString(directory.resolve(SCRIPT_FILE),
+                    loadData(CUSTOMERS_FILE, "customers", "id, cust_name, phone_no")
+                            + loadData(TRANSACTIONS_FILE, "transactions", "customer_id, date, product, amount"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write synthetic data to " + directory, e);
+        }
+    }
+
+    private String loadData(String file, String table, String columns) {
+        return "LOAD DATA LOCAL INFILE '" + directory.resolve(file).toString().replace("\\", "/") + "'\n"
+                + "    INTO TABLE " + table + "\n"
+                + "    FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '" + lineSeparator() + "'\n"
+                + "    (" + columns + ");\n";
+    }
+
+    private static String lineSeparator() {
+        return System.lineSeparator().equals("\r\n") ? "\\r\\n" : "\\n";
+    }
+}
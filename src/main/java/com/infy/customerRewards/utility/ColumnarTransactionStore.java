@@ -0,0 +1,270 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.CustomerPointsDTO;
+import com.infy.customerRewards.dto.RewardsReportDTO;
+import com.infy.customerRewards.exception.CustomException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Optional in-memory, column-oriented copy of the transactions table for analytical reward queries.
+ * Each transaction takes one slot in three primitive arrays: the customer (as an ordinal into a
+ * dictionary of distinct customer IDs), the date as epoch day, and the amount in cents.
+ * A report is a single sequential pass over these arrays with branch-free point arithmetic,
+ * instead of loading entities and mapping them one at a time.
+ * Loaded from the database at startup and then appended to by a scheduled catch-up with the shared
+ * transactions table, through a {@link TransactionFollower}, so that every instance reports the transactions
+ * saved by all of them.
+ * Like the transactions table, it only holds the months that are not archived: the rows of a month are
+ * removed when {@link TransactionArchive} moves it out of the database, so reports never cover archived months.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class ColumnarTransactionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarTransactionStore.class);
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final TransactionFollower follower;
+
+    // Guarded by this; readers only use the published snapshot
+    private final Map<Long, Integer> customerOrdinals = new HashMap<>();
+
+    private volatile Columns columns = new Columns(new long[INITIAL_CAPACITY], new int[INITIAL_CAPACITY],
+            new int[INITIAL_CAPACITY], new long[INITIAL_CAPACITY], 0, 0);
+
+    /**
+     * Constructs a ColumnarTransactionStore.
+     *
+     * @param jdbcTemplate template used for the initial load and the catch-up
+     * @param shardRouter router whose shards are all loaded
+     * @param enabled whether the store is loaded and kept up to date
+     * @param gapTimeoutMs how long a missing transaction ID is waited for before it is skipped
+     */
+    public ColumnarTransactionStore(JdbcTemplate jdbcTemplate,
+                                    ShardRouter shardRouter,
+                                    @Value("${rewards.columnar.enabled:false}") boolean enabled,
+                                    @Value("${rewards.columnar.gap-timeout-ms:30000}") long gapTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.follower = new TransactionFollower(jdbcTemplate, shardRouter, gapTimeoutMs);
+    }
+
+    /**
+     * Loads every transaction from the database before the application starts serving requests, each shard up
+     * to its highest ID; later rows are left to the catch-up.
+     * Shards are read one after the other, as rows are appended to the shared columns while they stream in.
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        JdbcTemplate loader = new JdbcTemplate(jdbcTemplate.getDataSource());
+        loader.setFetchSize(LOAD_FETCH_SIZE);
+        synchronized (this) {
+            long[] highWaterMarks = follower.mark();
+            Columns[] current = { columns };
+            shardRouter.forEachShard(shard -> loader.query("select customer_id, date, amount from transactions where id <= ?",
+                    rs -> {
+                        current[0] = append(current[0], rs.getLong(1), rs.getObject(2, LocalDate.class), rs.getDouble(3));
+                    },
+                    highWaterMarks[shard]));
+            columns = current[0];
+        }
+        log.info("Loaded {} transactions of {} customers into the columnar store in {} ms",
+                columns.size, columns.customerCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Appends the transactions saved on every shard since the last catch-up, whichever instance saved them.
+     */
+    @Scheduled(fixedDelayString = "${rewards.columnar.catch-up-interval-ms:1000}")
+    public void catchUp() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            Columns[] current = { columns };
+            follower.catchUp((customerId, date, amount) -> current[0] = append(current[0], customerId, date, amount));
+            columns = current[0];
+        }
+    }
+
+    /**
+     * Removes the rows of a month moved out of the database by the archive, which a reload at startup
+     * would not read either. The remaining rows are copied into new arrays, so published snapshots stay intact;
+     * customer ordinals are kept.
+     *
+     * @param event the archived month
+     */
+    @EventListener
+    public void onTransactionsArchived(TransactionsArchivedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        int fromDay = (int) event.month().atDay(1).toEpochDay();
+        int toDay = (int) event.month().atEndOfMonth().toEpochDay();
+        synchronized (this) {
+            Columns current = columns;
+            int capacity = Math.max(INITIAL_CAPACITY, current.size);
+            int[] ordinals = new int[capacity];
+            int[] epochDays = new int[capacity];
+            long[] cents = new long[capacity];
+            int kept = 0;
+            for (int i = 0; i < current.size; i++) {
+                int day = current.epochDays[i];
+                if (day < fromDay || day > toDay) {
+                    ordinals[kept] = current.customerOrdinals[i];
+                    epochDays[kept] = day;
+                    cents[kept] = current.cents[i];
+                    kept++;
+                }
+            }
+            columns = new Columns(current.customerIds, ordinals, epochDays, cents, kept, current.customerCount);
+            log.info("Removed {} transactions of archived {} from the columnar store", current.size - kept, event.month());
+        }
+    }
+
+    /**
+     * Writes one row after the published ones, growing the arrays into new copies when full.
+     * The row only becomes visible to readers once the returned columns are published.
+     */
+    private Columns append(Columns current, long customerId, LocalDate date, double amount) {
+        long[] customerIds = current.customerIds;
+        int customerCount = current.customerCount;
+        Integer ordinal = customerOrdinals.get(customerId);
+        if (ordinal == null) {
+            if (customerCount == customerIds.length) {
+                customerIds = Arrays.copyOf(customerIds, customerCount * 2);
+            }
+            ordinal = customerCount;
+            customerIds[customerCount++] = customerId;
+            customerOrdinals.put(customerId, ordinal);
+        }
+
+        int[] ordinals = current.customerOrdinals;
+        int[] epochDays = current.epochDays;
+        long[] cents = current.cents;
+        int size = current.size;
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+            epochDays = Arrays.copyOf(epochDays, size * 2);
+            cents = Arrays.copyOf(cents, size * 2);
+        }
+        ordinals[size] = ordinal;
+        epochDays[size] = (int) date.toEpochDay();
+        cents[size] = Math.round(amount * 100);
+        return new Columns(customerIds, ordinals, epochDays, cents, size + 1, customerCount);
+    }
+
+    /**
+     * Aggregates reward points per customer over a date range with one scan of the columns.
+     *
+     * @param startDate the start date of the range (inclusive)
+     * @param endDate the end date of the range (inclusive)
+     * @param top the number of customers with the most points to list
+     * @return the report with totals and the top customers
+     * @throws CustomException if the store is disabled
+     */
+    public RewardsReportDTO report(LocalDate startDate, LocalDate endDate, int top) {
+        if (!enabled) {
+            throw new CustomException("The columnar transaction store is disabled, set rewards.columnar.enabled=true");
+        }
+        long start = System.nanoTime();
+        Columns snapshot = columns;
+        long[] totals = sumPointsByCustomer(snapshot, (int) startDate.toEpochDay(), (int) endDate.toEpochDay());
+
+        int customersWithPoints = 0;
+        long totalPoints = 0;
+        PriorityQueue<Integer> best = new PriorityQueue<>(Comparator.comparingLong(ordinal -> totals[ordinal]));
+        for (int ordinal = 0; ordinal < totals.length; ordinal++) {
+            if (totals[ordinal] > 0) {
+                customersWithPoints++;
+                totalPoints += totals[ordinal];
+                if (best.size() < top) {
+                    best.add(ordinal);
+                } else if (top > 0 && totals[ordinal] > totals[best.peek()]) {
+                    best.poll();
+                    best.add(ordinal);
+                }
+            }
+        }
+        List<CustomerPointsDTO> topCustomers = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            int ordinal = best.poll();
+            topCustomers.add(0, new CustomerPointsDTO(snapshot.customerIds[ordinal], totals[ordinal]));
+        }
+
+        RewardsReportDTO report = new RewardsReportDTO();
+        report.setStartDate(startDate);
+        report.setEndDate(endDate);
+        report.setScannedTransactions(snapshot.size);
+        report.setCustomersWithPoints(customersWithPoints);
+        report.setTotalPoints(totalPoints);
+        report.setTopCustomers(topCustomers);
+        report.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+
+    /**
+     * Sums reward points per customer ordinal for rows within the epoch day range.
+     * The points rules of RewardCalculator.calculatePoints are evaluated on cents without branches:
+     * one point per whole dollar between $50 and $100 and one point per whole half dollar over $100.
+     * Rows outside the range contribute zero instead of being skipped, so the loop body has no data-dependent branch.
+     */
+    private static long[] sumPointsByCustomer(Columns columns, int fromDay, int toDay) {
+        long[] totals = new long[columns.customerCount];
+        int[] ordinals = columns.customerOrdinals;
+        int[] epochDays = columns.epochDays;
+        long[] cents = columns.cents;
+        for (int i = 0, size = columns.size; i < size; i++) {
+            long amount = cents[i];
+            long points = Math.max(0, Math.min(amount, 10_000) - 5_000) / 100 + Math.max(0, amount - 10_000) / 50;
+            int day = epochDays[i];
+            long inRange = ((day - fromDay) | (toDay - day)) >>> 31 ^ 1;
+            totals[ordinals[i]] += points * inRange;
+        }
+        return totals;
+    }
+
+    /**
+     * Gets the number of transactions held in memory.
+     * @return the row count
+     */
+    public int size() {
+        return columns.size;
+    }
+
+    /**
+     * Immutable view of the column arrays up to size; slots past size may be written by the next append.
+     */
+    private record Columns(long[] customerIds, int[] customerOrdinals, int[] epochDays, long[] cents,
+                           int size, int customerCount) {
+    }
+}
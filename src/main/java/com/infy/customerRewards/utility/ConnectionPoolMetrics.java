@@ -0,0 +1,338 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.ConnectionPoolStatsDTO;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long requests wait for database connections and how long they hold them, for every Hikari pool:
+ * pool data source beans are instrumented as they are created, and pools built internally, such as those of the
+ * replicas and shards, through {@link #instrument(HikariDataSource)}.
+ * <p>
+ * Hikari reports each acquisition on the thread that waited for it, so an acquisition slower than the
+ * slow-acquire threshold is attributed to the endpoint of the request being served, or to the thread outside
+ * of requests. It is logged as a warning at most once per warning interval and pool, with the number of slow
+ * acquisitions since the previous warning, so that a burst does not flood the log.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class ConnectionPoolMetrics implements MetricsTrackerFactory, BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPoolMetrics.class);
+
+    // Endpoints and threads are few, but the map must not grow with, say, numbered worker threads
+    private static final int MAX_ENDPOINTS = 100;
+    private static final String OTHER_ENDPOINTS = "other";
+
+    private final long slowAcquireThresholdNanos;
+    private final long warningIntervalNanos;
+    private final Map<String, PoolTracker> trackers = new ConcurrentSkipListMap<>();
+    private final List<HikariDataSource> dataSources = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a ConnectionPoolMetrics.
+     *
+     * @param slowAcquireThreshold acquisitions taking at least this long are logged and counted per endpoint
+     * @param warningInterval minimum time between two slow-acquire warnings of a pool
+     */
+    public ConnectionPoolMetrics(@Value("${rewards.datasource.pool.slow-acquire-threshold:100ms}") Duration slowAcquireThreshold,
+                                 @Value("${rewards.datasource.pool.warning-interval:10s}") Duration warningInterval) {
+        this.slowAcquireThresholdNanos = slowAcquireThreshold.toNanos();
+        this.warningIntervalNanos = warningInterval.toNanos();
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource) {
+            instrument(dataSource);
+        }
+        return bean;
+    }
+
+    /**
+     * Records the metrics of a pool, which may already be running.
+     *
+     * @param dataSource the pool
+     * @return the pool
+     */
+    public HikariDataSource instrument(HikariDataSource dataSource) {
+        if (dataSource.getMetricsTrackerFactory() == null) {
+            dataSource.setMetricsTrackerFactory(this);
+        }
+        if (!dataSources.contains(dataSource)) {
+            dataSources.add(dataSource);
+        }
+        return dataSource;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        PoolTracker tracker = new PoolTracker(poolName, poolStats);
+        trackers.put(poolName, tracker);
+        return tracker;
+    }
+
+    /**
+     * Returns the instrumented pools that are running, each with its tracker.
+     *
+     * @return the running pools and their trackers
+     */
+    Map<HikariDataSource, PoolTracker> runningPools() {
+        Map<HikariDataSource, PoolTracker> running = new LinkedHashMap<>();
+        for (HikariDataSource dataSource : dataSources) {
+            PoolTracker tracker = dataSource.isRunning() ? trackers.get(dataSource.getPoolName()) : null;
+            if (tracker != null) {
+                running.put(dataSource, tracker);
+            }
+        }
+        return running;
+    }
+
+    /**
+     * Reports the state and timings of every pool started so far, by pool name.
+     *
+     * @return one entry per pool
+     */
+    public List<ConnectionPoolStatsDTO> getStats() {
+        List<ConnectionPoolStatsDTO> stats = new ArrayList<>();
+        for (PoolTracker tracker : trackers.values()) {
+            stats.add(tracker.getStats());
+        }
+        return stats;
+    }
+
+    /**
+     * Acquisition and usage times of one pool, with the connections currently borrowed through it.
+     */
+    class PoolTracker implements IMetricsTracker {
+
+        private final String poolName;
+        private final PoolStats poolStats;
+        private final Histogram acquireMicros = new Histogram();
+        private final Histogram usageMicros = new Histogram();
+        private final LongAdder timeouts = new LongAdder();
+        private final LongAdder slowAcquires = new LongAdder();
+        private final Map<String, LongAdder> slowAcquiresByEndpoint = new ConcurrentHashMap<>();
+        private final AtomicLong lastWarningAt = new AtomicLong(System.nanoTime() - warningIntervalNanos);
+        private final LongAdder slowSinceWarning = new LongAdder();
+        private final AtomicInteger borrowed = new AtomicInteger();
+        private final AtomicInteger peakBorrowed = new AtomicInteger();
+        private final LongAdder resizes = new LongAdder();
+
+        // Totals at the end of the previous interval; guarded by this
+        private long intervalAcquisitions;
+        private long intervalAcquireMicros;
+        private long intervalUsages;
+        private long intervalUsageMicros;
+
+        PoolTracker(String poolName, PoolStats poolStats) {
+            this.poolName = poolName;
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquireMicros.record(elapsedAcquiredNanos / 1000);
+            peakBorrowed.accumulateAndGet(borrowed.incrementAndGet(), Math::max);
+            if (elapsedAcquiredNanos >= slowAcquireThresholdNanos) {
+                slowAcquire(elapsedAcquiredNanos / 1_000_000);
+            }
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usageMicros.record(elapsedBorrowedMillis * 1000);
+            borrowed.decrementAndGet();
+        }
+
+        /**
+         * Hikari reports the wait of a timed out request as an acquisition first, which counted it as slow.
+         */
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+            borrowed.decrementAndGet();
+        }
+
+        private void slowAcquire(long waitedMillis) {
+            String endpoint = RequestEndpoint.current();
+            slowAcquires.increment();
+            slowSinceWarning.increment();
+            LongAdder count = slowAcquiresByEndpoint.get(endpoint);
+            if (count == null) {
+                count = slowAcquiresByEndpoint.size() < MAX_ENDPOINTS
+                        ? slowAcquiresByEndpoint.computeIfAbsent(endpoint, key -> new LongAdder())
+                        : slowAcquiresByEndpoint.computeIfAbsent(OTHER_ENDPOINTS, key -> new LongAdder());
+            }
+            count.increment();
+
+            long now = System.nanoTime();
+            long last = lastWarningAt.get();
+            if (now - last >= warningIntervalNanos && lastWarningAt.compareAndSet(last, now)) {
+                log.warn("Waited {} ms for a connection from pool {} serving {} ({} active, {} idle, {} waiting, {} maximum); "
+                                + "{} slow acquisitions since the last warning",
+                        waitedMillis, poolName, endpoint, poolStats.getActiveConnections(),
+                        poolStats.getIdleConnections(), poolStats.getPendingThreads(), poolStats.getMaxConnections(),
+                        slowSinceWarning.sumThenReset());
+            }
+        }
+
+        /**
+         * Returns the acquisitions and usages since the previous call, and starts a new interval.
+         */
+        synchronized Interval nextInterval() {
+            long acquisitions = acquireMicros.count();
+            long acquireTotal = acquireMicros.total();
+            long usages = usageMicros.count();
+            long usageTotal = usageMicros.total();
+            Interval interval = new Interval(acquisitions - intervalAcquisitions,
+                    mean(acquireTotal - intervalAcquireMicros, acquisitions - intervalAcquisitions),
+                    mean(usageTotal - intervalUsageMicros, usages - intervalUsages),
+                    peakBorrowed.getAndSet(borrowed.get()));
+            intervalAcquisitions = acquisitions;
+            intervalAcquireMicros = acquireTotal;
+            intervalUsages = usages;
+            intervalUsageMicros = usageTotal;
+            return interval;
+        }
+
+        void recordResize() {
+            resizes.increment();
+        }
+
+        ConnectionPoolStatsDTO getStats() {
+            ConnectionPoolStatsDTO stats = new ConnectionPoolStatsDTO();
+            stats.setPoolName(poolName);
+            stats.setActive(poolStats.getActiveConnections());
+            stats.setIdle(poolStats.getIdleConnections());
+            stats.setPending(poolStats.getPendingThreads());
+            stats.setTotal(poolStats.getTotalConnections());
+            stats.setMaximumPoolSize(poolStats.getMaxConnections());
+            stats.setMinimumIdle(poolStats.getMinConnections());
+            stats.setAcquisitions(acquireMicros.count());
+            stats.setAcquireMeanMillis(mean(acquireMicros.total(), acquireMicros.count()));
+            stats.setAcquireP50Millis(acquireMicros.percentile(50) / 1000.0);
+            stats.setAcquireP99Millis(acquireMicros.percentile(99) / 1000.0);
+            stats.setAcquireMaxMillis(acquireMicros.max() / 1000.0);
+            stats.setAcquireHistogramMicros(acquireMicros.buckets());
+            stats.setUsageMeanMillis(mean(usageMicros.total(), usageMicros.count()));
+            stats.setUsageP99Millis(usageMicros.percentile(99) / 1000.0);
+            stats.setUsageMaxMillis(usageMicros.max() / 1000.0);
+            stats.setTimeouts(timeouts.sum());
+            stats.setSlowAcquires(slowAcquires.sum());
+            Map<String, Long> byEndpoint = new LinkedHashMap<>();
+            slowAcquiresByEndpoint.entrySet().stream()
+                    .sorted(Map.Entry.<String, LongAdder>comparingByValue(
+                            (left, right) -> Long.compare(right.sum(), left.sum())))
+                    .forEach(entry -> byEndpoint.put(entry.getKey(), entry.getValue().sum()));
+            stats.setSlowAcquiresByEndpoint(byEndpoint);
+            stats.setResizes(resizes.sum());
+            return stats;
+        }
+    }
+
+    private static double mean(long totalMicros, long count) {
+        return count == 0 ? 0 : totalMicros / 1000.0 / count;
+    }
+
+    /**
+     * Acquisitions and usages of a pool over one adjustment interval.
+     *
+     * @param acquisitions the connections acquired
+     * @param meanWaitMillis the mean time waited for a connection
+     * @param meanUsageMillis the mean time a returned connection was held, the database latency seen by the service
+     * @param peakBorrowed the most connections borrowed at once
+     */
+    public record Interval(long acquisitions, double meanWaitMillis, double meanUsageMillis, int peakBorrowed) {
+    }
+
+    /**
+     * Lock-free histogram of durations in microseconds, in power-of-two buckets.
+     */
+    static class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long micros) {
+            long value = Math.max(0, micros);
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(value));
+            total.add(value);
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        long count() {
+            long count = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        long total() {
+            return total.sum();
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile, capped by the largest recorded value.
+         */
+        long percentile(double percentile) {
+            long count = count();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(upperBound(i), max());
+                }
+            }
+            return max();
+        }
+
+        Map<Long, Long> buckets() {
+            Map<Long, Long> nonEmpty = new LinkedHashMap<>();
+            for (int i = 0; i < buckets.length(); i++) {
+                long count = buckets.get(i);
+                if (count > 0) {
+                    nonEmpty.put(upperBound(i), count);
+                }
+            }
+            return nonEmpty;
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket == 0 ? 0 : bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.infy.customerRewards.utility;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infy.customerRewards.dto.PointsEarnedDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reward event sink appending each event as one JSON line to a local file, for development and tests.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+@ConditionalOnProperty(name = "rewards.events.sink", havingValue = "file", matchIfMissing = true)
+public class FileRewardEventSink implements RewardEventSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    /**
+     * Constructs a FileRewardEventSink.
+     *
+     * @param objectMapper mapper used to write the events
+     * @param file the file the events are appended to
+     */
+    public FileRewardEventSink(ObjectMapper objectMapper,
+                               @Value("${rewards.events.file:reward-events.jsonl}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = Paths.get(file);
+    }
+
+    @Override
+    public synchronized void publish(List<PointsEarnedDTO> events) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (PointsEarnedDTO event : events) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append reward events to " + file, e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.infy.customerRewards.utility;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A completed span of a trace, as handed to the {@link SpanExporter}s.
+ *
+ * @param traceId the 32 hex digit id of the trace
+ * @param spanId the 16 hex digit id of the span
+ * @param parentSpanId the id of the parent span, possibly of another service, or null for the root of a trace
+ * @param name the contextual name of the observation, such as RewardService.getRewardsForCustomer
+ * @param start the wall-clock time the span started
+ * @param duration the time from start to stop
+ * @param tags the key values of the observation
+ * @param error the error the observation ended with, or null
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public record FinishedSpan(String traceId, String spanId, String parentSpanId, String name, Instant start,
+                           Duration duration, Map<String, String> tags, String error) {
+}
@@ -0,0 +1,155 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.exception.CustomException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Always-on Flight Recorder recording, kept on disk within a maximum age and size so that a latency spike can be
+ * examined after the fact. The recording uses the JDK's default settings, which stay below 1% overhead, overlaid
+ * with the settings file rewards.jfr.settings, which enables {@link RewardsRequestEvent}.
+ * <p>
+ * A dump holds the data of every running recording, including one started with -XX:StartFlightRecording
+ * when this recording is disabled. Failing to start the recording is logged and does not stop the application.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class FlightRecording {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecording.class);
+
+    private final boolean enabled;
+    private final String settings;
+    private final Duration maxAge;
+    private final DataSize maxSize;
+
+    private Recording recording;
+
+    /**
+     * Constructs a FlightRecording.
+     *
+     * @param enabled whether the recording is started with the application
+     * @param settings classpath location of the settings overlaid on the JDK's default settings
+     * @param maxAge recorded data older than this is discarded
+     * @param maxSize recorded data beyond this size is discarded, oldest first
+     */
+    public FlightRecording(@Value("${rewards.jfr.enabled:false}") boolean enabled,
+                           @Value("${rewards.jfr.settings:jfr/rewards.jfc}") String settings,
+                           @Value("${rewards.jfr.max-age:6h}") Duration maxAge,
+                           @Value("${rewards.jfr.max-size:250MB}") DataSize maxSize) {
+        this.enabled = enabled;
+        this.settings = settings;
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Starts the recording.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            log.warn("Flight Recorder is not available; running without a recording");
+            return;
+        }
+        try {
+            Recording started = new Recording(settings());
+            started.setName("rewards");
+            started.setToDisk(true);
+            started.setMaxAge(maxAge);
+            started.setMaxSize(maxSize.toBytes());
+            started.start();
+            recording = started;
+            log.info("Started flight recording with {} for up to {} and {}", settings, maxAge, maxSize);
+        } catch (IOException | ParseException | RuntimeException e) {
+            log.warn("Running without a flight recording: {}", e.toString());
+        }
+    }
+
+    /**
+     * Returns the JDK's default settings with the application's settings file overlaid.
+     *
+     * @return the settings of the recording, keyed by event name and setting, such as jdk.SocketRead#threshold
+     * @throws IOException if the settings file cannot be read
+     * @throws ParseException if the settings file is not a valid .jfc file
+     */
+    public Map<String, String> settings() throws IOException, ParseException {
+        Map<String, String> merged = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+        try (Reader reader = new InputStreamReader(new ClassPathResource(settings).getInputStream(), StandardCharsets.UTF_8)) {
+            merged.putAll(Configuration.create(reader).getSettings());
+        }
+        return merged;
+    }
+
+    /**
+     * Stops the recording and deletes its data.
+     */
+    @PreDestroy
+    public void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * Returns whether the application's recording is running.
+     *
+     * @return true if the recording was started and is not closed
+     */
+    public boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Writes the data of every running recording to a new temporary file, which the caller deletes.
+     *
+     * @return the file holding the dump
+     * @throws CustomException if no recording is running
+     * @throws IOException if the dump cannot be written
+     */
+    public Path dump() throws IOException {
+        if (!FlightRecorder.isAvailable()) {
+            throw new CustomException("Flight Recorder is not available");
+        }
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            if (snapshot.getSize() == 0) {
+                throw new CustomException("No flight recording is running");
+            }
+            Path file = Files.createTempFile("rewards-", ".jfr");
+            try {
+                snapshot.dump(file);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+            return file;
+        }
+    }
+}
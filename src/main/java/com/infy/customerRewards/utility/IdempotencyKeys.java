@@ -0,0 +1,378 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.IdempotencyStatsDTO;
+import com.infy.customerRewards.dto.TransactionDTO;
+import com.infy.customerRewards.exception.CustomException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Deduplication of client-supplied idempotency keys on transaction ingestion.
+ * Keys are scoped by customer and stored in the ingest_keys table together with the journaled transactions they
+ * belong to, along with a fingerprint of those transactions: a key reused with different transactions is rejected
+ * rather than answered with the receipt of the original request.
+ * A Bloom filter over the stored keys answers the common case, a key never seen before, without a database
+ * round trip; only keys the filter reports as possibly seen are looked up. Keys appended to the journal but
+ * not yet flushed to the database are held in memory, so a retry racing the original request is caught too.
+ * A retry sent to another instance before the original is flushed is only caught by the flush: the instance
+ * flushing second finds the key stored and drops its copy of the transactions.
+ * Keys older than the retention period are deleted and the filter is rebuilt from the remaining ones.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class IdempotencyKeys {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyKeys.class);
+
+    private static final int LOOKUP_CHUNK = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final int retentionDays;
+
+    // Keys claimed and not yet flushed, completed with the sequence number once appended
+    private final Map<Key, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    // Guards swapping the filters against adding a key to them, so that no key is added to a replaced filter only
+    private final Object filterLock = new Object();
+    private volatile BloomFilter filter;
+    // Filter being rebuilt, which receives new keys as well until it replaces the current one
+    private volatile BloomFilter rebuilding;
+
+    private final LongAdder definitelyNew = new LongAdder();
+    private final LongAdder databaseLookups = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    /**
+     * Constructs IdempotencyKeys.
+     *
+     * @param jdbcTemplate template on the primary database
+     * @param shardRouter router whose shards each store the keys of their customers
+     * @param enabled whether transaction ingestion, and with it key deduplication, is enabled
+     * @param expectedInsertions number of keys within the retention period the filter is sized for
+     * @param falsePositiveProbability target probability that a new key needs a database lookup
+     * @param retentionDays number of days a key is remembered
+     */
+    public IdempotencyKeys(JdbcTemplate jdbcTemplate,
+                           ShardRouter shardRouter,
+                           @Value("${rewards.ingest.journal.enabled:false}") boolean enabled,
+                           @Value("${rewards.ingest.idempotency.expected-keys:1000000}") long expectedInsertions,
+                           @Value("${rewards.ingest.idempotency.false-positive-probability:0.001}") double falsePositiveProbability,
+                           @Value("${rewards.ingest.idempotency.retention-days:7}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.retentionDays = retentionDays;
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveProbability);
+    }
+
+    /**
+     * Fills the filter with the stored keys.
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * Runs an append unless the customer already used the key, in which case the original sequence number is
+     * returned. A retry waiting for the original request takes the key over if the original fails.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param key the client-supplied idempotency key
+     * @param transactions the transactions of the request, compared with those of an earlier use of the key
+     * @param append appends the transactions to the journal and returns the last sequence number
+     * @return the sequence number of the append, and whether the key was a duplicate
+     * @throws CustomException if the key was already used with different transactions
+     */
+    public Claim claim(Long customerId, String key, List<TransactionDTO> transactions, LongSupplier append) {
+        Key id = new Key(customerId, key);
+        InFlight claim = new InFlight(fingerprint(transactions), new CompletableFuture<>());
+        InFlight previous;
+        while ((previous = inFlight.putIfAbsent(id, claim)) != null) {
+            requireSamePayload(key, previous.fingerprint(), claim.fingerprint());
+            try {
+                long sequence = previous.sequence().join();
+                duplicates.increment();
+                return new Claim(sequence, true);
+            } catch (CompletionException | CancellationException e) {
+                inFlight.remove(id, previous);
+            }
+        }
+        try {
+            StoredKey stored = find(id);
+            if (stored != null) {
+                requireSamePayload(key, stored.fingerprint(), claim.fingerprint());
+                duplicates.increment();
+                inFlight.remove(id, claim);
+                claim.sequence().complete(stored.sequence());
+                return new Claim(stored.sequence(), true);
+            }
+            // before the append, so the key cannot be flushed and forgotten before the filter knows it
+            addToFilters(id);
+            long sequence = append.getAsLong();
+            claim.sequence().complete(sequence);
+            return new Claim(sequence, false);
+        } catch (RuntimeException e) {
+            inFlight.remove(id, claim);
+            claim.sequence().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static void requireSamePayload(String key, String used, String requested) {
+        if (!used.equals(requested)) {
+            throw new CustomException("Idempotency-Key " + key + " was already used with different transactions");
+        }
+    }
+
+    /**
+     * Looks up a stored key, skipping the database when the filter has never seen it.
+     * Keys are stored on the shard of the customer they were used for, which serves the current request.
+     */
+    private StoredKey find(Key id) {
+        if (!filter.mightContain(id.filterKey())) {
+            definitelyNew.increment();
+            return null;
+        }
+        databaseLookups.increment();
+        List<StoredKey> stored = jdbcTemplate.query(
+                "select payload_hash, sequence from ingest_keys where customer_id = ? and idempotency_key = ?",
+                (row, index) -> new StoredKey(id, row.getString(1), row.getLong(2)), id.customerId(), id.value());
+        if (stored.isEmpty()) {
+            falsePositives.increment();
+            return null;
+        }
+        return stored.get(0);
+    }
+
+    private void addToFilters(Key id) {
+        synchronized (filterLock) {
+            filter.put(id.filterKey());
+            BloomFilter next = rebuilding;
+            if (next != null) {
+                next.put(id.filterKey());
+            }
+        }
+    }
+
+    /**
+     * Re-registers a key found in the journal on replay, whose transactions are not yet flushed.
+     *
+     * @param key the key, with the fingerprint and sequence number of its append
+     */
+    public void restore(StoredKey key) {
+        inFlight.put(key.key(), new InFlight(key.fingerprint(), CompletableFuture.completedFuture(key.sequence())));
+        addToFilters(key.key());
+    }
+
+    /**
+     * Stores keys in the database as part of the flush transaction of their appends, on the current shard.
+     * Keys another instance already stored are left as they are and returned, so that the caller skips the
+     * transactions of its own, duplicate append. Two instances storing the same key at the same moment make
+     * one flush transaction fail on the primary key; it finds the key stored when it is retried.
+     *
+     * @param keys the keys, each with the sequence number of the last transaction of its append
+     * @return the keys that were already stored
+     */
+    public Set<Key> store(Collection<StoredKey> keys) {
+        if (keys.isEmpty()) {
+            return Set.of();
+        }
+        Set<Key> existing = new HashSet<>();
+        List<StoredKey> all = new ArrayList<>(keys);
+        for (int from = 0; from < all.size(); from += LOOKUP_CHUNK) {
+            List<StoredKey> chunk = all.subList(from, Math.min(from + LOOKUP_CHUNK, all.size()));
+            StringBuilder sql = new StringBuilder("select customer_id, idempotency_key from ingest_keys "
+                    + "where (customer_id, idempotency_key) in (");
+            List<Object> arguments = new ArrayList<>(chunk.size() * 2);
+            for (StoredKey key : chunk) {
+                sql.append(arguments.isEmpty() ? "(?, ?)" : ", (?, ?)");
+                arguments.add(key.key().customerId());
+                arguments.add(key.key().value());
+            }
+            jdbcTemplate.query(sql.append(")").toString(), row -> {
+                existing.add(new Key(row.getLong(1), row.getString(2)));
+            }, arguments.toArray());
+        }
+        List<StoredKey> added = all.stream().filter(key -> !existing.contains(key.key())).toList();
+        if (!existing.isEmpty()) {
+            log.info("Skipping the transactions of {} idempotency keys already stored by another instance", existing.size());
+        }
+        if (added.isEmpty()) {
+            return existing;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate("insert into ingest_keys (customer_id, idempotency_key, payload_hash, sequence, created_at) "
+                        + "values (?, ?, ?, ?, ?)", added, added.size(), (statement, key) -> {
+                    statement.setLong(1, key.key().customerId());
+                    statement.setString(2, key.key().value());
+                    statement.setString(3, key.fingerprint());
+                    statement.setLong(4, key.sequence());
+                    statement.setTimestamp(5, now);
+                });
+        return existing;
+    }
+
+    /**
+     * Forgets keys held in memory once their flush has committed; they are found in the database from then on.
+     *
+     * @param keys the flushed keys
+     */
+    public void flushed(Collection<Key> keys) {
+        keys.forEach(inFlight::remove);
+    }
+
+    /**
+     * Fingerprints the transactions of a request, to tell a retry from a different request reusing its key.
+     *
+     * @param transactions the transactions; incomplete ones are fingerprinted too and rejected by the journal
+     * @return the hex-encoded SHA-256 digest of the transactions
+     */
+    public static String fingerprint(List<TransactionDTO> transactions) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (TransactionDTO transaction : transactions == null ? List.<TransactionDTO>of() : transactions) {
+                Object cents = transaction.getAmount() == null ? null : Math.round(transaction.getAmount() * 100);
+                digest.update(String.format("%s|%s|%s%n", transaction.getDate(), cents, transaction.getProduct())
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Deletes keys past the retention period and rebuilds the filter from the remaining ones,
+     * so that expired keys stop costing database lookups.
+     */
+    @Scheduled(cron = "${rewards.ingest.idempotency.purge-cron:0 15 4 * * *}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        Timestamp expired = Timestamp.from(Instant.now().minus(retentionDays, ChronoUnit.DAYS));
+        int deleted = shardRouter.fanOut(shard -> jdbcTemplate.update("delete from ingest_keys where created_at < ?", expired))
+                .stream().mapToInt(Integer::intValue).sum();
+        log.info("Deleted {} idempotency keys older than {} days", deleted, retentionDays);
+        rebuild();
+    }
+
+    private synchronized void rebuild() {
+        BloomFilter next = new BloomFilter(expectedInsertions, falsePositiveProbability);
+        synchronized (filterLock) {
+            rebuilding = next;
+        }
+        // In-flight keys first: a key flushed after this point is committed before the table is read
+        inFlight.keySet().forEach(id -> next.put(id.filterKey()));
+        shardRouter.fanOut(shard -> {
+            jdbcTemplate.query("select customer_id, idempotency_key from ingest_keys", row -> {
+                next.put(new Key(row.getLong(1), row.getString(2)).filterKey());
+            });
+            return null;
+        });
+        synchronized (filterLock) {
+            filter = next;
+            rebuilding = null;
+        }
+        log.info("Loaded {} idempotency keys into a {} KB filter, estimated false-positive probability {}",
+                next.getInsertions(), next.getMemoryBytes() / 1024, next.estimatedFalsePositiveProbability());
+    }
+
+    /**
+     * Reports the sizing of the filter and how often it avoided or needed a database lookup.
+     *
+     * @return the filter statistics
+     */
+    public IdempotencyStatsDTO getStats() {
+        BloomFilter current = filter;
+        IdempotencyStatsDTO stats = new IdempotencyStatsDTO();
+        stats.setExpectedInsertions(expectedInsertions);
+        stats.setConfiguredFalsePositiveProbability(falsePositiveProbability);
+        stats.setEstimatedFalsePositiveProbability(current.estimatedFalsePositiveProbability());
+        stats.setBits(current.getBits());
+        stats.setHashFunctions(current.getHashFunctions());
+        stats.setMemoryBytes(current.getMemoryBytes());
+        stats.setInsertions(current.getInsertions());
+        stats.setDefinitelyNew(definitelyNew.sum());
+        stats.setDatabaseLookups(databaseLookups.sum());
+        stats.setFalsePositives(falsePositives.sum());
+        stats.setDuplicates(duplicates.sum());
+        long newKeys = stats.getDefinitelyNew() + stats.getFalsePositives();
+        stats.setObservedFalsePositiveRate(newKeys == 0 ? 0 : (double) stats.getFalsePositives() / newKeys);
+        return stats;
+    }
+
+    /**
+     * Outcome of claiming an idempotency key.
+     *
+     * @param sequence the sequence number of the append the key belongs to
+     * @param duplicate whether the key had been used before and nothing was appended
+     */
+    public record Claim(long sequence, boolean duplicate) {
+    }
+
+    /**
+     * Idempotency key of a customer.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param value the client-supplied key
+     */
+    public record Key(long customerId, String value) {
+
+        String filterKey() {
+            return customerId + ":" + value;
+        }
+    }
+
+    /**
+     * Idempotency key of an append, as stored with its transactions.
+     *
+     * @param key the key
+     * @param fingerprint the fingerprint of the append's transactions, empty if it was journaled without one
+     * @param sequence the sequence number of the last transaction of the append
+     */
+    public record StoredKey(Key key, String fingerprint, long sequence) {
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<Long> sequence) {
+    }
+}
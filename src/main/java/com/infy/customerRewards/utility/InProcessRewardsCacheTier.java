@@ -0,0 +1,119 @@
+package com.infy.customerRewards.utility;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rewards cache tier held in the memory of this process, standing in for a shared cache server
+ * in a single instance and in tests. Several caches given the same tier behave like instances
+ * sharing a remote one, but separate processes do not share it: instances would miss each other's
+ * invalidations, so it is only used when chosen explicitly with rewards.cache.remote=in-process.
+ * Expired values are removed when read and by a periodic sweep; beyond the maximum number of values,
+ * arbitrary ones are evicted, as a cache server does under memory pressure.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+@ConditionalOnProperty(name = "rewards.cache.remote", havingValue = "in-process")
+public class InProcessRewardsCacheTier implements RewardsCacheTier {
+
+    private final Map<String, Entry> values = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final int maxEntries;
+
+    /**
+     * Constructs an InProcessRewardsCacheTier.
+     *
+     * @param maxEntries number of values kept before arbitrary ones are evicted
+     */
+    public InProcessRewardsCacheTier(@Value("${rewards.cache.in-process.max-entries:100000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        Entry entry = values.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt < System.nanoTime()) {
+            values.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        values.put(key, new Entry(value, System.nanoTime() + ttl.toNanos()));
+        if (values.size() > maxEntries) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the expired values, then arbitrary ones while more than the maximum are left.
+     * Skipped if another thread is already evicting.
+     */
+    @Scheduled(fixedDelayString = "${rewards.cache.in-process.sweep-interval-ms:60000}")
+    public void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.nanoTime();
+            values.values().removeIf(entry -> entry.expiresAt < now);
+            Iterator<String> keys = values.keySet().iterator();
+            while (values.size() > maxEntries && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    @Override
+    public long version(long customerId) {
+        AtomicLong version = versions.get(customerId);
+        return version == null ? 0 : version.get();
+    }
+
+    @Override
+    public long invalidate(long customerId) {
+        long version = versions.computeIfAbsent(customerId, id -> new AtomicLong()).incrementAndGet();
+        listeners.forEach(listener -> listener.onInvalidation(customerId, version));
+        return version;
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Gets the number of stored values, including expired ones not read since.
+     * @return the value count
+     */
+    public int size() {
+        return values.size();
+    }
+
+    private record Entry(byte[] value, long expiresAt) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.infy.customerRewards.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.context.support.AbstractApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Event multicaster of the application context that keeps a failing listener of a {@link TransactionsRecordedEvent}
+ * from stopping the other listeners. The transactions are already committed when the event is published, so each
+ * in-memory view is updated independently and a failure is logged instead of being thrown back to the publisher.
+ * Listeners of every other event still see the default behaviour, where the first failure is rethrown.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME)
+public class IsolatingEventMulticaster extends SimpleApplicationEventMulticaster {
+
+    private static final Logger log = LoggerFactory.getLogger(IsolatingEventMulticaster.class);
+
+    @Override
+    protected void invokeListener(ApplicationListener<?> listener, ApplicationEvent event) {
+        if (!(event instanceof PayloadApplicationEvent<?> payload
+                && payload.getPayload() instanceof TransactionsRecordedEvent recorded)) {
+            super.invokeListener(listener, event);
+            return;
+        }
+        try {
+            super.invokeListener(listener, event);
+        } catch (RuntimeException e) {
+            log.error("Listener {} failed on the recorded transactions of customer {}", listener, recorded.customerId(), e);
+        }
+    }
+}
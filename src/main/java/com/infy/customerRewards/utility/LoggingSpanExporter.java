@@ -0,0 +1,29 @@
+package com.infy.customerRewards.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes every sampled span to the log as one line, for the log shipper to collect and index by trace id.
+ * Spans are logged at info level, so the exporter is switched off by raising this class's log level.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class LoggingSpanExporter implements SpanExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingSpanExporter.class);
+
+    @Override
+    public void export(FinishedSpan span) {
+        if (log.isInfoEnabled()) {
+            log.info("span trace={} id={} parent={} name=\"{}\" start={} duration_us={} tags={}{}",
+                    span.traceId(), span.spanId(), span.parentSpanId(), span.name(), span.start(),
+                    span.duration().toNanos() / 1000, span.tags(),
+                    span.error() == null ? "" : " error=\"" + span.error() + "\"");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.infy.customerRewards.utility;
+
+import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Collections;
+
+/**
+ * Synthetic row sink inserting into the customers and transactions tables with multi-row INSERT statements,
+ * sent in JDBC batches and committed every few thousand rows on one connection.
+ * One statement carries the rows of hundreds of single-row inserts, which cuts the round trips and
+ * per-statement parsing that dominate row-at-a-time loading.
+ * Customers are inserted with their generated IDs; on close, the ID column of databases that do not
+ * move their auto-increment counter past explicit IDs is restarted after the highest one.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class MultiRowInsertSink implements SyntheticRowSink {
+
+    private static final String CUSTOMER_INSERT = "insert into customers (id, cust_name, phone_no) values ";
+    private static final String CUSTOMER_ROW = "(?, ?, ?)";
+    private static final int CUSTOMER_COLUMNS = 3;
+    private static final String TRANSACTION_INSERT = "insert into transactions (customer_id, date, product, amount) values ";
+    private static final String TRANSACTION_ROW = "(?, ?, ?, ?)";
+    private static final int TRANSACTION_COLUMNS = 4;
+
+    private final Connection connection;
+    private final SQLExceptionTranslator exceptionTranslator;
+    private final boolean mysql;
+    private final int rowsPerStatement;
+    private final int statementsPerCommit;
+
+    private final Object[] customerRows;
+    private final Object[] transactionRows;
+    private int bufferedCustomers;
+    private int bufferedTransactions;
+    private PreparedStatement customerStatement;
+    private PreparedStatement transactionStatement;
+    private int batchedStatements;
+    private long maxCustomerId;
+
+    /**
+     * Constructs a MultiRowInsertSink on a connection of the data source.
+     *
+     * @param dataSource the database to insert into, the current shard's if sharded
+     * @param rowsPerStatement the number of rows per INSERT statement
+     * @param statementsPerCommit the number of statements per JDBC batch and database transaction
+     */
+    public MultiRowInsertSink(DataSource dataSource, int rowsPerStatement, int statementsPerCommit) {
+        this.exceptionTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
+        this.rowsPerStatement = rowsPerStatement;
+        this.statementsPerCommit = statementsPerCommit;
+        this.customerRows = new Object[rowsPerStatement * CUSTOMER_COLUMNS];
+        this.transactionRows = new Object[rowsPerStatement * TRANSACTION_COLUMNS];
+        try {
+            this.connection = dataSource.getConnection();
+            this.connection.setAutoCommit(false);
+            this.mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+        } catch (SQLException e) {
+            throw exceptionTranslator.translate("Opening synthetic data connection", null, e);
+        }
+    }
+
+    @Override
+    public void customer(long id, String custName, String phoneNo) {
+        int offset = bufferedCustomers * CUSTOMER_COLUMNS;
+        customerRows[offset] = id;
+        customerRows[offset + 1] = custName;
+        customerRows[offset + 2] = phoneNo;
+        maxCustomerId = Math.max(maxCustomerId, id);
+        if (++bufferedCustomers == rowsPerStatement) {
+            customerStatement = addBatch(customerStatement, CUSTOMER_INSERT, CUSTOMER_ROW, CUSTOMER_COLUMNS,
+                    customerRows, bufferedCustomers);
+            bufferedCustomers = 0;
+        }
+    }
+
+    @Override
+    public void transaction(long customerId, LocalDate date, String product, double amount) {
+        if (bufferedCustomers > 0 || customerStatement != null) {
+            flushCustomers();
+        }
+        int offset = bufferedTransactions * TRANSACTION_COLUMNS;
+        transactionRows[offset] = customerId;
+        transactionRows[offset + 1] = Date.valueOf(date);
+        transactionRows[offset + 2] = product;
+        transactionRows[offset + 3] = amount;
+        if (++bufferedTransactions == rowsPerStatement) {
+            transactionStatement = addBatch(transactionStatement, TRANSACTION_INSERT, TRANSACTION_ROW, TRANSACTION_COLUMNS,
+                    transactionRows, bufferedTransactions);
+            bufferedTransactions = 0;
+        }
+    }
+
+    /**
+     * Adds a full statement of rows to the JDBC batch, executing and committing it when it is complete.
+     */
+    private PreparedStatement addBatch(PreparedStatement statement, String insert, String row, int columns,
+                                       Object[] rows, int rowCount) {
+        String sql = insert + String.join(", ", Collections.nCopies(rowCount, row));
+        try {
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+            }
+            for (int i = 0; i < rowCount * columns; i++) {
+                statement.setObject(i + 1, rows[i]);
+            }
+            statement.addBatch();
+            if (++batchedStatements == statementsPerCommit) {
+                statement.executeBatch();
+                connection.commit();
+                batchedStatements = 0;
+            }
+            return statement;
+        } catch (SQLException e) {
+            throw exceptionTranslator.translate("Inserting synthetic rows", sql, e);
+        }
+    }
+
+    /**
+     * Writes the remaining customers, so that their transactions never reach the database before them.
+     */
+    private void flushCustomers() {
+        flushPartial(customerStatement, CUSTOMER_INSERT, CUSTOMER_ROW, CUSTOMER_COLUMNS, customerRows, bufferedCustomers);
+        closeStatement(customerStatement);
+        customerStatement = null;
+        bufferedCustomers = 0;
+    }
+
+    /**
+     * Executes the batched statements and inserts the rows of a statement that is not full with one of its own.
+     */
+    private void flushPartial(PreparedStatement statement, String insert, String row, int columns, Object[] rows,
+                              int rowCount) {
+        try {
+            if (statement != null) {
+                statement.executeBatch();
+            }
+            if (rowCount > 0) {
+                String sql = insert + String.join(", ", Collections.nCopies(rowCount, row));
+                try (PreparedStatement partial = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < rowCount * columns; i++) {
+                        partial.setObject(i + 1, rows[i]);
+                    }
+                    partial.executeUpdate();
+                }
+            }
+            connection.commit();
+            batchedStatements = 0;
+        } catch (SQLException e) {
+            throw exceptionTranslator.translate("Inserting synthetic rows", insert, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            flushCustomers();
+            flushPartial(transactionStatement, TRANSACTION_INSERT, TRANSACTION_ROW, TRANSACTION_COLUMNS,
+                    transactionRows, bufferedTransactions);
+            bufferedTransactions = 0;
+            if (!mysql && maxCustomerId > 0) {
+                restartCustomerIds();
+            }
+        } finally {
+            closeStatement(transactionStatement);
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // The rows are committed, nothing left to release but the connection
+            }
+        }
+    }
+
+    private void restartCustomerIds() {
+        try (Statement statement = connection.createStatement()) {
+            long next;
+            try (ResultSet max = statement.executeQuery("select max(id) from customers")) {
+                max.next();
+                next = max.getLong(1) + 1;
+            }
+            statement.execute("alter table customers alter column id restart with " + next);
+            connection.commit();
+        } catch (SQLException e) {
+            throw exceptionTranslator.translate("Restarting customer IDs", null, e);
+        }
+    }
+
+    private static void closeStatement(PreparedStatement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Closing a statement of a committed batch, nothing to recover
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.CustomerDTO;
+import com.infy.customerRewards.dto.CustomerResponseDTO;
+import com.infy.customerRewards.dto.TransactionDTO;
+import com.infy.customerRewards.dto.TransactionResponseDTO;
+import com.infy.customerRewards.entity.Customer;
+import com.infy.customerRewards.entity.Transaction;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Reflection and resource hints for the native executable (mvn -Pnative package), covering what the AOT
+ * processing cannot derive from the bean definitions: the entities and DTOs that ModelMapper maps by
+ * reflection in RewardCalculator and RewardServiceImpl, and the JJWT implementation classes and
+ * Jackson serializer that JwtUtil reaches through class names and service files, the JDBC interfaces
+ * that ProfilingDataSource proxies, and the Flight Recorder settings read by FlightRecording.
+ * JPA entities as such, controllers and their response types are registered by the AOT processing itself.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    /**
+     * Source and destination types of the ModelMapper conversions, with the element types of their lists.
+     */
+    static final List<Class<?>> MAPPED_TYPES = List.of(Customer.class, Transaction.class, CustomerDTO.class,
+            CustomerResponseDTO.class, TransactionDTO.class, TransactionResponseDTO.class);
+
+    /**
+     * JJWT classes instantiated by name; jjwt-impl and jjwt-jackson are runtime dependencies only.
+     */
+    static final List<String> JJWT_TYPES = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParser",
+            "io.jsonwebtoken.impl.DefaultClaims",
+            "io.jsonwebtoken.impl.DefaultHeader",
+            "io.jsonwebtoken.impl.DefaultJwsHeader",
+            "io.jsonwebtoken.impl.compression.DeflateCompressionCodec",
+            "io.jsonwebtoken.impl.compression.GzipCompressionCodec",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer");
+
+    /**
+     * JDBC interfaces implemented by the JDK proxies of ProfilingDataSource, one proxy class each.
+     */
+    static final List<Class<?>> JDBC_PROXY_TYPES = List.of(Connection.class, Statement.class,
+            PreparedStatement.class, CallableStatement.class, ResultSet.class);
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> type : MAPPED_TYPES) {
+            hints.reflection().registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.DECLARED_FIELDS);
+        }
+        for (String type : JJWT_TYPES) {
+            hints.reflection().registerType(TypeReference.of(type), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+        hints.resources().registerPattern("jfr/*.jfc");
+        for (Class<?> type : JDBC_PROXY_TYPES) {
+            hints.proxies().registerJdkProxy(type);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.infy.customerRewards.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scheduled task that maintains the monthly range partitions of the transactions table.
+ * Partitions for the coming months are split off the catch-all pmax partition ahead of time, and
+ * partitions older than the retention period are removed. Dropping a partition swaps table metadata
+ * and avoids the long-running DELETE of an unpartitioned table.
+ * <p>
+ * With the {@link TransactionArchive} enabled, an expired partition is only dropped once its month is
+ * archived and the archive has deleted its rows, so the month stays readable from the archive.
+ * Without it, the rows are exchanged into a standalone transactions_pYYYYMM table before the partition is
+ * dropped; they are kept for offline use but are no longer served, so retention-months is then the
+ * period the application reports on. Every step checks the state left by an interrupted earlier run,
+ * so a failed detach can simply run again.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+@ConditionalOnProperty(name = "rewards.partitions.enabled", havingValue = "true")
+public class PartitionMaintenanceTask {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionMaintenanceTask.class);
+
+    private static final String TABLE = "transactions";
+    private static final String CATCH_ALL_PARTITION = "pmax";
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final TransactionArchive transactionArchive;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    /**
+     * Constructs a PartitionMaintenanceTask.
+     *
+     * @param jdbcTemplate template on the primary database
+     * @param shardRouter router whose shards are all maintained
+     * @param transactionArchive archive that must hold an expired month before its partition is dropped, if enabled
+     * @param monthsAhead number of months after the current one that must already have a partition
+     * @param retentionMonths number of months before the current one kept in the transactions table
+     */
+    public PartitionMaintenanceTask(JdbcTemplate jdbcTemplate,
+                                    ShardRouter shardRouter,
+                                    TransactionArchive transactionArchive,
+                                    @Value("${rewards.partitions.months-ahead:3}") int monthsAhead,
+                                    @Value("${rewards.partitions.retention-months:36}") int retentionMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.transactionArchive = transactionArchive;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Runs the maintenance for the current month on every shard.
+     */
+    @Scheduled(cron = "${rewards.partitions.cron:0 30 2 * * *}")
+    public void run() {
+        YearMonth current = YearMonth.now();
+        shardRouter.forEachShard(shard -> maintain(current));
+    }
+
+    /**
+     * Creates the missing future partitions and detaches the expired ones.
+     *
+     * @param current the month the maintenance runs in
+     */
+    public void maintain(YearMonth current) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "select partition_name from information_schema.partitions "
+                        + "where table_schema = database() and table_name = ? and partition_name is not null "
+                        + "order by partition_ordinal_position",
+                String.class, TABLE);
+        if (partitions.isEmpty()) {
+            log.warn("Table {} is not partitioned, skipping partition maintenance", TABLE);
+            return;
+        }
+
+        List<YearMonth> months = new ArrayList<>();
+        for (String partition : partitions) {
+            if (!CATCH_ALL_PARTITION.equals(partition)) {
+                months.add(YearMonth.parse(partition, PARTITION_NAME));
+            }
+        }
+
+        createFuturePartitions(months, current, current.plusMonths(monthsAhead));
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (YearMonth month : months) {
+            if (month.isBefore(oldestKept)) {
+                detachPartition(month);
+            }
+        }
+    }
+
+    /**
+     * Splits partitions for every month after the last existing one up to the given month off pmax.
+     *
+     * @param months the months that already have a partition, in ascending order
+     * @param current the month the maintenance runs in
+     * @param until the last month that must have a partition
+     */
+    private void createFuturePartitions(List<YearMonth> months, YearMonth current, YearMonth until) {
+        YearMonth next = months.isEmpty() ? current : months.get(months.size() - 1).plusMonths(1);
+        if (next.isAfter(until)) {
+            return;
+        }
+        StringBuilder ddl = new StringBuilder("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + CATCH_ALL_PARTITION + " INTO (");
+        List<String> created = new ArrayList<>();
+        for (YearMonth month = next; !month.isAfter(until); month = month.plusMonths(1)) {
+            ddl.append("PARTITION ").append(month.format(PARTITION_NAME))
+                    .append(" VALUES LESS THAN ('").append(month.plusMonths(1).atDay(1)).append("'), ");
+            created.add(month.format(PARTITION_NAME));
+        }
+        ddl.append("PARTITION ").append(CATCH_ALL_PARTITION).append(" VALUES LESS THAN (MAXVALUE))");
+        jdbcTemplate.execute(ddl.toString());
+        log.info("Created partitions {} of {}", created, TABLE);
+    }
+
+    /**
+     * Removes the partition of an expired month: drops it once the month is archived and empty if the
+     * archive is enabled, otherwise moves its rows into a standalone table first.
+     *
+     * @param month the expired month
+     */
+    private void detachPartition(YearMonth month) {
+        String partition = month.format(PARTITION_NAME);
+        long rows = count(TABLE + " PARTITION (" + partition + ")");
+
+        if (transactionArchive.isEnabled()) {
+            if (!transactionArchive.isArchived(month)) {
+                log.warn("Partition {} of {} expired but {} is not archived yet, keeping it", partition, TABLE, month);
+            } else if (rows > 0) {
+                log.warn("Partition {} of {} holds {} rows added after {} was archived, keeping it",
+                        partition, TABLE, rows, month);
+            } else {
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition);
+                log.info("Dropped partition {} of {}, {} is served from the archive", partition, TABLE, month);
+            }
+            return;
+        }
+
+        String detached = TABLE + "_" + partition;
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + detached + " LIKE " + TABLE);
+        if (isPartitioned(detached)) {
+            jdbcTemplate.execute("ALTER TABLE " + detached + " REMOVE PARTITIONING");
+        }
+        if (rows > 0) {
+            // an earlier run may have exchanged the rows already; exchanging again would swap them back
+            long detachedRows = count(detached);
+            if (detachedRows > 0) {
+                log.error("Both partition {} of {} and table {} hold rows ({} and {}), leaving them to be reconciled",
+                        partition, TABLE, detached, rows, detachedRows);
+                return;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " EXCHANGE PARTITION " + partition + " WITH TABLE " + detached);
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition);
+        log.info("Detached partition {} of {} into {}; its {} rows are no longer served", partition, TABLE, detached, rows);
+    }
+
+    private long count(String table) {
+        Long rows = jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+        return rows == null ? 0 : rows;
+    }
+
+    private boolean isPartitioned(String table) {
+        Long partitions = jdbcTemplate.queryForObject(
+                "select count(*) from information_schema.partitions "
+                        + "where table_schema = database() and table_name = ? and partition_name is not null",
+                Long.class, table);
+        return partitions != null && partitions > 0;
+    }
+}
@@ -0,0 +1,609 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.PointsBalanceDTO;
+import com.infy.customerRewards.exception.CustomException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Off-heap index of the running reward points of every customer, for lookups that must not touch the database.
+ * The index is an open-addressing hash table of fixed-width slots in a memory-mapped file, so it lives outside
+ * the Java heap and survives restarts. Each slot holds a customer ID, the latest month with points, the points
+ * of that month and the lifetime points.
+ * Slots are written by one thread at a time and read without locks: each slot carries a sequence number that is
+ * odd while the slot is being written, and readers retry until they read the same even number before and after
+ * the slot (a seqlock). An odd sequence number found when opening the file means the process died mid-write,
+ * in which case the index is rebuilt from the transactions table.
+ * <p>
+ * Every instance keeps its own file and follows the shared transactions table rather than its own ingest
+ * events: a scheduled catch-up applies the rows of each shard in ID order past the shard's high-water mark,
+ * which is stored in the file header, so transactions saved by other instances or while this one was down are
+ * applied once, including on start. A missing ID is waited for until the gap timeout, as rows of a batch still
+ * being committed can become visible after later ones; after that the ID is taken to be rolled back. The header
+ * also has a sequence number that is odd while a catch-up batch is being applied, so a crash between updating
+ * the slots and the high-water mark leads to a rebuild instead of counting the batch twice.
+ *
+ * <pre>
+ * "RWPI" version:int capacity:int shards:int sequence:int padding:int highWaterMark:long*shards
+ *     (padding to {@value #HEADER_BYTES} bytes)
+ * slot*capacity: sequence:int month:int customerId:long monthPoints:long lifetimePoints:long
+ * </pre>
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class PointsIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PointsIndex.class);
+
+    private static final int MAGIC = 0x52575049; // "RWPI"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4096;
+    private static final int SLOT_BYTES = 32;
+
+    private static final int SHARDS = 12;
+    private static final int HEADER_SEQUENCE = 16;
+    private static final int HIGH_WATER_MARKS = 24;
+    private static final int MAX_SHARDS = (HEADER_BYTES - HIGH_WATER_MARKS) / 8;
+
+    private static final int SEQUENCE = 0;
+    private static final int MONTH = 4;
+    private static final int CUSTOMER_ID = 8;
+    private static final int MONTH_POINTS = 16;
+    private static final int LIFETIME_POINTS = 24;
+
+    private static final double MAX_LOAD = 0.7;
+    private static final int CATCH_UP_BATCH = 10_000;
+    private static final int REBUILD_FETCH_SIZE = 10_000;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RewardCalculator rewardCalculator;
+    private final ShardRouter shardRouter;
+    private final TransactionArchive transactionArchive;
+    private final Path file;
+    private final boolean enabled;
+    private final int initialCapacity;
+    private final long gapTimeoutNanos;
+
+    // Replaced as a whole when the table grows or is rebuilt; writers hold the lock on this index
+    private volatile Table table;
+    // When catch-up first stopped at the missing ID after each shard's high-water mark, zero if none is missing
+    private final long[] gapSince;
+
+    /**
+     * Constructs a PointsIndex.
+     *
+     * @param jdbcTemplate template on the transactions table, used to catch up and rebuild
+     * @param rewardCalculator calculator of the points of recorded transactions
+     * @param shardRouter router whose shards are all indexed
+     * @param transactionArchive archive whose months are counted in the lifetime points of a rebuild
+     * @param file the memory-mapped index file
+     * @param enabled whether the index is opened and kept up to date
+     * @param initialCapacity number of slots of a new index file, rounded up to a power of two
+     * @param gapTimeoutMs how long a missing transaction ID is waited for before it is skipped
+     */
+    public PointsIndex(JdbcTemplate jdbcTemplate,
+                       RewardCalculator rewardCalculator,
+                       ShardRouter shardRouter,
+                       TransactionArchive transactionArchive,
+                       @Value("${rewards.points-index.file:points.idx}") String file,
+                       @Value("${rewards.points-index.enabled:false}") boolean enabled,
+                       @Value("${rewards.points-index.initial-capacity:65536}") int initialCapacity,
+                       @Value("${rewards.points-index.gap-timeout-ms:30000}") long gapTimeoutMs) {
+        if (enabled && shardRouter.getShardCount() > MAX_SHARDS) {
+            throw new IllegalStateException("The points index supports at most " + MAX_SHARDS + " shards");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.rewardCalculator = rewardCalculator;
+        this.shardRouter = shardRouter;
+        this.transactionArchive = transactionArchive;
+        this.file = Paths.get(file);
+        this.enabled = enabled;
+        this.initialCapacity = initialCapacity;
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMs);
+        this.gapSince = new long[shardRouter.getShardCount()];
+    }
+
+    /**
+     * Maps the index file and catches up with the transactions saved since it was last written,
+     * rebuilding it from the database if it is missing or was left inconsistent.
+     */
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        if (Files.exists(file)) {
+            try {
+                synchronized (this) {
+                    table = Table.open(file, shardRouter.getShardCount());
+                }
+                log.info("Opened points index {} with {} customers", file, table.size);
+            } catch (IllegalStateException e) {
+                log.warn("Rebuilding points index {}: {}", file, e.getMessage());
+            }
+        }
+        if (table == null) {
+            rebuild();
+        }
+        catchUp();
+    }
+
+    /**
+     * Flushes the mapped slots to the file.
+     */
+    @PreDestroy
+    public void close() {
+        Table current = table;
+        if (current != null) {
+            current.buffer.force();
+        }
+    }
+
+    /**
+     * Recomputes every slot from the transactions of every shard and the archived months into a new file
+     * that then replaces the current one. Each shard is read up to its highest transaction ID when the rebuild
+     * starts, which becomes its high-water mark; later rows are left to the catch-up. A row below that ID that
+     * is still uncommitted during the rebuild, or a month being archived by another instance at the same time,
+     * is not counted correctly until the next rebuild.
+     * Catch-up waits for the rebuild to finish.
+     *
+     * @return the number of customers in the rebuilt index
+     * @throws CustomException if the index is disabled
+     */
+    public synchronized int rebuild() {
+        requireEnabled();
+        long start = System.nanoTime();
+        Map<Long, long[]> points = new HashMap<>();
+        long[] highWaterMarks = new long[shardRouter.getShardCount()];
+        JdbcTemplate reader = new JdbcTemplate(jdbcTemplate.getDataSource());
+        reader.setFetchSize(REBUILD_FETCH_SIZE);
+        shardRouter.forEachShard(shard -> {
+            Long maxId = reader.queryForObject("select max(id) from transactions", Long.class);
+            highWaterMarks[shard] = maxId == null ? 0 : maxId;
+            reader.query("select customer_id, date, amount from transactions where id <= ?",
+                    row -> {
+                        accumulate(points, row.getLong(1), row.getObject(2, LocalDate.class), row.getDouble(3));
+                    },
+                    highWaterMarks[shard]);
+        });
+        if (transactionArchive.isEnabled()) {
+            transactionArchive.forEachArchivedRow((customerId, date, amount) -> accumulate(points, customerId, date, amount));
+        }
+
+        Table rebuilt = Table.create(file, capacityFor(points.size()), highWaterMarks.length);
+        points.forEach((customerId, totals) -> rebuilt.put(customerId, (int) totals[0], totals[1], totals[2]));
+        for (int shard = 0; shard < highWaterMarks.length; shard++) {
+            rebuilt.setHighWaterMark(shard, highWaterMarks[shard]);
+        }
+        rebuilt.install(file);
+        table = rebuilt;
+        Arrays.fill(gapSince, 0);
+        log.info("Rebuilt points index {} with {} customers in {} ms",
+                file, points.size(), (System.nanoTime() - start) / 1_000_000);
+        return points.size();
+    }
+
+    /**
+     * Adds the points of one transaction to the latest month, month points and lifetime points of its customer.
+     */
+    private void accumulate(Map<Long, long[]> points, long customerId, LocalDate date, double amount) {
+        int earned = rewardCalculator.calculatePoints(amount);
+        if (earned <= 0) {
+            return;
+        }
+        long[] totals = points.computeIfAbsent(customerId, id -> new long[3]);
+        int month = encode(YearMonth.from(date));
+        if (month > totals[0]) {
+            totals[0] = month;
+            totals[1] = earned;
+        } else if (month == totals[0]) {
+            totals[1] += earned;
+        }
+        totals[2] += earned;
+    }
+
+    /**
+     * Applies the transactions saved on every shard since its high-water mark, whichever instance saved them.
+     * Rebuilds the index instead if a previous catch-up failed half-way.
+     */
+    @Scheduled(fixedDelayString = "${rewards.points-index.catch-up-interval-ms:1000}")
+    public synchronized void catchUp() {
+        if (!enabled || table == null) {
+            return;
+        }
+        if (table.isWriting()) {
+            log.warn("Rebuilding points index {}: a catch-up was interrupted", file);
+            rebuild();
+        }
+        shardRouter.forEachShard(this::catchUp);
+    }
+
+    private void catchUp(int shard) {
+        while (true) {
+            List<CaughtUpRow> rows = jdbcTemplate.query(
+                    "select id, customer_id, date, amount from transactions where id > ? order by id limit ?",
+                    (row, index) -> new CaughtUpRow(row.getLong(1), row.getLong(2),
+                            row.getObject(3, LocalDate.class), row.getDouble(4)),
+                    table.highWaterMark(shard), CATCH_UP_BATCH);
+            if (rows.isEmpty() || apply(shard, rows) < CATCH_UP_BATCH) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds the points of rows in ID order and moves the high-water mark past them, stopping at a missing ID
+     * that has not yet timed out.
+     *
+     * @return the number of rows applied
+     */
+    private int apply(int shard, List<CaughtUpRow> rows) {
+        long highWaterMark = table.highWaterMark(shard);
+        int applied = 0;
+        table.beginWrite();
+        for (CaughtUpRow row : rows) {
+            if (row.id() != highWaterMark + 1 && !gapTimedOut(shard, highWaterMark)) {
+                break;
+            }
+            gapSince[shard] = 0;
+            int points = rewardCalculator.calculatePoints(row.amount());
+            if (points > 0) {
+                add(row.customerId(), YearMonth.from(row.date()), points);
+            }
+            highWaterMark = row.id();
+            applied++;
+        }
+        // a growth during the batch swapped in a new table that carries the header over
+        table.setHighWaterMark(shard, highWaterMark);
+        table.endWrite();
+        return applied;
+    }
+
+    private boolean gapTimedOut(int shard, long highWaterMark) {
+        long now = System.nanoTime();
+        if (gapSince[shard] == 0) {
+            gapSince[shard] = now;
+        }
+        if (now - gapSince[shard] < gapTimeoutNanos) {
+            return false;
+        }
+        log.debug("Skipping the transaction IDs after {} on shard {}, which were never committed", highWaterMark, shard);
+        return true;
+    }
+
+    private void add(long customerId, YearMonth month, long points) {
+        Table current = table;
+        int slot = current.find(customerId);
+        if (slot < 0) {
+            if (current.size + 1 > current.capacity * MAX_LOAD) {
+                current = grow(current);
+            }
+            current.put(customerId, encode(month), points, points);
+            return;
+        }
+        int slotMonth = (int) INT.get(current.buffer, current.offset(slot) + MONTH);
+        int added = encode(month);
+        if (added == slotMonth) {
+            current.update(slot, slotMonth, current.getLong(slot, MONTH_POINTS) + points, points);
+        } else if (added > slotMonth) {
+            current.update(slot, added, points, points);
+        } else {
+            current.update(slot, slotMonth, current.getLong(slot, MONTH_POINTS), points);
+        }
+    }
+
+    /**
+     * Copies the slots into a file of twice the capacity and swaps it in.
+     */
+    private Table grow(Table current) {
+        Table grown = Table.create(file, current.capacity * 2, current.shards);
+        grown.copyHeader(current);
+        for (int slot = 0; slot < current.capacity; slot++) {
+            long customerId = current.getLong(slot, CUSTOMER_ID);
+            if (customerId != 0) {
+                grown.put(customerId, (int) INT.get(current.buffer, current.offset(slot) + MONTH),
+                        current.getLong(slot, MONTH_POINTS), current.getLong(slot, LIFETIME_POINTS));
+            }
+        }
+        grown.install(file);
+        table = grown;
+        log.info("Grew points index {} to {} slots", file, grown.capacity);
+        return grown;
+    }
+
+    /**
+     * Reads the points of a customer without locking or touching the database.
+     *
+     * @param customerId the unique identifier of the customer
+     * @return the points of the current month and the lifetime points, zero if the customer has none
+     * @throws CustomException if the index is disabled
+     */
+    public PointsBalanceDTO lookup(Long customerId) {
+        requireEnabled();
+        YearMonth current = YearMonth.now();
+        Table snapshot = table;
+        int slot = snapshot.find(customerId);
+        if (slot < 0) {
+            return new PointsBalanceDTO(customerId, current, 0L, 0L);
+        }
+        int base = snapshot.offset(slot);
+        MappedByteBuffer buffer = snapshot.buffer;
+        while (true) {
+            int sequence = (int) INT.getAcquire(buffer, base + SEQUENCE);
+            if ((sequence & 1) == 0) {
+                int month = (int) INT.get(buffer, base + MONTH);
+                long monthPoints = (long) LONG.get(buffer, base + MONTH_POINTS);
+                long lifetimePoints = (long) LONG.get(buffer, base + LIFETIME_POINTS);
+                VarHandle.loadLoadFence();
+                if ((int) INT.get(buffer, base + SEQUENCE) == sequence) {
+                    return new PointsBalanceDTO(customerId, current,
+                            month == encode(current) ? monthPoints : 0L, lifetimePoints);
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Gets the number of customers in the index.
+     * @return the customer count, zero while disabled
+     */
+    public int size() {
+        Table current = table;
+        return current == null ? 0 : current.size;
+    }
+
+    private void requireEnabled() {
+        if (!enabled) {
+            throw new CustomException("The points index is disabled, set rewards.points-index.enabled=true");
+        }
+    }
+
+    private int capacityFor(int customers) {
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity, 2) - 1) << 1;
+        while (customers > capacity * MAX_LOAD) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int encode(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue();
+    }
+
+    private record CaughtUpRow(long id, long customerId, LocalDate date, double amount) {
+    }
+
+    /**
+     * One mapped index file. Only the writer holding the index lock modifies it.
+     */
+    private static final class Table {
+
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final int shards;
+        private final Path path;
+        private int size;
+
+        private Table(Path path, MappedByteBuffer buffer, int capacity, int shards, int size) {
+            this.path = path;
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.shards = shards;
+            this.size = size;
+        }
+
+        /**
+         * Maps an empty table into a temporary file next to the index file, to be filled and then installed.
+         */
+        static Table create(Path file, int capacity, int shards) {
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                Files.deleteIfExists(temporary);
+                MappedByteBuffer buffer;
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * SLOT_BYTES);
+                }
+                buffer.order(ByteOrder.nativeOrder());
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(8, capacity);
+                buffer.putInt(SHARDS, shards);
+                return new Table(temporary, buffer, capacity, shards, 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to create points index " + file, e);
+            }
+        }
+
+        /**
+         * Flushes a filled temporary table and atomically replaces the index file with it,
+         * so that a crash leaves either the previous or the complete new index behind.
+         */
+        void install(Path file) {
+            buffer.force();
+            try {
+                Files.move(path, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to install points index " + file, e);
+            }
+        }
+
+        /**
+         * Maps an existing index file and counts its customers.
+         *
+         * @throws IllegalStateException if the file is not a complete, consistent index of the given shards
+         */
+        static Table open(Path file, int shards) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open points index " + file, e);
+            }
+            buffer.order(ByteOrder.nativeOrder());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IllegalStateException("not a points index file");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IllegalStateException("points index file version " + buffer.getInt(4) + " is not " + VERSION);
+            }
+            if (buffer.getInt(SHARDS) != shards) {
+                throw new IllegalStateException("the file indexes " + buffer.getInt(SHARDS) + " shards, not " + shards);
+            }
+            if ((buffer.getInt(HEADER_SEQUENCE) & 1) != 0) {
+                throw new IllegalStateException("a catch-up was interrupted");
+            }
+            int capacity = buffer.getInt(8);
+            if (Integer.bitCount(capacity) != 1 || buffer.capacity() != HEADER_BYTES + (long) capacity * SLOT_BYTES) {
+                throw new IllegalStateException("truncated points index file");
+            }
+            Table table = new Table(file, buffer, capacity, shards, 0);
+            for (int slot = 0; slot < capacity; slot++) {
+                if (((int) INT.get(buffer, table.offset(slot) + SEQUENCE) & 1) != 0) {
+                    throw new IllegalStateException("slot " + slot + " was left half-written");
+                }
+                if (table.getLong(slot, CUSTOMER_ID) != 0) {
+                    table.size++;
+                }
+            }
+            return table;
+        }
+
+        long highWaterMark(int shard) {
+            return buffer.getLong(HIGH_WATER_MARKS + shard * 8);
+        }
+
+        void setHighWaterMark(int shard, long id) {
+            buffer.putLong(HIGH_WATER_MARKS + shard * 8, id);
+        }
+
+        boolean isWriting() {
+            return (buffer.getInt(HEADER_SEQUENCE) & 1) != 0;
+        }
+
+        /**
+         * Makes the header sequence number odd until {@link #endWrite()}, before a batch changes slots and
+         * high-water marks.
+         */
+        void beginWrite() {
+            buffer.putInt(HEADER_SEQUENCE, buffer.getInt(HEADER_SEQUENCE) | 1);
+        }
+
+        void endWrite() {
+            buffer.putInt(HEADER_SEQUENCE, (buffer.getInt(HEADER_SEQUENCE) | 1) + 1);
+        }
+
+        /**
+         * Takes over the header sequence number and high-water marks of the table being replaced.
+         */
+        void copyHeader(Table previous) {
+            buffer.putInt(HEADER_SEQUENCE, previous.buffer.getInt(HEADER_SEQUENCE));
+            for (int shard = 0; shard < shards; shard++) {
+                setHighWaterMark(shard, previous.highWaterMark(shard));
+            }
+        }
+
+        int offset(int slot) {
+            return HEADER_BYTES + slot * SLOT_BYTES;
+        }
+
+        long getLong(int slot, int field) {
+            return (long) LONG.get(buffer, offset(slot) + field);
+        }
+
+        /**
+         * Finds the slot of a customer by linear probing from its hash.
+         *
+         * @return the slot, or -1 if the customer has none
+         */
+        int find(long customerId) {
+            int mask = capacity - 1;
+            for (int slot = hash(customerId) & mask; ; slot = (slot + 1) & mask) {
+                long stored = (long) LONG.getAcquire(buffer, offset(slot) + CUSTOMER_ID);
+                if (stored == customerId) {
+                    return slot;
+                }
+                if (stored == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * Claims the first empty slot of a customer's probe sequence. The table must have room.
+         */
+        void put(long customerId, int month, long monthPoints, long lifetimePoints) {
+            int mask = capacity - 1;
+            int slot = hash(customerId) & mask;
+            while (getLong(slot, CUSTOMER_ID) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            int base = offset(slot);
+            int sequence = (int) INT.get(buffer, base + SEQUENCE);
+            INT.setOpaque(buffer, base + SEQUENCE, sequence + 1);
+            VarHandle.storeStoreFence();
+            INT.set(buffer, base + MONTH, month);
+            LONG.set(buffer, base + MONTH_POINTS, monthPoints);
+            LONG.set(buffer, base + LIFETIME_POINTS, lifetimePoints);
+            LONG.setRelease(buffer, base + CUSTOMER_ID, customerId);
+            INT.setRelease(buffer, base + SEQUENCE, sequence + 2);
+            size++;
+        }
+
+        /**
+         * Overwrites the month and month points of a slot and adds to its lifetime points.
+         */
+        void update(int slot, int month, long monthPoints, long addedLifetimePoints) {
+            int base = offset(slot);
+            int sequence = (int) INT.get(buffer, base + SEQUENCE);
+            INT.setOpaque(buffer, base + SEQUENCE, sequence + 1);
+            VarHandle.storeStoreFence();
+            INT.set(buffer, base + MONTH, month);
+            LONG.set(buffer, base + MONTH_POINTS, monthPoints);
+            LONG.set(buffer, base + LIFETIME_POINTS, getLong(slot, LIFETIME_POINTS) + addedLifetimePoints);
+            INT.setRelease(buffer, base + SEQUENCE, sequence + 2);
+        }
+
+        private static int hash(long customerId) {
+            long h = customerId * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.infy.customerRewards.utility;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource whose connections report every statement they execute to a {@link SqlProfiler}, with the time spent
+ * executing it and fetching its rows and the number of rows fetched or updated. Connections, statements and result
+ * sets are wrapped in JDK proxies forwarding every other call. A query is reported once its result set or statement
+ * is closed, or the statement executes again, with the time spent inside ResultSet.next() added to the execution
+ * time: rows fetched through a cursor are timed, but not what the caller does between fetches.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class ProfilingDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    private final SqlProfiler profiler;
+
+    /**
+     * Constructs a ProfilingDataSource.
+     *
+     * @param target the data source handing out the connections
+     * @param profiler receives the executed statements
+     */
+    public ProfilingDataSource(DataSource target, SqlProfiler profiler) {
+        super(target);
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(super.getConnection(username, password)));
+    }
+
+    /**
+     * Closes the target data source, such as a connection pool, which is this bean's to close once it replaced it.
+     */
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(ProfilingDataSource.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Proxies are equal only to themselves, as the connections and statements they stand for.
+     */
+    private static Object identity(Object proxy, Method method, Object[] args) {
+        return method.getName().equals("equals") ? proxy == args[0] : System.identityHashCode(proxy);
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class,
+                            new StatementHandler((Statement) forward(target, method, args), (String) args[0], proxy));
+                case "prepareCall":
+                    return proxy(CallableStatement.class,
+                            new StatementHandler((Statement) forward(target, method, args), (String) args[0], proxy));
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler((Statement) forward(target, method, args), null, proxy));
+                case "equals":
+                case "hashCode":
+                    return identity(proxy, method, args);
+                default:
+                    return forward(target, method, args);
+            }
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final Object connection;
+        // The statement of a prepared or callable statement, and the first of a batch of plain statements
+        private String sql;
+        private Execution open;
+
+        StatementHandler(Statement target, String sql, Object connection) {
+            this.target = target;
+            this.sql = sql;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "executeQuery":
+                    return query(proxy, method, args);
+                case "execute":
+                    return execute(method, args);
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    return update(method, args);
+                case "executeBatch":
+                case "executeLargeBatch":
+                    return batch(method, args);
+                case "addBatch":
+                    if (sql == null && args != null) {
+                        sql = (String) args[0];
+                    }
+                    return forward(target, method, args);
+                case "getResultSet":
+                    ResultSet resultSet = (ResultSet) forward(target, method, args);
+                    return resultSet != null && open != null ? profiled(proxy, resultSet, open) : resultSet;
+                case "close":
+                    finishOpen();
+                    return forward(target, method, args);
+                case "getConnection":
+                    return connection;
+                case "equals":
+                case "hashCode":
+                    return identity(proxy, method, args);
+                default:
+                    return forward(target, method, args);
+            }
+        }
+
+        private Execution start(Object[] args) {
+            finishOpen();
+            String statement = args != null && args.length > 0 && args[0] instanceof String text ? text : sql;
+            return new Execution(statement);
+        }
+
+        private void finishOpen() {
+            if (open != null) {
+                open.finish();
+                open = null;
+            }
+        }
+
+        private Object query(Object proxy, Method method, Object[] args) throws Throwable {
+            Execution execution = start(args);
+            long start = System.nanoTime();
+            try {
+                ResultSet resultSet = (ResultSet) forward(target, method, args);
+                execution.nanos += System.nanoTime() - start;
+                open = execution;
+                return profiled(proxy, resultSet, execution);
+            } catch (Throwable e) {
+                execution.nanos += System.nanoTime() - start;
+                execution.finish();
+                throw e;
+            }
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            Execution execution = start(args);
+            long start = System.nanoTime();
+            boolean results = false;
+            try {
+                results = (Boolean) forward(target, method, args);
+                if (!results) {
+                    execution.rows = Math.max(0, target.getUpdateCount());
+                }
+                return results;
+            } finally {
+                execution.nanos += System.nanoTime() - start;
+                if (results) {
+                    open = execution;
+                } else {
+                    execution.finish();
+                }
+            }
+        }
+
+        private Object update(Method method, Object[] args) throws Throwable {
+            Execution execution = start(args);
+            long start = System.nanoTime();
+            try {
+                Object count = forward(target, method, args);
+                execution.rows = ((Number) count).longValue();
+                return count;
+            } finally {
+                execution.nanos += System.nanoTime() - start;
+                execution.finish();
+            }
+        }
+
+        private Object batch(Method method, Object[] args) throws Throwable {
+            Execution execution = start(args);
+            long start = System.nanoTime();
+            try {
+                Object counts = forward(target, method, args);
+                if (counts instanceof int[] ints) {
+                    for (int count : ints) {
+                        execution.rows += Math.max(0, count);
+                    }
+                } else if (counts instanceof long[] longs) {
+                    for (long count : longs) {
+                        execution.rows += Math.max(0, count);
+                    }
+                }
+                return counts;
+            } finally {
+                execution.nanos += System.nanoTime() - start;
+                execution.finish();
+                if (!(target instanceof PreparedStatement)) {
+                    sql = null;
+                }
+            }
+        }
+    }
+
+    private Object profiled(Object statement, ResultSet resultSet, Execution execution) {
+        return proxy(ResultSet.class, new ResultSetHandler(resultSet, execution, statement));
+    }
+
+    private static class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final Execution execution;
+        private final Object statement;
+
+        ResultSetHandler(ResultSet target, Execution execution, Object statement) {
+            this.target = target;
+            this.execution = execution;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    long start = System.nanoTime();
+                    try {
+                        Boolean next = (Boolean) forward(target, method, args);
+                        if (next) {
+                            execution.rows++;
+                        }
+                        return next;
+                    } finally {
+                        execution.nanos += System.nanoTime() - start;
+                    }
+                case "close":
+                    try {
+                        return forward(target, method, args);
+                    } finally {
+                        execution.finish();
+                    }
+                case "getStatement":
+                    return statement;
+                case "equals":
+                case "hashCode":
+                    return identity(proxy, method, args);
+                default:
+                    return forward(target, method, args);
+            }
+        }
+    }
+
+    /**
+     * One execution of a statement, reported once when it is finished.
+     * Statements and their result sets are used by one thread at a time, as JDBC requires.
+     */
+    private class Execution {
+
+        private final String sql;
+        private final String endpoint = RequestEndpoint.current();
+        private long nanos;
+        private long rows;
+        private boolean finished;
+
+        Execution(String sql) {
+            this.sql = sql;
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                profiler.record(sql, endpoint, nanos, rows);
+            }
+        }
+    }
+}
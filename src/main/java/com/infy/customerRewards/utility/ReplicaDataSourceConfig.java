@@ -0,0 +1,98 @@
+package com.infy.customerRewards.utility;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configures read replica routing when at least one replica is set in rewards.datasource.replicas.
+ * The primary pool is still built from spring.datasource.*; read-only transactions are routed to the
+ * replicas, whose replication lag is checked on a fixed delay.
+ * Without replicas Spring Boot's single auto-configured DataSource is used unchanged.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+@ConditionalOnProperty(name = "rewards.datasource.replicas[0].url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                             DataSourceProperties primaryProperties,
+                                                             ReplicaDataSourceProperties replicaProperties,
+                                                             ConnectionPoolMetrics connectionPoolMetrics) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaDataSourceProperties.Replica> configured = replicaProperties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            ReplicaDataSourceProperties.Replica replica = configured.get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(primaryProperties.determineDriverClassName())
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setReadOnly(true);
+            replicas.put(dataSource.getPoolName(), connectionPoolMetrics.instrument(dataSource));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, replicaProperties.getReplicaSelection(),
+                replicaProperties.getReplicaMaxLag(), ReplicaRoutingDataSource.MYSQL_LAG_PROBE);
+    }
+
+    /**
+     * The DataSource used by JPA. Connections are fetched lazily so that routing sees
+     * the read-only flag of the surrounding transaction.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaLagCheck replicaLagCheck(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new ReplicaLagCheck(replicaRoutingDataSource);
+    }
+
+    /**
+     * Periodically refreshes which replicas are within the lag tolerance.
+     */
+    public static class ReplicaLagCheck {
+
+        private final ReplicaRoutingDataSource replicaRoutingDataSource;
+
+        public ReplicaLagCheck(ReplicaRoutingDataSource replicaRoutingDataSource) {
+            this.replicaRoutingDataSource = replicaRoutingDataSource;
+        }
+
+        @Scheduled(fixedDelayString = "${rewards.datasource.replica-lag-check-interval-ms:5000}")
+        public void check() {
+            replicaRoutingDataSource.refreshReplicaLag();
+        }
+    }
+}
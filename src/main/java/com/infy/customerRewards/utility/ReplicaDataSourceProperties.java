@@ -0,0 +1,47 @@
+package com.infy.customerRewards.utility;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Read replica settings bound from the rewards.datasource.* properties.
+ * Replicas share the driver of the primary spring.datasource.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@ConfigurationProperties(prefix = "rewards.datasource")
+public class ReplicaDataSourceProperties {
+
+    /**
+     * Replica databases that serve read-only transactions.
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * How a replica is picked for a read-only transaction.
+     */
+    private ReplicaRoutingDataSource.Selection replicaSelection = ReplicaRoutingDataSource.Selection.ROUND_ROBIN;
+
+    /**
+     * Replication lag above which a replica is skipped and reads fall back to other replicas or the primary.
+     */
+    private Duration replicaMaxLag = Duration.ofSeconds(5);
+
+    /**
+     * Connection settings of a single replica.
+     */
+    @Data
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
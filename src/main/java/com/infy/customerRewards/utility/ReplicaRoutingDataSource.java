@@ -0,0 +1,239 @@
+package com.infy.customerRewards.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DataSource that sends connections of read-only transactions to a pool of read replicas
+ * and everything else to the primary.
+ * A replica is chosen round-robin or by the fewest connections currently borrowed from it.
+ * Replicas whose replication lag exceeds the tolerance, or that cannot be reached, are skipped
+ * until the next lag check; when no replica qualifies the primary serves the read.
+ * Should be wrapped in a LazyConnectionDataSourceProxy so that the connection is only fetched
+ * once the transaction's read-only flag is known.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    /**
+     * How a replica is picked for a read-only connection.
+     */
+    public enum Selection {
+        ROUND_ROBIN,
+        LEAST_LOADED
+    }
+
+    /**
+     * Measures the replication lag of a replica in seconds.
+     */
+    @FunctionalInterface
+    public interface LagProbe {
+        long lagSeconds(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Reads Seconds_Behind_Source from MySQL's SHOW REPLICA STATUS.
+     * A server that is not a replica reports no lag; stopped replication reports unbounded lag.
+     */
+    public static final LagProbe MYSQL_LAG_PROBE = connection -> {
+        try (Statement statement = connection.createStatement();
+             ResultSet status = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!status.next()) {
+                return 0;
+            }
+            long lag = status.getLong("Seconds_Behind_Source");
+            return status.wasNull() ? Long.MAX_VALUE : lag;
+        }
+    };
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Selection selection;
+    private final long maxLagSeconds;
+    private final LagProbe lagProbe;
+    private final AtomicLong nextReplica = new AtomicLong();
+
+    /**
+     * Constructs a ReplicaRoutingDataSource.
+     *
+     * @param primary the primary database, used for writes and as fallback for reads
+     * @param replicas the replica databases keyed by name
+     * @param selection how a replica is picked for a read-only connection
+     * @param maxLag the replication lag above which a replica is skipped
+     * @param lagProbe measures the replication lag of a replica
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Selection selection,
+                                    Duration maxLag, LagProbe lagProbe) {
+        this.primary = primary;
+        List<Replica> list = new ArrayList<>();
+        replicas.forEach((name, dataSource) -> list.add(new Replica(name, dataSource)));
+        this.replicas = Collections.unmodifiableList(list);
+        this.selection = selection;
+        this.maxLagSeconds = maxLag.toSeconds();
+        this.lagProbe = lagProbe;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = readOnlyTransaction() ? selectReplica() : null;
+        return replica == null ? primary.getConnection() : replica.borrow(replica.dataSource.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Replica replica = readOnlyTransaction() ? selectReplica() : null;
+        return replica == null
+                ? primary.getConnection(username, password)
+                : replica.borrow(replica.dataSource.getConnection(username, password));
+    }
+
+    private boolean readOnlyTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * Picks a healthy replica according to the selection strategy.
+     *
+     * @return the replica to read from, or null if the primary must serve the read
+     */
+    private Replica selectReplica() {
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy.add(replica);
+            }
+        }
+        if (healthy.isEmpty()) {
+            return null;
+        }
+        if (selection == Selection.LEAST_LOADED) {
+            Replica least = healthy.get(0);
+            for (Replica replica : healthy) {
+                if (replica.inFlight.get() < least.inFlight.get()) {
+                    least = replica;
+                }
+            }
+            return least;
+        }
+        return healthy.get((int) (nextReplica.getAndIncrement() % healthy.size()));
+    }
+
+    /**
+     * Measures the lag of every replica and marks those within the tolerance as usable.
+     * Called periodically; a replica that cannot be reached is marked unusable.
+     */
+    public void refreshReplicaLag() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                long lag = lagProbe.lagSeconds(connection);
+                healthy = lag <= maxLagSeconds;
+                if (!healthy && replica.healthy) {
+                    log.warn("Replica {} is {} behind the primary, routing its reads elsewhere",
+                            replica.name, lag == Long.MAX_VALUE ? "indefinitely" : lag + "s");
+                }
+            } catch (SQLException | RuntimeException e) {
+                healthy = false;
+                if (replica.healthy) {
+                    log.warn("Replica {} is unavailable: {}", replica.name, e.getMessage());
+                }
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    /**
+     * Returns the names of the replicas currently used for reads.
+     *
+     * @return names of the replicas within the lag tolerance
+     */
+    public List<String> getHealthyReplicas() {
+        List<String> names = new ArrayList<>();
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                names.add(replica.name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Closes the replica pools. The primary is owned by the caller.
+     */
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close replica {}: {}", replica.name, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A replica with its connection count and last known health.
+     */
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        /**
+         * Counts the connection as borrowed until it is closed.
+         */
+        private Connection borrow(Connection connection) {
+            inFlight.incrementAndGet();
+            AtomicInteger released = new AtomicInteger();
+            InvocationHandler handler = (proxy, method, args) -> {
+                if ("close".equals(method.getName()) && released.getAndIncrement() == 0) {
+                    inFlight.decrementAndGet();
+                }
+                return invoke(connection, method, args);
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, handler);
+        }
+
+        private static Object invoke(Connection target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.infy.customerRewards.utility;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.function.Supplier;
+
+/**
+ * Observes every query method of a Spring Data repository, such as CustomerRepository.findById, as a span of the
+ * current trace. Methods returning a Stream are observed until the stream is returned, not while it is read.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class RepositoryObservationInterceptor implements MethodInterceptor {
+
+    private final Supplier<ObservationRegistry> observationRegistry;
+    private final String repository;
+
+    /**
+     * Constructs a RepositoryObservationInterceptor.
+     *
+     * @param observationRegistry supplies the registry, which is looked up once the repository is first called
+     * @param repository the simple name of the repository interface
+     */
+    public RepositoryObservationInterceptor(Supplier<ObservationRegistry> observationRegistry, String repository) {
+        this.observationRegistry = observationRegistry;
+        this.repository = repository;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        ObservationRegistry registry = observationRegistry.get();
+        if (registry.isNoop() || invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+        String method = invocation.getMethod().getName();
+        Observation observation = Observation.createNotStarted("rewards.repository", registry)
+                .contextualName(repository + "." + method)
+                .lowCardinalityKeyValue("repository", repository)
+                .lowCardinalityKeyValue("method", method)
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+}
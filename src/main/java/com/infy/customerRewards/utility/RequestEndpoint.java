@@ -0,0 +1,38 @@
+package com.infy.customerRewards.utility;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Names the endpoint the current thread is serving, for attributing database work to it.
+ * Endpoints are named by the pattern the request was mapped with, such as
+ * GET /api/rewards/customers/{customerId}/rewards, so that all customers share one name.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public final class RequestEndpoint {
+
+    private RequestEndpoint() {
+    }
+
+    /**
+     * Returns the method and mapped pattern of the request the current thread is serving, its URI until it is
+     * mapped, or the thread name outside of requests, such as in scheduled tasks and streamed responses.
+     *
+     * @return the endpoint or thread name
+     */
+    public static String current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        }
+        return "thread " + Thread.currentThread().getName();
+    }
+}
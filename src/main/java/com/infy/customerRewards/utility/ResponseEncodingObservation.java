@@ -0,0 +1,77 @@
+package com.infy.customerRewards.utility;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Observes the encoding of response bodies, such as rewards encoded as JSON or CBOR, as a span of the request's
+ * trace: from the moment the body is handed to its message converter until the request completes.
+ * Streamed responses are written by the handler itself and are part of the request's span only.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@ControllerAdvice
+public class ResponseEncodingObservation implements ResponseBodyAdvice<Object>, AsyncHandlerInterceptor, WebMvcConfigurer {
+
+    private static final String OBSERVATION = ResponseEncodingObservation.class.getName() + ".observation";
+
+    private final ObservationRegistry observationRegistry;
+
+    /**
+     * Constructs a ResponseEncodingObservation.
+     *
+     * @param observationRegistry registry of the request's observation
+     */
+    public ResponseEncodingObservation(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return !observationRegistry.isNoop() && observationRegistry.getCurrentObservation() != null;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            Observation observation = Observation.createNotStarted("http.response.encode", observationRegistry)
+                    .contextualName("encode " + selectedContentType)
+                    .lowCardinalityKeyValue("content.type", String.valueOf(selectedContentType))
+                    .lowCardinalityKeyValue("converter", selectedConverterType.getSimpleName())
+                    .start();
+            servletRequest.getServletRequest().setAttribute(OBSERVATION, observation);
+        }
+        return body;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object observation = request.getAttribute(OBSERVATION);
+        if (observation instanceof Observation encoding) {
+            request.removeAttribute(OBSERVATION);
+            encoding.stop();
+        }
+    }
+}
@@ -2,18 +2,23 @@ package com.infy.customerRewards.utility;
 
 import com.infy.customerRewards.dto.TransactionDTO;
 import com.infy.customerRewards.entity.Transaction;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.YearMonth;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 /**
  * Component responsible for calculating reward points based on transaction amounts.
  * Implements business logic for reward point calculation and provides monthly breakdown.
+ * Calculations made for a recorded {@link RewardsRequestEvent} add their calculator and mapping time to it,
+ * and each calculation of a list of transactions is observed as a span of the current trace.
  * 
  * @author Infy
  * @version 1.0
@@ -22,43 +27,80 @@ import java.util.Map;
 @Component
 public class RewardCalculator {
 
+    /**
+     * The rules of {@link #calculatePoints(double)} as a JPQL expression over the amount of a transaction
+     * aliased {@code t}, for the queries that sum points in the database. Kept next to calculatePoints so
+     * both change together; RewardPointsQueryTest checks that they agree.
+     */
+    public static final String POINTS_JPQL = "case when t.amount > 100 then floor((t.amount - 100) * 2 + 50) "
+            + "when t.amount > 50 then floor(t.amount - 50) else 0 end";
+
     private final ModelMapper modelMapper;
+    private final ObservationRegistry observationRegistry;
 
     /**
-     * Constructs a RewardCalculator with the specified ModelMapper.
+     * Constructs a RewardCalculator with the specified ModelMapper, without observations.
      * 
      * @param modelMapper the ModelMapper instance used for entity-DTO conversion
      */
     public RewardCalculator(ModelMapper modelMapper) {
+        this(modelMapper, ObservationRegistry.NOOP);
+    }
+
+    /**
+     * Constructs a RewardCalculator with the specified ModelMapper and observation registry.
+     * 
+     * @param modelMapper the ModelMapper instance used for entity-DTO conversion
+     * @param observationRegistry the registry the calculations are observed in
+     */
+    @Autowired
+    public RewardCalculator(ModelMapper modelMapper, ObservationRegistry observationRegistry) {
         this.modelMapper = modelMapper;
+        this.observationRegistry = observationRegistry;
     }
 
     /**
      * Calculates reward points for a list of transactions and provides monthly breakdown.
-     * Processes each transaction to calculate points, aggregates monthly totals, and converts
-     * transactions to DTOs with their respective reward points.
+     * Processes each transaction to calculate points, aggregates monthly totals in chronological order,
+     * and converts transactions to DTOs with their respective reward points.
      * 
      * @param transactions the list of transactions to calculate rewards for
      * @return RewardCalculationResult containing transaction DTOs, monthly rewards, and total rewards
      * @throws IllegalArgumentException if transactions list is null
      */
     public RewardCalculationResult calculateRewards(List<Transaction> transactions) {
-        Map<String, Integer> monthlyRewards = new HashMap<>();
+        return Observation.createNotStarted("rewards.calculate", observationRegistry)
+                .contextualName("RewardCalculator.calculateRewards")
+                .highCardinalityKeyValue("transactions", String.valueOf(transactions.size()))
+                .observe(() -> calculate(transactions));
+    }
+
+    private RewardCalculationResult calculate(List<Transaction> transactions) {
+        SortedMap<YearMonth, Integer> monthlyRewards = new TreeMap<>();
         List<TransactionDTO> transactionDTOs = new ArrayList<>();
         int totalRewards = 0;
+        RewardsRequestEvent event = RewardsRequestEvent.current();
+        long start = event == null ? 0 : System.nanoTime();
+        long mappingNanos = 0;
 
         for (Transaction transaction : transactions) {
             int points = calculatePoints(transaction.getAmount());
             totalRewards += points;
 
-            String monthKey = YearMonth.from(transaction.getDate()).toString();
-            monthlyRewards.put(monthKey, monthlyRewards.getOrDefault(monthKey, 0) + points);
+            monthlyRewards.merge(YearMonth.from(transaction.getDate()), points, Integer::sum);
 
+            long mappingStart = event == null ? 0 : System.nanoTime();
             TransactionDTO dto = modelMapper.map(transaction, TransactionDTO.class);
             dto.setRewardPoints(points);
             transactionDTOs.add(dto);
+            if (event != null) {
+                mappingNanos += System.nanoTime() - mappingStart;
+            }
         }
 
+        if (event != null) {
+            event.addCalculation(transactions.size(), System.nanoTime() - start - mappingNanos, mappingNanos);
+        }
         return new RewardCalculationResult(transactionDTOs, monthlyRewards, totalRewards);
     }
 
@@ -67,6 +109,7 @@ public class RewardCalculator {
      * - 0 points for amounts $50 and under
      * - 1 point per dollar spent over $50 up to $100
      * - 2 points per dollar spent over $100 (plus 50 points for the $51-100 range)
+     * The same rules are evaluated in the database through {@link #POINTS_JPQL}.
      * 
      * @param amount the transaction amount
      * @return the calculated reward points for the transaction
@@ -83,12 +126,12 @@ public class RewardCalculator {
      * Contains transaction DTOs with calculated points, monthly reward breakdown, and total rewards.
      * 
      * @param transactionDTOs list of transaction DTOs with calculated reward points
-     * @param monthlyRewards map of monthly rewards where key is "YYYY-MM" and value is monthly points
+     * @param monthlyRewards monthly points keyed and ordered by month
      * @param totalRewards the total reward points across all transactions
      */
     public record RewardCalculationResult(
         List<TransactionDTO> transactionDTOs,
-        Map<String, Integer> monthlyRewards,
+        SortedMap<YearMonth, Integer> monthlyRewards,
         int totalRewards
     ) {}
 }
\ No newline at end of file
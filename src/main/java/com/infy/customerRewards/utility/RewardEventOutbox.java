@@ -0,0 +1,238 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.MonthlyPointsSummary;
+import com.infy.customerRewards.dto.PointsEarnedDTO;
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Change-data-capture style emission of "points earned" events.
+ * Every recorded transaction that earns points becomes an event carrying its points and the customer's
+ * month and lifetime totals right after it. Events are written to the reward_events outbox table by
+ * {@link #record}, in the database transaction that inserts the transactions, so an event exists exactly when
+ * its transaction does; they are appended to the in-process {@link RewardEventStream} for SSE subscribers once
+ * that transaction commits. A scheduled drain reads the outbox in id order, hands batches to the configured
+ * {@link RewardEventSink} and deletes what was delivered, so events survive restarts and reach the sink at least once.
+ * Totals are read from the transactions table in the recording transaction, after locking the customer's row,
+ * so concurrent batches of the same customer, on this or another instance, see each other's points; the
+ * transaction must therefore run at read committed isolation. Totals do not include archived months.
+ * Each shard keeps the outbox of its own customers, written in the same shard as their transactions. Only one
+ * instance at a time drains a shard, the one holding the lock on its reward_event_drain row, so events reach
+ * the sink in order.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class RewardEventOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(RewardEventOutbox.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionRepository transactionRepository;
+    private final RewardCalculator rewardCalculator;
+    private final RewardEventStream eventStream;
+    private final RewardEventSink sink;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final int batchSize;
+
+    /**
+     * Constructs a RewardEventOutbox.
+     *
+     * @param jdbcTemplate template on the primary database
+     * @param transactionManager transaction manager holding a shard's drain lock while a batch is delivered
+     * @param transactionRepository repository used to read the customer's totals
+     * @param rewardCalculator calculator of the points of recorded transactions
+     * @param eventStream in-process stream for SSE subscribers
+     * @param sink destination of the drained events
+     * @param shardRouter router whose shards are all drained
+     * @param enabled whether events are emitted
+     * @param batchSize maximum number of events handed to the sink at once
+     */
+    public RewardEventOutbox(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             TransactionRepository transactionRepository,
+                             RewardCalculator rewardCalculator,
+                             RewardEventStream eventStream,
+                             RewardEventSink sink,
+                             ShardRouter shardRouter,
+                             @Value("${rewards.events.enabled:false}") boolean enabled,
+                             @Value("${rewards.events.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionRepository = transactionRepository;
+        this.rewardCalculator = rewardCalculator;
+        this.eventStream = eventStream;
+        this.sink = sink;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Writes one event per inserted transaction that earned points to the outbox.
+     * Must be called in the read committed database transaction that inserted the transactions, after inserting
+     * them; the customers are locked in ID order, so concurrent calls do not deadlock.
+     *
+     * @param transactionsByCustomer the inserted transactions per customer
+     */
+    public void record(Map<Long, List<Transaction>> transactionsByCustomer) {
+        if (!enabled) {
+            return;
+        }
+        List<PointsEarnedDTO> events = new ArrayList<>();
+        new TreeMap<>(transactionsByCustomer).forEach((customerId, transactions) -> {
+            if (transactions != null) {
+                events.addAll(record(customerId, transactions));
+            }
+        });
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("insert into reward_events (customer_id, reward_month, delta, month_points, lifetime_points, "
+                + "occurred_at) values (?, ?, ?, ?, ?, ?)", events, events.size(), (statement, earned) -> {
+                    statement.setLong(1, earned.getCustomerId());
+                    statement.setString(2, earned.getMonth().toString());
+                    statement.setInt(3, earned.getDelta());
+                    statement.setLong(4, earned.getMonthPoints());
+                    statement.setLong(5, earned.getLifetimePoints());
+                    statement.setTimestamp(6, Timestamp.from(earned.getOccurredAt()));
+                });
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    events.forEach(eventStream::append);
+                }
+            });
+        } else {
+            events.forEach(eventStream::append);
+        }
+    }
+
+    private List<PointsEarnedDTO> record(Long customerId, List<Transaction> transactions) {
+        List<Transaction> earning = new ArrayList<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        for (Transaction transaction : transactions) {
+            if (rewardCalculator.calculatePoints(transaction.getAmount()) > 0) {
+                earning.add(transaction);
+                from = from == null || transaction.getDate().isBefore(from) ? transaction.getDate() : from;
+                to = to == null || transaction.getDate().isAfter(to) ? transaction.getDate() : to;
+            }
+        }
+        if (earning.isEmpty()) {
+            return List.of();
+        }
+
+        // Totals after the whole batch, read once the other batches of the customer have committed;
+        // walked back to the totals before it and replayed per transaction
+        jdbcTemplate.query("select id from customers where id = ? for update", row -> { }, customerId);
+        long lifetime = transactionRepository.sumPointsByCustomerId(customerId);
+        Map<YearMonth, Long> months = new HashMap<>();
+        for (MonthlyPointsSummary summary : transactionRepository.sumPointsByMonth(customerId,
+                YearMonth.from(from).atDay(1), YearMonth.from(to).atEndOfMonth())) {
+            months.put(YearMonth.of(summary.getYear(), summary.getMonth()), summary.getPoints());
+        }
+        for (Transaction transaction : earning) {
+            int points = rewardCalculator.calculatePoints(transaction.getAmount());
+            lifetime -= points;
+            months.merge(YearMonth.from(transaction.getDate()), (long) -points, Long::sum);
+        }
+
+        Instant now = Instant.now();
+        List<PointsEarnedDTO> events = new ArrayList<>(earning.size());
+        for (Transaction transaction : earning) {
+            int points = rewardCalculator.calculatePoints(transaction.getAmount());
+            YearMonth month = YearMonth.from(transaction.getDate());
+            lifetime += points;
+            PointsEarnedDTO earned = new PointsEarnedDTO();
+            earned.setCustomerId(customerId);
+            earned.setMonth(month);
+            earned.setDelta(points);
+            earned.setMonthPoints(months.merge(month, (long) points, Long::sum));
+            earned.setLifetimePoints(lifetime);
+            earned.setOccurredAt(now);
+            events.add(earned);
+        }
+        return events;
+    }
+
+    /**
+     * Hands the outbox of every shard to the sink in batches, deleting each batch once delivered.
+     * A failed batch stays in the outbox and is retried on the next run. A shard another instance is draining
+     * is skipped.
+     */
+    @Scheduled(fixedDelayString = "${rewards.events.drain-interval-ms:1000}")
+    public synchronized void drain() {
+        if (!enabled) {
+            return;
+        }
+        shardRouter.forEachShard(shard -> drainShard());
+    }
+
+    private void drainShard() {
+        // every batch takes the drain lock again, so a stopping instance hands over between batches
+        boolean more = true;
+        while (more) {
+            more = Boolean.TRUE.equals(transactionTemplate.execute(status -> drainBatch()));
+        }
+    }
+
+    /**
+     * Delivers and deletes one batch while holding the shard's drain lock.
+     *
+     * @return true if the outbox may hold more events
+     */
+    private boolean drainBatch() {
+        if (jdbcTemplate.queryForList("select id from reward_event_drain for update skip locked", Integer.class).isEmpty()) {
+            return false;
+        }
+        List<PointsEarnedDTO> batch = jdbcTemplate.query("select id, customer_id, reward_month, delta, month_points, "
+                + "lifetime_points, occurred_at from reward_events order by id limit ?", (row, index) -> {
+                    PointsEarnedDTO earned = new PointsEarnedDTO();
+                    earned.setSequence(row.getLong(1));
+                    earned.setCustomerId(row.getLong(2));
+                    earned.setMonth(YearMonth.parse(row.getString(3)));
+                    earned.setDelta(row.getInt(4));
+                    earned.setMonthPoints(row.getLong(5));
+                    earned.setLifetimePoints(row.getLong(6));
+                    earned.setOccurredAt(row.getTimestamp(7).toInstant());
+                    return earned;
+                }, batchSize);
+        if (batch.isEmpty()) {
+            return false;
+        }
+        try {
+            sink.publish(batch);
+        } catch (RuntimeException e) {
+            log.warn("Failed to deliver {} reward events, retrying later: {}", batch.size(), e.getMessage());
+            return false;
+        }
+        jdbcTemplate.update("delete from reward_events where id <= ?", batch.get(batch.size() - 1).getSequence());
+        return batch.size() == batchSize;
+    }
+}
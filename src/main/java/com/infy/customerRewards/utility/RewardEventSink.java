@@ -0,0 +1,24 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.PointsEarnedDTO;
+
+import java.util.List;
+
+/**
+ * Destination of the reward change events drained from the outbox, such as a message broker.
+ * Events are delivered at least once and in outbox order; a sink that throws gets the same batch again later.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public interface RewardEventSink {
+
+    /**
+     * Delivers a batch of events.
+     *
+     * @param events the events in outbox order
+     * @throws RuntimeException if the batch could not be delivered
+     */
+    void publish(List<PointsEarnedDTO> events);
+}
@@ -0,0 +1,291 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.PointsEarnedDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stream of reward change events for server-sent event subscribers.
+ * Events are kept in a fixed-size ring buffer, numbered with increasing sequence numbers; the oldest events
+ * are overwritten once it is full. Event IDs are the sequence number prefixed with the epoch of this stream,
+ * a random value chosen when it starts. A subscriber resuming with a Last-Event-ID of the same epoch is first
+ * sent the buffered events after that ID. An ID of another epoch was issued before a restart or by another
+ * instance, so the subscriber is sent a "reset" event, telling it that events may have been missed and the
+ * totals are to be reloaded, followed by every buffered event. A subscriber whose next event was already
+ * overwritten, because it fell more than the buffer behind or resumed from an ID too old, is sent a "reset"
+ * event as well before continuing with the oldest buffered event.
+ * A dispatcher thread hands subscribers that are behind to sender threads, one send at a time per subscriber,
+ * so a slow subscriber only holds up itself; one whose send takes longer than the send timeout is dropped.
+ * Producers only pay for the copy into the buffer however many subscribers there are.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class RewardEventStream {
+
+    private static final Logger log = LoggerFactory.getLogger(RewardEventStream.class);
+
+    private static final int DISPATCH_BATCH = 256;
+
+    private final PointsEarnedDTO[] ring;
+    private final long subscriberTimeoutMillis;
+    private final long sendTimeoutNanos;
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+
+    // Sequence number of the next event; guarded by this, which is also notified on every append
+    private long nextSequence = 1;
+    // Set when a subscriber is added or a send completes, so the dispatcher looks at the subscribers again; guarded by this
+    private boolean changed;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders;
+    private volatile Thread dispatcher;
+
+    /**
+     * Constructs a RewardEventStream.
+     *
+     * @param capacity number of events kept for subscribers, rounded up to a power of two
+     * @param subscriberTimeoutMillis time after which a subscription ends and the client reconnects
+     * @param sendTimeoutMillis time after which a subscriber that has not taken a batch of events is dropped
+     */
+    public RewardEventStream(@Value("${rewards.events.ring-size:65536}") int capacity,
+                             @Value("${rewards.events.subscriber-timeout-ms:1800000}") long subscriberTimeoutMillis,
+                             @Value("${rewards.events.send-timeout-ms:10000}") long sendTimeoutMillis) {
+        this.ring = new PointsEarnedDTO[Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1];
+        this.subscriberTimeoutMillis = subscriberTimeoutMillis;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        AtomicInteger threads = new AtomicInteger();
+        this.senders = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "reward-event-sender-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Appends an event, setting its sequence number.
+     *
+     * @param event the event to append
+     */
+    public synchronized void append(PointsEarnedDTO event) {
+        event.setSequence(nextSequence);
+        ring[(int) (nextSequence & (ring.length - 1))] = event;
+        nextSequence++;
+        notifyAll();
+    }
+
+    /**
+     * Reads buffered events after a sequence number.
+     *
+     * @param after the sequence number of the last event already seen, 0 for the oldest buffered event
+     * @param max the maximum number of events to read
+     * @return the events in sequence order; starts at the oldest buffered one if events after it were overwritten
+     */
+    public synchronized List<PointsEarnedDTO> readAfter(long after, int max) {
+        long oldest = Math.max(1, nextSequence - ring.length);
+        List<PointsEarnedDTO> events = new ArrayList<>();
+        for (long sequence = Math.max(after + 1, oldest); sequence < nextSequence && events.size() < max; sequence++) {
+            events.add(ring[(int) (sequence & (ring.length - 1))]);
+        }
+        return events;
+    }
+
+    /**
+     * Gets the sequence number of the newest event.
+     * @return the newest sequence number, 0 if nothing was appended yet
+     */
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    /**
+     * Gets the server-sent event ID of an event.
+     *
+     * @param sequence the sequence number of the event
+     * @return the ID, made of the epoch of this stream and the sequence number
+     */
+    public String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * Opens a server-sent event subscription.
+     *
+     * @param lastEventId the ID of the last event the client received, or null to receive only new events
+     * @param customerId the customer whose events are sent, or null for every customer
+     * @return the emitter streaming the events
+     */
+    public SseEmitter subscribe(String lastEventId, Long customerId) {
+        SseEmitter emitter = new SseEmitter(subscriberTimeoutMillis);
+        Long resumeAfter = lastEventId == null ? Long.valueOf(getLastSequence()) : sequenceOf(lastEventId);
+        Subscriber subscriber = new Subscriber(emitter, customerId, resumeAfter == null ? 0 : resumeAfter, resumeAfter == null);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        startDispatcher();
+        signal();
+        return emitter;
+    }
+
+    /**
+     * Reads the sequence number of an event ID issued by this stream.
+     *
+     * @return the sequence number, or null if the ID is of another epoch or malformed
+     */
+    private Long sequenceOf(String eventId) {
+        if (!eventId.startsWith(epoch + "-")) {
+            return null;
+        }
+        try {
+            long sequence = Long.parseLong(eventId.substring(epoch.length() + 1));
+            return sequence >= 0 && sequence <= getLastSequence() ? sequence : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private synchronized void startDispatcher() {
+        if (dispatcher == null) {
+            dispatcher = new Thread(this::dispatchLoop, "reward-event-dispatcher");
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+        }
+    }
+
+    private synchronized void signal() {
+        changed = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits for a new event or a change of the subscribers, at most a second so slow sends are checked regularly.
+     */
+    private synchronized void awaitChange(long lastSequence) throws InterruptedException {
+        if (nextSequence - 1 == lastSequence && !changed) {
+            wait(1000);
+        }
+        changed = false;
+    }
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                long lastSequence = getLastSequence();
+                long now = System.nanoTime();
+                for (Subscriber subscriber : subscribers) {
+                    long sendingSince = subscriber.sendingSince;
+                    if (sendingSince != 0) {
+                        if (now - sendingSince > sendTimeoutNanos) {
+                            drop(subscriber, new IOException("Subscriber did not take events within the send timeout"));
+                        }
+                    } else if (subscriber.reset || subscriber.cursor < lastSequence) {
+                        subscriber.sendingSince = now;
+                        senders.execute(() -> send(subscriber));
+                    }
+                }
+                awaitChange(lastSequence);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends a subscriber the next batch of events after its cursor, on a sender thread.
+     */
+    private void send(Subscriber subscriber) {
+        try {
+            List<PointsEarnedDTO> events = readAfter(subscriber.cursor, DISPATCH_BATCH);
+            if (!events.isEmpty() && events.get(0).getSequence() > subscriber.cursor + 1) {
+                subscriber.reset = true;
+            }
+            if (subscriber.reset) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .name("reset")
+                        .data("Events may have been missed, reload the totals"));
+                subscriber.reset = false;
+            }
+            for (PointsEarnedDTO event : events) {
+                if (subscriber.customerId == null || subscriber.customerId.equals(event.getCustomerId())) {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(eventId(event.getSequence()))
+                            .name("points-earned")
+                            .data(event));
+                }
+                subscriber.cursor = event.getSequence();
+            }
+            subscriber.sendingSince = 0;
+        } catch (IOException | IllegalStateException e) {
+            drop(subscriber, e);
+        }
+        signal();
+    }
+
+    private void drop(Subscriber subscriber, Exception cause) {
+        if (subscribers.remove(subscriber)) {
+            log.debug("Dropping reward event subscriber: {}", cause.getMessage());
+            subscriber.emitter.completeWithError(cause);
+        }
+    }
+
+    /**
+     * Gets the number of open subscriptions.
+     * @return the subscriber count
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Stops the dispatcher and the senders and ends every subscription.
+     */
+    @PreDestroy
+    public void close() {
+        Thread current = dispatcher;
+        if (current != null) {
+            current.interrupt();
+        }
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    /**
+     * One SSE client and the sequence number of the last event it was sent. Only one sender at a time moves the
+     * cursor: the dispatcher hands the subscriber to a sender only while sendingSince is 0.
+     */
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Long customerId;
+        private volatile long cursor;
+        // Whether the subscriber is sent a reset event before its next events, having missed some
+        private volatile boolean reset;
+        // System.nanoTime() at which the current send was handed to a sender, 0 while idle
+        private volatile long sendingSince;
+
+        private Subscriber(SseEmitter emitter, Long customerId, long cursor, boolean reset) {
+            this.emitter = emitter;
+            this.customerId = customerId;
+            this.cursor = cursor;
+            this.reset = reset;
+        }
+    }
+}
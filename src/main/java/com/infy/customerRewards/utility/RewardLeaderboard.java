@@ -0,0 +1,229 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.CustomerPointsDTO;
+import com.infy.customerRewards.dto.LeaderboardDTO;
+import com.infy.customerRewards.dto.LeaderboardEntryDTO;
+import com.infy.customerRewards.exception.CustomException;
+import com.infy.customerRewards.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Monthly ranking of customers by reward points, kept up to date as transactions are saved.
+ * Each tracked month holds the points of every customer and a sorted set of their standings,
+ * so recording a transaction costs O(log n) and the ranking is never recomputed from the transactions.
+ * The first ranks of each month are cached as a list that is only rebuilt when a change reaches them,
+ * which makes reading the top pages a sublist of that cache.
+ * Loaded from the database at startup for the current month and the months before it, then kept up to date by
+ * a scheduled catch-up with the shared transactions table through a {@link TransactionFollower}, so that every
+ * instance ranks the transactions saved by all of them.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class RewardLeaderboard {
+
+    private static final Logger log = LoggerFactory.getLogger(RewardLeaderboard.class);
+
+    private static final int CACHED_RANKS = 1000;
+
+    private final TransactionRepository transactionRepository;
+    private final RewardCalculator rewardCalculator;
+    private final ShardRouter shardRouter;
+    private final int months;
+    private final TransactionFollower follower;
+
+    private final ConcurrentSkipListMap<YearMonth, MonthBoard> boards = new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructs a RewardLeaderboard.
+     *
+     * @param transactionRepository repository used for the initial load
+     * @param jdbcTemplate template on the transactions table, used to catch up
+     * @param rewardCalculator calculator of the points of caught up transactions
+     * @param shardRouter router whose shards are ranked together
+     * @param months number of months, including the current one, that are ranked
+     * @param gapTimeoutMs how long a missing transaction ID is waited for before it is skipped
+     */
+    public RewardLeaderboard(TransactionRepository transactionRepository,
+                             JdbcTemplate jdbcTemplate,
+                             RewardCalculator rewardCalculator,
+                             ShardRouter shardRouter,
+                             @Value("${rewards.leaderboard.months:3}") int months,
+                             @Value("${rewards.leaderboard.gap-timeout-ms:30000}") long gapTimeoutMs) {
+        this.transactionRepository = transactionRepository;
+        this.rewardCalculator = rewardCalculator;
+        this.shardRouter = shardRouter;
+        this.months = months;
+        this.follower = new TransactionFollower(jdbcTemplate, shardRouter, gapTimeoutMs);
+    }
+
+    /**
+     * Ranks the tracked months from the points aggregated in the database, querying all shards in parallel.
+     * Each shard is summed up to its highest transaction ID; later transactions are left to the catch-up.
+     */
+    @PostConstruct
+    public synchronized void load() {
+        long[] highWaterMarks = follower.mark();
+        YearMonth current = YearMonth.now();
+        for (YearMonth month = firstTrackedMonth(current); !month.isAfter(current); month = month.plusMonths(1)) {
+            MonthBoard board = new MonthBoard();
+            YearMonth ranked = month;
+            for (List<CustomerPointsDTO> shard : shardRouter.fanOut(s -> transactionRepository.sumPointsByCustomer(
+                    ranked.atDay(1), ranked.atEndOfMonth(), highWaterMarks[s]))) {
+                for (CustomerPointsDTO totals : shard) {
+                    board.add(totals.getCustomerId(), totals.getPoints());
+                }
+            }
+            boards.put(month, board);
+            log.info("Ranked {} customers for the {} leaderboard", board.size(), month);
+        }
+    }
+
+    /**
+     * Adds the points of the transactions saved on every shard since the last catch-up, whichever instance
+     * saved them, to the months they fall in.
+     */
+    @Scheduled(fixedDelayString = "${rewards.leaderboard.catch-up-interval-ms:1000}")
+    public synchronized void catchUp() {
+        YearMonth firstTracked = firstTrackedMonth(YearMonth.now());
+        boards.headMap(firstTracked).clear();
+        follower.catchUp((customerId, date, amount) -> add(firstTracked, customerId, date, amount));
+    }
+
+    private void add(YearMonth firstTracked, long customerId, LocalDate date, double amount) {
+        YearMonth month = YearMonth.from(date);
+        int points = rewardCalculator.calculatePoints(amount);
+        if (points > 0 && !month.isBefore(firstTracked)) {
+            boards.computeIfAbsent(month, m -> new MonthBoard()).add(customerId, points);
+        }
+    }
+
+    /**
+     * Reads one page of the ranking of a month.
+     *
+     * @param month the month to rank
+     * @param page the zero-based page number
+     * @param size the number of customers per page
+     * @return the page of ranked customers, empty if nobody has points in the month
+     * @throws CustomException if the month is older than the tracked months
+     */
+    public LeaderboardDTO page(YearMonth month, int page, int size) {
+        if (month.isBefore(firstTrackedMonth(YearMonth.now()))) {
+            throw new CustomException("The leaderboard only covers the last " + months + " months");
+        }
+        MonthBoard board = boards.get(month);
+        long offset = (long) page * size;
+
+        List<LeaderboardEntryDTO> entries = new ArrayList<>();
+        int totalCustomers = 0;
+        if (board != null) {
+            totalCustomers = board.size();
+            int rank = (int) Math.min(offset, totalCustomers);
+            for (Standing standing : board.range(rank, size)) {
+                entries.add(new LeaderboardEntryDTO(++rank, standing.customerId(), standing.points()));
+            }
+        }
+
+        LeaderboardDTO leaderboard = new LeaderboardDTO();
+        leaderboard.setMonth(month);
+        leaderboard.setPage(page);
+        leaderboard.setSize(size);
+        leaderboard.setTotalCustomers(totalCustomers);
+        leaderboard.setEntries(entries);
+        return leaderboard;
+    }
+
+    private YearMonth firstTrackedMonth(YearMonth current) {
+        return current.minusMonths(months - 1L);
+    }
+
+    /**
+     * Points of one customer in one month.
+     */
+    private record Standing(long customerId, long points) {
+    }
+
+    /**
+     * Ranking of one month. Writers and uncached reads hold the board's lock; cached reads only read the volatile list.
+     */
+    private static final class MonthBoard {
+
+        private static final Comparator<Standing> RANKING = Comparator.comparingLong(Standing::points).reversed()
+                .thenComparingLong(Standing::customerId);
+
+        private final Map<Long, Long> points = new HashMap<>();
+        private final TreeSet<Standing> ranking = new TreeSet<>(RANKING);
+
+        // The first CACHED_RANKS standings, or null once a change has reached them
+        private volatile List<Standing> top;
+
+        synchronized void add(long customerId, long added) {
+            Long previous = points.get(customerId);
+            if (previous != null) {
+                ranking.remove(new Standing(customerId, previous));
+            }
+            Standing standing = new Standing(customerId, previous == null ? added : previous + added);
+            points.put(customerId, standing.points());
+            ranking.add(standing);
+
+            // Points only grow, so a standing that ends up below the last cached rank was below it before as well
+            List<Standing> cached = top;
+            if (cached != null && (cached.size() < CACHED_RANKS
+                    || RANKING.compare(standing, cached.get(cached.size() - 1)) <= 0)) {
+                top = null;
+            }
+        }
+
+        synchronized int size() {
+            return points.size();
+        }
+
+        List<Standing> range(int offset, int size) {
+            long end = (long) offset + size;
+            if (end <= CACHED_RANKS) {
+                List<Standing> cached = top;
+                if (cached == null) {
+                    cached = rebuildTop();
+                }
+                return cached.subList(Math.min(offset, cached.size()), (int) Math.min(end, cached.size()));
+            }
+            synchronized (this) {
+                List<Standing> standings = new ArrayList<>(Math.min(size, ranking.size()));
+                Iterator<Standing> iterator = ranking.iterator();
+                for (int skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+                    iterator.next();
+                }
+                while (standings.size() < size && iterator.hasNext()) {
+                    standings.add(iterator.next());
+                }
+                return standings;
+            }
+        }
+
+        private synchronized List<Standing> rebuildTop() {
+            if (top == null) {
+                top = ranking.stream().limit(CACHED_RANKS).toList();
+            }
+            return top;
+        }
+    }
+}
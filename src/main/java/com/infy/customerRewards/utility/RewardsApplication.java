@@ -1,20 +0,0 @@
-package com.infy.customerRewards.utility;
-
-import org.modelmapper.ModelMapper;
-import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-
-@SpringBootApplication
-public class RewardsApplication {
-
-    public static void main(String[] args) {
-        SpringApplication.run(RewardsApplication.class, args);
-    }
-
-    @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
-    }
-
-}
@@ -0,0 +1,64 @@
+package com.infy.customerRewards.utility;
+
+import java.time.Duration;
+
+/**
+ * Shared remote tier of the rewards cache, seen by every application instance.
+ * Besides the cached values it holds a version stamp per customer, increased whenever the customer's
+ * transactions change, and broadcasts those changes to the instances so they can drop their near-cache entries.
+ * Implementations must be safe for concurrent use.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public interface RewardsCacheTier {
+
+    /**
+     * Receives the new version stamp of a customer whose transactions changed.
+     */
+    @FunctionalInterface
+    interface InvalidationListener {
+        void onInvalidation(long customerId, long version);
+    }
+
+    /**
+     * Reads a cached value.
+     *
+     * @param key the cache key
+     * @return the serialized value, or null if absent or expired
+     */
+    byte[] get(String key);
+
+    /**
+     * Stores a value.
+     *
+     * @param key the cache key
+     * @param value the serialized value
+     * @param ttl time after which the value expires
+     */
+    void put(String key, byte[] value, Duration ttl);
+
+    /**
+     * Reads the version stamp of a customer's transactions.
+     *
+     * @param customerId the unique identifier of the customer
+     * @return the current version, 0 if it was never increased
+     */
+    long version(long customerId);
+
+    /**
+     * Increases the version stamp of a customer's transactions and broadcasts it to every subscriber.
+     *
+     * @param customerId the unique identifier of the customer
+     * @return the new version
+     */
+    long invalidate(long customerId);
+
+    /**
+     * Subscribes to the invalidations of every instance.
+     *
+     * @param listener the listener
+     */
+    void subscribe(InvalidationListener listener);
+}
@@ -0,0 +1,206 @@
+package com.infy.customerRewards.utility;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Supplier;
+
+/**
+ * Flight Recorder event of one rewards calculation, from the service call until its response was written,
+ * with the time spent in each stage. The event being recorded is kept per thread: RewardServiceImpl begins it
+ * and adds the database time, RewardCalculator the calculator and mapping time, and RewardsRequestRecorder the
+ * serialization time before committing it once the response is complete. Outside of web requests the event is
+ * committed when the service returns.
+ * <p>
+ * Nothing is timed while the event is disabled in every running recording, which is checked once per request.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Name(RewardsRequestEvent.NAME)
+@Label("Rewards Request")
+@Category("Customer Rewards")
+@Description("A rewards calculation for one customer, with the time spent in each stage")
+@StackTrace(false)
+public class RewardsRequestEvent extends Event {
+
+    public static final String NAME = "com.infy.customerRewards.RewardsRequest";
+
+    private static final ThreadLocal<RewardsRequestEvent> CURRENT = new ThreadLocal<>();
+
+    @Label("Customer Id")
+    long customerId;
+
+    @Label("Range Days")
+    @Description("Days from the start to the end date, both included")
+    long rangeDays;
+
+    @Label("View")
+    String view;
+
+    @Label("Cached")
+    @Description("Whether the response was served from the rewards cache")
+    boolean cached;
+
+    @Label("Transactions")
+    @Description("Transactions fetched and calculated in the application, rather than summed by the database")
+    int transactionCount;
+
+    @Label("Database Time")
+    @Description("Reading the customer and transactions from the database and the archive")
+    @Timespan
+    long databaseTime;
+
+    @Label("Calculator Time")
+    @Timespan
+    long calculatorTime;
+
+    @Label("Mapping Time")
+    @Description("Mapping transactions to DTOs and building the response")
+    @Timespan
+    long mappingTime;
+
+    @Label("Serialization Time")
+    @Timespan
+    long serializationTime;
+
+    private transient long serializationStart;
+
+    /**
+     * Begins the event of a rewards calculation on this thread.
+     *
+     * @param customerId the customer whose rewards are calculated
+     * @param startDate the start date of the period
+     * @param endDate the end date of the period
+     * @param view the level of detail of the response
+     * @return the begun event, or null if the event is disabled or one is already begun on this thread
+     */
+    public static RewardsRequestEvent begin(long customerId, LocalDate startDate, LocalDate endDate, String view) {
+        if (CURRENT.get() != null) {
+            return null;
+        }
+        RewardsRequestEvent event = new RewardsRequestEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.customerId = customerId;
+        event.rangeDays = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        event.view = view;
+        event.cached = true;
+        event.begin();
+        CURRENT.set(event);
+        return event;
+    }
+
+    /**
+     * Returns the event being recorded on this thread.
+     *
+     * @return the event, or null if none is begun
+     */
+    public static RewardsRequestEvent current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Ends the service part of an event begun by {@link #begin}, committing it unless the thread serves a web
+     * request, whose response is yet to be written.
+     *
+     * @param event the event returned by begin, or null
+     */
+    public static void serviceReturned(RewardsRequestEvent event) {
+        if (event != null && RequestContextHolder.getRequestAttributes() == null) {
+            commitCurrent();
+        }
+    }
+
+    /**
+     * Commits the event being recorded on this thread, if any, with the time its response took to serialize.
+     */
+    public static void commitCurrent() {
+        RewardsRequestEvent event = CURRENT.get();
+        if (event == null) {
+            return;
+        }
+        CURRENT.remove();
+        if (event.serializationStart != 0) {
+            event.serializationTime = System.nanoTime() - event.serializationStart;
+        }
+        event.end();
+        event.commit();
+    }
+
+    /**
+     * Reads data for the event being recorded on this thread, adding the time taken to its database time.
+     *
+     * @param reader the read
+     * @return the data read
+     */
+    public static <T> T timeDatabase(Supplier<T> reader) {
+        RewardsRequestEvent event = CURRENT.get();
+        if (event == null) {
+            return reader.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return reader.get();
+        } finally {
+            event.databaseTime += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Builds part of the response of the event being recorded on this thread, adding the time taken to its
+     * mapping time.
+     *
+     * @param mapping the mapping
+     * @return the mapped object
+     */
+    public static <T> T timeMapping(Supplier<T> mapping) {
+        RewardsRequestEvent event = CURRENT.get();
+        if (event == null) {
+            return mapping.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return mapping.get();
+        } finally {
+            event.mappingTime += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Records that the response was calculated rather than served from the cache.
+     */
+    public void calculated() {
+        cached = false;
+    }
+
+    /**
+     * Adds transactions calculated in the application.
+     *
+     * @param transactions the number of transactions
+     * @param calculatorNanos the time spent calculating their points
+     * @param mappingNanos the time spent mapping them to DTOs
+     */
+    public void addCalculation(int transactions, long calculatorNanos, long mappingNanos) {
+        transactionCount += transactions;
+        calculatorTime += calculatorNanos;
+        mappingTime += mappingNanos;
+    }
+
+    /**
+     * Marks the start of writing the response.
+     */
+    public void serializationStarted() {
+        serializationStart = System.nanoTime();
+    }
+}
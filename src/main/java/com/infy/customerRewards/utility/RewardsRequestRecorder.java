@@ -0,0 +1,58 @@
+package com.infy.customerRewards.utility;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Completes the {@link RewardsRequestEvent} of a web request: the serialization time runs from the moment the
+ * response body is handed to its message converter until the request completes, when the event is committed.
+ * Requests that did not begin an event pass through untouched.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@ControllerAdvice
+public class RewardsRequestRecorder implements ResponseBodyAdvice<Object>, AsyncHandlerInterceptor, WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return RewardsRequestEvent.current() != null;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RewardsRequestEvent event = RewardsRequestEvent.current();
+        if (event != null) {
+            event.serializationStarted();
+        }
+        return body;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RewardsRequestEvent.commitCurrent();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RewardsRequestEvent.commitCurrent();
+    }
+}
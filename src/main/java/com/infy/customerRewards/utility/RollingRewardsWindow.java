@@ -0,0 +1,233 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.TransactionAmountDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Component that keeps per-customer daily and monthly reward partial sums for rolling date ranges.
+ * When the requested range overlaps the previously cached range, only the newly covered days are
+ * read from the database and the expired days are subtracted, instead of re-reading every transaction.
+ * Only the points and transaction count of each day are kept, not the transactions themselves.
+ * <p>
+ * A customer's window is dropped when transactions are recorded on a day it covers before its last one,
+ * and every window overlapping a month is dropped when the month is archived, so that retroactive changes
+ * are read again on the next request.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class RollingRewardsWindow {
+
+    private final RewardCalculator rewardCalculator;
+
+    private final Map<Long, CustomerWindow> windows;
+
+    /**
+     * Constructs a RollingRewardsWindow.
+     *
+     * @param rewardCalculator the calculator used to compute points for newly loaded transactions
+     * @param maxCustomers the maximum number of customer windows kept before the least recently used is dropped
+     */
+    public RollingRewardsWindow(RewardCalculator rewardCalculator,
+                                @Value("${rewards.rolling.max-customers:10000}") int maxCustomers) {
+        this.rewardCalculator = rewardCalculator;
+        this.windows = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CustomerWindow> eldest) {
+                return size() > maxCustomers;
+            }
+        });
+    }
+
+    /**
+     * Moves the customer's window to the given range and returns the reward sums for it.
+     * Days that left the range are subtracted, days that entered it are loaded through the loader.
+     * The last day of the previous window is always re-read because it may not have been complete.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param startDate the start date of the range (inclusive)
+     * @param endDate the end date of the range (inclusive)
+     * @param loader loads the transactions of the customer between two dates (inclusive)
+     * @return the reward sums of the whole range
+     */
+    public Sums slide(Long customerId, LocalDate startDate, LocalDate endDate, TransactionLoader loader) {
+        CustomerWindow window = windows.computeIfAbsent(customerId, id -> new CustomerWindow());
+
+        synchronized (window) {
+            if (window.start == null || startDate.isAfter(window.end) || endDate.isBefore(window.start)) {
+                window.clear();
+                load(window, loader, startDate, endDate);
+            } else {
+                window.removeOutside(startDate, endDate);
+                if (startDate.isBefore(window.start)) {
+                    load(window, loader, startDate, window.start.minusDays(1));
+                }
+                if (!endDate.isBefore(window.end)) {
+                    window.removeDay(window.end);
+                    load(window, loader, window.end, endDate);
+                }
+            }
+            window.start = startDate;
+            window.end = endDate;
+            return window.snapshot();
+        }
+    }
+
+    private void load(CustomerWindow window, TransactionLoader loader, LocalDate from, LocalDate to) {
+        for (TransactionAmountDTO transaction : loader.load(from, to)) {
+            window.add(transaction.getDate(), rewardCalculator.calculatePoints(transaction.getAmount()));
+        }
+    }
+
+    /**
+     * Drops the window of a customer whose transactions changed on a day the window covers before its last one.
+     * Changes on the last day or later are picked up anyway, as the last day is always re-read.
+     *
+     * @param event the recorded transactions
+     */
+    @EventListener
+    public void onTransactionsRecorded(TransactionsRecordedEvent event) {
+        CustomerWindow window = windows.get(event.customerId());
+        if (window == null) {
+            return;
+        }
+        synchronized (window) {
+            if (window.start != null && event.transactions().stream().anyMatch(transaction ->
+                    !transaction.getDate().isBefore(window.start) && transaction.getDate().isBefore(window.end))) {
+                windows.remove(event.customerId(), window);
+            }
+        }
+    }
+
+    /**
+     * Drops the windows overlapping an archived month, whose transactions are now read from the archive.
+     *
+     * @param event the archived month
+     */
+    @EventListener
+    public void onTransactionsArchived(TransactionsArchivedEvent event) {
+        LocalDate first = event.month().atDay(1);
+        LocalDate last = event.month().atEndOfMonth();
+        synchronized (windows) {
+            windows.values().removeIf(window -> window.start == null
+                    || (!window.start.isAfter(last) && !window.end.isBefore(first)));
+        }
+    }
+
+    /**
+     * Drops the cached window of a customer, e.g. after transactions were changed retroactively.
+     *
+     * @param customerId the unique identifier of the customer
+     */
+    public void evict(Long customerId) {
+        windows.remove(customerId);
+    }
+
+    /**
+     * Loads the date and amount of the transactions of a customer between two dates (inclusive).
+     */
+    @FunctionalInterface
+    public interface TransactionLoader {
+        List<TransactionAmountDTO> load(LocalDate from, LocalDate to);
+    }
+
+    /**
+     * Reward sums of a rolling range.
+     *
+     * @param monthlyRewards the points per month with at least one transaction, ordered by month
+     * @param totalRewards the points of the whole range
+     * @param transactionCount the number of transactions in the range
+     */
+    public record Sums(SortedMap<YearMonth, Integer> monthlyRewards, int totalRewards, int transactionCount) {
+    }
+
+    /**
+     * Points and transaction count of one day.
+     */
+    private record DaySum(int points, int transactions) {
+
+        DaySum plus(int addedPoints) {
+            return new DaySum(points + addedPoints, transactions + 1);
+        }
+    }
+
+    /**
+     * Daily partial sums and running monthly/total sums of a single customer.
+     */
+    private static final class CustomerWindow {
+
+        private LocalDate start;
+        private LocalDate end;
+        private final TreeMap<LocalDate, DaySum> days = new TreeMap<>();
+        private final SortedMap<YearMonth, Integer> monthlyRewards = new TreeMap<>();
+        private final Map<YearMonth, Integer> monthlyCounts = new HashMap<>();
+        private int totalRewards;
+        private int transactionCount;
+
+        private void add(LocalDate date, int points) {
+            days.merge(date, new DaySum(points, 1), (sum, added) -> sum.plus(points));
+            YearMonth month = YearMonth.from(date);
+            monthlyCounts.merge(month, 1, Integer::sum);
+            monthlyRewards.merge(month, points, Integer::sum);
+            totalRewards += points;
+            transactionCount++;
+        }
+
+        private void removeOutside(LocalDate startDate, LocalDate endDate) {
+            removeAll(days.headMap(startDate));
+            removeAll(days.tailMap(endDate, false));
+        }
+
+        private void removeAll(SortedMap<LocalDate, DaySum> left) {
+            for (Map.Entry<LocalDate, DaySum> day : left.entrySet()) {
+                subtract(day.getKey(), day.getValue());
+            }
+            left.clear();
+        }
+
+        private void removeDay(LocalDate date) {
+            DaySum removed = days.remove(date);
+            if (removed != null) {
+                subtract(date, removed);
+            }
+        }
+
+        private void subtract(LocalDate date, DaySum day) {
+            YearMonth month = YearMonth.from(date);
+            if (monthlyCounts.merge(month, -day.transactions(), Integer::sum) == 0) {
+                monthlyCounts.remove(month);
+                monthlyRewards.remove(month);
+            } else {
+                monthlyRewards.merge(month, -day.points(), Integer::sum);
+            }
+            totalRewards -= day.points();
+            transactionCount -= day.transactions();
+        }
+
+        private void clear() {
+            days.clear();
+            monthlyRewards.clear();
+            monthlyCounts.clear();
+            totalRewards = 0;
+            transactionCount = 0;
+        }
+
+        private Sums snapshot() {
+            return new Sums(new TreeMap<>(monthlyRewards), totalRewards, transactionCount);
+        }
+    }
+}
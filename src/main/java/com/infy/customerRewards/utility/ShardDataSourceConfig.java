@@ -0,0 +1,125 @@
+package com.infy.customerRewards.utility;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configures customer sharding when at least one shard is set in rewards.sharding.shards.
+ * Every shard holds the full schema, created from tableScript.sql before the application starts; JPA only
+ * validates it, on shard 0. Requests naming a customer are routed to the customer's shard, and the customer
+ * identity of each shard is moved to the shard's ID range once the application context is initialized;
+ * startup fails if that is not possible.
+ * Without shards a single-shard {@link ShardRouter} is registered and Spring Boot's single
+ * auto-configured DataSource is used unchanged. Sharding replaces read replica routing,
+ * and the transaction archive, which writes one segment per month over all customers, is not supported with it.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+@EnableConfigurationProperties(ShardDataSourceProperties.class)
+public class ShardDataSourceConfig {
+
+    @Bean
+    public ShardRouter shardRouter(ShardDataSourceProperties shardProperties) {
+        return new ShardRouter(Math.max(1, shardProperties.getShards().size()), shardProperties.getVirtualNodes());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rewards.sharding.shards[0].url")
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties primaryProperties,
+                                                         ShardDataSourceProperties shardProperties,
+                                                         ConnectionPoolMetrics connectionPoolMetrics,
+                                                         @Value("${rewards.archive.enabled:false}") boolean archiveEnabled) {
+        if (archiveEnabled) {
+            throw new IllegalStateException("rewards.archive.enabled must be false when rewards.sharding.shards are set");
+        }
+        List<DataSource> shards = new ArrayList<>();
+        List<ShardDataSourceProperties.Shard> configured = shardProperties.getShards();
+        for (int i = 0; i < configured.size(); i++) {
+            ShardDataSourceProperties.Shard shard = configured.get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(primaryProperties.determineDriverClassName())
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            dataSource.setPoolName("shard-" + i);
+            shards.add(connectionPoolMetrics.instrument(dataSource));
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * The DataSource used by JPA. Connections are fetched lazily so that routing sees
+     * the shard chosen for the customer being served.
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "rewards.sharding.shards[0].url")
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rewards.sharding.shards[0].url")
+    public WebMvcConfigurer shardRoutingWebMvcConfigurer(ShardRouter shardRouter) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new ShardInterceptor(shardRouter));
+            }
+        };
+    }
+
+    /**
+     * Carries the shard of a request over to the threads of asynchronous request processing, such as streamed responses.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "rewards.sharding.shards[0].url")
+    public TaskDecorator shardTaskDecorator() {
+        return ShardRouter.propagatingTaskDecorator();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rewards.sharding.shards[0].url")
+    public ShardIdRanges shardIdRanges(ShardRoutingDataSource shardRoutingDataSource) {
+        return new ShardIdRanges(shardRoutingDataSource);
+    }
+
+    /**
+     * Reserves the customer ID range of every shard once the application context is initialized.
+     */
+    public static class ShardIdRanges implements SmartInitializingSingleton {
+
+        private final ShardRoutingDataSource shardRoutingDataSource;
+
+        public ShardIdRanges(ShardRoutingDataSource shardRoutingDataSource) {
+            this.shardRoutingDataSource = shardRoutingDataSource;
+        }
+
+        @Override
+        public void afterSingletonsInstantiated() {
+            shardRoutingDataSource.reserveCustomerIdRanges();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.infy.customerRewards.utility;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+/**
+ * Shard settings bound from the rewards.sharding.* properties.
+ * Shards share the driver of the primary spring.datasource.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Data
+@ConfigurationProperties(prefix = "rewards.sharding")
+public class ShardDataSourceProperties {
+
+    /**
+     * Shard databases, in shard number order. Shards may only be appended: a shard's position is encoded in its customer IDs.
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * Number of consistent hash ring nodes per shard.
+     */
+    private int virtualNodes = 128;
+
+    /**
+     * Connection settings of a single shard.
+     */
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
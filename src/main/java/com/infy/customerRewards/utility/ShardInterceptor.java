@@ -0,0 +1,58 @@
+package com.infy.customerRewards.utility;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Routes a request to the shard of the customer named by its {customerId} path variable,
+ * so that every query made while serving it reads the customer's own database.
+ * Requests without the variable use shard 0 unless the code serving them picks a shard.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class ShardInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String CUSTOMER_ID = "customerId";
+
+    private final ShardRouter shardRouter;
+
+    /**
+     * Constructs a ShardInterceptor.
+     *
+     * @param shardRouter router mapping customers to shards
+     */
+    public ShardInterceptor(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String customerId = variables == null ? null : variables.get(CUSTOMER_ID);
+        if (customerId != null) {
+            try {
+                ShardRouter.setCurrentShard(shardRouter.shardOf(Long.parseLong(customerId)));
+            } catch (NumberFormatException e) {
+                // Left to the handler's argument conversion to reject
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ShardRouter.setCurrentShard(null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ShardRouter.setCurrentShard(null);
+    }
+}
@@ -0,0 +1,68 @@
+package com.infy.customerRewards.utility;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring mapping 64-bit keys to shards.
+ * Every shard owns a number of virtual nodes spread over the ring; a key belongs to the first node
+ * at or after its hash, wrapping around. Adding a shard takes over only the keys falling just before
+ * its nodes, about 1/N of them, instead of remapping nearly every key as a modulo would.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class ShardRing {
+
+    private final TreeMap<Long, Integer> nodes = new TreeMap<>();
+    private final int shardCount;
+
+    /**
+     * Constructs a ShardRing.
+     *
+     * @param shardCount the number of shards, numbered from 0
+     * @param virtualNodes the number of ring nodes per shard; more nodes spread keys more evenly
+     */
+    public ShardRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("A shard ring needs at least one shard and one virtual node per shard");
+        }
+        this.shardCount = shardCount;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                // A colliding node keeps its first owner, so placement does not depend on insertion order of later shards
+                nodes.putIfAbsent(hash(((long) shard << 32) | node), shard);
+            }
+        }
+    }
+
+    /**
+     * Finds the shard owning a key.
+     *
+     * @param key the key to place
+     * @return the shard number
+     */
+    public int shardFor(long key) {
+        Map.Entry<Long, Integer> node = nodes.ceilingEntry(hash(key));
+        return (node == null ? nodes.firstEntry() : node).getValue();
+    }
+
+    /**
+     * Gets the number of shards on the ring.
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Mixes the bits of a key so that consecutive keys land far apart on the ring (SplitMix64 finalizer).
+     */
+    private static long hash(long key) {
+        long h = key + 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
@@ -0,0 +1,256 @@
+package com.infy.customerRewards.utility;
+
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Maps customers to database shards and holds the shard the current thread works on,
+ * which {@link ShardRoutingDataSource} uses to pick the database of each connection.
+ * <p>
+ * Customer IDs encode their shard: shard s allocates IDs from (s + 1) * 2^40 upwards, so a customer
+ * stays on the shard it was created on whatever shards are added later. New customers are placed by a
+ * {@link ShardRing} on a random key, giving every shard a share of them proportional to its ring nodes.
+ * IDs below 2^40, of customers created before sharding, stay on shard 0, which is the database they were
+ * created in, so sharding an existing database needs no migration.
+ * <p>
+ * Queries over every customer run once per shard, in parallel, and their results are merged by the caller.
+ * With a single database every method runs its work directly and the shard is always 0.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class ShardRouter implements AutoCloseable {
+
+    /**
+     * Number of low bits of a sharded customer ID holding its number within the shard.
+     */
+    public static final int ID_SHARD_SHIFT = 40;
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final ShardRing ring;
+    private final ExecutorService fanOutExecutor;
+
+    /**
+     * Constructs a ShardRouter.
+     *
+     * @param shardCount the number of shards
+     * @param virtualNodes the number of ring nodes per shard
+     */
+    public ShardRouter(int shardCount, int virtualNodes) {
+        this.ring = new ShardRing(shardCount, virtualNodes);
+        if (shardCount > 1) {
+            AtomicInteger threads = new AtomicInteger();
+            this.fanOutExecutor = Executors.newFixedThreadPool(shardCount, task -> {
+                Thread thread = new Thread(task, "shard-fan-out-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.fanOutExecutor = null;
+        }
+    }
+
+    /**
+     * Creates the router of an unsharded database.
+     * @return a router with a single shard
+     */
+    public static ShardRouter single() {
+        return new ShardRouter(1, 1);
+    }
+
+    /**
+     * Gets the number of shards.
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return ring.getShardCount();
+    }
+
+    /**
+     * Checks whether there is more than one shard.
+     * @return true if customers are spread over several databases
+     */
+    public boolean isSharded() {
+        return ring.getShardCount() > 1;
+    }
+
+    /**
+     * Finds the shard holding a customer.
+     *
+     * @param customerId the unique identifier of the customer
+     * @return the shard number, 0 for IDs from before sharding
+     */
+    public int shardOf(long customerId) {
+        long encoded = (customerId >>> ID_SHARD_SHIFT) - 1;
+        if (encoded < 0) {
+            return 0;
+        }
+        if (encoded < ring.getShardCount()) {
+            return (int) encoded;
+        }
+        return ring.shardFor(customerId);
+    }
+
+    /**
+     * Picks the shard a new customer is created on.
+     * @return the shard number
+     */
+    public int allocateShard() {
+        return isSharded() ? ring.shardFor(ThreadLocalRandom.current().nextLong()) : 0;
+    }
+
+    /**
+     * Gets the first customer ID allocated by a shard.
+     *
+     * @param shard the shard number
+     * @return the ID the shard's customer identity starts at
+     */
+    public static long firstCustomerId(int shard) {
+        return (shard + 1L) << ID_SHARD_SHIFT;
+    }
+
+    /**
+     * Gets the shard the current thread works on.
+     * @return the shard number, or null if none was chosen
+     */
+    public static Integer currentShard() {
+        return CURRENT_SHARD.get();
+    }
+
+    /**
+     * Sets or clears the shard the current thread works on.
+     * @param shard the shard number, or null to clear it
+     */
+    public static void setCurrentShard(Integer shard) {
+        if (shard == null) {
+            CURRENT_SHARD.remove();
+        } else {
+            CURRENT_SHARD.set(shard);
+        }
+    }
+
+    /**
+     * Runs work on a shard, restoring the previous shard of the thread afterwards.
+     *
+     * @param shard the shard number
+     * @param work the work to run
+     * @param <T> the type of the result
+     * @return the result of the work
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            setCurrentShard(previous);
+        }
+    }
+
+    /**
+     * Runs work on the shard holding a customer.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param work the work to run
+     */
+    public void onCustomerShard(long customerId, Runnable work) {
+        onShard(shardOf(customerId), () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs work on every shard in turn, for schema set-up and other work that must not overlap.
+     *
+     * @param work the work to run, given the shard number
+     */
+    public void forEachShard(IntConsumer work) {
+        for (int shard = 0; shard < ring.getShardCount(); shard++) {
+            int current = shard;
+            onShard(shard, () -> {
+                work.accept(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Runs work on every shard in parallel and collects the results.
+     *
+     * @param work the work to run, given the shard number
+     * @param <T> the type of the results
+     * @return the result of each shard, indexed by shard number
+     * @throws RuntimeException the failure of the first failing shard
+     */
+    public <T> List<T> fanOut(IntFunction<T> work) {
+        if (fanOutExecutor == null) {
+            List<T> results = new ArrayList<>(1);
+            results.add(onShard(0, () -> work.apply(0)));
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(ring.getShardCount());
+        for (int shard = 0; shard < ring.getShardCount(); shard++) {
+            int current = shard;
+            futures.add(fanOutExecutor.submit(() -> onShard(current, () -> work.apply(current))));
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw e.getCause() instanceof RuntimeException runtime
+                    ? runtime
+                    : new IllegalStateException("Shard query failed", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * Creates a task decorator carrying the shard of the submitting thread over to the thread running the task,
+     * such as the one writing a streamed response.
+     * @return the task decorator
+     */
+    public static TaskDecorator propagatingTaskDecorator() {
+        return task -> {
+            Integer shard = CURRENT_SHARD.get();
+            return () -> {
+                Integer previous = CURRENT_SHARD.get();
+                setCurrentShard(shard);
+                try {
+                    task.run();
+                } finally {
+                    setCurrentShard(previous);
+                }
+            };
+        };
+    }
+
+    /**
+     * Stops the fan-out threads.
+     */
+    @Override
+    public void close() {
+        if (fanOutExecutor != null) {
+            fanOutExecutor.shutdownNow();
+        }
+    }
+}
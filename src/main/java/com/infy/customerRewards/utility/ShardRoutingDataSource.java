@@ -0,0 +1,102 @@
+package com.infy.customerRewards.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * DataSource that hands out connections of the shard chosen for the current thread by {@link ShardRouter}.
+ * Threads without a shard, such as schema set-up and tables not keyed by customer, use shard 0.
+ * Should be wrapped in a LazyConnectionDataSourceProxy so that the connection is only fetched
+ * once the shard of the customer being served is known.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class ShardRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRoutingDataSource.class);
+
+    private final List<DataSource> shards;
+
+    /**
+     * Constructs a ShardRoutingDataSource.
+     *
+     * @param shards the shard databases, indexed by shard number
+     */
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return currentShard().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return currentShard().getConnection(username, password);
+    }
+
+    private DataSource currentShard() {
+        Integer shard = ShardRouter.currentShard();
+        return shards.get(shard == null ? 0 : shard);
+    }
+
+    /**
+     * Moves the customer identity of every shard to the start of its ID range, see {@link ShardRouter#firstCustomerId(int)}.
+     * Shards whose customers table already holds IDs in their range are left alone.
+     *
+     * @throws IllegalStateException if a shard's range could not be reserved, as its new customers would get IDs
+     *                               that route to another shard
+     */
+    public void reserveCustomerIdRanges() {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            long first = ShardRouter.firstCustomerId(shard);
+            try (Connection connection = shards.get(shard).getConnection()) {
+                long max;
+                try (PreparedStatement statement = connection.prepareStatement("select coalesce(max(id), 0) from customers");
+                     ResultSet result = statement.executeQuery()) {
+                    result.next();
+                    max = result.getLong(1);
+                }
+                if (max >= first) {
+                    continue;
+                }
+                boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(mysql
+                            ? "alter table customers auto_increment = " + first
+                            : "alter table customers alter column id restart with " + first);
+                }
+                log.info("Customer IDs of shard {} start at {}", shard, first);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to reserve the customer ID range of shard " + shard, e);
+            }
+        }
+    }
+
+    /**
+     * Closes the shard pools.
+     */
+    public void close() {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (shards.get(shard) instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close shard {}: {}", shard, e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.infy.customerRewards.utility;
+
+/**
+ * Destination of the sampled spans recorded by {@link SpanRecordingHandler}.
+ * Exporters are called on the thread that stopped the span and must not block it.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public interface SpanExporter {
+
+    /**
+     * Exports a completed span.
+     *
+     * @param span the span
+     */
+    void export(FinishedSpan span);
+}
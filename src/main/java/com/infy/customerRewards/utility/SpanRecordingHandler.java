@@ -0,0 +1,166 @@
+package com.infy.customerRewards.utility;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationView;
+import io.micrometer.observation.transport.ReceiverContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns observations into spans of a trace. An observation started within another one becomes its child; an
+ * observation of an incoming request continues the trace named by the request's W3C traceparent header; any
+ * other observation starts a new trace. Whether a trace is recorded is decided once, at its root: a trace
+ * continued from a caller follows the caller's sampled flag, a new trace is sampled with the configured
+ * probability. Spans of sampled traces are handed to the exporters when they stop.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class SpanRecordingHandler implements ObservationHandler<Observation.Context> {
+
+    private static final Logger log = LoggerFactory.getLogger(SpanRecordingHandler.class);
+
+    /**
+     * Header carrying the caller's trace, as defined by W3C Trace Context.
+     */
+    public static final String TRACEPARENT = "traceparent";
+
+    private static final Pattern TRACEPARENT_FORMAT =
+            Pattern.compile("([0-9a-f]{2})-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})");
+    private static final String INVALID_TRACE_ID = "0".repeat(32);
+    private static final String INVALID_SPAN_ID = "0".repeat(16);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final double probability;
+    private final List<SpanExporter> exporters;
+
+    /**
+     * Constructs a SpanRecordingHandler.
+     *
+     * @param probability the fraction of new traces that are sampled, from 0 to 1
+     * @param exporters receive the spans of sampled traces
+     */
+    public SpanRecordingHandler(double probability, List<SpanExporter> exporters) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("rewards.tracing.sampling.probability must be between 0 and 1");
+        }
+        this.probability = probability;
+        this.exporters = List.copyOf(exporters);
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return true;
+    }
+
+    @Override
+    public void onStart(Observation.Context context) {
+        Span parent = parentOf(context);
+        if (parent == null && context instanceof ReceiverContext<?> receiverContext) {
+            parent = extract(receiverContext);
+        }
+        context.put(Span.class, parent != null
+                ? new Span(parent.traceId, newId(8), parent.spanId, parent.sampled)
+                : new Span(newId(16), newId(8), null, ThreadLocalRandom.current().nextDouble() < probability));
+    }
+
+    @Override
+    public void onStop(Observation.Context context) {
+        Span span = context.get(Span.class);
+        if (span == null || !span.sampled) {
+            return;
+        }
+        Duration duration = Duration.ofNanos(System.nanoTime() - span.startNanos);
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (KeyValue keyValue : context.getLowCardinalityKeyValues()) {
+            tags.put(keyValue.getKey(), keyValue.getValue());
+        }
+        for (KeyValue keyValue : context.getHighCardinalityKeyValues()) {
+            tags.put(keyValue.getKey(), keyValue.getValue());
+        }
+        String name = context.getContextualName() != null ? context.getContextualName() : context.getName();
+        String error = context.getError() == null ? null : context.getError().toString();
+        FinishedSpan finished = new FinishedSpan(span.traceId, span.spanId, span.parentSpanId, name, span.start,
+                duration, tags, error);
+        for (SpanExporter exporter : exporters) {
+            try {
+                exporter.export(finished);
+            } catch (RuntimeException e) {
+                log.warn("Span exporter {} failed: {}", exporter.getClass().getSimpleName(), e.toString());
+            }
+        }
+    }
+
+    private static Span parentOf(Observation.Context context) {
+        for (ObservationView parent = context.getParentObservation(); parent != null;
+             parent = parent.getContextView().getParentObservation()) {
+            Span span = parent.getContextView().get(Span.class);
+            if (span != null) {
+                return span;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the caller's span from the traceparent header of an incoming request.
+     *
+     * @return the caller's span, or null if the header is missing or malformed
+     */
+    @SuppressWarnings("unchecked")
+    private static Span extract(ReceiverContext<?> context) {
+        Object carrier = context.getCarrier();
+        if (carrier == null) {
+            return null;
+        }
+        String header = ((ReceiverContext<Object>) context).getGetter().get(carrier, TRACEPARENT);
+        if (header == null) {
+            return null;
+        }
+        Matcher matcher = TRACEPARENT_FORMAT.matcher(header.trim());
+        if (!matcher.matches() || matcher.group(1).equals("ff")
+                || matcher.group(2).equals(INVALID_TRACE_ID) || matcher.group(3).equals(INVALID_SPAN_ID)) {
+            return null;
+        }
+        boolean sampled = (HexFormat.fromHexDigits(matcher.group(4)) & 1) != 0;
+        return new Span(matcher.group(2), matcher.group(3), null, sampled);
+    }
+
+    private static String newId(int bytes) {
+        byte[] id = new byte[bytes];
+        ThreadLocalRandom.current().nextBytes(id);
+        return HEX.formatHex(id);
+    }
+
+    /**
+     * The span of a started observation, kept in its context.
+     */
+    private static class Span {
+        final String traceId;
+        final String spanId;
+        final String parentSpanId;
+        final boolean sampled;
+        final Instant start = Instant.now();
+        final long startNanos = System.nanoTime();
+
+        Span(String traceId, String spanId, String parentSpanId, boolean sampled) {
+            this.traceId = traceId;
+            this.spanId = spanId;
+            this.parentSpanId = parentSpanId;
+            this.sampled = sampled;
+        }
+    }
+}
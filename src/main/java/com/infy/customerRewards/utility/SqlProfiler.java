@@ -0,0 +1,295 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.SqlProfileDTO;
+import com.infy.customerRewards.dto.SqlShapeStatsDTO;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Profiles the SQL statements executed through the application's data source, the "dataSource" bean used by JPA
+ * and JdbcTemplate, when rewards.sql.profiling.enabled is set. The bean is replaced by a subclass proxy of its own
+ * class whose connections come through a {@link ProfilingDataSource}, so it is still a HikariDataSource to the pool
+ * metrics and sizing and to Spring Boot; a data source of a final class is wrapped in the ProfilingDataSource itself.
+ * <p>
+ * Statements are grouped by shape: the statement with its literals replaced by ? and lists of values collapsed,
+ * so that the same repository call with other arguments, or a multi-row insert of another size, is one shape.
+ * Every execution is added to the current slot of a sliding window of {@value #SLOTS} slots, with the endpoint
+ * being served; slots older than the window are reused. Statements slower than the threshold are logged with
+ * their shape, never their values.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class SqlProfiler implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlProfiler.class);
+
+    static final int SLOTS = 10;
+
+    // Bounds on the memory taken by statements built with literals, which each have their own text
+    private static final int MAX_SHAPES_PER_SLOT = 1000;
+    private static final int MAX_CACHED_SHAPES = 10_000;
+    private static final int MAX_ENDPOINTS_PER_SHAPE = 20;
+    private static final int MAX_SHAPE_LENGTH = 2000;
+    private static final String OTHER = "other";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern VALUE_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern REPEATED_ROWS = Pattern.compile("(\\(\\?(?:\\.\\.\\.)?\\))(?:\\s*,\\s*\\(\\?(?:\\.\\.\\.)?\\))+");
+
+    private final boolean enabled;
+    private final long slowThresholdNanos;
+    private final long slotNanos;
+    private final AtomicReferenceArray<Slot> slots = new AtomicReferenceArray<>(SLOTS);
+    private final Map<String, String> shapes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a SqlProfiler.
+     *
+     * @param enabled whether the application's data source is profiled
+     * @param slowThreshold statements taking at least this long are logged
+     * @param window the period covered by the profile
+     */
+    public SqlProfiler(@Value("${rewards.sql.profiling.enabled:true}") boolean enabled,
+                       @Value("${rewards.sql.profiling.slow-threshold:200ms}") Duration slowThreshold,
+                       @Value("${rewards.sql.profiling.window:5m}") Duration window) {
+        this.enabled = enabled;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.slotNanos = Math.max(1, window.toNanos() / SLOTS);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!enabled || !"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)
+                || bean instanceof ProfilingDataSource) {
+            return bean;
+        }
+        ProfilingDataSource profiling = new ProfilingDataSource(dataSource, this);
+        if (Modifier.isFinal(bean.getClass().getModifiers())) {
+            return profiling;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+            if (!invocation.getMethod().getName().equals("getConnection")) {
+                return invocation.proceed();
+            }
+            Object[] args = invocation.getArguments();
+            return args.length == 0 ? profiling.getConnection() : profiling.getConnection((String) args[0], (String) args[1]);
+        });
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    /**
+     * Records an execution of a statement.
+     *
+     * @param sql the statement
+     * @param endpoint the endpoint or thread it was executed for
+     * @param nanos the time spent executing it and fetching its rows
+     * @param rows the number of rows fetched or updated
+     */
+    public void record(String sql, String endpoint, long nanos, long rows) {
+        String shape = shape(sql);
+        if (nanos >= slowThresholdNanos) {
+            log.warn("Slow SQL statement took {} ms for {} rows serving {}: {}", nanos / 1_000_000, rows, endpoint, shape);
+        }
+        Map<String, ShapeStats> slotShapes = currentSlot().shapes;
+        ShapeStats stats = slotShapes.get(shape);
+        if (stats == null) {
+            stats = slotShapes.size() < MAX_SHAPES_PER_SLOT
+                    ? slotShapes.computeIfAbsent(shape, key -> new ShapeStats())
+                    : slotShapes.computeIfAbsent(OTHER, key -> new ShapeStats());
+        }
+        stats.record(endpoint, nanos, rows);
+    }
+
+    private Slot currentSlot() {
+        long epoch = System.nanoTime() / slotNanos;
+        int index = (int) Math.floorMod(epoch, (long) SLOTS);
+        while (true) {
+            Slot slot = slots.get(index);
+            if (slot != null && slot.epoch == epoch) {
+                return slot;
+            }
+            Slot fresh = new Slot(epoch);
+            if (slots.compareAndSet(index, slot, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    /**
+     * Returns the shape of a statement, caching the shapes of the statements seen so far.
+     *
+     * @param sql the statement
+     * @return the statement with literals replaced by ? and value lists collapsed
+     */
+    public String shape(String sql) {
+        if (sql == null) {
+            return "(unknown)";
+        }
+        String shape = shapes.get(sql);
+        if (shape == null) {
+            shape = normalize(sql);
+            if (shapes.size() < MAX_CACHED_SHAPES) {
+                shapes.put(sql, shape);
+            }
+        }
+        return shape;
+    }
+
+    static String normalize(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        shape = VALUE_LIST.matcher(shape).replaceAll("(?...)");
+        shape = REPEATED_ROWS.matcher(shape).replaceAll("$1, ...");
+        return shape.length() > MAX_SHAPE_LENGTH ? shape.substring(0, MAX_SHAPE_LENGTH) + "..." : shape;
+    }
+
+    /**
+     * Reports the statements executed within the window, with the most expensive shapes first.
+     *
+     * @param top the number of shapes reported
+     * @param orderBy total, mean, max, executions or rows
+     * @return the profile
+     * @throws IllegalArgumentException if orderBy names no order
+     */
+    public SqlProfileDTO getProfile(int top, String orderBy) {
+        Comparator<SqlShapeStatsDTO> order = switch (orderBy) {
+            case "total" -> Comparator.comparingDouble(SqlShapeStatsDTO::getTotalMillis);
+            case "mean" -> Comparator.comparingDouble(SqlShapeStatsDTO::getMeanMillis);
+            case "max" -> Comparator.comparingDouble(SqlShapeStatsDTO::getMaxMillis);
+            case "executions" -> Comparator.comparingLong(SqlShapeStatsDTO::getExecutions);
+            case "rows" -> Comparator.comparingLong(SqlShapeStatsDTO::getRows);
+            default -> throw new IllegalArgumentException("Unknown order " + orderBy);
+        };
+
+        long oldestEpoch = System.nanoTime() / slotNanos - SLOTS + 1;
+        Map<String, Merged> merged = new HashMap<>();
+        for (int i = 0; i < SLOTS; i++) {
+            Slot slot = slots.get(i);
+            if (slot != null && slot.epoch >= oldestEpoch) {
+                slot.shapes.forEach((shape, stats) -> merged.computeIfAbsent(shape, key -> new Merged()).add(stats));
+            }
+        }
+
+        List<SqlShapeStatsDTO> all = new ArrayList<>();
+        long executions = 0;
+        long totalNanos = 0;
+        for (Map.Entry<String, Merged> entry : merged.entrySet()) {
+            Merged shape = entry.getValue();
+            executions += shape.executions;
+            totalNanos += shape.nanos;
+            all.add(shape.toDto(entry.getKey()));
+        }
+        all.sort(order.reversed());
+
+        SqlProfileDTO profile = new SqlProfileDTO();
+        profile.setEnabled(enabled);
+        profile.setWindowSeconds(slotNanos * SLOTS / 1_000_000_000);
+        profile.setOrderedBy(orderBy);
+        profile.setExecutions(executions);
+        profile.setTotalMillis(totalNanos / 1e6);
+        profile.setShapes(all.size());
+        profile.setTop(new ArrayList<>(all.subList(0, Math.min(top, all.size()))));
+        return profile;
+    }
+
+    /**
+     * Executions of the statements within one period of the window.
+     */
+    private static class Slot {
+        final long epoch;
+        final Map<String, ShapeStats> shapes = new ConcurrentHashMap<>();
+
+        Slot(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+    /**
+     * Executions of one shape within a slot.
+     */
+    private static class ShapeStats {
+        final LongAdder executions = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final LongAdder rows = new LongAdder();
+        final Map<String, LongAdder> endpointNanos = new ConcurrentHashMap<>();
+
+        void record(String endpoint, long elapsed, long rowCount) {
+            executions.increment();
+            nanos.add(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+            rows.add(rowCount);
+            LongAdder endpointTotal = endpointNanos.get(endpoint);
+            if (endpointTotal == null) {
+                endpointTotal = endpointNanos.size() < MAX_ENDPOINTS_PER_SHAPE
+                        ? endpointNanos.computeIfAbsent(endpoint, key -> new LongAdder())
+                        : endpointNanos.computeIfAbsent(OTHER, key -> new LongAdder());
+            }
+            endpointTotal.add(elapsed);
+        }
+    }
+
+    /**
+     * Executions of one shape over the slots of the window.
+     */
+    private static class Merged {
+        long executions;
+        long nanos;
+        long maxNanos;
+        long rows;
+        final Map<String, Long> endpointNanos = new HashMap<>();
+
+        void add(ShapeStats stats) {
+            executions += stats.executions.sum();
+            nanos += stats.nanos.sum();
+            maxNanos = Math.max(maxNanos, stats.maxNanos.get());
+            rows += stats.rows.sum();
+            stats.endpointNanos.forEach((endpoint, total) -> endpointNanos.merge(endpoint, total.sum(), Long::sum));
+        }
+
+        SqlShapeStatsDTO toDto(String shape) {
+            SqlShapeStatsDTO dto = new SqlShapeStatsDTO();
+            dto.setShape(shape);
+            dto.setExecutions(executions);
+            dto.setTotalMillis(nanos / 1e6);
+            dto.setMeanMillis(executions == 0 ? 0 : nanos / 1e6 / executions);
+            dto.setMaxMillis(maxNanos / 1e6);
+            dto.setRows(rows);
+            dto.setMeanRows(executions == 0 ? 0 : (double) rows / executions);
+            Map<String, Double> endpoints = new LinkedHashMap<>();
+            endpointNanos.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .forEach(entry -> endpoints.put(entry.getKey(), entry.getValue() / 1e6));
+            dto.setEndpointMillis(endpoints);
+            return dto;
+        }
+    }
+}
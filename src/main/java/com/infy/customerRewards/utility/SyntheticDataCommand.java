@@ -0,0 +1,122 @@
+package com.infy.customerRewards.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+
+/**
+ * Command line entry point of the {@link SyntheticDataGenerator}, active when rewards.generate.customers is set:
+ * {@code java -jar customerRewards.jar --spring.main.web-application-type=none --rewards.generate.customers=1000000
+ * --rewards.generate.transactions=50000000}.
+ * Inserts the dataset into the configured database, spread evenly over the shards if sharded, or writes
+ * LOAD DATA files to rewards.generate.output instead; then exits. Customer IDs continue after the highest existing one.
+ * Progress is logged at info level (--logging.level.com.infy.customerRewards=info).
+ * In-memory structures loaded at startup that do not follow the transactions table only see the rows after a restart.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+@ConditionalOnProperty(name = "rewards.generate.customers")
+public class SyntheticDataCommand implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataCommand.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final ConfigurableApplicationContext context;
+    private final int customers;
+    private final long transactions;
+    private final double zipfExponent;
+    private final int months;
+    private final long seed;
+    private final int rowsPerStatement;
+    private final int statementsPerCommit;
+    private final String output;
+
+    /**
+     * Constructs a SyntheticDataCommand.
+     *
+     * @param jdbcTemplate template on the database to fill
+     * @param shardRouter router whose shards are all filled
+     * @param context the application context, closed once the dataset is generated
+     * @param customers the number of customers to generate over all shards
+     * @param transactions the approximate number of transactions to generate over all shards
+     * @param zipfExponent the exponent of the Zipf distribution of customer activity
+     * @param months the number of months, up to today, the transactions are dated in
+     * @param seed the seed of the random generator
+     * @param rowsPerStatement the number of rows per INSERT statement
+     * @param statementsPerCommit the number of INSERT statements per JDBC batch and database transaction
+     * @param output directory to write LOAD DATA files to instead of inserting, empty to insert
+     */
+    public SyntheticDataCommand(JdbcTemplate jdbcTemplate,
+                                ShardRouter shardRouter,
+                                ConfigurableApplicationContext context,
+                                @Value("${rewards.generate.customers}") int customers,
+                                @Value("${rewards.generate.transactions:0}") long transactions,
+                                @Value("${rewards.generate.zipf-exponent:1.0}") double zipfExponent,
+                                @Value("${rewards.generate.months:24}") int months,
+                                @Value("${rewards.generate.seed:1}") long seed,
+                                @Value("${rewards.generate.rows-per-statement:500}") int rowsPerStatement,
+                                @Value("${rewards.generate.statements-per-commit:20}") int statementsPerCommit,
+                                @Value("${rewards.generate.output:}") String output) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.context = context;
+        this.customers = customers;
+        this.transactions = transactions > 0 ? transactions : customers * 20L;
+        this.zipfExponent = zipfExponent;
+        this.months = months;
+        this.seed = seed;
+        this.rowsPerStatement = rowsPerStatement;
+        this.statementsPerCommit = statementsPerCommit;
+        this.output = output;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusMonths(months).plusDays(1);
+        int shards = shardRouter.getShardCount();
+        long start = System.nanoTime();
+        long[] generated = new long[1];
+        shardRouter.forEachShard(shard -> {
+            int shardCustomers = customers / shards + (shard < customers % shards ? 1 : 0);
+            if (shardCustomers == 0) {
+                return;
+            }
+            SyntheticDataGenerator generator = new SyntheticDataGenerator(shardCustomers,
+                    transactions * shardCustomers / customers, zipfExponent, from, to, seed + shard);
+            long firstId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) + 1 from customers", Long.class);
+            firstId = Math.max(firstId, shardRouter.isSharded() ? ShardRouter.firstCustomerId(shard) : 1);
+            try (SyntheticRowSink sink = sink(shard)) {
+                generated[0] += generator.generate(firstId, sink);
+            }
+            log.info("Generated {} customers from ID {} on shard {}", shardCustomers, firstId, shard);
+        });
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        log.info("Generated {} customers and {} transactions in {} ms ({} rows/s){}", customers, generated[0], millis,
+                (customers + generated[0]) * 1000 / millis, output.isEmpty() ? "" : " to " + Paths.get(output).toAbsolutePath());
+        System.exit(SpringApplication.exit(context));
+    }
+
+    private SyntheticRowSink sink(int shard) {
+        if (output.isEmpty()) {
+            return new MultiRowInsertSink(jdbcTemplate.getDataSource(), rowsPerStatement, statementsPerCommit);
+        }
+        Path directory = Paths.get(output);
+        return new BulkLoadFileSink(shardRouter.isSharded() ? directory.resolve("shard-" + shard) : directory);
+    }
+}
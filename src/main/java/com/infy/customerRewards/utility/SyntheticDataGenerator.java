@@ -0,0 +1,162 @@
+package com.infy.customerRewards.utility;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of realistic customers and transactions for benchmarks and index work on large volumes.
+ * <ul>
+ *   <li>Customer activity follows a Zipf distribution: the customer of activity rank k gets transactions in
+ *       proportion to 1/k^s, so a few heavy customers hold a large share of the rows while every customer,
+ *       having been created with transactions, has at least one. Ranks are scattered over the customer IDs.</li>
+ *   <li>Dates are seasonal: more transactions in the November and December holidays and on weekends,
+ *       fewer after the holidays.</li>
+ *   <li>Amounts are long-tailed, log-normal around a median of $45, with a share of them clustered around
+ *       the $50 and $100 points thresholds where off-by-one errors of the reward rules show up.</li>
+ * </ul>
+ * Rows are streamed to a {@link SyntheticRowSink} as they are generated, so memory does not grow with the volume:
+ * every customer first, so a sink can rely on a transaction's customer existing, then the transactions grouped
+ * by customer in ID order.
+ * The same seed always generates the same rows.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class SyntheticDataGenerator {
+
+    /** BCrypt hash of a phone number, as stored by createCustomer, without paying for one hash per customer */
+    public static final String PHONE_HASH = "$2a$10$g8S4kPvrcZZPFt2IMLJGAOhPfQHcQcGPsUxn4uhfmBNXxU7..UeyO";
+
+    private static final String[] PRODUCTS = { "Groceries", "Coffee", "Fuel", "Pharmacy", "Books", "Shoes", "Jacket",
+            "Headphones", "Keyboard", "Mouse", "Monitor", "Phone", "Tablet", "Laptop", "Television", "Furniture" };
+
+    /** Relative activity of January to December */
+    private static final double[] MONTH_SEASONALITY = { 0.75, 0.7, 0.85, 0.9, 0.95, 1.0, 1.0, 1.05, 0.95, 1.0, 1.3, 1.6 };
+    private static final double WEEKEND_SEASONALITY = 1.25;
+
+    private static final double THRESHOLD_SHARE = 0.3;
+    private static final double THRESHOLD_SPREAD = 3.0;
+    private static final double LOG_MEDIAN_AMOUNT = Math.log(45);
+    private static final double LOG_AMOUNT_SIGMA = 1.0;
+    private static final double MIN_AMOUNT = 0.5;
+    private static final double MAX_AMOUNT = 10_000;
+
+    private final int customers;
+    private final long transactions;
+    private final double zipfExponent;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long seed;
+
+    /**
+     * Constructs a SyntheticDataGenerator.
+     *
+     * @param customers the number of customers to generate
+     * @param transactions the approximate number of transactions to generate, at least one per customer
+     * @param zipfExponent the exponent s of the customer activity distribution, 0 for equally active customers
+     * @param from the first transaction date
+     * @param to the last transaction date
+     * @param seed the seed of the random generator
+     */
+    public SyntheticDataGenerator(int customers, long transactions, double zipfExponent, LocalDate from, LocalDate to,
+                                  long seed) {
+        if (customers <= 0 || transactions < 0 || zipfExponent < 0 || to.isBefore(from)) {
+            throw new IllegalArgumentException("Invalid synthetic dataset: " + customers + " customers, "
+                    + transactions + " transactions, exponent " + zipfExponent + ", dates " + from + " to " + to);
+        }
+        this.customers = customers;
+        this.transactions = transactions;
+        this.zipfExponent = zipfExponent;
+        this.from = from;
+        this.to = to;
+        this.seed = seed;
+    }
+
+    /**
+     * Generates the customers, with consecutive IDs, then their transactions.
+     *
+     * @param firstCustomerId the ID of the first customer
+     * @param sink the destination of the rows, not closed
+     * @return the number of transactions generated
+     */
+    public long generate(long firstCustomerId, SyntheticRowSink sink) {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < customers; i++) {
+            long id = firstCustomerId + i;
+            sink.customer(id, "Customer " + id, PHONE_HASH);
+        }
+
+        double[] dayWeights = cumulativeDayWeights();
+        double harmonic = 0;
+        for (int rank = 1; rank <= customers; rank++) {
+            harmonic += Math.pow(rank, -zipfExponent);
+        }
+        long stride = rankStride();
+        long offset = Math.floorMod(seed, customers);
+
+        long generated = 0;
+        for (int i = 0; i < customers; i++) {
+            long rank = (i * stride + offset) % customers + 1;
+            double expected = transactions * Math.pow(rank, -zipfExponent) / harmonic;
+            long count = Math.max(1, (long) expected + (random.nextDouble() < expected % 1 ? 1 : 0));
+            for (long j = 0; j < count; j++) {
+                sink.transaction(firstCustomerId + i, date(random, dayWeights),
+                        PRODUCTS[random.nextInt(PRODUCTS.length)], amount(random));
+            }
+            generated += count;
+        }
+        return generated;
+    }
+
+    /**
+     * Returns a stride coprime with the number of customers, so that customer i gets rank (i * stride + offset) mod n,
+     * a permutation that scatters the heavy customers over the ID range.
+     */
+    private long rankStride() {
+        long stride = (long) (customers * 0.618) | 1;
+        while (gcd(stride, customers) != 1) {
+            stride += 2;
+        }
+        return stride;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Returns the running sum of the seasonal weights of the days from the first to the last date.
+     */
+    private double[] cumulativeDayWeights() {
+        int days = (int) ChronoUnit.DAYS.between(from, to) + 1;
+        double[] cumulative = new double[days];
+        double total = 0;
+        for (int day = 0; day < days; day++) {
+            LocalDate date = from.plusDays(day);
+            boolean weekend = date.getDayOfWeek() == DayOfWeek.SATURDAY || date.getDayOfWeek() == DayOfWeek.SUNDAY;
+            total += MONTH_SEASONALITY[date.getMonthValue() - 1] * (weekend ? WEEKEND_SEASONALITY : 1);
+            cumulative[day] = total;
+        }
+        return cumulative;
+    }
+
+    private LocalDate date(SplittableRandom random, double[] cumulativeDayWeights) {
+        double target = random.nextDouble() * cumulativeDayWeights[cumulativeDayWeights.length - 1];
+        int day = Arrays.binarySearch(cumulativeDayWeights, target);
+        return from.plusDays(day >= 0 ? day : -day - 1);
+    }
+
+    private static double amount(SplittableRandom random) {
+        double amount;
+        if (random.nextDouble() < THRESHOLD_SHARE) {
+            amount = (random.nextBoolean() ? 50 : 100) + random.nextGaussian() * THRESHOLD_SPREAD;
+        } else {
+            amount = Math.exp(LOG_MEDIAN_AMOUNT + LOG_AMOUNT_SIGMA * random.nextGaussian());
+        }
+        return Math.round(Math.max(MIN_AMOUNT, Math.min(amount, MAX_AMOUNT)) * 100) / 100.0;
+    }
+}
@@ -0,0 +1,39 @@
+package com.infy.customerRewards.utility;
+
+import java.time.LocalDate;
+
+/**
+ * Destination of the rows produced by {@link SyntheticDataGenerator}.
+ * All customers are written before the first transaction.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public interface SyntheticRowSink extends AutoCloseable {
+
+    /**
+     * Writes a customer.
+     *
+     * @param id the customer ID
+     * @param custName the customer name
+     * @param phoneNo the encoded phone number
+     */
+    void customer(long id, String custName, String phoneNo);
+
+    /**
+     * Writes a transaction.
+     *
+     * @param customerId the ID of the customer, already written
+     * @param date the transaction date
+     * @param product the product bought
+     * @param amount the amount in dollars, rounded to cents
+     */
+    void transaction(long customerId, LocalDate date, String product, double amount);
+
+    /**
+     * Writes the rows still buffered and releases the underlying resources.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,90 @@
+package com.infy.customerRewards.utility;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.util.function.SingletonSupplier;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+
+/**
+ * Traces requests through the controller, service, calculator and repository stages.
+ * Every request is observed by a ServerHttpObservationFilter, ahead of the security filters, continuing the
+ * caller's trace from its traceparent header. The service and calculator observe their stages themselves,
+ * repositories are observed by a {@link RepositoryObservationInterceptor} added to their proxies, and response
+ * encoding by {@link ResponseEncodingObservation}. When rewards.tracing.enabled is set, spans are recorded by a
+ * {@link SpanRecordingHandler} added to the application's ObservationRegistry, whichever configuration provides
+ * it, and handed to every {@link SpanExporter} bean. Tracing is off by default.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Registry of the observations when no other configuration, such as Spring Boot's actuator, provides one.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public ObservationRegistry observationRegistry() {
+        return ObservationRegistry.create();
+    }
+
+    /**
+     * Adds span recording to the ObservationRegistry bean if rewards.tracing.enabled is set.
+     * Spring Security observes each of its filters once a registry exists; those observations are left out of the spans.
+     */
+    @Bean
+    public static BeanPostProcessor spanRecordingPostProcessor(ObjectProvider<SpanExporter> spanExporters,
+                                                               @Value("${rewards.tracing.enabled:false}") boolean enabled,
+                                                               @Value("${rewards.tracing.sampling.probability:0.1}") double probability) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (enabled && bean instanceof ObservationRegistry registry) {
+                    registry.observationConfig()
+                            .observationPredicate((name, context) -> !name.startsWith("spring.security."))
+                            .observationHandler(new SpanRecordingHandler(probability, spanExporters.orderedStream().toList()));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<ServerHttpObservationFilter> serverHttpObservationFilter(ObservationRegistry observationRegistry) {
+        FilterRegistrationBean<ServerHttpObservationFilter> registration =
+                new FilterRegistrationBean<>(new ServerHttpObservationFilter(observationRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    /**
+     * Adds a {@link RepositoryObservationInterceptor} to every Spring Data repository as it is created.
+     * The registry is looked up on first use, so that post-processing does not create it early.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryObservationPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        SingletonSupplier<ObservationRegistry> registry =
+                SingletonSupplier.of(() -> observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxyFactory, information) -> proxyFactory.addAdvice(new RepositoryObservationInterceptor(
+                                    registry, information.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,416 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier of the transactions table.
+ * Closed months older than the hot period are moved out of the database into one compressed, columnar
+ * {@link ArchiveSegment} per month; segments past the retention period are deleted.
+ * Segment files are kept in a directory shared by every instance, such as a network file system mount, and
+ * listed in the archive_segments table; each instance caches them as local files that are read through a
+ * memory map. Each instance picks up segments written or deleted by the others on a schedule and publishes a
+ * {@link TransactionsArchivedEvent} for every month it picks up.
+ * <p>
+ * A month's segment is listed, and exactly the rows written to it deleted, in one database transaction, so
+ * rows added to the month while it is archived stay in the database and a failed run leaves no trace.
+ * Whether a month is served from the archive is decided per month by the archive_segments table, read in the
+ * caller's transaction, so it always matches the rows the caller reads from the database; the database is
+ * read for every month, which serves rows left in or added to an archived month as well.
+ * Entities are detached as they are streamed, so archiving a month does not fill the persistence context.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class TransactionArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionArchive.class);
+
+    private static final String SEGMENT_PREFIX = "transactions-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String STAGED_SUFFIX = ".staged";
+
+    // archived rows are deleted by ID in batches of this size
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path directory;
+    private final Path sharedDirectory;
+    private final boolean enabled;
+    private final int hotMonths;
+    private final int retentionMonths;
+
+    private final ConcurrentSkipListMap<YearMonth, ArchiveSegment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructs a TransactionArchive and, if enabled, opens the archived segments.
+     *
+     * @param transactionRepository repository of the hot transactions
+     * @param entityManager entity manager the archived transactions are detached from
+     * @param jdbcTemplate template on the database holding the shared archive_segments table
+     * @param transactionManager transaction manager used when archiving a month
+     * @param eventPublisher publisher of the TransactionsArchivedEvent of every archived month
+     * @param directory directory caching the segment files of this instance
+     * @param sharedDirectory directory holding the segment files of every instance
+     * @param enabled whether closed months are archived on schedule and served from the archive
+     * @param hotMonths number of months, including the current one, kept in the database
+     * @param retentionMonths number of months after which archived transactions are deleted
+     */
+    public TransactionArchive(TransactionRepository transactionRepository,
+                              EntityManager entityManager,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ApplicationEventPublisher eventPublisher,
+                              @Value("${rewards.archive.directory:archive}") String directory,
+                              @Value("${rewards.archive.shared-directory:archive-shared}") String sharedDirectory,
+                              @Value("${rewards.archive.enabled:false}") boolean enabled,
+                              @Value("${rewards.archive.hot-months:18}") int hotMonths,
+                              @Value("${rewards.archive.retention-months:84}") int retentionMonths) {
+        this.transactionRepository = transactionRepository;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.directory = Paths.get(directory);
+        this.sharedDirectory = Paths.get(sharedDirectory);
+        this.enabled = enabled;
+        this.hotMonths = hotMonths;
+        this.retentionMonths = retentionMonths;
+        if (enabled) {
+            sync(false);
+        }
+    }
+
+    /**
+     * Checks whether months are archived and served from the archive.
+     *
+     * @return true if the archive is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Checks whether a month has been archived, by this or another instance as of the last refresh.
+     *
+     * @param month the month
+     * @return true if the month is served from the archive
+     */
+    public boolean isArchived(YearMonth month) {
+        return segments.containsKey(month);
+    }
+
+    /**
+     * Reads the archived transactions of a customer within a date range from the memory-mapped segments.
+     * The archived months of the range are those listed in the archive_segments table as the caller's
+     * transaction sees it, picking up segments archived by other instances since the last refresh; the rows
+     * the caller reads from the database for the same range are then exactly those not archived.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param from the start date (inclusive)
+     * @param to the end date (inclusive)
+     * @return the archived transactions in date order; the customer is not set
+     */
+    public List<Transaction> load(Long customerId, LocalDate from, LocalDate to) {
+        List<Transaction> transactions = new ArrayList<>();
+        for (ArchiveSegment segment : archivedSegments(YearMonth.from(from), YearMonth.from(to))) {
+            transactions.addAll(segment.find(customerId, from, to));
+        }
+        return transactions;
+    }
+
+    /**
+     * Returns the segments of the archived months within a range of months.
+     * Ranges within the hot period, after every segment of this instance, are not looked up.
+     */
+    private List<ArchiveSegment> archivedSegments(YearMonth first, YearMonth last) {
+        if (!enabled || (!first.isBefore(firstHotMonth()) && segments.ceilingKey(first) == null)) {
+            return List.of();
+        }
+        List<YearMonth> archived = jdbcTemplate.queryForList(
+                "select archive_month from archive_segments where archive_month between ? and ? order by archive_month",
+                String.class, first.toString(), last.toString()).stream().map(YearMonth::parse).toList();
+        if (!segments.keySet().containsAll(archived)) {
+            sync(true);
+        }
+        List<ArchiveSegment> archivedSegments = new ArrayList<>();
+        for (YearMonth month : archived) {
+            ArchiveSegment segment = segments.get(month);
+            if (segment == null) {
+                throw new IllegalStateException("Archive segment of " + month + " is listed but could not be opened");
+            }
+            archivedSegments.add(segment);
+        }
+        return archivedSegments;
+    }
+
+    /**
+     * Visits every archived row of every month, oldest month first.
+     *
+     * @param consumer receives the customer ID, date and amount of each row
+     */
+    public void forEachArchivedRow(ArchiveSegment.RowConsumer consumer) {
+        for (ArchiveSegment segment : segments.values()) {
+            segment.forEachRow(consumer);
+        }
+    }
+
+    /**
+     * Archives every closed month older than the hot period and deletes segments past the retention period.
+     */
+    @Scheduled(cron = "${rewards.archive.cron:0 0 3 * * *}")
+    public void archiveClosedMonths() {
+        if (!enabled) {
+            return;
+        }
+        sync(true);
+        YearMonth firstHotMonth = firstHotMonth();
+        LocalDate oldest = transactionRepository.findOldestDate();
+        if (oldest != null) {
+            for (YearMonth month = YearMonth.from(oldest); month.isBefore(firstHotMonth); month = month.plusMonths(1)) {
+                archiveMonth(month);
+            }
+        }
+        YearMonth expired = YearMonth.now().minusMonths(retentionMonths);
+        for (YearMonth month : new ArrayList<>(segments.headMap(expired).keySet())) {
+            deleteSegment(month);
+        }
+    }
+
+    /**
+     * Picks up the segments archived or deleted by other instances.
+     */
+    @Scheduled(fixedDelayString = "${rewards.archive.refresh-interval-ms:60000}",
+            initialDelayString = "${rewards.archive.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (enabled) {
+            sync(true);
+        }
+    }
+
+    /**
+     * Archives a month, unless it already is: writes its transactions to a segment in the shared directory,
+     * lists the segment in the shared table and deletes the rows written to it from the database, all in one
+     * database transaction. Rows found in an already archived month were added after it was archived; they are
+     * kept in the database, which they are served from.
+     *
+     * @param month the month to archive
+     */
+    public synchronized void archiveMonth(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.atEndOfMonth();
+
+        if (segments.containsKey(month)) {
+            long leftover = transactionRepository.countByDateBetween(from, to);
+            if (leftover > 0) {
+                log.info("{} transactions of {} were added after the month was archived; they are kept in and "
+                        + "served from the database", leftover, month);
+            }
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            Files.createDirectories(sharedDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create archive directories " + directory + " and " + sharedDirectory, e);
+        }
+        Path staged = directory.resolve(SEGMENT_PREFIX + month + SEGMENT_SUFFIX + STAGED_SUFFIX);
+        // a name of its own, so that instances archiving the same month never overwrite each other's segment
+        Path shared = sharedDirectory.resolve(SEGMENT_PREFIX + month + "-" + UUID.randomUUID() + SEGMENT_SUFFIX);
+        long rows;
+        try {
+            rows = transactionTemplate.execute(status -> storeAndDelete(month, staged, shared));
+        } catch (DuplicateKeyException e) {
+            log.info("{} was archived by another instance", month);
+            deleteQuietly(staged);
+            deleteQuietly(shared);
+            sync(true);
+            return;
+        } catch (RuntimeException e) {
+            deleteQuietly(staged);
+            deleteQuietly(shared);
+            throw e;
+        }
+
+        Path file = segmentFile(month);
+        try {
+            Files.move(staged, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to move archive segment into place: " + file, e);
+        }
+        segments.put(month, ArchiveSegment.open(month, file));
+        log.info("Archived {} transactions of {} to {}", rows, month, file);
+        eventPublisher.publishEvent(new TransactionsArchivedEvent(month));
+    }
+
+    /**
+     * Writes a month to a staged segment file, copies it to the shared directory, lists it in the shared table
+     * and deletes the written rows. Runs within the archiving transaction.
+     */
+    private long storeAndDelete(YearMonth month, Path staged, Path shared) {
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.atEndOfMonth();
+        LongStream.Builder ids = LongStream.builder();
+        long rows;
+        try (Stream<Transaction> transactions = transactionRepository.streamByDateBetweenOrderByCustomer(from, to)) {
+            rows = ArchiveSegment.write(staged, transactions.peek(transaction -> {
+                ids.add(transaction.getId());
+                entityManager.detach(transaction);
+            }).iterator());
+        }
+
+        try {
+            Files.copy(staged, shared);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy archive segment to " + shared, e);
+        }
+        jdbcTemplate.update("insert into archive_segments (archive_month, row_count, file_name, created_at) "
+                + "values (?, ?, ?, ?)", month.toString(), rows, shared.getFileName().toString(),
+                Timestamp.from(Instant.now()));
+
+        long[] archived = ids.build().toArray();
+        int deleted = 0;
+        for (int i = 0; i < archived.length; i += DELETE_BATCH_SIZE) {
+            List<Long> batch = Arrays.stream(archived, i, Math.min(i + DELETE_BATCH_SIZE, archived.length)).boxed().toList();
+            deleted += transactionRepository.deleteArchived(from, to, batch);
+        }
+        log.info("Deleted {} archived transactions of {} from the database", deleted, month);
+        return rows;
+    }
+
+    /**
+     * Mirrors the shared archive_segments table: opens the segments of months archived since the last sync,
+     * copying those not cached locally from the shared directory, and drops the segments deleted from the table.
+     *
+     * @param publish whether to publish a TransactionsArchivedEvent for every month picked up
+     */
+    private synchronized void sync(boolean publish) {
+        Map<YearMonth, SharedSegment> shared = new TreeMap<>();
+        jdbcTemplate.query("select archive_month, row_count, file_name from archive_segments",
+                row -> { shared.put(YearMonth.parse(row.getString(1)), new SharedSegment(row.getLong(2), row.getString(3))); });
+
+        for (YearMonth month : new ArrayList<>(segments.keySet())) {
+            if (!shared.containsKey(month)) {
+                segments.remove(month);
+                deleteQuietly(segmentFile(month));
+                log.info("Dropped archive segment of {} deleted by another instance", month);
+            }
+        }
+        for (Map.Entry<YearMonth, SharedSegment> entry : shared.entrySet()) {
+            YearMonth month = entry.getKey();
+            if (segments.containsKey(month)) {
+                continue;
+            }
+            ArchiveSegment segment = openCached(month, entry.getValue().rowCount());
+            if (segment == null) {
+                segment = ArchiveSegment.open(month, download(month, entry.getValue().fileName()));
+            }
+            segments.put(month, segment);
+            if (publish) {
+                eventPublisher.publishEvent(new TransactionsArchivedEvent(month));
+            }
+        }
+    }
+
+    /**
+     * Opens the local copy of a segment if it holds the expected number of rows.
+     *
+     * @return the segment, or null if there is no usable local copy
+     */
+    private ArchiveSegment openCached(YearMonth month, long rowCount) {
+        Path file = segmentFile(month);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            ArchiveSegment segment = ArchiveSegment.open(month, file);
+            return segment.getRowCount() == rowCount ? segment : null;
+        } catch (IllegalStateException | UncheckedIOException e) {
+            log.warn("Replacing unreadable archive segment {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private Path download(YearMonth month, String fileName) {
+        Path file = segmentFile(month);
+        Path staged = file.resolveSibling(file.getFileName() + STAGED_SUFFIX);
+        try {
+            Files.createDirectories(directory);
+            Files.copy(sharedDirectory.resolve(fileName), staged, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(staged, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy archive segment of " + month + " from " + sharedDirectory, e);
+        }
+        log.info("Copied archive segment of {} to {}", month, file);
+        return file;
+    }
+
+    private synchronized void deleteSegment(YearMonth month) {
+        List<String> fileNames = jdbcTemplate.queryForList(
+                "select file_name from archive_segments where archive_month = ?", String.class, month.toString());
+        jdbcTemplate.update("delete from archive_segments where archive_month = ?", month.toString());
+        segments.remove(month);
+        deleteQuietly(segmentFile(month));
+        fileNames.forEach(fileName -> deleteQuietly(sharedDirectory.resolve(fileName)));
+        log.info("Deleted archive segment of {} past the retention period", month);
+    }
+
+    private YearMonth firstHotMonth() {
+        return YearMonth.now().minusMonths(hotMonths - 1L);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    private Path segmentFile(YearMonth month) {
+        return directory.resolve(SEGMENT_PREFIX + month + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Row of the archive_segments table.
+     */
+    private record SharedSegment(long rowCount, String fileName) {
+    }
+}
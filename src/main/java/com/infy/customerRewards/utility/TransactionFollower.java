@@ -0,0 +1,143 @@
+package com.infy.customerRewards.utility;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows the rows appended to the transactions table of every shard, for in-memory views of the table that
+ * must include the transactions saved by every instance, not only their own.
+ * Like {@link PointsIndex}, rows are applied in ID order past a high-water mark per shard, here kept in memory:
+ * the view loads each shard up to the mark set by {@link #mark()} and then catches up from it.
+ * A missing ID is waited for until the gap timeout, as rows of a batch still being committed can become
+ * visible after later ones; after that the ID is taken to be rolled back.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public class TransactionFollower {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionFollower.class);
+
+    private static final int CATCH_UP_BATCH = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final long gapTimeoutNanos;
+
+    private final long[] highWaterMarks;
+    // When catch-up first stopped at the missing ID after each shard's high-water mark, zero if none is missing
+    private final long[] gapSince;
+
+    /**
+     * Receives the rows applied by a catch-up.
+     */
+    @FunctionalInterface
+    public interface RowConsumer {
+
+        /**
+         * Applies one transaction.
+         *
+         * @param customerId the customer of the transaction
+         * @param date the transaction date
+         * @param amount the transaction amount
+         */
+        void accept(long customerId, LocalDate date, double amount);
+    }
+
+    /**
+     * Constructs a TransactionFollower starting before the first transaction of every shard.
+     *
+     * @param jdbcTemplate template on the transactions table
+     * @param shardRouter router whose shards are all followed
+     * @param gapTimeoutMs how long a missing transaction ID is waited for before it is skipped
+     */
+    public TransactionFollower(JdbcTemplate jdbcTemplate, ShardRouter shardRouter, long gapTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(gapTimeoutMs);
+        this.highWaterMarks = new long[shardRouter.getShardCount()];
+        this.gapSince = new long[shardRouter.getShardCount()];
+    }
+
+    /**
+     * Moves the high-water mark of every shard to its highest transaction ID, before a load that reads each
+     * shard up to that ID. A row below it that is still uncommitted during the load is missed.
+     *
+     * @return the high-water mark of each shard, indexed by shard number
+     */
+    public synchronized long[] mark() {
+        shardRouter.forEachShard(shard -> {
+            highWaterMarks[shard] = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from transactions", Long.class);
+            gapSince[shard] = 0;
+        });
+        return highWaterMarks.clone();
+    }
+
+    /**
+     * Applies the transactions saved on every shard since its high-water mark, whichever instance saved them.
+     *
+     * @param consumer receives each row applied
+     * @return the number of rows applied
+     */
+    public synchronized int catchUp(RowConsumer consumer) {
+        int[] applied = { 0 };
+        shardRouter.forEachShard(shard -> applied[0] += catchUp(shard, consumer));
+        return applied[0];
+    }
+
+    private int catchUp(int shard, RowConsumer consumer) {
+        int total = 0;
+        while (true) {
+            List<FollowedRow> rows = jdbcTemplate.query(
+                    "select id, customer_id, date, amount from transactions where id > ? order by id limit ?",
+                    (row, index) -> new FollowedRow(row.getLong(1), row.getLong(2),
+                            row.getObject(3, LocalDate.class), row.getDouble(4)),
+                    highWaterMarks[shard], CATCH_UP_BATCH);
+            int applied = rows.isEmpty() ? 0 : apply(shard, rows, consumer);
+            total += applied;
+            if (applied < CATCH_UP_BATCH) {
+                return total;
+            }
+        }
+    }
+
+    /**
+     * Applies rows in ID order and moves the high-water mark past them, stopping at a missing ID that has not
+     * yet timed out.
+     */
+    private int apply(int shard, List<FollowedRow> rows, RowConsumer consumer) {
+        int applied = 0;
+        for (FollowedRow row : rows) {
+            if (row.id() != highWaterMarks[shard] + 1 && !gapTimedOut(shard)) {
+                break;
+            }
+            gapSince[shard] = 0;
+            consumer.accept(row.customerId(), row.date(), row.amount());
+            highWaterMarks[shard] = row.id();
+            applied++;
+        }
+        return applied;
+    }
+
+    private boolean gapTimedOut(int shard) {
+        long now = System.nanoTime();
+        if (gapSince[shard] == 0) {
+            gapSince[shard] = now;
+        }
+        if (now - gapSince[shard] < gapTimeoutNanos) {
+            return false;
+        }
+        log.debug("Skipping the transaction IDs after {} on shard {}, which were never committed",
+                highWaterMarks[shard], shard);
+        return true;
+    }
+
+    private record FollowedRow(long id, long customerId, LocalDate date, double amount) {
+    }
+}
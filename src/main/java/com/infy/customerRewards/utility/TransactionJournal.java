@@ -0,0 +1,784 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.dto.TransactionDTO;
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.exception.CustomException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Write-behind ingestion of transactions through a local append-only journal.
+ * Appends are acknowledged once they are durable in the journal, not once they are in the database:
+ * a single writer thread takes every append waiting at that moment, writes them together and forces
+ * the file once for all of them (group commit), so concurrent clients share the cost of one fsync.
+ * A scheduled flush then inserts the journaled transactions into the database in large JDBC batches,
+ * advancing a checkpoint row in the same database transaction, and deletes journal segments that are
+ * fully flushed. On startup the journal is replayed from the checkpoint, so transactions acknowledged
+ * before a crash are inserted exactly once. A record cut short by a crash fails its checksum and is
+ * truncated; it was never acknowledged.
+ * The idempotency key of an append and the fingerprint of its transactions are stored with each of its
+ * transactions. The transactions of an append are always flushed in the same database transaction, which also
+ * inserts the key into ingest_keys, or skips them if another instance already stored the key; see
+ * {@link IdempotencyKeys}. The same transaction writes the reward events of the inserted transactions to the
+ * {@link RewardEventOutbox}; it runs at read committed isolation, so the outbox reads totals other instances committed.
+ * With several shards each batch is split by the customers' shards and every shard commits its part together
+ * with its own checkpoint; a part already committed is skipped when a batch is retried after another shard failed.
+ * Every journal directory has its own ID, generated on first start and kept in {@value #JOURNAL_ID_FILE}, which
+ * names its checkpoint row, so instances sharing a database do not overwrite each other's checkpoint.
+ * A batch the database rejects as invalid, or that fails {@code max-attempts} times in a row for any reason other
+ * than the database being unavailable, is split between appends until the offending append is isolated; it is
+ * moved to {@value #DEAD_LETTER_FILE} in the journal directory and skipped, so one bad record cannot hold up the
+ * journal.
+ *
+ * <pre>
+ * record: length:int crc32:int sequence:long customerId:long epochDay:int amountCents:long product:utf
+ *         idempotencyKey:utf (empty if none) fingerprint:utf (empty if and only if there is no idempotency key)
+ * </pre>
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class TransactionJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionJournal.class);
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String JOURNAL_ID_FILE = "journal.id";
+    private static final String DEAD_LETTER_FILE = "dead-letters.log";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_GROUP = 4096;
+    private static final int MAX_PRODUCT_LENGTH = 100;
+    private static final double MAX_AMOUNT = 99_999_999.99;
+
+    private static final String INSERT_TRANSACTION =
+            "insert into transactions (customer_id, date, product, amount) values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdempotencyKeys idempotencyKeys;
+    private final RewardEventOutbox rewardEventOutbox;
+    private final ShardRouter shardRouter;
+    private final Path directory;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long segmentBytes;
+    private final int maxAttempts;
+
+    private final BlockingQueue<PendingAppend> appends = new LinkedBlockingQueue<>();
+
+    // Durable in the journal but not yet in the database, in sequence order; guarded by itself
+    private final ArrayDeque<JournalEntry> unflushed = new ArrayDeque<>();
+
+    // Journal segment files keyed by the sequence of their first record
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+
+    private final Object flushLock = new Object();
+
+    // Sequence number of the last transaction committed to each shard; guarded by flushLock once started
+    private long[] shardCheckpoints;
+    // First sequence number of the part that last failed on each shard, and how often in a row; guarded by flushLock
+    private long[] failedSequences;
+    private int[] failedAttempts;
+    private String checkpoint;
+
+    // Only used by the writer thread once started
+    private FileChannel channel;
+    private long channelBytes;
+    private long nextSequence;
+
+    private volatile long flushedSequence;
+    private volatile boolean running;
+    private Thread writer;
+
+    /**
+     * Constructs a TransactionJournal.
+     *
+     * @param jdbcTemplate template on the primary database
+     * @param transactionManager transaction manager for the batch inserts
+     * @param eventPublisher publisher of the transactions once they are in the database
+     * @param idempotencyKeys store of the idempotency keys of the appends
+     * @param rewardEventOutbox outbox of the reward events of the inserted transactions
+     * @param shardRouter router of the transactions to their customers' shards
+     * @param directory directory holding the journal segments
+     * @param enabled whether the journal accepts transactions
+     * @param batchSize maximum number of transactions inserted per database transaction
+     * @param segmentBytes size after which appends continue in a new segment file
+     * @param maxAttempts number of failed flushes after which a batch is split to isolate bad transactions
+     */
+    public TransactionJournal(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ApplicationEventPublisher eventPublisher,
+                              IdempotencyKeys idempotencyKeys,
+                              RewardEventOutbox rewardEventOutbox,
+                              ShardRouter shardRouter,
+                              @Value("${rewards.ingest.journal.directory:journal}") String directory,
+                              @Value("${rewards.ingest.journal.enabled:false}") boolean enabled,
+                              @Value("${rewards.ingest.journal.batch-size:5000}") int batchSize,
+                              @Value("${rewards.ingest.journal.segment-bytes:67108864}") long segmentBytes,
+                              @Value("${rewards.ingest.journal.max-attempts:5}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.eventPublisher = eventPublisher;
+        this.idempotencyKeys = idempotencyKeys;
+        this.rewardEventOutbox = rewardEventOutbox;
+        this.shardRouter = shardRouter;
+        this.directory = Paths.get(directory);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.segmentBytes = segmentBytes;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Replays the journal from the database checkpoint and starts the writer thread.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create journal directory " + directory, e);
+        }
+        checkpoint = readJournalId();
+        shardCheckpoints = readCheckpoints();
+        failedSequences = new long[shardCheckpoints.length];
+        failedAttempts = new int[shardCheckpoints.length];
+        flushedSequence = Arrays.stream(shardCheckpoints).min().orElse(0);
+        long lastSequence = replay();
+        nextSequence = Math.max(lastSequence, Arrays.stream(shardCheckpoints).max().orElse(0)) + 1;
+        openSegment();
+        running = true;
+        writer = new Thread(this::writeLoop, "transaction-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Transaction journal {} started at sequence {} with {} transactions to flush",
+                directory, nextSequence, getUnflushedCount());
+    }
+
+    /**
+     * Stops accepting appends, writes the ones already queued and flushes what it can to the database.
+     * Appends still queued once the writer has stopped are failed rather than left waiting.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<PendingAppend> abandoned = new ArrayList<>();
+        appends.drainTo(abandoned);
+        abandoned.forEach(pending -> pending.done().completeExceptionally(
+                new CustomException("The transaction journal has stopped")));
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close journal segment: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Appends transactions of a customer and waits until they are durable in the journal.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param idempotencyKey the client's idempotency key, already claimed, or null
+     * @param transactions the transactions to ingest; date, amount and product must be set
+     * @return the journal sequence number of the last appended transaction
+     * @throws CustomException if the journal is not running or a transaction lacks its date, amount or product,
+     *         or has one that does not fit the transactions table
+     */
+    public long append(Long customerId, String idempotencyKey, List<TransactionDTO> transactions) {
+        if (!running) {
+            throw new CustomException("The transaction journal is disabled, set rewards.ingest.journal.enabled=true");
+        }
+        if (transactions == null || transactions.isEmpty()) {
+            throw new CustomException("At least one transaction is required");
+        }
+        for (TransactionDTO transaction : transactions) {
+            if (transaction.getDate() == null || transaction.getAmount() == null || transaction.getProduct() == null) {
+                throw new CustomException("Every transaction needs a date, amount and product");
+            }
+            if (transaction.getProduct().length() > MAX_PRODUCT_LENGTH) {
+                throw new CustomException("A product name has at most " + MAX_PRODUCT_LENGTH + " characters");
+            }
+            if (!(Math.abs(transaction.getAmount()) <= MAX_AMOUNT)) {
+                throw new CustomException("A transaction amount must be between -" + MAX_AMOUNT + " and " + MAX_AMOUNT);
+            }
+        }
+        PendingAppend pending = new PendingAppend(customerId, idempotencyKey, transactions, new CompletableFuture<>());
+        appends.add(pending);
+        // the writer drains the queue after it sees the journal stop, so only an append it can miss is withdrawn here
+        if (!running && appends.remove(pending)) {
+            throw new CustomException("The transaction journal has stopped");
+        }
+        try {
+            return pending.done().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CustomException("Interrupted while appending to the transaction journal");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to append to the transaction journal", e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingAppend> group = new ArrayList<>();
+        while (running || !appends.isEmpty()) {
+            try {
+                PendingAppend first = appends.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                appends.drainTo(group, MAX_GROUP - 1);
+                groupCommit(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Writes a group of appends with one write and one force, then acknowledges all of them.
+     * On failure the segment is cut back to where the group started, so later groups are not
+     * written behind a partial record.
+     */
+    private void groupCommit(List<PendingAppend> group) {
+        long start = channelBytes;
+        long sequence = nextSequence;
+        List<JournalEntry> entries = new ArrayList<>();
+        long[] lastSequences = new long[group.size()];
+        int written;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (int i = 0; i < group.size(); i++) {
+                PendingAppend pending = group.get(i);
+                List<TransactionDTO> transactions = pending.transactions();
+                String fingerprint = pending.idempotencyKey() == null ? null : IdempotencyKeys.fingerprint(transactions);
+                for (TransactionDTO transaction : transactions) {
+                    JournalEntry entry = new JournalEntry(sequence++, pending.customerId(), transaction.getDate(),
+                            Math.round(transaction.getAmount() * 100), transaction.getProduct(),
+                            pending.idempotencyKey(), fingerprint);
+                    encode(entry, bytes);
+                    entries.add(entry);
+                }
+                lastSequences[i] = sequence - 1;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            written = buffer.remaining();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write {} appends to the transaction journal", group.size(), e);
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException truncateFailure) {
+                // The partial record stays at the end of this segment, where replay truncates it
+                log.error("Failed to cut back journal segment, continuing in a new one", truncateFailure);
+                nextSequence = Math.max(sequence, nextSequence + 1);
+                openSegment();
+            }
+            group.forEach(pending -> pending.done().completeExceptionally(e));
+            return;
+        }
+
+        channelBytes = start + written;
+        nextSequence = sequence;
+        synchronized (unflushed) {
+            unflushed.addAll(entries);
+        }
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).done().complete(lastSequences[i]);
+        }
+        if (channelBytes >= segmentBytes) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close journal segment: {}", e.getMessage());
+            }
+            openSegment();
+        }
+    }
+
+    /**
+     * Inserts the journaled transactions into the database in batches, each together with the checkpoint,
+     * and publishes them once committed. A failed batch stays in the journal and is retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${rewards.ingest.journal.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (flushLock) {
+            while (true) {
+                List<JournalEntry> batch = new ArrayList<>();
+                synchronized (unflushed) {
+                    // an append is never cut in two, so its key is stored in the same database transaction as all its rows
+                    Iterator<JournalEntry> iterator = unflushed.iterator();
+                    while (iterator.hasNext()) {
+                        JournalEntry entry = iterator.next();
+                        if (batch.size() >= batchSize && !sameAppend(batch.get(batch.size() - 1), entry)) {
+                            break;
+                        }
+                        batch.add(entry);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                long last = batch.get(batch.size() - 1).sequence();
+                Map<Integer, List<JournalEntry>> byShard = new LinkedHashMap<>();
+                for (JournalEntry entry : batch) {
+                    int shard = shardRouter.shardOf(entry.customerId());
+                    if (entry.sequence() > shardCheckpoints[shard]) {
+                        byShard.computeIfAbsent(shard, s -> new ArrayList<>()).add(entry);
+                    }
+                }
+                for (Map.Entry<Integer, List<JournalEntry>> part : byShard.entrySet()) {
+                    if (!shardRouter.onShard(part.getKey(), () -> flush(part.getKey(), part.getValue()))) {
+                        return;
+                    }
+                }
+                synchronized (unflushed) {
+                    for (int i = 0; i < batch.size(); i++) {
+                        unflushed.poll();
+                    }
+                }
+                flushedSequence = last;
+                deleteFlushedSegments();
+            }
+        }
+    }
+
+    /**
+     * Inserts the transactions of one shard with its checkpoint and publishes them once committed.
+     * Transactions whose idempotency key another instance already stored are skipped.
+     * A part that fails as invalid is split in halves between appends, down to single appends that are dead-lettered.
+     *
+     * @return false if the insert failed and is to be retried later
+     */
+    private boolean flush(int shard, List<JournalEntry> entries) {
+        long last = entries.get(entries.size() - 1).sequence();
+        Map<IdempotencyKeys.Key, IdempotencyKeys.StoredKey> keys = new LinkedHashMap<>();
+        for (JournalEntry entry : entries) {
+            if (entry.idempotencyKey() != null) {
+                keys.put(keyOf(entry), new IdempotencyKeys.StoredKey(keyOf(entry),
+                        entry.fingerprint(), entry.sequence()));
+            }
+        }
+        List<JournalEntry> inserted = new ArrayList<>(entries.size());
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Set<IdempotencyKeys.Key> duplicates = idempotencyKeys.store(keys.values());
+                inserted.clear();
+                for (JournalEntry entry : entries) {
+                    if (entry.idempotencyKey() == null || !duplicates.contains(keyOf(entry))) {
+                        inserted.add(entry);
+                    }
+                }
+                if (!inserted.isEmpty()) {
+                    jdbcTemplate.batchUpdate(INSERT_TRANSACTION, inserted, inserted.size(), (statement, entry) -> {
+                        statement.setLong(1, entry.customerId());
+                        statement.setObject(2, entry.date());
+                        statement.setString(3, entry.product());
+                        statement.setBigDecimal(4, BigDecimal.valueOf(entry.cents(), 2));
+                    });
+                    rewardEventOutbox.record(byCustomer(inserted));
+                }
+                updateCheckpoint(last);
+            });
+        } catch (DataAccessException e) {
+            if (!isRejected(shard, entries.get(0).sequence(), e)) {
+                log.warn("Failed to flush {} journaled transactions to shard {}, retrying later: {}",
+                        entries.size(), shard, e.getMessage());
+                return false;
+            }
+            int split = splitPoint(entries);
+            if (split < 0) {
+                return deadLetter(shard, entries, e);
+            }
+            return flush(shard, entries.subList(0, split)) && flush(shard, entries.subList(split, entries.size()));
+        }
+        shardCheckpoints[shard] = last;
+        idempotencyKeys.flushed(keys.keySet());
+        if (!inserted.isEmpty()) {
+            publish(inserted);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the boundary between two appends closest to the middle of a part.
+     *
+     * @return the index of the first entry after the boundary, or -1 if the part is a single append
+     */
+    private static int splitPoint(List<JournalEntry> entries) {
+        int middle = entries.size() / 2;
+        for (int distance = 0; distance <= middle; distance++) {
+            for (int split : new int[] { middle - distance, middle + distance }) {
+                if (split > 0 && split < entries.size() && !sameAppend(entries.get(split - 1), entries.get(split))) {
+                    return split;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Tells whether two consecutive entries belong to the same keyed append. Appends without a key are not told
+     * apart, as each of their transactions stands on its own.
+     */
+    private static boolean sameAppend(JournalEntry previous, JournalEntry next) {
+        return previous.idempotencyKey() != null && previous.customerId() == next.customerId()
+                && previous.idempotencyKey().equals(next.idempotencyKey());
+    }
+
+    private static IdempotencyKeys.Key keyOf(JournalEntry entry) {
+        return new IdempotencyKeys.Key(entry.customerId(), entry.idempotencyKey());
+    }
+
+    /**
+     * Tells whether a failed part is to be split rather than retried as a whole: the database rejected its
+     * contents, or it failed too often in a row although the database was reachable and had the expected tables.
+     */
+    private boolean isRejected(int shard, long firstSequence, DataAccessException e) {
+        if (e instanceof DataIntegrityViolationException) {
+            return true;
+        }
+        if (e instanceof TransientDataAccessException || e instanceof DataAccessResourceFailureException
+                || e instanceof InvalidDataAccessResourceUsageException) {
+            return false;
+        }
+        if (failedSequences[shard] != firstSequence) {
+            failedSequences[shard] = firstSequence;
+            failedAttempts[shard] = 0;
+        }
+        return ++failedAttempts[shard] >= maxAttempts;
+    }
+
+    /**
+     * Moves an append the database keeps rejecting to the dead-letter file and advances the checkpoint past it.
+     * Its idempotency key is released, so a corrected retry is accepted.
+     *
+     * @return false if the checkpoint could not be advanced and the append is to be retried later
+     */
+    private boolean deadLetter(int shard, List<JournalEntry> entries, DataAccessException cause) {
+        JournalEntry last = entries.get(entries.size() - 1);
+        try (FileChannel deadLetters = FileChannel.open(directory.resolve(DEAD_LETTER_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (JournalEntry entry : entries) {
+                encode(entry, bytes);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                deadLetters.write(buffer);
+            }
+            deadLetters.force(false);
+            transactionTemplate.executeWithoutResult(status -> updateCheckpoint(last.sequence()));
+        } catch (IOException | DataAccessException e) {
+            log.warn("Failed to dead-letter journaled transactions {} to {}, retrying later: {}",
+                    entries.get(0).sequence(), last.sequence(), e.getMessage());
+            return false;
+        }
+        log.error("Moved journaled transactions {} to {} of customer {} to {}: {}", entries.get(0).sequence(),
+                last.sequence(), last.customerId(), directory.resolve(DEAD_LETTER_FILE), cause.getMessage());
+        shardCheckpoints[shard] = last.sequence();
+        if (last.idempotencyKey() != null) {
+            idempotencyKeys.flushed(List.of(keyOf(last)));
+        }
+        return true;
+    }
+
+    private void updateCheckpoint(long sequence) {
+        jdbcTemplate.update("update journal_checkpoint set sequence = ? where name = ?", sequence, checkpoint);
+    }
+
+    /**
+     * Publishes the committed transactions of each customer. A failure does not affect the other customers'
+     * events, and {@link IsolatingEventMulticaster} keeps it from reaching the other listeners of the same event.
+     */
+    private void publish(List<JournalEntry> batch) {
+        byCustomer(batch).forEach((customerId, transactions) -> {
+            try {
+                eventPublisher.publishEvent(new TransactionsRecordedEvent(customerId, transactions));
+            } catch (RuntimeException e) {
+                log.error("Failed to publish the recorded transactions of customer {}", customerId, e);
+            }
+        });
+    }
+
+    private static Map<Long, List<Transaction>> byCustomer(List<JournalEntry> entries) {
+        Map<Long, List<Transaction>> byCustomer = new LinkedHashMap<>();
+        for (JournalEntry entry : entries) {
+            Transaction transaction = new Transaction();
+            transaction.setDate(entry.date());
+            transaction.setAmount(entry.cents() / 100.0);
+            transaction.setProduct(entry.product());
+            byCustomer.computeIfAbsent(entry.customerId(), id -> new ArrayList<>()).add(transaction);
+        }
+        return byCustomer;
+    }
+
+    /**
+     * Deletes every segment, other than the one being written, whose records are all flushed.
+     */
+    private void deleteFlushedSegments() {
+        Map.Entry<Long, Path> segment = segments.firstEntry();
+        while (segment != null) {
+            Long next = segments.higherKey(segment.getKey());
+            if (next == null || next - 1 > flushedSequence) {
+                return;
+            }
+            segments.remove(segment.getKey());
+            try {
+                Files.deleteIfExists(segment.getValue());
+            } catch (IOException e) {
+                log.warn("Failed to delete flushed journal segment {}: {}", segment.getValue(), e.getMessage());
+            }
+            segment = segments.firstEntry();
+        }
+    }
+
+    /**
+     * Gets the number of acknowledged transactions not yet inserted into the database.
+     * @return the number of unflushed transactions
+     */
+    public int getUnflushedCount() {
+        synchronized (unflushed) {
+            return unflushed.size();
+        }
+    }
+
+    /**
+     * Reads the ID of the journal directory, generating one on first start.
+     */
+    private String readJournalId() {
+        Path file = directory.resolve(JOURNAL_ID_FILE);
+        try {
+            if (Files.exists(file)) {
+                return Files.readString(file).trim();
+            }
+            String id = UUID.randomUUID().toString();
+            try (FileChannel idFile = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                idFile.write(ByteBuffer.wrap(id.getBytes(StandardCharsets.US_ASCII)));
+                idFile.force(false);
+            }
+            return id;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read journal ID " + file, e);
+        }
+    }
+
+    private long[] readCheckpoints() {
+        long[] checkpoints = new long[shardRouter.getShardCount()];
+        shardRouter.forEachShard(shard -> checkpoints[shard] = readCheckpoint());
+        return checkpoints;
+    }
+
+    private long readCheckpoint() {
+        List<Long> sequence = jdbcTemplate.queryForList(
+                "select sequence from journal_checkpoint where name = ?", Long.class, checkpoint);
+        if (sequence.isEmpty()) {
+            jdbcTemplate.update("insert into journal_checkpoint (name, sequence) values (?, 0)", checkpoint);
+            return 0;
+        }
+        return sequence.get(0);
+    }
+
+    /**
+     * Reads every segment, queues the records after the checkpoint for flushing and truncates torn records.
+     *
+     * @return the highest sequence number found in the journal, or 0 if it is empty
+     */
+    private long replay() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list journal directory " + directory, e);
+        }
+
+        long lastSequence = 0;
+        for (Path file : segments.values()) {
+            try {
+                ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+                while (true) {
+                    int position = data.position();
+                    JournalEntry entry = decode(data);
+                    if (entry == null) {
+                        if (position < data.limit()) {
+                            log.warn("Truncating torn record at byte {} of journal segment {}", position, file);
+                            try (FileChannel torn = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                                torn.truncate(position);
+                            }
+                        }
+                        break;
+                    }
+                    lastSequence = Math.max(lastSequence, entry.sequence());
+                    if (entry.sequence() > shardCheckpoints[shardRouter.shardOf(entry.customerId())]) {
+                        unflushed.add(entry);
+                        if (entry.idempotencyKey() != null) {
+                            idempotencyKeys.restore(new IdempotencyKeys.StoredKey(keyOf(entry),
+                                    entry.fingerprint(), entry.sequence()));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to replay journal segment " + file, e);
+            }
+        }
+        return lastSequence;
+    }
+
+    private void openSegment() {
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence, SEGMENT_SUFFIX));
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channelBytes = channel.size();
+            channel.position(channelBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open journal segment " + file, e);
+        }
+        segments.put(nextSequence, file);
+    }
+
+    private static void encode(JournalEntry entry, ByteArrayOutputStream out) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        DataOutputStream data = new DataOutputStream(payload);
+        data.writeLong(entry.sequence());
+        data.writeLong(entry.customerId());
+        data.writeInt((int) entry.date().toEpochDay());
+        data.writeLong(entry.cents());
+        data.writeUTF(entry.product());
+        data.writeUTF(entry.idempotencyKey() == null ? "" : entry.idempotencyKey());
+        data.writeUTF(entry.fingerprint() == null ? "" : entry.fingerprint());
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        DataOutputStream record = new DataOutputStream(out);
+        record.writeInt(bytes.length);
+        record.writeInt((int) crc.getValue());
+        record.write(bytes);
+    }
+
+    /**
+     * Decodes the record at the buffer's position.
+     *
+     * @return the record, or null at the end of the data or at a record that is incomplete or fails its checksum
+     */
+    private static JournalEntry decode(ByteBuffer data) {
+        if (data.remaining() < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        int start = data.position();
+        int length = data.getInt();
+        int checksum = data.getInt();
+        if (length <= 0 || length > data.remaining()) {
+            data.position(start);
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data.array(), data.position(), length);
+        if ((int) crc.getValue() != checksum) {
+            data.position(start);
+            return null;
+        }
+        try (DataInputStream payload = new DataInputStream(
+                new ByteArrayInputStream(data.array(), data.position(), length))) {
+            data.position(data.position() + length);
+            long sequence = payload.readLong();
+            long customerId = payload.readLong();
+            LocalDate date = LocalDate.ofEpochDay(payload.readInt());
+            long cents = payload.readLong();
+            String product = payload.readUTF();
+            String idempotencyKey = payload.readUTF();
+            String fingerprint = payload.readUTF();
+            if (idempotencyKey.isEmpty() != fingerprint.isEmpty()) {
+                throw new IllegalStateException("Journal record " + sequence + " has an idempotency key without fingerprint or the reverse");
+            }
+            return new JournalEntry(sequence, customerId, date, cents, product,
+                    idempotencyKey.isEmpty() ? null : idempotencyKey, fingerprint.isEmpty() ? null : fingerprint);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Journal record passed its checksum but could not be decoded", e);
+        }
+    }
+
+    private record PendingAppend(Long customerId, String idempotencyKey, List<TransactionDTO> transactions,
+                                 CompletableFuture<Long> done) {
+    }
+
+    private record JournalEntry(long sequence, long customerId, LocalDate date, long cents, String product,
+                                String idempotencyKey, String fingerprint) {
+    }
+}
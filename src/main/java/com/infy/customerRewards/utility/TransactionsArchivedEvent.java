@@ -0,0 +1,16 @@
+package com.infy.customerRewards.utility;
+
+import java.time.YearMonth;
+
+/**
+ * Application event published once the transactions of a month have moved from the database to the archive,
+ * on the instance that archived it and on every other instance when it picks up the month's segment.
+ * Lets in-memory views of the transactions table drop or re-read the month.
+ *
+ * @param month the archived month
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public record TransactionsArchivedEvent(YearMonth month) {
+}
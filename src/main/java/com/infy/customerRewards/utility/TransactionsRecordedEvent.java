@@ -0,0 +1,19 @@
+package com.infy.customerRewards.utility;
+
+import com.infy.customerRewards.entity.Transaction;
+
+import java.util.List;
+
+/**
+ * Application event published after transactions of a customer have been saved.
+ * Lets in-memory state derived from this instance's transactions, such as the rewards cache, stay current
+ * without re-reading them.
+ *
+ * @param customerId the unique identifier of the customer
+ * @param transactions the saved transactions
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+public record TransactionsRecordedEvent(Long customerId, List<Transaction> transactions) {
+}
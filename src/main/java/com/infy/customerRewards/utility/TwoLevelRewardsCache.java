@@ -0,0 +1,245 @@
+package com.infy.customerRewards.utility;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infy.customerRewards.dto.RewardResponseDTO;
+import com.infy.customerRewards.dto.RewardsCacheStatsDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Two-level cache of calculated rewards shared by every instance of the service.
+ * A small near cache in this instance sits in front of a shared {@link RewardsCacheTier}.
+ * <p>
+ * Every customer has a version stamp in the shared tier, increased whenever the customer's transactions
+ * are recorded and broadcast to every instance. Shared entries are keyed by the version they were calculated
+ * at, and near entries are dropped once a newer version is known, so a value calculated before a change is
+ * never served after it. The version is read before calculating, so a change during the calculation leaves
+ * the result behind under the old version. An instance re-reads a customer's version once it is older than
+ * the version TTL, which bounds stale reads should a broadcast be missed.
+ * Returned values are shared between callers and must not be modified.
+ *
+ * @author Infy
+ * @version 1.0
+ * @since 2024
+ */
+@Component
+public class TwoLevelRewardsCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TwoLevelRewardsCache.class);
+
+    private final RewardsCacheTier tier;
+    private final ObjectMapper cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+    private final boolean enabled;
+    private final int maxNearCustomers;
+    private final long versionTtlNanos;
+    private final Duration remoteTtl;
+
+    // Least recently used customers are evicted first; guarded by itself
+    private final LinkedHashMap<Long, NearCustomer> near;
+
+    private final LongAdder nearHits = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder versionChecks = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Constructs a TwoLevelRewardsCache and subscribes to the invalidations of every instance.
+     *
+     * @param tier the shared tier, null if none is configured
+     * @param enabled whether rewards are cached
+     * @param maxNearCustomers number of customers whose rewards are kept in this instance
+     * @param versionTtl time after which a customer's version is re-read from the shared tier
+     * @param remoteTtl time after which a value expires from the shared tier
+     * @throws IllegalStateException if the cache is enabled without a shared tier
+     */
+    public TwoLevelRewardsCache(@Nullable RewardsCacheTier tier,
+                                @Value("${rewards.cache.enabled:false}") boolean enabled,
+                                @Value("${rewards.cache.near.max-customers:10000}") int maxNearCustomers,
+                                @Value("${rewards.cache.near.version-ttl:5s}") Duration versionTtl,
+                                @Value("${rewards.cache.remote-ttl:10m}") Duration remoteTtl) {
+        this.tier = tier;
+        this.enabled = enabled;
+        this.maxNearCustomers = maxNearCustomers;
+        this.versionTtlNanos = versionTtl.toNanos();
+        this.remoteTtl = remoteTtl;
+        this.near = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, NearCustomer> eldest) {
+                return size() > TwoLevelRewardsCache.this.maxNearCustomers;
+            }
+        };
+        if (enabled) {
+            if (tier == null) {
+                throw new IllegalStateException("rewards.cache.enabled requires a shared tier in rewards.cache.remote");
+            }
+            tier.subscribe(this::onInvalidation);
+        }
+    }
+
+    /**
+     * Returns the cached rewards of a customer, calculating and caching them on a miss.
+     *
+     * @param customerId the unique identifier of the customer
+     * @param key identifies the request among the customer's cached rewards
+     * @param loader calculates the rewards on a miss
+     * @return the rewards
+     */
+    public RewardResponseDTO get(long customerId, String key, Supplier<RewardResponseDTO> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        long version;
+        RewardResponseDTO value;
+        synchronized (near) {
+            NearCustomer customer = near.get(customerId);
+            if (customer != null && System.nanoTime() - customer.checkedAt < versionTtlNanos) {
+                version = customer.version;
+                value = customer.values.get(key);
+                if (value != null) {
+                    nearHits.increment();
+                    return value;
+                }
+            } else {
+                version = -1;
+            }
+        }
+        if (version < 0) {
+            versionChecks.increment();
+            version = refreshVersion(customerId, tier.version(customerId));
+        }
+
+        String remoteKey = "rewards:" + customerId + ":" + version + ":" + key;
+        byte[] bytes = tier.get(remoteKey);
+        if (bytes != null) {
+            try {
+                value = cborMapper.readValue(bytes, RewardResponseDTO.class);
+                remoteHits.increment();
+                putNear(customerId, version, key, value);
+                return value;
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable cached rewards {}: {}", remoteKey, e.getMessage());
+            }
+        }
+
+        misses.increment();
+        value = loader.get();
+        try {
+            tier.put(remoteKey, cborMapper.writeValueAsBytes(value), remoteTtl);
+        } catch (IOException e) {
+            log.warn("Failed to cache rewards {}: {}", remoteKey, e.getMessage());
+        }
+        putNear(customerId, version, key, value);
+        return value;
+    }
+
+    /**
+     * Records the version read from the shared tier, dropping the customer's near entries if it is newer.
+     *
+     * @return the newest version known for the customer
+     */
+    private long refreshVersion(long customerId, long version) {
+        synchronized (near) {
+            NearCustomer customer = near.computeIfAbsent(customerId, id -> new NearCustomer(version));
+            if (version > customer.version) {
+                customer.version = version;
+                customer.values.clear();
+            }
+            customer.checkedAt = System.nanoTime();
+            return customer.version;
+        }
+    }
+
+    /**
+     * Keeps a value in the near cache unless the customer's version moved on while it was read or calculated.
+     */
+    private void putNear(long customerId, long version, String key, RewardResponseDTO value) {
+        synchronized (near) {
+            NearCustomer customer = near.get(customerId);
+            if (customer != null && customer.version == version) {
+                customer.values.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Invalidates a customer's cached rewards in every instance once new transactions are recorded.
+     *
+     * @param event the recorded transactions
+     */
+    @EventListener
+    public void onTransactionsRecorded(TransactionsRecordedEvent event) {
+        invalidate(event.customerId());
+    }
+
+    /**
+     * Increases a customer's version, making every cached value of the customer unreachable in every instance.
+     *
+     * @param customerId the unique identifier of the customer
+     */
+    public void invalidate(long customerId) {
+        if (!enabled) {
+            return;
+        }
+        // Applied here as well, as the broadcast may reach this instance later than the next read
+        onInvalidation(customerId, tier.invalidate(customerId));
+    }
+
+    private void onInvalidation(long customerId, long version) {
+        invalidations.increment();
+        synchronized (near) {
+            NearCustomer customer = near.get(customerId);
+            if (customer != null && version > customer.version) {
+                customer.version = version;
+                customer.values.clear();
+                customer.checkedAt = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Reports how often reads were served by each level.
+     *
+     * @return the cache statistics of this instance
+     */
+    public RewardsCacheStatsDTO getStats() {
+        RewardsCacheStatsDTO stats = new RewardsCacheStatsDTO();
+        stats.setEnabled(enabled);
+        synchronized (near) {
+            stats.setNearCustomers(near.size());
+        }
+        stats.setNearHits(nearHits.sum());
+        stats.setRemoteHits(remoteHits.sum());
+        stats.setMisses(misses.sum());
+        stats.setVersionChecks(versionChecks.sum());
+        stats.setInvalidations(invalidations.sum());
+        return stats;
+    }
+
+    /**
+     * Version stamp of a customer as last known to this instance, and the values cached under it.
+     */
+    private static final class NearCustomer {
+
+        private final Map<String, RewardResponseDTO> values = new HashMap<>();
+        private long version;
+        private long checkedAt = System.nanoTime();
+
+        private NearCustomer(long version) {
+            this.version = version;
+        }
+    }
+}
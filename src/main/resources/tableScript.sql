@@ -1,24 +1,104 @@
+-- Customers Table
+-- The application validates this schema against its entities at startup (spring.jpa.hibernate.ddl-auto=validate)
+-- rather than altering it, so column names and types must match the Customer and Transaction entities.
 CREATE TABLE customers (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
-    name VARCHAR(100) NOT NULL
+    cust_name VARCHAR(100) NOT NULL,
+    phone_no VARCHAR(100)
 );
 
-INSERT INTO customers (name) VALUES 
+INSERT INTO customers (cust_name) VALUES 
 ('Ashwini More'),
 ('Prem More'),
 ('Raju More');
 
 -- Transactions Table
+-- Range partitioned by month on date so that date-bounded queries only read the touched partitions
+-- and expired months can be detached without a bulk DELETE (see PartitionMaintenanceTask).
+-- MySQL requires the partitioning column in every unique key, hence the (id, date) primary key,
+-- and does not support foreign keys on partitioned tables, so customer_id is not constrained.
+-- Instead, RewardServiceImpl.ingestTransactions checks that the customer exists before a transaction is
+-- journaled, and customers are never deleted. Rows violating the former constraint can be listed with
+--   SELECT t.id, t.date FROM transactions t LEFT JOIN customers c ON c.id = t.customer_id WHERE c.id IS NULL;
 CREATE TABLE transactions (
-    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    id BIGINT AUTO_INCREMENT,
     customer_id BIGINT NOT NULL,
     date DATE NOT NULL,
     product VARCHAR(100) NOT NULL,
     amount DECIMAL(10,2) NOT NULL,
-    CONSTRAINT fk_customer FOREIGN KEY (customer_id) REFERENCES customers(id)
+    PRIMARY KEY (id, date),
+    KEY idx_transactions_customer_date (customer_id, date)
+)
+PARTITION BY RANGE COLUMNS (date) (
+    PARTITION p202501 VALUES LESS THAN ('2025-02-01'),
+    PARTITION p202502 VALUES LESS THAN ('2025-03-01'),
+    PARTITION p202503 VALUES LESS THAN ('2025-04-01'),
+    PARTITION p202504 VALUES LESS THAN ('2025-05-01'),
+    PARTITION p202505 VALUES LESS THAN ('2025-06-01'),
+    PARTITION p202506 VALUES LESS THAN ('2025-07-01'),
+    PARTITION p202507 VALUES LESS THAN ('2025-08-01'),
+    PARTITION p202508 VALUES LESS THAN ('2025-09-01'),
+    PARTITION p202509 VALUES LESS THAN ('2025-10-01'),
+    PARTITION p202510 VALUES LESS THAN ('2025-11-01'),
+    PARTITION p202511 VALUES LESS THAN ('2025-12-01'),
+    PARTITION p202512 VALUES LESS THAN ('2026-01-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
 );
 
 INSERT INTO transactions (customer_id, date, product, amount) VALUES 
 (1, '2025-10-01', 'Laptop', 1200.00),
 (2, '2025-10-05', 'Mouse', 25.50),
-(3, '2025-10-03', 'Keyboard', 45.00)
+(3, '2025-10-03', 'Keyboard', 45.00);
+
+-- Archive Segments Table
+-- Archived months, listed by TransactionArchive in the same database transaction that deletes the month's
+-- archived rows. Each names the month's compressed, columnar segment file in the shared archive directory,
+-- which every instance caches as a local file; the segment itself is not stored in the database.
+CREATE TABLE archive_segments (
+    archive_month CHAR(7) NOT NULL PRIMARY KEY,
+    row_count BIGINT NOT NULL,
+    file_name VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+-- Journal Checkpoint Table
+-- Sequence number of the last journaled transaction inserted by TransactionJournal, advanced in the
+-- same database transaction as the batch insert so that replay after a restart inserts nothing twice.
+-- One row per journal directory, named by the ID in its journal.id file.
+CREATE TABLE journal_checkpoint (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    sequence BIGINT NOT NULL
+);
+
+-- Ingest Keys Table
+-- Client-supplied idempotency keys of ingested transactions per customer, written by the same flush as the
+-- transactions, with the SHA-256 fingerprint of those transactions.
+-- Kept for rewards.ingest.idempotency.retention-days; see IdempotencyKeys.
+CREATE TABLE ingest_keys (
+    customer_id BIGINT NOT NULL,
+    idempotency_key VARCHAR(64) NOT NULL,
+    payload_hash VARCHAR(64) NOT NULL,
+    sequence BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (customer_id, idempotency_key)
+);
+
+-- Reward Events Table
+-- Outbox of "points earned" events written by RewardEventOutbox in the transaction inserting their transactions,
+-- and deleted once delivered to the sink.
+CREATE TABLE reward_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    customer_id BIGINT NOT NULL,
+    reward_month CHAR(7) NOT NULL,
+    delta INT NOT NULL,
+    month_points BIGINT NOT NULL,
+    lifetime_points BIGINT NOT NULL,
+    occurred_at TIMESTAMP NOT NULL
+);
+
+-- Lock row of the outbox drain: only the instance holding it delivers the outbox, so events stay in order.
+CREATE TABLE reward_event_drain (
+    id INT PRIMARY KEY
+);
+
+INSERT INTO reward_event_drain (id) VALUES (1);
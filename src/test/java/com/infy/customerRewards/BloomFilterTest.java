@@ -0,0 +1,51 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import com.infy.customerRewards.utility.BloomFilter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("Added keys are always found and the measured false-positive rate stays near the target")
+    void testFalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (int i = 0; i < 100_000; i++) {
+            filter.put("pos-" + i);
+        }
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(filter.mightContain("pos-" + i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 100_000; i < 300_000; i++) {
+            if (filter.mightContain("pos-" + i)) {
+                falsePositives++;
+            }
+        }
+        double measured = falsePositives / 200_000.0;
+
+        assertTrue(measured < 0.015, "measured false-positive rate " + measured);
+        assertEquals(0.01, filter.estimatedFalsePositiveProbability(), 0.003);
+        assertEquals(7, filter.getHashFunctions());
+        // about 9.6 bits per key for 1%
+        assertTrue(filter.getMemoryBytes() < 125_000);
+    }
+
+    @Test
+    @DisplayName("Overfilling the filter raises the estimated false-positive probability")
+    void testSaturation() {
+        BloomFilter filter = new BloomFilter(1_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("key-" + i);
+        }
+        assertEquals(10_000, filter.getInsertions());
+        assertTrue(filter.estimatedFalsePositiveProbability() > 0.1);
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(10, 1.0));
+    }
+}
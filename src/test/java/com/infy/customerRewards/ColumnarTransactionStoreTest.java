@@ -0,0 +1,174 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.modelmapper.ModelMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.infy.customerRewards.dto.RewardsReportDTO;
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.exception.CustomException;
+import com.infy.customerRewards.utility.ColumnarTransactionStore;
+import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.ShardRouter;
+import com.infy.customerRewards.utility.TransactionsArchivedEvent;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import static com.infy.customerRewards.TestTransactions.insert;
+import static com.infy.customerRewards.TestTransactions.transactionsTable;
+import static com.infy.customerRewards.TestTransactions.tx;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarTransactionStoreTest {
+
+    private final RewardCalculator rewardCalculator = new RewardCalculator(new ModelMapper());
+    private final JdbcTemplate jdbc = transactionsTable();
+
+    private ColumnarTransactionStore store() {
+        ColumnarTransactionStore store = new ColumnarTransactionStore(jdbc, ShardRouter.single(), true, 30_000);
+        store.load();
+        return store;
+    }
+
+    /**
+     * Saves transactions, as any instance would, and lets the store catch up with them.
+     */
+    private void record(ColumnarTransactionStore store, long customerId, Transaction... transactions) {
+        insert(jdbc, customerId, List.of(transactions));
+        store.catchUp();
+    }
+
+    @Test
+    @DisplayName("Scan totals match RewardCalculator for every customer")
+    void testTotalsMatchRewardCalculator() {
+        ColumnarTransactionStore store = store();
+        Random random = new Random(42);
+        LocalDate from = LocalDate.of(2025, 3, 1);
+        LocalDate to = LocalDate.of(2025, 5, 31);
+        Map<Long, Long> expected = new HashMap<>();
+
+        for (long customerId = 1; customerId <= 2000; customerId++) {
+            List<Transaction> transactions = new ArrayList<>();
+            for (int i = 0; i < 15; i++) {
+                LocalDate date = LocalDate.of(2025, 1, 1).plusDays(random.nextInt(200));
+                double amount = random.nextInt(30000) / 100.0 - 10;
+                transactions.add(tx(date, amount));
+                if (!date.isBefore(from) && !date.isAfter(to)) {
+                    expected.merge(customerId, (long) rewardCalculator.calculatePoints(amount), Long::sum);
+                }
+            }
+            insert(jdbc, customerId, transactions);
+        }
+        store.catchUp();
+        expected.values().removeIf(points -> points == 0);
+
+        RewardsReportDTO report = store.report(from, to, 5000);
+
+        assertEquals(30000, report.getScannedTransactions());
+        assertEquals(expected.size(), report.getCustomersWithPoints());
+        assertEquals(expected.values().stream().mapToLong(Long::longValue).sum(), report.getTotalPoints());
+        report.getTopCustomers().forEach(c -> assertEquals(expected.get(c.getCustomerId()), c.getPoints()));
+    }
+
+    @Test
+    @DisplayName("Top customers are ordered by points and limited")
+    void testTopCustomers() {
+        ColumnarTransactionStore store = store();
+        LocalDate date = LocalDate.of(2025, 8, 10);
+        record(store, 1L, tx(date, 120.0));   // 90
+        record(store, 2L, tx(date, 75.0));    // 25
+        record(store, 3L, tx(date, 200.0));   // 250
+        record(store, 1L, tx(date, 100.5));   // 51
+        record(store, 4L, tx(date, 40.0));    // 0
+
+        RewardsReportDTO report = store.report(date, date, 2);
+
+        assertEquals(3, report.getCustomersWithPoints());
+        assertEquals(416, report.getTotalPoints());
+        assertEquals(2, report.getTopCustomers().size());
+        assertEquals(3L, report.getTopCustomers().get(0).getCustomerId());
+        assertEquals(250L, report.getTopCustomers().get(0).getPoints());
+        assertEquals(1L, report.getTopCustomers().get(1).getCustomerId());
+        assertEquals(141L, report.getTopCustomers().get(1).getPoints());
+    }
+
+    @Test
+    @DisplayName("Loads the transactions table at startup")
+    void testLoadFromDatabase() {
+        // date is a keyword in H2 but not in MySQL
+        SingleConnectionDataSource database = new SingleConnectionDataSource(
+                "jdbc:h2:mem:columnar;NON_KEYWORDS=DATE", "sa", "", true);
+        try {
+            JdbcTemplate jdbc = new JdbcTemplate(database);
+            jdbc.execute("create table transactions (id bigint auto_increment primary key, customer_id bigint, "
+                    + "date date, product varchar(100), amount decimal(10,2))");
+            jdbc.update("insert into transactions (customer_id, date, product, amount) values "
+                    + "(1, '2025-10-01', 'Laptop', 1200.00), (2, '2025-10-05', 'Mouse', 25.50), "
+                    + "(1, '2025-11-03', 'Keyboard', 75.00)");
+
+            ColumnarTransactionStore store = new ColumnarTransactionStore(jdbc, ShardRouter.single(), true, 30_000);
+            store.load();
+            store.catchUp();
+
+            assertEquals(3, store.size());
+            RewardsReportDTO report = store.report(LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 31), 10);
+            assertEquals(2250, report.getTotalPoints());
+            assertEquals(1, report.getCustomersWithPoints());
+        } finally {
+            database.destroy();
+        }
+    }
+
+    @Test
+    @DisplayName("Rows saved by any instance are appended in ID order, waiting for a missing ID")
+    void testCatchUp() {
+        ColumnarTransactionStore store = store();
+        LocalDate date = LocalDate.of(2025, 8, 10);
+        jdbc.update("insert into transactions (id, customer_id, date, product, amount) values "
+                + "(1, 1, '2025-08-10', 'Laptop', 120.00), (3, 2, '2025-08-10', 'Mouse', 75.00)");
+
+        store.catchUp();
+        assertEquals(1, store.size());
+
+        // the row of a batch committed after a later one
+        jdbc.update("insert into transactions (id, customer_id, date, product, amount) values (2, 3, '2025-08-10', 'Desk', 200.00)");
+        store.catchUp();
+        assertEquals(3, store.size());
+        assertEquals(90 + 25 + 250, store.report(date, date, 10).getTotalPoints());
+    }
+
+    @Test
+    @DisplayName("Archiving a month removes its rows and keeps the others")
+    void testArchivedMonthIsRemoved() {
+        ColumnarTransactionStore store = store();
+        record(store, 1L, tx(LocalDate.of(2025, 2, 28), 120.0), tx(LocalDate.of(2025, 3, 1), 120.0),
+                tx(LocalDate.of(2025, 3, 31), 200.0), tx(LocalDate.of(2025, 4, 1), 75.0));
+        RewardsReportDTO before = store.report(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), 10);
+
+        store.onTransactionsArchived(new TransactionsArchivedEvent(YearMonth.of(2025, 3)));
+        record(store, 2L, tx(LocalDate.of(2025, 5, 2), 120.0));
+
+        assertEquals(455, before.getTotalPoints());
+        assertEquals(3, store.size());
+        RewardsReportDTO after = store.report(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), 10);
+        assertEquals(90 + 25 + 90, after.getTotalPoints());
+        assertEquals(2, after.getCustomersWithPoints());
+        assertEquals(0, store.report(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), 10).getTotalPoints());
+    }
+
+    @Test
+    @DisplayName("Reports are rejected while the store is disabled")
+    void testDisabled() {
+        ColumnarTransactionStore store = new ColumnarTransactionStore(jdbc, ShardRouter.single(), false, 30_000);
+        store.load();
+        insert(jdbc, 1L, List.of(tx(LocalDate.now(), 120.0)));
+        store.catchUp();
+
+        assertEquals(0, store.size());
+        assertThrows(CustomException.class, () -> store.report(LocalDate.now(), LocalDate.now(), 10));
+    }
+}
@@ -0,0 +1,185 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.infy.customerRewards.dto.ConnectionPoolStatsDTO;
+import com.infy.customerRewards.utility.AdaptivePoolSizer;
+import com.infy.customerRewards.utility.ConnectionPoolMetrics;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Connection pool metrics and adaptive sizing, on Hikari pools over an embedded H2 database.
+ */
+class ConnectionPoolMetricsTest {
+
+    private final ConnectionPoolMetrics metrics = new ConnectionPoolMetrics(Duration.ofMillis(20), Duration.ofSeconds(10));
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @AfterEach
+    void close() {
+        executor.shutdownNow();
+        pools.forEach(HikariDataSource::close);
+    }
+
+    /**
+     * Starts a pool, which opens its first connection before any is acquired.
+     */
+    private HikariDataSource pool(int size) {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:pool-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        config.setUsername("sa");
+        config.setPoolName("test-" + pools.size());
+        config.setMaximumPoolSize(size);
+        config.setMinimumIdle(size);
+        config.setConnectionTimeout(250);
+        config.setMetricsTrackerFactory(metrics);
+        HikariDataSource dataSource = new HikariDataSource(config);
+        pools.add(metrics.instrument(dataSource));
+        return dataSource;
+    }
+
+    private static ConnectionPoolStatsDTO stats(ConnectionPoolMetrics metrics, String poolName) {
+        return metrics.getStats().stream().filter(stats -> stats.getPoolName().equals(poolName)).findFirst().orElseThrow();
+    }
+
+    /**
+     * Borrows a connection in another thread, as a request to the given endpoint, and holds it for a while.
+     */
+    private Future<?> borrowAsRequest(HikariDataSource pool, String pattern, long holdMillis) {
+        return executor.submit(() -> {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", pattern.replace("{customerId}", "7"));
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+            try (Connection connection = pool.getConnection()) {
+                Thread.sleep(holdMillis);
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+            return null;
+        });
+    }
+
+    @Test
+    @DisplayName("Records acquisitions, the time connections are held and the pool state")
+    void testAcquireAndUsage() throws Exception {
+        HikariDataSource pool = pool(2);
+        for (int i = 0; i < 5; i++) {
+            try (Connection connection = pool.getConnection()) {
+                Thread.sleep(20);
+            }
+        }
+
+        ConnectionPoolStatsDTO stats = stats(metrics, pool.getPoolName());
+        assertEquals(5, stats.getAcquisitions());
+        assertEquals(5, stats.getAcquireHistogramMicros().values().stream().mapToLong(Long::longValue).sum());
+        assertTrue(stats.getUsageMeanMillis() >= 20, "usage " + stats.getUsageMeanMillis());
+        assertTrue(stats.getAcquireP99Millis() <= stats.getAcquireMaxMillis());
+        assertEquals(2, stats.getMaximumPoolSize());
+        assertEquals(0, stats.getSlowAcquires());
+        assertEquals(0, stats.getTimeouts());
+    }
+
+    @Test
+    @DisplayName("Attributes slow acquisitions and timeouts to the waiting endpoint or thread")
+    void testSlowAcquisitions() throws Exception {
+        HikariDataSource pool = pool(1);
+        String endpoint = "/api/rewards/customers/{customerId}/rewards";
+
+        Future<?> waiting;
+        try (Connection held = pool.getConnection()) {
+            assertThrows(SQLException.class, pool::getConnection);
+            waiting = borrowAsRequest(pool, endpoint, 0);
+            Thread.sleep(100);
+        }
+        waiting.get(5, TimeUnit.SECONDS);
+
+        ConnectionPoolStatsDTO stats = stats(metrics, pool.getPoolName());
+        assertEquals(1, stats.getTimeouts());
+        assertEquals(2, stats.getSlowAcquires(), stats.getSlowAcquiresByEndpoint().toString());
+        assertEquals(1, stats.getSlowAcquiresByEndpoint().get("GET " + endpoint));
+        assertEquals(1, stats.getSlowAcquiresByEndpoint().get("thread " + Thread.currentThread().getName()));
+        assertTrue(stats.getAcquireMaxMillis() >= 100, "max " + stats.getAcquireMaxMillis());
+    }
+
+    @Test
+    @DisplayName("Pools grow while requests wait, unless the database slows down, and shrink while idle, within bounds")
+    void testNextPoolSize() {
+        ConnectionPoolMetrics.Interval waiting = new ConnectionPoolMetrics.Interval(1000, 5, 10, 8);
+        assertEquals(10, AdaptivePoolSizer.nextPoolSize(8, 2, 20, waiting, 0.1, 0));
+        assertEquals(9, AdaptivePoolSizer.nextPoolSize(8, 2, 9, waiting, 0.1, 0));
+        assertEquals(10, AdaptivePoolSizer.nextPoolSize(8, 2, 20, waiting, 0.1, 8), "database latency within bounds");
+        assertEquals(7, AdaptivePoolSizer.nextPoolSize(8, 2, 20, waiting, 0.1, 5), "database twice as slow");
+
+        ConnectionPoolMetrics.Interval shortWaits = new ConnectionPoolMetrics.Interval(1000, 0.5, 10, 8);
+        assertEquals(8, AdaptivePoolSizer.nextPoolSize(8, 2, 20, shortWaits, 0.1, 0));
+
+        ConnectionPoolMetrics.Interval idle = new ConnectionPoolMetrics.Interval(1000, 0, 10, 3);
+        assertEquals(7, AdaptivePoolSizer.nextPoolSize(8, 2, 20, idle, 0.1, 0));
+        assertEquals(8, AdaptivePoolSizer.nextPoolSize(8, 8, 20, idle, 0.1, 0));
+        assertEquals(7, AdaptivePoolSizer.nextPoolSize(8, 2, 20, new ConnectionPoolMetrics.Interval(0, 0, 0, 0), 0.1, 0));
+    }
+
+    @Test
+    @DisplayName("The sizer grows a saturated pool, which then lends the added connections")
+    void testAdaptiveResize() throws Exception {
+        HikariDataSource pool = pool(2);
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(metrics, 1, 4, 0.1);
+
+        List<Future<?>> requests = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            requests.add(borrowAsRequest(pool, "/api/rewards/leaderboard", 50));
+        }
+        for (Future<?> request : requests) {
+            request.get(5, TimeUnit.SECONDS);
+        }
+        sizer.adjust();
+
+        assertEquals(3, pool.getHikariConfigMXBean().getMaximumPoolSize());
+        assertEquals(1, stats(metrics, pool.getPoolName()).getResizes());
+        CountDownLatch borrowed = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            executor.submit(() -> {
+                try (Connection connection = pool.getConnection()) {
+                    borrowed.countDown();
+                    release.await();
+                }
+                return null;
+            });
+        }
+        assertTrue(borrowed.await(5, TimeUnit.SECONDS), "third connection not lent");
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("The sizer shrinks a pool whose connections go unused, down to its lower bound")
+    void testAdaptiveShrink() throws Exception {
+        HikariDataSource pool = pool(4);
+        AdaptivePoolSizer sizer = new AdaptivePoolSizer(metrics, 3, 8, 0.1);
+        try (Connection connection = pool.getConnection()) {
+            assertTrue(connection.isValid(1));
+        }
+
+        sizer.adjust();
+        assertEquals(3, pool.getHikariConfigMXBean().getMaximumPoolSize());
+        assertEquals(3, pool.getHikariConfigMXBean().getMinimumIdle());
+        sizer.adjust();
+        assertEquals(3, pool.getHikariConfigMXBean().getMaximumPoolSize());
+    }
+}
@@ -0,0 +1,252 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.modelmapper.ModelMapper;
+import org.springframework.core.env.Environment;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.infy.customerRewards.dto.RewardResponseDTO;
+import com.infy.customerRewards.dto.TransactionAmountDTO;
+import com.infy.customerRewards.dto.RewardView;
+import com.infy.customerRewards.entity.Customer;
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.exception.CustomException;
+import com.infy.customerRewards.repository.CustomerRepository;
+import com.infy.customerRewards.repository.TransactionRepository;
+import com.infy.customerRewards.serviceImpl.RewardServiceImpl;
+import com.infy.customerRewards.utility.FlightRecording;
+import com.infy.customerRewards.utility.InProcessRewardsCacheTier;
+import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.RewardsRequestEvent;
+import com.infy.customerRewards.utility.RewardsRequestRecorder;
+import com.infy.customerRewards.utility.RollingRewardsWindow;
+import com.infy.customerRewards.utility.TransactionArchive;
+import com.infy.customerRewards.utility.TwoLevelRewardsCache;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Flight Recorder events of rewards calculations and the application's recording.
+ */
+@ExtendWith(SpringExtension.class)
+class FlightRecordingTest {
+
+    @InjectMocks
+    private RewardServiceImpl rewardService;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private Environment env;
+
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    @Spy
+    private RewardCalculator rewardCalculator = new RewardCalculator(new ModelMapper());
+
+    @Spy
+    private RollingRewardsWindow rollingRewardsWindow = new RollingRewardsWindow(rewardCalculator, 100);
+
+    @Spy
+    private TwoLevelRewardsCache rewardsCache = new TwoLevelRewardsCache(new InProcessRewardsCacheTier(1000), true, 100,
+            Duration.ofSeconds(5), Duration.ofMinutes(10));
+
+    private final List<Recording> recordings = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = new Customer();
+        customer.setId(1L);
+        customer.setCustName("John Doe");
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(120.0 + i);
+            transaction.setDate(LocalDate.of(2025, 8, 1 + i));
+            transaction.setProduct("Product " + i);
+            transaction.setCustomer(customer);
+            transactions.add(transaction);
+        }
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(transactionRepository.findByCustomerIdAndDateBetween(eq(1L), any(), any())).thenReturn(transactions);
+        when(transactionRepository.findAmountsByCustomerIdAndDateBetween(eq(1L), any(), any())).thenReturn(
+                transactions.stream().map(t -> new TransactionAmountDTO(t.getDate(), t.getAmount())).toList());
+    }
+
+    @AfterEach
+    void close() {
+        recordings.forEach(Recording::close);
+        RequestContextHolder.resetRequestAttributes();
+        RewardsRequestEvent.commitCurrent();
+    }
+
+    private Recording record() {
+        Recording recording = new Recording();
+        recording.enable(RewardsRequestEvent.NAME).withThreshold(Duration.ZERO);
+        recordings.add(recording);
+        recording.start();
+        return recording;
+    }
+
+    private static List<RecordedEvent> events(Recording recording) throws Exception {
+        Path file = Files.createTempFile("rewards-test-", ".jfr");
+        try {
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(RewardsRequestEvent.NAME))
+                    .toList();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("A rewards calculation outside of requests is recorded with its database, calculator and mapping time")
+    void testServiceEvent() throws Exception {
+        Recording recording = record();
+        LocalDate start = LocalDate.of(2025, 8, 1);
+        LocalDate end = LocalDate.of(2025, 8, 31);
+        RewardResponseDTO first = rewardService.getRewardsForCustomer(1L, start, end, RewardView.FULL, false);
+        RewardResponseDTO second = rewardService.getRewardsForCustomer(1L, start, end, RewardView.FULL, false);
+        assertEquals(first.getTotalRewards(), second.getTotalRewards());
+        assertNull(RewardsRequestEvent.current());
+
+        List<RecordedEvent> events = events(recording);
+        assertEquals(2, events.size());
+        RecordedEvent calculated = events.get(0);
+        assertEquals(1L, calculated.getLong("customerId"));
+        assertEquals(31, calculated.getLong("rangeDays"));
+        assertEquals("FULL", calculated.getString("view"));
+        assertFalse(calculated.getBoolean("cached"));
+        assertEquals(3, calculated.getInt("transactionCount"));
+        assertTrue(calculated.getDuration("databaseTime").toNanos() > 0);
+        assertTrue(calculated.getDuration("calculatorTime").toNanos() > 0);
+        assertTrue(calculated.getDuration("mappingTime").toNanos() > 0);
+        assertEquals(0, calculated.getDuration("serializationTime").toNanos());
+        Duration stages = calculated.getDuration("databaseTime").plus(calculated.getDuration("calculatorTime"))
+                .plus(calculated.getDuration("mappingTime"));
+        assertTrue(stages.compareTo(calculated.getDuration()) <= 0, stages + " > " + calculated.getDuration());
+
+        RecordedEvent cached = events.get(1);
+        assertTrue(cached.getBoolean("cached"));
+        assertEquals(0, cached.getInt("transactionCount"));
+    }
+
+    @Test
+    @DisplayName("The event of a web request is committed once its response is written, with the serialization time")
+    void testRequestEvent() throws Exception {
+        Recording recording = record();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        RewardsRequestRecorder recorder = new RewardsRequestRecorder();
+
+        rewardService.getRewardsForCustomer(1L, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31),
+                RewardView.FULL, false);
+        assertNotNull(RewardsRequestEvent.current(), "committed before the response was written");
+        assertTrue(recorder.supports(null, null));
+        recorder.beforeBodyWrite(new Object(), null, null, null, null, null);
+        Thread.sleep(20);
+        recorder.afterCompletion(null, null, null, null);
+        assertNull(RewardsRequestEvent.current());
+        assertFalse(recorder.supports(null, null));
+
+        List<RecordedEvent> events = events(recording);
+        assertEquals(1, events.size());
+        assertEquals(365, events.get(0).getLong("rangeDays"));
+        assertTrue(events.get(0).getDuration("serializationTime").toMillis() >= 20);
+    }
+
+    @Test
+    @DisplayName("Rolling rewards calculations are recorded, the full view once as a calculation without rolling")
+    void testRollingEvent() throws Exception {
+        Recording recording = record();
+        rewardService.getRollingRewardsForCustomer(1L, LocalDate.of(2025, 7, 15), LocalDate.of(2025, 8, 14),
+                RewardView.MONTHLY, false);
+        rewardService.getRollingRewardsForCustomer(1L, LocalDate.of(2025, 7, 16), LocalDate.of(2025, 8, 15),
+                RewardView.SUMMARY, false);
+        rewardService.getRollingRewardsForCustomer(1L, LocalDate.of(2025, 7, 16), LocalDate.of(2025, 8, 15),
+                RewardView.FULL, false);
+        assertNull(RewardsRequestEvent.current());
+
+        List<RecordedEvent> events = events(recording);
+        assertEquals(List.of("MONTHLY", "SUMMARY", "FULL"), events.stream().map(event -> event.getString("view")).toList());
+        for (RecordedEvent event : events) {
+            assertEquals(1L, event.getLong("customerId"));
+            assertEquals(31, event.getLong("rangeDays"));
+            assertFalse(event.getBoolean("cached"));
+            assertTrue(event.getDuration("databaseTime").toNanos() > 0);
+            assertTrue(event.getDuration("mappingTime").toNanos() > 0);
+        }
+        assertEquals(3, events.get(2).getInt("transactionCount"));
+    }
+
+    @Test
+    @DisplayName("Nothing is timed while no recording enables the event")
+    void testDisabled() {
+        assertNull(RewardsRequestEvent.begin(1L, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), "FULL"));
+        rewardService.getRewardsForCustomer(1L, LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 31),
+                RewardView.FULL, false);
+        assertNull(RewardsRequestEvent.current());
+    }
+
+    @Test
+    @DisplayName("The recording overlays the rewards settings on the JDK defaults and dumps on demand")
+    void testRecording() throws Exception {
+        FlightRecording disabled = new FlightRecording(false, "jfr/rewards.jfc", Duration.ofHours(1), DataSize.ofMegabytes(10));
+        disabled.start();
+        assertFalse(disabled.isRecording());
+
+        FlightRecording flightRecording = new FlightRecording(true, "jfr/rewards.jfc", Duration.ofHours(1),
+                DataSize.ofMegabytes(10));
+        Map<String, String> settings = flightRecording.settings();
+        assertEquals("0 ms", settings.get(RewardsRequestEvent.NAME + "#threshold"));
+        assertEquals("10 ms", settings.get("jdk.SocketRead#threshold"));
+        assertEquals("true", settings.get("jdk.GarbageCollection#enabled"));
+
+        flightRecording.start();
+        Path file = null;
+        try {
+            assertTrue(flightRecording.isRecording());
+            rewardService.getRewardsForCustomer(1L, LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 31),
+                    RewardView.FULL, false);
+            file = flightRecording.dump();
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(RewardsRequestEvent.NAME))
+                    .toList();
+            assertEquals(1, events.size());
+            assertEquals(3, events.get(0).getInt("transactionCount"));
+        } finally {
+            flightRecording.close();
+            if (file != null) {
+                Files.deleteIfExists(file);
+            }
+        }
+        assertFalse(flightRecording.isRecording());
+        assertThrows(CustomException.class, flightRecording::dump);
+    }
+}
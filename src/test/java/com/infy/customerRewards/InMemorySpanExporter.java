@@ -0,0 +1,62 @@
+package com.infy.customerRewards;
+
+
+import com.infy.customerRewards.utility.FinishedSpan;
+import com.infy.customerRewards.utility.SpanExporter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent spans in memory, for the tests of tracing.
+ */
+class InMemorySpanExporter implements SpanExporter {
+
+    private final int capacity;
+    private final Deque<FinishedSpan> spans = new ArrayDeque<>();
+
+    /**
+     * Constructs an InMemorySpanExporter.
+     *
+     * @param capacity the number of spans kept; older spans are dropped
+     */
+    InMemorySpanExporter(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized void export(FinishedSpan span) {
+        if (spans.size() == capacity) {
+            spans.removeFirst();
+        }
+        spans.addLast(span);
+    }
+
+    /**
+     * Returns the kept spans in the order they finished.
+     *
+     * @return the spans
+     */
+    public synchronized List<FinishedSpan> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    /**
+     * Returns the kept spans of one trace in the order they finished.
+     *
+     * @param traceId the id of the trace
+     * @return the spans of the trace
+     */
+    public synchronized List<FinishedSpan> getSpans(String traceId) {
+        return spans.stream().filter(span -> span.traceId().equals(traceId)).toList();
+    }
+
+    /**
+     * Drops the kept spans.
+     */
+    public synchronized void clear() {
+        spans.clear();
+    }
+}
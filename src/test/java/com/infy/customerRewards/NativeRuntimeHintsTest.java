@@ -0,0 +1,90 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+import com.infy.customerRewards.dto.CustomerDTO;
+import com.infy.customerRewards.dto.CustomerResponseDTO;
+import com.infy.customerRewards.dto.TransactionDTO;
+import com.infy.customerRewards.dto.TransactionResponseDTO;
+import com.infy.customerRewards.entity.Customer;
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.utility.NativeRuntimeHints;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reflection and resource hints of the native executable, which a JVM run cannot miss.
+ */
+class NativeRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    NativeRuntimeHintsTest() {
+        new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    @DisplayName("Types mapped by ModelMapper can be instantiated and their properties read and written")
+    void testModelMapperTypes() throws Exception {
+        for (Class<?> type : new Class<?>[] { Customer.class, Transaction.class, CustomerDTO.class,
+                CustomerResponseDTO.class, TransactionDTO.class, TransactionResponseDTO.class }) {
+            assertTrue(RuntimeHintsPredicates.reflection().onConstructor(type.getDeclaredConstructor()).test(hints),
+                    type.getName());
+        }
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(Transaction.class, "getAmount").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(TransactionDTO.class, "setAmount").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(CustomerDTO.class, "getTransactions").test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onField(TransactionDTO.class, "rewardPoints").test(hints));
+    }
+
+    @Test
+    @DisplayName("JJWT implementation classes and serializer service files are registered")
+    void testJjwt() {
+        for (String type : new String[] { "io.jsonwebtoken.impl.DefaultJwtBuilder",
+                "io.jsonwebtoken.impl.DefaultJwtParserBuilder", "io.jsonwebtoken.jackson.io.JacksonSerializer",
+                "io.jsonwebtoken.jackson.io.JacksonDeserializer" }) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(TypeReference.of(type))
+                    .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS).test(hints), type);
+        }
+        assertTrue(RuntimeHintsPredicates.resource().forResource("META-INF/services/io.jsonwebtoken.io.Serializer")
+                .test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("META-INF/services/io.jsonwebtoken.io.Deserializer")
+                .test(hints));
+    }
+
+    @Test
+    @DisplayName("The JDBC proxies of the SQL profiler are registered")
+    void testJdbcProxies() {
+        for (Class<?> type : new Class<?>[] { Connection.class, Statement.class, PreparedStatement.class,
+                CallableStatement.class, ResultSet.class }) {
+            assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(type).test(hints), type.getName());
+        }
+    }
+
+    @Test
+    @DisplayName("The Flight Recorder settings are included")
+    void testFlightRecorderSettings() {
+        assertTrue(RuntimeHintsPredicates.resource().forResource("jfr/rewards.jfc").test(hints));
+    }
+
+    @Test
+    @DisplayName("The hints are imported by the application")
+    void testRegistration() {
+        ImportRuntimeHints imported = CustomerRewardsApplication.class.getAnnotation(ImportRuntimeHints.class);
+        assertNotNull(imported);
+        assertArrayEquals(new Class<?>[] { NativeRuntimeHints.class }, imported.value());
+    }
+}
@@ -0,0 +1,219 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Smoke tests of the native executable, run by mvn verify -Pnative: starts it against the configured database,
+ * checks that the endpoints relying on reflection answer as on the JVM, and writes its startup time and
+ * resident memory to target/native/report.properties.
+ */
+class NativeSmokeIT {
+
+    private static final Path REPORT_DIRECTORY = Path.of("target/native");
+    private static final Duration STARTUP_TIMEOUT = Duration.ofSeconds(60);
+    private static final String USER = "smoke";
+    private static final String PASSWORD = "smoke";
+
+    private static final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static JdbcTemplate jdbc;
+    private static long customerId;
+    private static Process application;
+    private static String baseUrl;
+    private static long startupMillis;
+    private static long startupRssKb;
+
+    @BeforeAll
+    static void startApplication() throws Exception {
+        Path binary = Path.of(System.getProperty("native.binary", "target/customerRewards"));
+        assertTrue(Files.isExecutable(binary), "no native executable at " + binary);
+        String url = System.getProperty("native.datasource.url",
+                "jdbc:mysql://localhost:3306/rewardsdb?useSSL=false&serverTimezone=UTC");
+        String username = System.getProperty("native.datasource.username", "root");
+        String password = System.getProperty("native.datasource.password", "root");
+
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(url, username, password));
+        customerId = insertCustomer();
+        insertTransaction(LocalDate.of(2024, 1, 10), 120.00);
+        insertTransaction(LocalDate.of(2024, 2, 15), 75.00);
+        insertTransaction(LocalDate.of(2024, 2, 20), 40.00);
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        baseUrl = "http://localhost:" + port + "/api/rewards";
+        Files.createDirectories(REPORT_DIRECTORY);
+
+        long start = System.nanoTime();
+        application = new ProcessBuilder(binary.toAbsolutePath().toString(),
+                "--server.port=" + port,
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--spring.security.user.name=" + USER,
+                // the configured password is checked with the application's BCrypt encoder, so it is given encoded
+                "--spring.security.user.password=" + new BCryptPasswordEncoder().encode(PASSWORD),
+                "--logging.file.name=" + REPORT_DIRECTORY.resolve("application.log"))
+                .redirectErrorStream(true)
+                .redirectOutput(REPORT_DIRECTORY.resolve("console.log").toFile())
+                .start();
+        awaitFirstResponse();
+        startupMillis = (System.nanoTime() - start) / 1_000_000;
+        startupRssKb = residentMemoryKb();
+    }
+
+    private static long insertCustomer() {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "insert into customers (cust_name, phone_no) values (?, ?)", Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, "Native Smoke");
+            statement.setString(2, "-");
+            return statement;
+        }, keys);
+        return Objects.requireNonNull(keys.getKey()).longValue();
+    }
+
+    private static void insertTransaction(LocalDate date, double amount) {
+        jdbc.update("insert into transactions (customer_id, date, product, amount) values (?, ?, ?, ?)",
+                customerId, Date.valueOf(date), "Smoke test", amount);
+    }
+
+    /**
+     * Waits until the application answers HTTP requests, which is when it is ready to serve traffic.
+     */
+    private static void awaitFirstResponse() throws Exception {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (true) {
+            if (!application.isAlive()) {
+                fail("native executable exited with " + application.exitValue()
+                        + ", see " + REPORT_DIRECTORY.resolve("console.log"));
+            }
+            try {
+                client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/leaderboard")).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                return;
+            } catch (IOException e) {
+                assertTrue(System.nanoTime() < deadline, "native executable not answering after " + STARTUP_TIMEOUT);
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    /**
+     * Resident set size of the application from /proc, or -1 on systems without it.
+     */
+    private static long residentMemoryKb() throws IOException {
+        Path status = Path.of("/proc", String.valueOf(application.pid()), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .mapToLong(line -> Long.parseLong(line.replaceAll("[^0-9]", "")))
+                .findFirst()
+                .orElse(-1);
+    }
+
+    @AfterAll
+    static void stopApplication() throws Exception {
+        try {
+            long rssKb = -1;
+            if (application != null) {
+                rssKb = residentMemoryKb();
+                application.destroy();
+                application.waitFor();
+            }
+            if (startupMillis > 0) {
+                Files.writeString(REPORT_DIRECTORY.resolve("report.properties"),
+                        "native.startup.millis=" + startupMillis + "\n"
+                                + "native.rss.startup.kb=" + startupRssKb + "\n"
+                                + "native.rss.kb=" + rssKb + "\n");
+            }
+        } finally {
+            if (jdbc != null) {
+                jdbc.update("delete from transactions where customer_id = ?", customerId);
+                jdbc.update("delete from customers where id = ?", customerId);
+            }
+        }
+    }
+
+    private static HttpResponse<String> get(String path, boolean authenticated) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Accept", "application/json");
+        if (authenticated) {
+            request.header("Authorization", "Basic " + Base64.getEncoder()
+                    .encodeToString((USER + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8)));
+        }
+        return client.send(request.GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("Computes the rewards of a customer, with the transactions mapped by ModelMapper")
+    void testRewards() throws Exception {
+        HttpResponse<String> response = get("/customers/" + customerId
+                + "/rewards?startDate=2024-01-01&endDate=2024-03-31", true);
+
+        assertEquals(200, response.statusCode(), response.body());
+        JsonNode rewards = objectMapper.readTree(response.body());
+        assertEquals(115, rewards.get("totalRewards").asInt());
+        assertEquals(3, rewards.get("transactions").size());
+        assertEquals("Smoke test", rewards.get("transactions").get(0).get("product").asText());
+        assertEquals(2, rewards.get("monthlyRewards").size());
+    }
+
+    @Test
+    @DisplayName("Streams the transactions of a customer")
+    void testTransactions() throws Exception {
+        HttpResponse<String> response = get("/customers/" + customerId + "/transactions", true);
+
+        assertEquals(200, response.statusCode(), response.body());
+        JsonNode transactions = objectMapper.readTree(response.body());
+        assertEquals(3, transactions.size());
+        assertEquals(25, transactions.get(1).get("rewardPoints").asInt());
+    }
+
+    @Test
+    @DisplayName("Rejects invalid requests through the exception handler and anonymous ones through security")
+    void testErrors() throws Exception {
+        HttpResponse<String> invalid = get("/customers/" + customerId
+                + "/rewards?startDate=2024-01-01&endDate=2024-03-31&view=bogus", true);
+        assertEquals(400, invalid.statusCode());
+        assertTrue(objectMapper.readTree(invalid.body()).get("error").asText().contains("bogus"));
+
+        assertEquals(401, get("/customers/" + customerId + "/transactions", false).statusCode());
+    }
+}
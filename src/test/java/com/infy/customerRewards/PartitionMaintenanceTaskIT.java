@@ -0,0 +1,118 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.infy.customerRewards.utility.PartitionMaintenanceTask;
+import com.infy.customerRewards.utility.ShardRouter;
+import com.infy.customerRewards.utility.TransactionArchive;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs PartitionMaintenanceTask against MySQL, which is the only database supporting its partition DDL.
+ * Run by mvn verify -Ppartition-it; the scratch database given by partitions.datasource.url is created if
+ * missing and its transactions table is recreated before every test.
+ */
+class PartitionMaintenanceTaskIT {
+
+    private static final YearMonth CURRENT = YearMonth.of(2025, 10);
+
+    private JdbcTemplate jdbc;
+    private TransactionArchive transactionArchive;
+    private PartitionMaintenanceTask task;
+
+    @BeforeEach
+    void setUp() {
+        String url = System.getProperty("partitions.datasource.url",
+                "jdbc:mysql://localhost:3306/partitions_it?createDatabaseIfNotExist=true&useSSL=false&serverTimezone=UTC");
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(url,
+                System.getProperty("partitions.datasource.username", "root"),
+                System.getProperty("partitions.datasource.password", "root")));
+        for (String table : jdbc.queryForList("select table_name from information_schema.tables "
+                + "where table_schema = database() and table_name like 'transactions%'", String.class)) {
+            jdbc.execute("DROP TABLE " + table);
+        }
+        jdbc.execute("CREATE TABLE transactions ("
+                + "id BIGINT AUTO_INCREMENT, customer_id BIGINT NOT NULL, date DATE NOT NULL, "
+                + "product VARCHAR(100) NOT NULL, amount DECIMAL(10,2) NOT NULL, PRIMARY KEY (id, date)) "
+                + "PARTITION BY RANGE COLUMNS (date) ("
+                + "PARTITION p202408 VALUES LESS THAN ('2024-09-01'), "
+                + "PARTITION p202409 VALUES LESS THAN ('2024-10-01'), "
+                + "PARTITION p202510 VALUES LESS THAN ('2025-11-01'), "
+                + "PARTITION pmax VALUES LESS THAN (MAXVALUE))");
+        insert(LocalDate.of(2024, 8, 10), 3);
+        insert(LocalDate.of(2024, 9, 10), 2);
+        insert(LocalDate.of(2025, 10, 10), 1);
+
+        transactionArchive = Mockito.mock(TransactionArchive.class);
+        task = new PartitionMaintenanceTask(jdbc, ShardRouter.single(), transactionArchive, 0, 12);
+    }
+
+    private void insert(LocalDate date, int rows) {
+        for (int i = 0; i < rows; i++) {
+            jdbc.update("insert into transactions (customer_id, date, product, amount) values (1, ?, 'Product', 75)",
+                    Date.valueOf(date));
+        }
+    }
+
+    private List<String> partitions() {
+        return jdbc.queryForList("select partition_name from information_schema.partitions "
+                + "where table_schema = database() and table_name = 'transactions' order by partition_ordinal_position",
+                String.class);
+    }
+
+    private long count(String table) {
+        return jdbc.queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    @Test
+    @DisplayName("Detaches expired partitions into standalone tables and can run again")
+    void testDetachIsIdempotent() {
+        task.maintain(CURRENT);
+        task.maintain(CURRENT);
+
+        assertEquals(List.of("p202510", "pmax"), partitions());
+        assertEquals(3, count("transactions_p202408"));
+        assertEquals(2, count("transactions_p202409"));
+        assertEquals(1, count("transactions"));
+    }
+
+    @Test
+    @DisplayName("Finishes a detach interrupted after the exchange without swapping the rows back")
+    void testResumesInterruptedDetach() {
+        jdbc.execute("CREATE TABLE transactions_p202408 LIKE transactions");
+        jdbc.execute("ALTER TABLE transactions_p202408 REMOVE PARTITIONING");
+        jdbc.execute("ALTER TABLE transactions EXCHANGE PARTITION p202408 WITH TABLE transactions_p202408");
+
+        task.maintain(CURRENT);
+
+        assertEquals(List.of("p202510", "pmax"), partitions());
+        assertEquals(3, count("transactions_p202408"));
+    }
+
+    @Test
+    @DisplayName("With the archive enabled, keeps partitions until their month is archived and emptied")
+    void testKeepsUnarchivedPartitions() {
+        when(transactionArchive.isEnabled()).thenReturn(true);
+        when(transactionArchive.isArchived(YearMonth.of(2024, 8))).thenReturn(true);
+        jdbc.update("delete from transactions where date < '2024-09-01'");
+
+        task.maintain(CURRENT);
+
+        assertEquals(List.of("p202409", "p202510", "pmax"), partitions());
+        assertEquals(3, count("transactions"));
+        assertTrue(jdbc.queryForList("select table_name from information_schema.tables "
+                + "where table_schema = database() and table_name like 'transactions\\_p%'", String.class).isEmpty());
+    }
+}
@@ -0,0 +1,156 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.infy.customerRewards.utility.PartitionMaintenanceTask;
+import com.infy.customerRewards.utility.ShardRouter;
+import com.infy.customerRewards.utility.TransactionArchive;
+
+import java.time.YearMonth;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class PartitionMaintenanceTaskTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    private PartitionMaintenanceTask task;
+
+    @BeforeEach
+    void setUp() {
+        task = new PartitionMaintenanceTask(jdbcTemplate, ShardRouter.single(), transactionArchive, 2, 12);
+    }
+
+    private void rows(String table, long rows) {
+        when(jdbcTemplate.queryForObject("select count(*) from " + table, Long.class)).thenReturn(rows);
+    }
+
+    private void partitioned(String table, boolean partitioned) {
+        when(jdbcTemplate.queryForObject(startsWith("select count(*) from information_schema.partitions"),
+                eq(Long.class), eq(table))).thenReturn(partitioned ? 13L : 0L);
+    }
+
+    private void partitions(String... names) {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("transactions")))
+                .thenReturn(Arrays.asList(names));
+    }
+
+    private List<String> executed() {
+        ArgumentCaptor<String> ddl = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, atLeast(0)).execute(ddl.capture());
+        return ddl.getAllValues();
+    }
+
+    @Test
+    @DisplayName("Splits the missing future months off pmax in one statement")
+    void testCreatesFuturePartitions() {
+        partitions("p202509", "p202510", "pmax");
+
+        task.maintain(YearMonth.of(2025, 10));
+
+        assertEquals(List.of("ALTER TABLE transactions REORGANIZE PARTITION pmax INTO ("
+                + "PARTITION p202511 VALUES LESS THAN ('2025-12-01'), "
+                + "PARTITION p202512 VALUES LESS THAN ('2026-01-01'), "
+                + "PARTITION pmax VALUES LESS THAN (MAXVALUE))"), executed());
+    }
+
+    @Test
+    @DisplayName("Does nothing when future partitions exist and none expired")
+    void testNothingToDo() {
+        partitions("p202509", "p202510", "p202511", "p202512", "pmax");
+
+        task.maintain(YearMonth.of(2025, 10));
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    @DisplayName("Detaches partitions older than the retention period into standalone tables")
+    void testDetachesExpiredPartitions() {
+        partitions("p202408", "p202409", "p202410", "p202411", "p202412", "pmax");
+        rows("transactions PARTITION (p202408)", 10);
+        rows("transactions PARTITION (p202409)", 0);
+        rows("transactions_p202408", 0);
+        partitioned("transactions_p202408", true);
+        partitioned("transactions_p202409", true);
+
+        task.maintain(YearMonth.of(2025, 10));
+
+        List<String> ddl = executed();
+        assertTrue(ddl.get(0).startsWith("ALTER TABLE transactions REORGANIZE PARTITION pmax INTO (PARTITION p202501 "));
+        assertEquals(List.of(
+                "CREATE TABLE IF NOT EXISTS transactions_p202408 LIKE transactions",
+                "ALTER TABLE transactions_p202408 REMOVE PARTITIONING",
+                "ALTER TABLE transactions EXCHANGE PARTITION p202408 WITH TABLE transactions_p202408",
+                "ALTER TABLE transactions DROP PARTITION p202408",
+                "CREATE TABLE IF NOT EXISTS transactions_p202409 LIKE transactions",
+                "ALTER TABLE transactions_p202409 REMOVE PARTITIONING",
+                "ALTER TABLE transactions DROP PARTITION p202409"), ddl.subList(1, ddl.size()));
+    }
+
+    @Test
+    @DisplayName("Rerunning after an interrupted detach drops the partition without exchanging the rows back")
+    void testDetachIsIdempotent() {
+        partitions("p202409", "p202510", "p202511", "p202512", "pmax");
+        rows("transactions PARTITION (p202409)", 0);
+        partitioned("transactions_p202409", false);
+
+        task.maintain(YearMonth.of(2025, 10));
+
+        assertEquals(List.of(
+                "CREATE TABLE IF NOT EXISTS transactions_p202409 LIKE transactions",
+                "ALTER TABLE transactions DROP PARTITION p202409"), executed());
+    }
+
+    @Test
+    @DisplayName("Leaves a partition alone when both it and its standalone table hold rows")
+    void testDetachKeepsConflictingRows() {
+        partitions("p202409", "p202510", "p202511", "p202512", "pmax");
+        rows("transactions PARTITION (p202409)", 4);
+        rows("transactions_p202409", 10);
+        partitioned("transactions_p202409", false);
+
+        task.maintain(YearMonth.of(2025, 10));
+
+        assertEquals(List.of("CREATE TABLE IF NOT EXISTS transactions_p202409 LIKE transactions"), executed());
+    }
+
+    @Test
+    @DisplayName("With the archive enabled, drops only archived and emptied partitions")
+    void testDropsArchivedPartitions() {
+        partitions("p202407", "p202408", "p202409", "p202510", "p202511", "p202512", "pmax");
+        when(transactionArchive.isEnabled()).thenReturn(true);
+        when(transactionArchive.isArchived(YearMonth.of(2024, 7))).thenReturn(true);
+        when(transactionArchive.isArchived(YearMonth.of(2024, 8))).thenReturn(true);
+        rows("transactions PARTITION (p202407)", 0);
+        rows("transactions PARTITION (p202408)", 3);
+        rows("transactions PARTITION (p202409)", 20);
+
+        task.maintain(YearMonth.of(2025, 10));
+
+        assertEquals(List.of("ALTER TABLE transactions DROP PARTITION p202407"), executed());
+    }
+
+    @Test
+    @DisplayName("Skips unpartitioned tables")
+    void testUnpartitionedTable() {
+        partitions();
+
+        task.maintain(YearMonth.of(2025, 10));
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
@@ -0,0 +1,202 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.modelmapper.ModelMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import com.infy.customerRewards.dto.PointsBalanceDTO;
+import com.infy.customerRewards.exception.CustomException;
+import com.infy.customerRewards.utility.ArchiveSegment;
+import com.infy.customerRewards.utility.PointsIndex;
+import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.ShardRouter;
+import com.infy.customerRewards.utility.TransactionArchive;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PointsIndexTest {
+
+    private static final int HEADER_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    private SingleConnectionDataSource database;
+    private JdbcTemplate jdbc;
+    private TransactionArchive transactionArchive;
+    private YearMonth current;
+
+    @BeforeEach
+    void setUp() {
+        // date is a keyword in H2 but not in MySQL
+        database = new SingleConnectionDataSource(
+                "jdbc:h2:mem:points-" + UUID.randomUUID() + ";NON_KEYWORDS=DATE", "sa", "", true);
+        jdbc = new JdbcTemplate(database);
+        jdbc.execute("create table transactions (id bigint auto_increment primary key, customer_id bigint, "
+                + "date date, product varchar(100), amount decimal(10,2))");
+        transactionArchive = mock(TransactionArchive.class);
+        current = YearMonth.now();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.destroy();
+    }
+
+    private PointsIndex index(boolean enabled, long gapTimeoutMs) {
+        PointsIndex index = new PointsIndex(jdbc, new RewardCalculator(new ModelMapper()), ShardRouter.single(),
+                transactionArchive, directory.resolve("points.idx").toString(), enabled, 16, gapTimeoutMs);
+        index.open();
+        return index;
+    }
+
+    private PointsIndex index() {
+        return index(true, 60_000);
+    }
+
+    private void insert(long customerId, LocalDate date, double amount) {
+        jdbc.update("insert into transactions (customer_id, date, product, amount) values (?, ?, 'Product', ?)",
+                customerId, date, amount);
+    }
+
+    private void insert(long id, long customerId, LocalDate date, double amount) {
+        jdbc.update("insert into transactions (id, customer_id, date, product, amount) values (?, ?, ?, 'Product', ?)",
+                id, customerId, date, amount);
+    }
+
+    @Test
+    @DisplayName("Keeps running month and lifetime points per customer")
+    void testRunningPoints() {
+        insert(1L, current.minusMonths(1).atDay(5), 120.0); // 90, previous month
+        insert(1L, current.atDay(1), 75.0);                  // 25
+        PointsIndex index = index();
+
+        insert(1L, current.atDay(2), 200.0);                 // 250
+        insert(1L, current.minusMonths(2).atDay(1), 60.0);   // 10, older month
+        insert(2L, current.atDay(3), 40.0);                  // 0
+        index.catchUp();
+
+        PointsBalanceDTO balance = index.lookup(1L);
+        assertEquals(275L, balance.getMonthPoints());
+        assertEquals(375L, balance.getLifetimePoints());
+        assertEquals(current, balance.getMonth());
+        assertEquals(0L, index.lookup(2L).getLifetimePoints());
+    }
+
+    @Test
+    @DisplayName("Grows past its initial capacity and catches up on restart without counting twice")
+    void testGrowAndReopen() {
+        PointsIndex index = index();
+        for (long customerId = 1; customerId <= 5_000; customerId++) {
+            insert(customerId, current.atDay(1), 100 + customerId % 50);
+        }
+        index.catchUp();
+        index.close();
+        insert(1L, current.atDay(2), 120.0); // saved while the instance was down
+
+        PointsIndex reopened = index();
+
+        assertEquals(5_000, reopened.size());
+        for (long customerId = 2; customerId <= 5_000; customerId++) {
+            assertEquals(50 + 2 * (customerId % 50), reopened.lookup(customerId).getMonthPoints());
+        }
+        assertEquals(52L + 90L, reopened.lookup(1L).getMonthPoints());
+    }
+
+    @Test
+    @DisplayName("Waits for a missing ID until the gap timeout")
+    void testGapInIds() {
+        PointsIndex index = index();
+        insert(1L, 1L, current.atDay(1), 120.0);
+        insert(3L, 1L, current.atDay(1), 75.0);
+
+        index.catchUp();
+        assertEquals(90L, index.lookup(1L).getMonthPoints());
+
+        insert(2L, 1L, current.atDay(1), 200.0); // committed late
+        index.catchUp();
+        assertEquals(365L, index.lookup(1L).getMonthPoints());
+    }
+
+    @Test
+    @DisplayName("Skips a missing ID once the gap timeout has passed")
+    void testGapTimeout() {
+        PointsIndex index = index(true, 0);
+        insert(1L, 1L, current.atDay(1), 120.0);
+        insert(3L, 1L, current.atDay(1), 75.0);
+
+        index.catchUp();
+
+        assertEquals(115L, index.lookup(1L).getMonthPoints());
+    }
+
+    @Test
+    @DisplayName("Rebuilds from the database and the archive when the file was left half-written")
+    void testRebuildAfterTornWrite() throws Exception {
+        insert(1L, current.atDay(1), 120.0);
+        PointsIndex index = index();
+        index.close();
+
+        // make every slot's sequence number odd, as if the process died while writing it
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("points.idx").toFile(), "rw")) {
+            for (long slot = 0; slot < 16; slot++) {
+                file.seek(HEADER_BYTES + slot * 32);
+                file.write(1);
+            }
+        }
+        insert(2L, current.minusMonths(1).atDay(1), 80.0);
+        when(transactionArchive.isEnabled()).thenReturn(true);
+        doAnswer(invocation -> {
+            ArchiveSegment.RowConsumer consumer = invocation.getArgument(0);
+            consumer.accept(1L, current.minusMonths(8).atDay(3), 200.0);
+            return null;
+        }).when(transactionArchive).forEachArchivedRow(any());
+
+        PointsIndex reopened = index();
+
+        assertEquals(2, reopened.size());
+        assertEquals(90L, reopened.lookup(1L).getMonthPoints());
+        assertEquals(340L, reopened.lookup(1L).getLifetimePoints());
+        assertEquals(0L, reopened.lookup(2L).getMonthPoints());
+        assertEquals(30L, reopened.lookup(2L).getLifetimePoints());
+    }
+
+    @Test
+    @DisplayName("Rebuilds instead of counting a batch twice when a catch-up was interrupted")
+    void testRebuildAfterInterruptedCatchUp() throws Exception {
+        PointsIndex index = index();
+        insert(1L, current.atDay(1), 120.0);
+        index.catchUp();
+        index.close();
+
+        // odd header sequence number, as if the process died between updating the slots and the high-water mark
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("points.idx").toFile(), "rw")) {
+            file.seek(16);
+            file.write(1);
+        }
+
+        assertEquals(90L, index().lookup(1L).getLifetimePoints());
+    }
+
+    @Test
+    @DisplayName("Lookups are rejected while the index is disabled")
+    void testDisabled() {
+        PointsIndex index = index(false, 60_000);
+
+        assertThrows(CustomException.class, () -> index.lookup(1L));
+        assertThrows(CustomException.class, index::rebuild);
+    }
+}
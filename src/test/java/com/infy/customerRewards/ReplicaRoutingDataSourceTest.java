@@ -0,0 +1,154 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.infy.customerRewards.utility.ReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routes reads between a primary and two replicas, each an embedded H2 database
+ * holding its own name in a marker table.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replicaA;
+    private EmbeddedDatabase replicaB;
+    private Map<String, Long> lag;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replicaA = database("replica-a");
+        replicaB = database("replica-b");
+        lag = new HashMap<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.shutdown();
+        replicaA.shutdown();
+        replicaB.shutdown();
+    }
+
+    private EmbeddedDatabase database(String name) {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("create table marker (name varchar(20))");
+        jdbc.update("insert into marker values (?)", name);
+        return database;
+    }
+
+    private ReplicaRoutingDataSource routing(ReplicaRoutingDataSource.Selection selection) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-a", replicaA);
+        replicas.put("replica-b", replicaB);
+        return new ReplicaRoutingDataSource(primary, replicas, selection, Duration.ofSeconds(5),
+                connection -> lag.getOrDefault(name(connection), 0L));
+    }
+
+    private static String name(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet marker = statement.executeQuery("select name from marker")) {
+            marker.next();
+            return marker.getString(1);
+        }
+    }
+
+    private String read(DataSource routing, boolean readOnly) {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("select name from marker", String.class));
+    }
+
+    @Test
+    @DisplayName("Read-only transactions go to the replicas, others to the primary")
+    void testReadOnlyTransactionsUseReplicas() {
+        ReplicaRoutingDataSource routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+
+        assertEquals("primary", read(routing, false));
+        assertTrue(read(routing, true).startsWith("replica"));
+        assertEquals("primary", new JdbcTemplate(routing).queryForObject("select name from marker", String.class));
+    }
+
+    @Test
+    @DisplayName("Round-robin alternates between replicas")
+    void testRoundRobin() {
+        ReplicaRoutingDataSource routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+
+        List<String> reads = List.of(read(routing, true), read(routing, true), read(routing, true), read(routing, true));
+
+        assertEquals(List.of("replica-a", "replica-b", "replica-a", "replica-b"), reads);
+    }
+
+    @Test
+    @DisplayName("Least-loaded picks the replica with fewer borrowed connections")
+    void testLeastLoaded() {
+        ReplicaRoutingDataSource routing = routing(ReplicaRoutingDataSource.Selection.LEAST_LOADED);
+        TransactionTemplate transaction = new TransactionTemplate(
+                new DataSourceTransactionManager(new LazyConnectionDataSourceProxy(routing)));
+        transaction.setReadOnly(true);
+
+        transaction.executeWithoutResult(status -> {
+            try (Connection first = routing.getConnection()) {
+                assertEquals("replica-a", name(first));
+                try (Connection second = routing.getConnection()) {
+                    assertEquals("replica-b", name(second));
+                    try (Connection third = routing.getConnection()) {
+                        assertEquals("replica-a", name(third));
+                    }
+                }
+                try (Connection fourth = routing.getConnection()) {
+                    assertEquals("replica-b", name(fourth));
+                }
+            } catch (SQLException e) {
+                fail(e);
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Lagging replicas are skipped and reads fall back to the primary when none qualifies")
+    void testLagFallback() {
+        ReplicaRoutingDataSource routing = routing(ReplicaRoutingDataSource.Selection.ROUND_ROBIN);
+
+        lag.put("replica-a", 30L);
+        routing.refreshReplicaLag();
+        assertEquals(List.of("replica-b"), routing.getHealthyReplicas());
+        assertEquals("replica-b", read(routing, true));
+        assertEquals("replica-b", read(routing, true));
+
+        lag.put("replica-b", Long.MAX_VALUE);
+        routing.refreshReplicaLag();
+        assertTrue(routing.getHealthyReplicas().isEmpty());
+        assertEquals("primary", read(routing, true));
+
+        lag.clear();
+        routing.refreshReplicaLag();
+        assertEquals(2, routing.getHealthyReplicas().size());
+    }
+}
@@ -6,18 +6,31 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.infy.customerRewards.controller.RewardController;
 import com.infy.customerRewards.dto.CustomerDTO;
 import com.infy.customerRewards.dto.CustomerResponseDTO;
+import com.infy.customerRewards.dto.LeaderboardDTO;
 import com.infy.customerRewards.dto.RewardResponseDTO;
+import com.infy.customerRewards.dto.RewardView;
 import com.infy.customerRewards.dto.TransactionDTO;
+import com.infy.customerRewards.exception.CustomException;
 import com.infy.customerRewards.service.RewardService;
 
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.function.Consumer;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -30,6 +43,12 @@ class RewardControllerTest {
     @Mock
     private RewardService rewardService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Spy
+    private MappingJackson2CborHttpMessageConverter cborConverter = new MappingJackson2CborHttpMessageConverter();
+
     private CustomerDTO customerDTO;
     private CustomerResponseDTO customerResponseDTO;
     private TransactionDTO txDto1, txDto2;
@@ -83,30 +102,96 @@ class RewardControllerTest {
     }
 
     // ---------------- GET /customers/{id}/transactions ----------------
+    @SuppressWarnings("unchecked")
+    private void streamTransactions(TransactionDTO... dtos) {
+        doAnswer(invocation -> {
+            Consumer<TransactionDTO> consumer = invocation.getArgument(1);
+            Arrays.stream(dtos).forEach(consumer);
+            return null;
+        }).when(rewardService).streamCustomerTransactions(eq(1L), any(Consumer.class));
+    }
+
+    private byte[] write(StreamingResponseBody body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toByteArray();
+    }
+
     @Test
     @DisplayName("Should return customer transactions successfully")
-    void testGetCustomerTransactionsSuccess() {
-        when(rewardService.getCustomerTransactions(1L)).thenReturn(Arrays.asList(txDto1, txDto2));
+    void testGetCustomerTransactionsSuccess() throws Exception {
+        streamTransactions(txDto1, txDto2);
 
-        ResponseEntity<List<TransactionDTO>> response = rewardController.getCustomerTransactions(1L);
+        ResponseEntity<StreamingResponseBody> response = rewardController.getCustomerTransactions(1L, new HttpHeaders());
+        List<TransactionDTO> body = objectMapper.readValue(write(response.getBody()), new TypeReference<List<TransactionDTO>>() {});
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
-        assertEquals(2, response.getBody().size());
-        assertEquals(90, response.getBody().get(1).getRewardPoints());
-        verify(rewardService, times(1)).getCustomerTransactions(1L);
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertEquals(2, body.size());
+        assertEquals(90, body.get(1).getRewardPoints());
+        verify(rewardService, times(1)).streamCustomerTransactions(eq(1L), any());
     }
 
     @Test
     @DisplayName("Should return empty list when customer has no transactions")
-    void testGetCustomerTransactionsEmpty() {
-        when(rewardService.getCustomerTransactions(1L)).thenReturn(Collections.emptyList());
+    void testGetCustomerTransactionsEmpty() throws Exception {
+        streamTransactions();
 
-        ResponseEntity<List<TransactionDTO>> response = rewardController.getCustomerTransactions(1L);
+        ResponseEntity<StreamingResponseBody> response = rewardController.getCustomerTransactions(1L, new HttpHeaders());
+        List<TransactionDTO> body = objectMapper.readValue(write(response.getBody()), new TypeReference<List<TransactionDTO>>() {});
 
         assertNotNull(response);
-        assertTrue(response.getBody().isEmpty());
-        verify(rewardService, times(1)).getCustomerTransactions(1L);
+        assertTrue(body.isEmpty());
+        verify(rewardService, times(1)).streamCustomerTransactions(eq(1L), any());
+    }
+
+    @Test
+    @DisplayName("Should return an empty JSON array, not null, when the service yields nothing")
+    void testGetCustomerTransactionsNullList() throws Exception {
+        when(rewardService.getCustomerTransactions(1L)).thenReturn(null);
+
+        ResponseEntity<StreamingResponseBody> response = rewardController.getCustomerTransactions(1L, new HttpHeaders());
+
+        assertNotNull(response.getBody());
+        assertEquals("[]", new String(write(response.getBody())));
+        verify(rewardService, times(1)).streamCustomerTransactions(eq(1L), any());
+        verify(rewardService, never()).getCustomerTransactions(any());
+    }
+
+    @Test
+    @DisplayName("Should stream customer transactions as CBOR when requested")
+    void testGetCustomerTransactionsCbor() throws Exception {
+        streamTransactions(txDto1, txDto2);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_CBOR));
+
+        ResponseEntity<StreamingResponseBody> response = rewardController.getCustomerTransactions(1L, headers);
+        List<TransactionDTO> body = cborConverter.getObjectMapper()
+                .readValue(write(response.getBody()), new TypeReference<List<TransactionDTO>>() {});
+
+        assertEquals(MediaType.APPLICATION_CBOR, response.getHeaders().getContentType());
+        assertEquals(2, body.size());
+        assertEquals("Product B", body.get(1).getProduct());
+    }
+
+    @Test
+    @DisplayName("Should negotiate CBOR from Accept headers with parameters, qualities and wildcards")
+    void testGetCustomerTransactionsCborNegotiation() {
+        when(rewardService.getTransactionsVersion(1L)).thenReturn("2-17");
+
+        assertEquals(MediaType.APPLICATION_CBOR, transactionsContentType("application/cbor;q=0.9"));
+        assertEquals(MediaType.APPLICATION_CBOR, transactionsContentType("application/json;q=0.5, application/cbor"));
+        assertEquals(MediaType.APPLICATION_CBOR, transactionsContentType("*/*, application/cbor"));
+        assertEquals(MediaType.APPLICATION_JSON, transactionsContentType("application/cbor;q=0.5, application/json"));
+        assertEquals(MediaType.APPLICATION_JSON, transactionsContentType("application/*"));
+        assertEquals(MediaType.APPLICATION_JSON, transactionsContentType("text/html"));
+    }
+
+    private MediaType transactionsContentType(String accept) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT, accept);
+        return rewardController.getCustomerTransactions(1L, headers).getHeaders().getContentType();
     }
 
     // ---------------- GET /customers/{id}/rewards ----------------
@@ -115,15 +200,126 @@ class RewardControllerTest {
     void testGetRewardsForCustomerSuccess() {
         LocalDate start = LocalDate.of(2025, 8, 1);
         LocalDate end = LocalDate.of(2025, 8, 31);
-        when(rewardService.getRewardsForCustomer(1L, start, end)).thenReturn(rewardResponseDTO);
+        when(rewardService.getRewardsForCustomer(1L, start, end, RewardView.FULL, false)).thenReturn(rewardResponseDTO);
 
-        ResponseEntity<RewardResponseDTO> response = rewardController.getRewardsForCustomer(1L, start, end);
+        ResponseEntity<RewardResponseDTO> response = rewardController.getRewardsForCustomer(1L, start, end, false, "full", false, new HttpHeaders());
 
         assertNotNull(response);
         assertEquals(200, response.getStatusCodeValue());
         assertEquals(90, response.getBody().getTotalRewards());
         assertEquals("2025-08-01", response.getBody().getTimeFrame().get("startDate"));
-        verify(rewardService, times(1)).getRewardsForCustomer(1L, start, end);
+        verify(rewardService, times(1)).getRewardsForCustomer(1L, start, end, RewardView.FULL, false);
+    }
+
+    @Test
+    @DisplayName("Should return rolling rewards when rolling option is set")
+    void testGetRollingRewardsForCustomerSuccess() {
+        LocalDate start = LocalDate.of(2025, 8, 1);
+        LocalDate end = LocalDate.of(2025, 8, 31);
+        when(rewardService.getRollingRewardsForCustomer(1L, start, end, RewardView.FULL, false)).thenReturn(rewardResponseDTO);
+
+        ResponseEntity<RewardResponseDTO> response = rewardController.getRewardsForCustomer(1L, start, end, true, "full", false, new HttpHeaders());
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(90, response.getBody().getTotalRewards());
+        verify(rewardService, times(1)).getRollingRewardsForCustomer(1L, start, end, RewardView.FULL, false);
+        verify(rewardService, never()).getRewardsForCustomer(any(), any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Should pass the requested view to the service")
+    void testGetRewardsForCustomerSummaryView() {
+        LocalDate start = LocalDate.of(2025, 8, 1);
+        LocalDate end = LocalDate.of(2025, 8, 31);
+        when(rewardService.getRewardsForCustomer(1L, start, end, RewardView.SUMMARY, false)).thenReturn(rewardResponseDTO);
+
+        ResponseEntity<RewardResponseDTO> response = rewardController.getRewardsForCustomer(1L, start, end, false, "Summary", false, new HttpHeaders());
+
+        assertEquals(200, response.getStatusCodeValue());
+        verify(rewardService, times(1)).getRewardsForCustomer(1L, start, end, RewardView.SUMMARY, false);
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown view")
+    void testGetRewardsForCustomerInvalidView() {
+        LocalDate start = LocalDate.of(2025, 8, 1);
+        LocalDate end = LocalDate.of(2025, 8, 31);
+
+        assertThrows(CustomException.class, () ->
+                rewardController.getRewardsForCustomer(1L, start, end, false, "everything", false, new HttpHeaders())
+        );
+        verifyNoInteractions(rewardService);
+    }
+
+    @Test
+    @DisplayName("Should return 304 without calculating rewards when the ETag still matches")
+    void testGetRewardsForCustomerNotModified() {
+        LocalDate start = LocalDate.of(2025, 8, 1);
+        LocalDate end = LocalDate.of(2025, 8, 31);
+        when(rewardService.getTransactionsVersion(1L)).thenReturn("2-17");
+        when(rewardService.getRewardsForCustomer(1L, start, end, RewardView.FULL, false)).thenReturn(rewardResponseDTO);
+
+        ResponseEntity<RewardResponseDTO> first = rewardController.getRewardsForCustomer(1L, start, end, false, "full", false, new HttpHeaders());
+        HttpHeaders revalidate = new HttpHeaders();
+        revalidate.setIfNoneMatch(first.getHeaders().getETag());
+        ResponseEntity<RewardResponseDTO> second = rewardController.getRewardsForCustomer(1L, start, end, false, "full", false, revalidate);
+
+        assertNotNull(first.getHeaders().getETag());
+        assertEquals(304, second.getStatusCodeValue());
+        assertNull(second.getBody());
+        assertEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+        verify(rewardService, times(1)).getRewardsForCustomer(1L, start, end, RewardView.FULL, false);
+    }
+
+    @Test
+    @DisplayName("Should encode rewards as CBOR and use a separate ETag when CBOR is accepted with parameters")
+    void testGetRewardsForCustomerCbor() {
+        LocalDate start = LocalDate.of(2025, 8, 1);
+        LocalDate end = LocalDate.of(2025, 8, 31);
+        when(rewardService.getTransactionsVersion(1L)).thenReturn("2-17");
+        when(rewardService.getRewardsForCustomer(1L, start, end, RewardView.FULL, false)).thenReturn(rewardResponseDTO);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT, "application/cbor;q=0.9, text/plain;q=0.1");
+
+        ResponseEntity<RewardResponseDTO> json = rewardController.getRewardsForCustomer(1L, start, end, false, "full", false, new HttpHeaders());
+        ResponseEntity<RewardResponseDTO> cbor = rewardController.getRewardsForCustomer(1L, start, end, false, "full", false, headers);
+
+        assertEquals(MediaType.APPLICATION_JSON, json.getHeaders().getContentType());
+        assertEquals(MediaType.APPLICATION_CBOR, cbor.getHeaders().getContentType());
+        assertNotEquals(json.getHeaders().getETag(), cbor.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("Should change the ETag when the customer's transactions change")
+    void testGetRewardsForCustomerETagChanges() {
+        LocalDate start = LocalDate.of(2025, 8, 1);
+        LocalDate end = LocalDate.of(2025, 8, 31);
+        when(rewardService.getTransactionsVersion(1L)).thenReturn("2-17", "3-18");
+        when(rewardService.getRewardsForCustomer(1L, start, end, RewardView.FULL, false)).thenReturn(rewardResponseDTO);
+
+        ResponseEntity<RewardResponseDTO> first = rewardController.getRewardsForCustomer(1L, start, end, false, "full", false, new HttpHeaders());
+        HttpHeaders revalidate = new HttpHeaders();
+        revalidate.setIfNoneMatch(first.getHeaders().getETag());
+        ResponseEntity<RewardResponseDTO> second = rewardController.getRewardsForCustomer(1L, start, end, false, "full", false, revalidate);
+
+        assertEquals(200, second.getStatusCodeValue());
+        assertNotEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("Should allow long caching only for periods in closed months")
+    void testGetRewardsForCustomerCacheControl() {
+        LocalDate closedStart = LocalDate.of(2025, 8, 1);
+        LocalDate closedEnd = LocalDate.of(2025, 8, 31);
+        LocalDate openStart = LocalDate.now().withDayOfMonth(1);
+        LocalDate openEnd = LocalDate.now();
+        when(rewardService.getRewardsForCustomer(eq(1L), any(), any(), eq(RewardView.FULL), eq(false))).thenReturn(rewardResponseDTO);
+
+        ResponseEntity<RewardResponseDTO> closed = rewardController.getRewardsForCustomer(1L, closedStart, closedEnd, false, "full", false, new HttpHeaders());
+        ResponseEntity<RewardResponseDTO> open = rewardController.getRewardsForCustomer(1L, openStart, openEnd, false, "full", false, new HttpHeaders());
+
+        assertTrue(closed.getHeaders().getCacheControl().contains("max-age="));
+        assertTrue(open.getHeaders().getCacheControl().contains("no-cache"));
     }
 
     @Test
@@ -131,25 +327,54 @@ class RewardControllerTest {
     void testGetRewardsForCustomerNoTransactions() {
         LocalDate start = LocalDate.of(2025, 8, 1);
         LocalDate end = LocalDate.of(2025, 8, 31);
-        when(rewardService.getRewardsForCustomer(1L, start, end))
+        when(rewardService.getRewardsForCustomer(1L, start, end, RewardView.FULL, false))
                 .thenThrow(new RuntimeException("No transactions found"));
 
         RuntimeException ex = assertThrows(RuntimeException.class, () ->
-                rewardController.getRewardsForCustomer(1L, start, end)
+                rewardController.getRewardsForCustomer(1L, start, end, false, "full", false, new HttpHeaders())
         );
 
         assertEquals("No transactions found", ex.getMessage());
-        verify(rewardService, times(1)).getRewardsForCustomer(1L, start, end);
+        verify(rewardService, times(1)).getRewardsForCustomer(1L, start, end, RewardView.FULL, false);
     }
 
     // ---------------- Edge Cases ----------------
     @Test
-    @DisplayName("Should handle null list when fetching customer transactions")
-    void testGetCustomerTransactionsNullList() {
-        when(rewardService.getCustomerTransactions(1L)).thenReturn(null);
+    @DisplayName("Should not stream transactions when the ETag still matches")
+    void testGetCustomerTransactionsNotModified() {
+        when(rewardService.getTransactionsVersion(1L)).thenReturn("2-17");
+
+        ResponseEntity<StreamingResponseBody> first = rewardController.getCustomerTransactions(1L, new HttpHeaders());
+        HttpHeaders revalidate = new HttpHeaders();
+        revalidate.setIfNoneMatch(first.getHeaders().getETag());
+        ResponseEntity<StreamingResponseBody> second = rewardController.getCustomerTransactions(1L, revalidate);
+
+        assertEquals(304, second.getStatusCodeValue());
+        assertNull(second.getBody());
+        verify(rewardService, never()).streamCustomerTransactions(any(), any());
+    }
+
+    // ---------------- GET /leaderboard ----------------
+    @Test
+    @DisplayName("Should return a leaderboard page, defaulting to the current month")
+    void testGetLeaderboard() {
+        LeaderboardDTO leaderboard = new LeaderboardDTO();
+        when(rewardService.getLeaderboard(YearMonth.now(), 2, 50)).thenReturn(leaderboard);
+
+        ResponseEntity<LeaderboardDTO> response = rewardController.getLeaderboard(null, 2, 50);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertSame(leaderboard, response.getBody());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid leaderboard paging")
+    void testGetLeaderboardInvalidPaging() {
+        YearMonth month = YearMonth.of(2025, 8);
 
-        ResponseEntity<List<TransactionDTO>> response = rewardController.getCustomerTransactions(1L);
-        assertNull(response.getBody());
-        verify(rewardService, times(1)).getCustomerTransactions(1L);
+        assertThrows(CustomException.class, () -> rewardController.getLeaderboard(month, -1, 50));
+        assertThrows(CustomException.class, () -> rewardController.getLeaderboard(month, 0, 0));
+        assertThrows(CustomException.class, () -> rewardController.getLeaderboard(month, 0, 1001));
+        verifyNoInteractions(rewardService);
     }
 }
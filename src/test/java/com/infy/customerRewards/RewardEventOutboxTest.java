@@ -0,0 +1,254 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.modelmapper.ModelMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.infy.customerRewards.controller.RewardEventController;
+import com.infy.customerRewards.dto.MonthlyPointsSummary;
+import com.infy.customerRewards.dto.PointsEarnedDTO;
+import com.infy.customerRewards.repository.TransactionRepository;
+import com.infy.customerRewards.utility.FileRewardEventSink;
+import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.RewardEventOutbox;
+import com.infy.customerRewards.utility.RewardEventSink;
+import com.infy.customerRewards.utility.RewardEventStream;
+import com.infy.customerRewards.utility.ShardRouter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import static com.infy.customerRewards.TestTransactions.tx;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class RewardEventOutboxTest {
+
+    @TempDir
+    Path directory;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private TransactionRepository transactionRepository;
+    private RewardEventStream stream;
+    private Path file;
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:events-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table customers (id bigint primary key)");
+        jdbc.update("insert into customers (id) values (1)");
+        TestSchema.create(jdbc, "reward_events", "reward_event_drain");
+        transactionRepository = mock(TransactionRepository.class);
+        stream = new RewardEventStream(8, 60_000, 10_000);
+        file = directory.resolve("events.jsonl");
+        objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.close();
+        jdbc.execute("shutdown");
+    }
+
+    private RewardEventOutbox outbox(RewardEventSink sink, int batchSize) {
+        return new RewardEventOutbox(jdbc, new DataSourceTransactionManager(dataSource), transactionRepository,
+                new RewardCalculator(new ModelMapper()), stream, sink, ShardRouter.single(), true, batchSize);
+    }
+
+    private static MonthlyPointsSummary month(int year, int month, long points) {
+        MonthlyPointsSummary summary = mock(MonthlyPointsSummary.class);
+        when(summary.getYear()).thenReturn(year);
+        when(summary.getMonth()).thenReturn(month);
+        when(summary.getPoints()).thenReturn(points);
+        return summary;
+    }
+
+    private void recordTotals(long lifetime, MonthlyPointsSummary... months) {
+        when(transactionRepository.sumPointsByCustomerId(1L)).thenReturn(lifetime);
+        when(transactionRepository.sumPointsByMonth(eq(1L), any(), any())).thenReturn(List.of(months));
+    }
+
+    @Test
+    @DisplayName("Each earning transaction becomes an event with running month and lifetime totals")
+    void testRunningTotals() {
+        // Totals after the batch: March 90 + 25 + 20 = 135 with 35 before it, April 250, lifetime 1000
+        recordTotals(1000, month(2024, 3, 135), month(2024, 4, 250));
+        RewardEventOutbox outbox = outbox(new FileRewardEventSink(objectMapper, file.toString()), 100);
+
+        outbox.record(Map.of(1L, List.of(
+                tx(LocalDate.of(2024, 3, 5), 120.0),
+                tx(LocalDate.of(2024, 3, 6), 40.0),
+                tx(LocalDate.of(2024, 4, 1), 200.0),
+                tx(LocalDate.of(2024, 3, 9), 70.0))));
+
+        List<PointsEarnedDTO> events = stream.readAfter(0, 10);
+        assertEquals(3, events.size());
+        assertEquals(List.of(90, 250, 20), events.stream().map(PointsEarnedDTO::getDelta).toList());
+        assertEquals(List.of(YearMonth.of(2024, 3), YearMonth.of(2024, 4), YearMonth.of(2024, 3)),
+                events.stream().map(PointsEarnedDTO::getMonth).toList());
+        assertEquals(List.of(115L, 250L, 135L), events.stream().map(PointsEarnedDTO::getMonthPoints).toList());
+        assertEquals(List.of(730L, 980L, 1000L), events.stream().map(PointsEarnedDTO::getLifetimePoints).toList());
+        assertEquals(3, jdbc.queryForObject("select count(*) from reward_events", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Draining hands the outbox to the file sink in batches and empties it")
+    void testDrainToFile() throws Exception {
+        recordTotals(275, month(2024, 3, 275));
+        RewardEventOutbox outbox = outbox(new FileRewardEventSink(objectMapper, file.toString()), 2);
+        outbox.record(Map.of(1L, List.of(
+                tx(LocalDate.of(2024, 3, 1), 60.0),
+                tx(LocalDate.of(2024, 3, 2), 80.0),
+                tx(LocalDate.of(2024, 3, 3), 100.0),
+                tx(LocalDate.of(2024, 3, 4), 160.0),
+                tx(LocalDate.of(2024, 3, 5), 100.0))));
+
+        outbox.drain();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(5, lines.size());
+        JsonNode last = objectMapper.readTree(lines.get(4));
+        assertEquals(1, last.get("customerId").asLong());
+        assertEquals("2024-03", last.get("month").asText());
+        assertEquals(50, last.get("delta").asInt());
+        assertEquals(275, last.get("lifetimePoints").asLong());
+        assertEquals(0, jdbc.queryForObject("select count(*) from reward_events", Integer.class));
+    }
+
+    @Test
+    @DisplayName("A failing sink leaves the events in the outbox for the next drain")
+    void testFailedDeliveryIsRetried() {
+        recordTotals(90, month(2024, 3, 90));
+        List<PointsEarnedDTO> delivered = new ArrayList<>();
+        boolean[] failing = { true };
+        RewardEventOutbox outbox = outbox(events -> {
+            if (failing[0]) {
+                throw new IllegalStateException("sink unavailable");
+            }
+            delivered.addAll(events);
+        }, 100);
+        outbox.record(Map.of(1L, List.of(tx(LocalDate.of(2024, 3, 1), 120.0))));
+
+        outbox.drain();
+        assertEquals(1, jdbc.queryForObject("select count(*) from reward_events", Integer.class));
+
+        failing[0] = false;
+        outbox.drain();
+        assertEquals(1, delivered.size());
+        assertEquals(90, delivered.get(0).getDelta());
+        assertEquals(0, jdbc.queryForObject("select count(*) from reward_events", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Events are only written and streamed if the recording transaction commits")
+    void testRecordedInTransaction() {
+        recordTotals(90, month(2024, 3, 90));
+        RewardEventOutbox outbox = outbox(events -> { }, 100);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        transaction.executeWithoutResult(status -> {
+            outbox.record(Map.of(1L, List.of(tx(LocalDate.of(2024, 3, 1), 120.0))));
+            status.setRollbackOnly();
+        });
+        assertEquals(0, jdbc.queryForObject("select count(*) from reward_events", Integer.class));
+        assertEquals(0, stream.getLastSequence());
+
+        transaction.executeWithoutResult(status -> {
+            outbox.record(Map.of(1L, List.of(tx(LocalDate.of(2024, 3, 1), 120.0))));
+            assertEquals(0, stream.getLastSequence());
+        });
+        assertEquals(1, jdbc.queryForObject("select count(*) from reward_events", Integer.class));
+        assertEquals(1, stream.getLastSequence());
+    }
+
+    @Test
+    @DisplayName("An instance skips the drain while another one holds the drain lock")
+    void testDrainLock() {
+        recordTotals(90, month(2024, 3, 90));
+        List<PointsEarnedDTO> delivered = new ArrayList<>();
+        RewardEventOutbox outbox = outbox(delivered::addAll, 100);
+        outbox.record(Map.of(1L, List.of(tx(LocalDate.of(2024, 3, 1), 120.0))));
+
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).executeWithoutResult(status -> {
+            jdbc.queryForList("select id from reward_event_drain for update", Integer.class);
+            CompletableFuture.runAsync(outbox::drain).join();
+            assertTrue(delivered.isEmpty());
+        });
+
+        outbox.drain();
+        assertEquals(1, delivered.size());
+        assertEquals(0, jdbc.queryForObject("select count(*) from reward_events", Integer.class));
+    }
+
+    @Test
+    @DisplayName("The ring buffer keeps the newest events and resumes readers at the oldest one kept")
+    void testRingOverwrite() {
+        for (int i = 1; i <= 12; i++) {
+            PointsEarnedDTO event = new PointsEarnedDTO();
+            event.setDelta(i);
+            stream.append(event);
+        }
+
+        assertEquals(12, stream.getLastSequence());
+        List<PointsEarnedDTO> events = stream.readAfter(0, 100);
+        assertEquals(8, events.size());
+        assertEquals(5, events.get(0).getSequence());
+        assertEquals(List.of(11L, 12L), stream.readAfter(10, 100).stream().map(PointsEarnedDTO::getSequence).toList());
+        assertTrue(stream.readAfter(12, 100).isEmpty());
+    }
+
+    @Test
+    @DisplayName("A subscriber resuming after events the ring buffer overwrote is sent a reset before the oldest one kept")
+    void testResumeAfterOverwrittenEvents() throws Exception {
+        for (int i = 1; i <= 12; i++) {
+            PointsEarnedDTO event = new PointsEarnedDTO();
+            event.setDelta(i);
+            stream.append(event);
+        }
+        RewardEventController controller = new RewardEventController();
+        ReflectionTestUtils.setField(controller, "rewardEventStream", stream);
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        MvcResult result = mockMvc.perform(get("/api/rewards/events").header("Last-Event-ID", stream.eventId(2)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = "";
+        for (int attempt = 0; attempt < 100 && !body.contains("id:" + stream.eventId(12)); attempt++) {
+            Thread.sleep(50);
+            body = result.getResponse().getContentAsString();
+        }
+        assertTrue(body.contains("event:reset"), body);
+        assertTrue(body.indexOf("event:reset") < body.indexOf("id:" + stream.eventId(5)), body);
+        assertFalse(body.contains("id:" + stream.eventId(4)), body);
+        assertTrue(body.contains("id:" + stream.eventId(12)), body);
+    }
+}
@@ -0,0 +1,158 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.modelmapper.ModelMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.infy.customerRewards.dto.CustomerPointsDTO;
+import com.infy.customerRewards.dto.LeaderboardDTO;
+import com.infy.customerRewards.dto.LeaderboardEntryDTO;
+import com.infy.customerRewards.exception.CustomException;
+import com.infy.customerRewards.repository.TransactionRepository;
+import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.RewardLeaderboard;
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.utility.ShardRouter;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Collectors;
+import static com.infy.customerRewards.TestTransactions.insert;
+import static com.infy.customerRewards.TestTransactions.transactionsTable;
+import static com.infy.customerRewards.TestTransactions.tx;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RewardLeaderboardTest {
+
+    private TransactionRepository transactionRepository;
+    private JdbcTemplate jdbc;
+    private RewardLeaderboard leaderboard;
+    private YearMonth current;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        jdbc = transactionsTable();
+        leaderboard = new RewardLeaderboard(transactionRepository, jdbc, new RewardCalculator(new ModelMapper()),
+                ShardRouter.single(), 3, 30_000);
+        current = YearMonth.now();
+    }
+
+    /**
+     * Saves a transaction, as any instance would, and lets the leaderboard catch up with it.
+     */
+    private void record(long customerId, Transaction transaction) {
+        insert(jdbc, customerId, List.of(transaction));
+        leaderboard.catchUp();
+    }
+
+    private void record(long customerId, double amount) {
+        record(customerId, tx(current.atDay(1), amount));
+    }
+
+    private List<Long> customers(LeaderboardDTO page) {
+        return page.getEntries().stream().map(LeaderboardEntryDTO::getCustomerId).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Loads the tracked months from the database")
+    void testLoad() {
+        insert(jdbc, 5L, List.of(tx(current.atDay(1), 60.0)));
+        when(transactionRepository.sumPointsByCustomer(any(), any(), any())).thenReturn(List.of());
+        when(transactionRepository.sumPointsByCustomer(current.atDay(1), current.atEndOfMonth(), 1L))
+                .thenReturn(List.of(new CustomerPointsDTO(7L, 40L), new CustomerPointsDTO(3L, 90L)));
+
+        leaderboard.load();
+        record(7L, 120.0); // 90 points
+
+        LeaderboardDTO page = leaderboard.page(current, 0, 10);
+        assertEquals(List.of(7L, 3L), customers(page));
+        assertEquals(130L, page.getEntries().get(0).getPoints());
+        verify(transactionRepository, times(3)).sumPointsByCustomer(any(), any(), eq(1L));
+    }
+
+    @Test
+    @DisplayName("Transactions saved by other instances are ranked once the catch-up reaches them")
+    void testCatchUp() {
+        leaderboard.load();
+        insert(jdbc, 4L, List.of(tx(current.atDay(2), 120.0), tx(current.atDay(3), 75.0)));
+
+        assertTrue(leaderboard.page(current, 0, 10).getEntries().isEmpty());
+        leaderboard.catchUp();
+
+        LeaderboardDTO page = leaderboard.page(current, 0, 10);
+        assertEquals(List.of(4L), customers(page));
+        assertEquals(115L, page.getEntries().get(0).getPoints());
+    }
+
+    @Test
+    @DisplayName("Ranks by points and breaks ties by customer ID")
+    void testRankingAndTies() {
+        record(5L, 120.0);  // 90
+        record(2L, 120.0);  // 90
+        record(9L, 200.0);  // 250
+        record(4L, 75.0);   // 25
+        record(8L, 40.0);   // 0, not ranked
+        record(4L, 200.0);  // 275 in total
+
+        LeaderboardDTO page = leaderboard.page(current, 0, 10);
+
+        assertEquals(List.of(4L, 9L, 2L, 5L), customers(page));
+        assertEquals(List.of(1, 2, 3, 4), page.getEntries().stream().map(LeaderboardEntryDTO::getRank).toList());
+        assertEquals(4, page.getTotalCustomers());
+    }
+
+    @Test
+    @DisplayName("Pages past the cached ranks match a full sort of the totals")
+    void testPagination() {
+        RewardCalculator rewardCalculator = new RewardCalculator(new ModelMapper());
+        Random random = new Random(7);
+        Map<Long, Long> totals = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long customerId = random.nextInt(3_000);
+            double amount = 50 + random.nextInt(100);
+            insert(jdbc, customerId, List.of(tx(current.atDay(1), amount)));
+            totals.merge(customerId, (long) rewardCalculator.calculatePoints(amount), Long::sum);
+        }
+        leaderboard.catchUp();
+        totals.values().removeIf(points -> points == 0);
+        List<Long> expected = totals.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        List<Long> actual = new ArrayList<>();
+        for (int page = 0; ; page++) {
+            LeaderboardDTO result = leaderboard.page(current, page, 700);
+            if (result.getEntries().isEmpty()) {
+                break;
+            }
+            actual.addAll(customers(result));
+        }
+        assertEquals(expected, actual);
+
+        // a change below the cached ranks leaves the first page alone, one reaching them shows up
+        LeaderboardDTO first = leaderboard.page(current, 0, 10);
+        record(expected.get(expected.size() - 1), 51.0);
+        assertEquals(customers(first), customers(leaderboard.page(current, 0, 10)));
+        record(expected.get(expected.size() - 1), 10_000.0);
+        assertEquals(expected.get(expected.size() - 1), customers(leaderboard.page(current, 0, 10)).get(0));
+    }
+
+    @Test
+    @DisplayName("Months before the tracked period are rejected, untracked ones are empty")
+    void testMonths() {
+        record(1L, 120.0);
+        record(1L, tx(current.minusMonths(5).atDay(1), 120.0));
+
+        assertThrows(CustomException.class, () -> leaderboard.page(current.minusMonths(3), 0, 10));
+        assertTrue(leaderboard.page(current.minusMonths(2), 0, 10).getEntries().isEmpty());
+        assertEquals(1, leaderboard.page(current, 0, 10).getTotalCustomers());
+    }
+}
@@ -0,0 +1,127 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import com.infy.customerRewards.dto.CustomerPointsDTO;
+import com.infy.customerRewards.dto.MonthlyPointsSummary;
+import com.infy.customerRewards.dto.TransactionAmountDTO;
+import com.infy.customerRewards.entity.Customer;
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.repository.TransactionRepository;
+import com.infy.customerRewards.utility.RewardCalculator;
+
+import org.modelmapper.ModelMapper;
+
+import java.time.LocalDate;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the point sums of TransactionRepository on H2 and checks that RewardCalculator.POINTS_JPQL
+ * agrees with RewardCalculator.calculatePoints, including the amounts at and around the thresholds.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:points;NON_KEYWORDS=DATE,MONTH;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.main.banner-mode=off"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class RewardPointsQueryTest {
+
+    private static final double[] AMOUNTS = {
+            0, 0.01, 49.99, 50, 50.01, 50.99, 51, 75.5, 99.99, 100, 100.01, 100.5, 100.99, 101, 120, 250.75, 9999.99
+    };
+
+    private final RewardCalculator rewardCalculator = new RewardCalculator(new ModelMapper());
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = new Customer();
+        customer.setCustName("Points");
+        customer.setPhoneNo("0000000000");
+        customer = entityManager.persist(customer);
+    }
+
+    private void persist(LocalDate date, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setDate(date);
+        transaction.setAmount(amount);
+        transaction.setProduct("Product");
+        transaction.setCustomer(customer);
+        entityManager.persist(transaction);
+    }
+
+    @Test
+    @DisplayName("The database calculates the same points as calculatePoints for every amount")
+    void testSqlPointsMatchCalculatePoints() {
+        for (int i = 0; i < AMOUNTS.length; i++) {
+            persist(LocalDate.of(2025, 1, 1).plusMonths(i), AMOUNTS[i]);
+        }
+        entityManager.flush();
+
+        List<MonthlyPointsSummary> months = transactionRepository.sumPointsByMonth(
+                customer.getId(), LocalDate.of(2025, 1, 1), LocalDate.of(2026, 12, 31));
+
+        assertEquals(AMOUNTS.length, months.size());
+        for (int i = 0; i < AMOUNTS.length; i++) {
+            assertEquals(rewardCalculator.calculatePoints(AMOUNTS[i]), months.get(i).getPoints().longValue(),
+                    "points of " + AMOUNTS[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Customer totals and rankings use the same points as calculatePoints")
+    void testSqlTotalsMatchCalculatePoints() {
+        long expected = 0;
+        for (double amount : AMOUNTS) {
+            persist(LocalDate.of(2025, 3, 15), amount);
+            expected += rewardCalculator.calculatePoints(amount);
+        }
+        entityManager.flush();
+
+        assertEquals(expected, transactionRepository.sumPointsByCustomerId(customer.getId()));
+        List<CustomerPointsDTO> ranking = transactionRepository.sumPointsByCustomer(
+                LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31), Long.MAX_VALUE);
+        assertEquals(1, ranking.size());
+        assertEquals(expected, ranking.get(0).getPoints().longValue());
+    }
+
+    @Test
+    @DisplayName("The amount projection returns only the transactions of the range")
+    void testFindAmounts() {
+        persist(LocalDate.of(2025, 2, 28), 80);
+        persist(LocalDate.of(2025, 3, 1), 120);
+        persist(LocalDate.of(2025, 3, 31), 60.5);
+        persist(LocalDate.of(2025, 4, 1), 200);
+        entityManager.flush();
+
+        List<TransactionAmountDTO> amounts = transactionRepository.findAmountsByCustomerIdAndDateBetween(
+                customer.getId(), LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+
+        assertEquals(2, amounts.size());
+        assertEquals(Set.of(120.0, 60.5), Set.of(amounts.get(0).getAmount(), amounts.get(1).getAmount()));
+        assertTrue(amounts.stream().allMatch(amount -> amount.getDate().getMonthValue() == 3));
+    }
+}
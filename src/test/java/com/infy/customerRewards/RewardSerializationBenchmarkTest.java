@@ -0,0 +1,141 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infy.customerRewards.dto.MonthlyRewardDTO;
+import com.infy.customerRewards.dto.RewardResponseDTO;
+import com.infy.customerRewards.dto.TransactionDTO;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares serialized size and encode/decode throughput of the reward response
+ * in JSON and CBOR, using the same mapper configuration as the HTTP converters.
+ * The throughput measurement is tagged "benchmark" and run by {@code mvn test -Pbenchmark};
+ * it writes target/benchmark/serialization.properties for comparison between builds.
+ */
+class RewardSerializationBenchmarkTest {
+
+    private static final Path REPORT_DIRECTORY = Path.of("target/benchmark");
+
+    private static final int TRANSACTIONS = 500;
+    private static final int WARMUP_ITERATIONS = 300;
+    private static final int ITERATIONS = 1000;
+
+    private ObjectMapper jsonMapper;
+    private ObjectMapper cborMapper;
+    private RewardResponseDTO response;
+
+    @BeforeEach
+    void setUp() {
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+
+        List<TransactionDTO> transactions = new ArrayList<>();
+        LocalDate date = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            TransactionDTO dto = new TransactionDTO();
+            dto.setDate(date.plusDays(i % 180));
+            dto.setAmount(25.0 + (i % 200));
+            dto.setProduct("Product " + (i % 40));
+            dto.setRewardPoints(i % 250);
+            transactions.add(dto);
+        }
+
+        List<MonthlyRewardDTO> monthly = new ArrayList<>();
+        for (int month = 1; month <= 6; month++) {
+            monthly.add(MonthlyRewardDTO.builder().year(2025).month("Month " + month).points(month * 1000).build());
+        }
+
+        Map<String, String> timeFrame = new HashMap<>();
+        timeFrame.put("startDate", "2025-01-01");
+        timeFrame.put("endDate", "2025-06-30");
+
+        response = RewardResponseDTO.builder()
+                .customerId(1L)
+                .custName("John Doe")
+                .phoneNo("$2a$10$g8S4kPvrcZZPFt2IMLJGAOhPfQHcQcGPsUxn4uhfmBNXxU7..UeyO")
+                .transactions(transactions)
+                .monthlyRewards(monthly)
+                .totalRewards(123456)
+                .timeFrame(timeFrame)
+                .build();
+    }
+
+    @Test
+    @DisplayName("CBOR round-trips the reward response")
+    void testCborRoundTrip() throws Exception {
+        RewardResponseDTO decoded = cborMapper.readValue(cborMapper.writeValueAsBytes(response), RewardResponseDTO.class);
+
+        assertEquals(response.getTotalRewards(), decoded.getTotalRewards());
+        assertEquals(TRANSACTIONS, decoded.getTransactions().size());
+        assertEquals(response.getTransactions().get(7).getDate(), decoded.getTransactions().get(7).getDate());
+        assertEquals(response.getTransactions().get(7).getAmount(), decoded.getTransactions().get(7).getAmount());
+        assertEquals("Month 3", decoded.getMonthlyRewards().get(2).getMonth());
+        assertEquals("2025-06-30", decoded.getTimeFrame().get("endDate"));
+    }
+
+    @Test
+    @DisplayName("CBOR is smaller than JSON")
+    void testSize() throws Exception {
+        assertTrue(cborMapper.writeValueAsBytes(response).length < jsonMapper.writeValueAsBytes(response).length,
+                "CBOR payload should be smaller than JSON");
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Reports size and throughput of both encodings")
+    void testThroughput() throws Exception {
+        byte[] json = jsonMapper.writeValueAsBytes(response);
+        byte[] cbor = cborMapper.writeValueAsBytes(response);
+
+        double jsonEncode = encodeOpsPerSecond(jsonMapper);
+        double cborEncode = encodeOpsPerSecond(cborMapper);
+        double jsonDecode = decodeOpsPerSecond(jsonMapper, json);
+        double cborDecode = decodeOpsPerSecond(cborMapper, cbor);
+
+        Files.createDirectories(REPORT_DIRECTORY);
+        Files.writeString(REPORT_DIRECTORY.resolve("serialization.properties"),
+                "serialization.transactions=" + TRANSACTIONS + "\n"
+                        + "serialization.json.bytes=" + json.length + "\n"
+                        + String.format(Locale.ROOT, "serialization.json.encode.ops-per-second=%.0f\n", jsonEncode)
+                        + String.format(Locale.ROOT, "serialization.json.decode.ops-per-second=%.0f\n", jsonDecode)
+                        + "serialization.cbor.bytes=" + cbor.length + "\n"
+                        + String.format(Locale.ROOT, "serialization.cbor.encode.ops-per-second=%.0f\n", cborEncode)
+                        + String.format(Locale.ROOT, "serialization.cbor.decode.ops-per-second=%.0f\n", cborDecode));
+
+        assertTrue(jsonEncode > 0 && cborEncode > 0 && jsonDecode > 0 && cborDecode > 0);
+    }
+
+    private double encodeOpsPerSecond(ObjectMapper mapper) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            mapper.writeValueAsBytes(response);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(response);
+        }
+        return ITERATIONS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private double decodeOpsPerSecond(ObjectMapper mapper, byte[] payload) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            mapper.readValue(payload, RewardResponseDTO.class);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.readValue(payload, RewardResponseDTO.class);
+        }
+        return ITERATIONS / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -7,20 +7,35 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.env.Environment;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import com.infy.customerRewards.dto.CustomerDTO;
 import com.infy.customerRewards.dto.CustomerResponseDTO;
+import com.infy.customerRewards.dto.MonthlyPointsSummary;
 import com.infy.customerRewards.dto.RewardResponseDTO;
+import com.infy.customerRewards.dto.RewardView;
 import com.infy.customerRewards.dto.TransactionDTO;
+import com.infy.customerRewards.exception.CustomException;
 import com.infy.customerRewards.entity.Customer;
 import com.infy.customerRewards.entity.Transaction;
 import com.infy.customerRewards.repository.CustomerRepository;
 import com.infy.customerRewards.repository.TransactionRepository;
 import com.infy.customerRewards.serviceImpl.RewardServiceImpl;
-
+import com.infy.customerRewards.utility.IdempotencyKeys;
+import com.infy.customerRewards.utility.InProcessRewardsCacheTier;
+import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.RewardEventOutbox;
+import com.infy.customerRewards.utility.ShardRouter;
+import com.infy.customerRewards.utility.TransactionArchive;
+import com.infy.customerRewards.utility.TransactionJournal;
+import com.infy.customerRewards.utility.TransactionsRecordedEvent;
+import com.infy.customerRewards.utility.TwoLevelRewardsCache;
+
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -46,6 +61,34 @@ class RewardServiceImplTest {
     
     @Mock
     private PasswordEncoder passwordEncoder;
+
+    @Spy
+    private RewardCalculator rewardCalculator = new RewardCalculator(new ModelMapper());
+
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TransactionJournal transactionJournal;
+
+    @Mock
+    private IdempotencyKeys idempotencyKeys;
+
+    @Mock
+    private RewardEventOutbox rewardEventOutbox;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private ShardRouter shardRouter = ShardRouter.single();
+
+    @Spy
+    private TwoLevelRewardsCache rewardsCache = new TwoLevelRewardsCache(new InProcessRewardsCacheTier(1000), false, 100,
+            Duration.ofSeconds(5), Duration.ofMinutes(10));
     
     private Customer customer;
     private Transaction tx1, tx2;
@@ -109,6 +152,26 @@ class RewardServiceImplTest {
         CustomerResponseDTO response = rewardService.createCustomer(customerDTO);
         assertNotNull(response);
         verify(customerRepository, times(1)).save(customer);
+        verify(eventPublisher, never()).publishEvent(any(TransactionsRecordedEvent.class));
+        verify(rewardEventOutbox, never()).record(any());
+    }
+
+    @Test
+    @DisplayName("Create Customer - Publishes Recorded Transactions")
+    void testCreateCustomerPublishesTransactions() {
+        customer.setTransactions(new ArrayList<>(Arrays.asList(tx1, tx2)));
+        when(mapper.map(customerDTO, Customer.class)).thenReturn(customer);
+        when(customerRepository.save(customer)).thenReturn(customer);
+        when(mapper.map(customer, CustomerResponseDTO.class)).thenReturn(new CustomerResponseDTO());
+
+        rewardService.createCustomer(customerDTO);
+
+        ArgumentCaptor<TransactionsRecordedEvent> event = ArgumentCaptor.forClass(TransactionsRecordedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(1L, event.getValue().customerId());
+        assertEquals(2, event.getValue().transactions().size());
+        verify(rewardEventOutbox).record(Map.of(1L, customer.getTransactions()));
+        verify(transactionManager).commit(any());
     }
 
    
@@ -146,7 +209,10 @@ class RewardServiceImplTest {
 
         assertEquals(90, response.getTotalRewards());
         assertEquals(2, response.getTransactions().size());
-        assertTrue(response.getMonthlyRewards().contains("2025-08"));
+        assertEquals(1, response.getMonthlyRewards().size());
+        assertEquals(2025, response.getMonthlyRewards().get(0).getYear());
+        assertEquals("August", response.getMonthlyRewards().get(0).getMonth());
+        assertEquals(90, response.getMonthlyRewards().get(0).getPoints());
         assertEquals("2025-08-01", response.getTransactions().get(0).getDate().toString().substring(0, 10));
     }
 
@@ -182,6 +248,109 @@ class RewardServiceImplTest {
     }
 
 
+    @Test
+    @DisplayName("Get Rewards For Customer - Summary View Uses Aggregate Query")
+    void testGetRewardsForCustomerSummaryView() {
+        MonthlyPointsSummary july = mock(MonthlyPointsSummary.class);
+        when(july.getYear()).thenReturn(2025);
+        when(july.getMonth()).thenReturn(7);
+        when(july.getPoints()).thenReturn(25L);
+        MonthlyPointsSummary august = mock(MonthlyPointsSummary.class);
+        when(august.getYear()).thenReturn(2025);
+        when(august.getMonth()).thenReturn(8);
+        when(august.getPoints()).thenReturn(90L);
+
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(transactionRepository.sumPointsByMonth(eq(1L), any(), any())).thenReturn(Arrays.asList(july, august));
+
+        RewardResponseDTO summary = rewardService.getRewardsForCustomer(
+                1L, LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 31), RewardView.SUMMARY, false);
+        RewardResponseDTO monthly = rewardService.getRewardsForCustomer(
+                1L, LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 31), RewardView.MONTHLY, false);
+
+        assertEquals(115, summary.getTotalRewards());
+        assertNull(summary.getTransactions());
+        assertNull(summary.getMonthlyRewards());
+        assertEquals(2, monthly.getMonthlyRewards().size());
+        assertEquals("August", monthly.getMonthlyRewards().get(1).getMonth());
+        assertNull(monthly.getTransactions());
+        verify(transactionRepository, never()).findByCustomerIdAndDateBetween(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Get Rewards For Customer - Archived Months Are Read From The Archive And Left Rows From The Database")
+    void testGetRewardsForCustomerFromArchive() {
+        Transaction archived = new Transaction();
+        archived.setAmount(75.0); // 25 points
+        archived.setDate(LocalDate.of(2023, 12, 20));
+        archived.setProduct("Product C");
+
+        MonthlyPointsSummary august = mock(MonthlyPointsSummary.class);
+        when(august.getYear()).thenReturn(2025);
+        when(august.getMonth()).thenReturn(8);
+        when(august.getPoints()).thenReturn(90L);
+        // a row added to December after it was archived, still in the database
+        MonthlyPointsSummary left = mock(MonthlyPointsSummary.class);
+        when(left.getYear()).thenReturn(2023);
+        when(left.getMonth()).thenReturn(12);
+        when(left.getPoints()).thenReturn(5L);
+
+        LocalDate startDate = LocalDate.of(2023, 12, 1);
+        LocalDate endDate = LocalDate.of(2025, 8, 31);
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(transactionArchive.load(1L, startDate, endDate)).thenReturn(Collections.singletonList(archived));
+        when(transactionRepository.findByCustomerIdAndDateBetween(1L, startDate, endDate))
+                .thenReturn(Arrays.asList(tx1, tx2));
+        when(transactionRepository.sumPointsByMonth(1L, startDate, endDate)).thenReturn(Arrays.asList(left, august));
+
+        RewardResponseDTO full = rewardService.getRewardsForCustomer(
+                1L, LocalDate.of(2023, 12, 1), LocalDate.of(2025, 8, 31), RewardView.FULL, false);
+        RewardResponseDTO monthly = rewardService.getRewardsForCustomer(
+                1L, LocalDate.of(2023, 12, 1), LocalDate.of(2025, 8, 31), RewardView.MONTHLY, false);
+
+        assertEquals(3, full.getTransactions().size());
+        assertEquals(115, full.getTotalRewards());
+        assertEquals("December", full.getMonthlyRewards().get(0).getMonth());
+        assertEquals(120, monthly.getTotalRewards());
+        assertEquals(2, monthly.getMonthlyRewards().size());
+        assertEquals(30, monthly.getMonthlyRewards().get(0).getPoints());
+        assertEquals(90, monthly.getMonthlyRewards().get(1).getPoints());
+    }
+
+    @Test
+    @DisplayName("Get Rewards For Customer - Monthly Rewards Are Chronological And Gaps Can Be Filled")
+    void testGetRewardsForCustomerMonthlyOrderAndGapFill() {
+        Transaction december = new Transaction();
+        december.setAmount(75.0); // 25 points
+        december.setDate(LocalDate.of(2024, 12, 5));
+        december.setProduct("Product C");
+        december.setCustomer(customer);
+
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(transactionRepository.findByCustomerIdAndDateBetween(eq(1L), any(), any()))
+                .thenReturn(Arrays.asList(tx2, december));
+
+        RewardResponseDTO sparse = rewardService.getRewardsForCustomer(
+                1L, LocalDate.of(2024, 11, 15), LocalDate.of(2025, 8, 31), RewardView.FULL, false);
+        RewardResponseDTO filled = rewardService.getRewardsForCustomer(
+                1L, LocalDate.of(2024, 11, 15), LocalDate.of(2025, 8, 31), RewardView.FULL, true);
+
+        assertEquals(2, sparse.getMonthlyRewards().size());
+        assertEquals("December", sparse.getMonthlyRewards().get(0).getMonth());
+        assertEquals(2024, sparse.getMonthlyRewards().get(0).getYear());
+        assertEquals("August", sparse.getMonthlyRewards().get(1).getMonth());
+
+        assertEquals(10, filled.getMonthlyRewards().size());
+        assertEquals("November", filled.getMonthlyRewards().get(0).getMonth());
+        assertEquals(0, filled.getMonthlyRewards().get(0).getPoints());
+        assertEquals(25, filled.getMonthlyRewards().get(1).getPoints());
+        assertEquals("January", filled.getMonthlyRewards().get(2).getMonth());
+        assertEquals(2025, filled.getMonthlyRewards().get(2).getYear());
+        assertEquals(90, filled.getMonthlyRewards().get(9).getPoints());
+        assertEquals(115, filled.getTotalRewards());
+    }
+
+
     // ---------------- Reward Points Edge Cases ----------------
     @Test
     @DisplayName("Reward Points - Transaction Below $50")
@@ -286,4 +455,32 @@ class RewardServiceImplTest {
         List<TransactionDTO> txList = rewardService.getCustomerTransactions(1L);
         assertEquals(1850, txList.get(0).getRewardPoints());
     }
+
+    @Test
+    @DisplayName("Ingest Transactions - Appends To The Journal Of An Existing Customer")
+    void testIngestTransactions() {
+        TransactionDTO dto = new TransactionDTO();
+        dto.setDate(LocalDate.of(2025, 10, 1));
+        dto.setAmount(120.0);
+        dto.setProduct("Laptop");
+        when(customerRepository.existsById(1L)).thenReturn(true);
+        when(customerRepository.existsById(99L)).thenReturn(false);
+        when(transactionJournal.append(1L, null, List.of(dto))).thenReturn(42L);
+
+        assertEquals(42L, rewardService.ingestTransactions(1L, null, List.of(dto)).getSequence());
+        assertThrows(RuntimeException.class, () -> rewardService.ingestTransactions(99L, null, List.of(dto)));
+        verify(transactionJournal, never()).append(eq(99L), any(), any());
+        verify(customerRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Ingest Transactions - Returns The Original Receipt For A Repeated Idempotency Key")
+    void testIngestTransactionsDuplicateKey() {
+        when(customerRepository.existsById(1L)).thenReturn(true);
+        when(idempotencyKeys.claim(eq(1L), eq("pos-7"), any(), any())).thenReturn(new IdempotencyKeys.Claim(42L, true));
+
+        assertTrue(rewardService.ingestTransactions(1L, "pos-7", List.of(new TransactionDTO())).getDuplicate());
+        assertThrows(CustomException.class, () -> rewardService.ingestTransactions(1L, " ", List.of()));
+        verifyNoInteractions(transactionJournal);
+    }
 }
@@ -0,0 +1,144 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.modelmapper.ModelMapper;
+
+import com.infy.customerRewards.dto.TransactionAmountDTO;
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.RollingRewardsWindow;
+import com.infy.customerRewards.utility.TransactionsArchivedEvent;
+import com.infy.customerRewards.utility.TransactionsRecordedEvent;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Collectors;
+import static com.infy.customerRewards.TestTransactions.tx;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingRewardsWindowTest {
+
+    private RollingRewardsWindow window;
+
+    private List<Transaction> stored;
+    private List<LocalDate[]> loads;
+
+    @BeforeEach
+    void setUp() {
+        window = new RollingRewardsWindow(new RewardCalculator(new ModelMapper()), 100);
+        stored = new ArrayList<>();
+        loads = new ArrayList<>();
+
+        stored.add(tx(LocalDate.of(2025, 7, 30), 120.0)); // 90 points
+        stored.add(tx(LocalDate.of(2025, 8, 1), 75.0));   // 25 points
+        stored.add(tx(LocalDate.of(2025, 8, 10), 200.0)); // 250 points
+        stored.add(tx(LocalDate.of(2025, 8, 20), 60.0));  // 10 points
+    }
+
+    private RollingRewardsWindow.Sums slide(LocalDate start, LocalDate end) {
+        return window.slide(1L, start, end, (from, to) -> {
+            loads.add(new LocalDate[] { from, to });
+            return stored.stream()
+                    .filter(t -> !t.getDate().isBefore(from) && !t.getDate().isAfter(to))
+                    .map(t -> new TransactionAmountDTO(t.getDate(), t.getAmount()))
+                    .collect(Collectors.toList());
+        });
+    }
+
+    @Test
+    @DisplayName("First request loads the whole range")
+    void testInitialLoad() {
+        RollingRewardsWindow.Sums result = slide(LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 15));
+
+        assertEquals(365, result.totalRewards());
+        assertEquals(3, result.transactionCount());
+        assertEquals(90, result.monthlyRewards().get(YearMonth.of(2025, 7)));
+        assertEquals(275, result.monthlyRewards().get(YearMonth.of(2025, 8)));
+        assertEquals(1, loads.size());
+    }
+
+    @Test
+    @DisplayName("Sliding forward only loads the new days and subtracts the expired ones")
+    void testSlideForward() {
+        slide(LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 15));
+        loads.clear();
+
+        RollingRewardsWindow.Sums result = slide(LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 31));
+
+        assertEquals(1, loads.size());
+        assertEquals(LocalDate.of(2025, 8, 15), loads.get(0)[0]);
+        assertEquals(LocalDate.of(2025, 8, 31), loads.get(0)[1]);
+        assertEquals(285, result.totalRewards());
+        assertFalse(result.monthlyRewards().containsKey(YearMonth.of(2025, 7)));
+        assertEquals(285, result.monthlyRewards().get(YearMonth.of(2025, 8)));
+        assertEquals(3, result.transactionCount());
+    }
+
+    @Test
+    @DisplayName("Re-reads the previous end day so transactions added later that day are picked up")
+    void testPartialEndDayReloaded() {
+        slide(LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 20));
+        stored.add(tx(LocalDate.of(2025, 8, 20), 110.0)); // 70 points
+
+        RollingRewardsWindow.Sums result = slide(LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 20));
+
+        assertEquals(355, result.totalRewards());
+        assertEquals(4, result.transactionCount());
+    }
+
+    @Test
+    @DisplayName("Transactions recorded on an interior day drop the window, those on its last day do not")
+    void testRecordedTransactionsInvalidate() {
+        slide(LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 20));
+        Transaction lastDay = tx(LocalDate.of(2025, 8, 20), 110.0); // 70 points
+        stored.add(lastDay);
+        window.onTransactionsRecorded(new TransactionsRecordedEvent(1L, List.of(lastDay)));
+        loads.clear();
+
+        assertEquals(445, slide(LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 20)).totalRewards());
+        assertEquals(1, loads.size());
+
+        Transaction backdated = tx(LocalDate.of(2025, 7, 15), 80.0); // 30 points
+        stored.add(backdated);
+        window.onTransactionsRecorded(new TransactionsRecordedEvent(2L, List.of(backdated)));
+        window.onTransactionsRecorded(new TransactionsRecordedEvent(1L, List.of(backdated)));
+        loads.clear();
+
+        RollingRewardsWindow.Sums result = slide(LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 20));
+        assertEquals(475, result.totalRewards());
+        assertEquals(120, result.monthlyRewards().get(YearMonth.of(2025, 7)));
+        assertEquals(LocalDate.of(2025, 7, 1), loads.get(0)[0]);
+    }
+
+    @Test
+    @DisplayName("Archiving a month drops the windows overlapping it")
+    void testArchivedMonthInvalidates() {
+        slide(LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 20));
+        stored.remove(0);
+
+        window.onTransactionsArchived(new TransactionsArchivedEvent(YearMonth.of(2025, 6)));
+        assertEquals(375, slide(LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 20)).totalRewards());
+
+        window.onTransactionsArchived(new TransactionsArchivedEvent(YearMonth.of(2025, 7)));
+        RollingRewardsWindow.Sums result = slide(LocalDate.of(2025, 7, 1), LocalDate.of(2025, 8, 20));
+        assertEquals(285, result.totalRewards());
+        assertFalse(result.monthlyRewards().containsKey(YearMonth.of(2025, 7)));
+    }
+
+    @Test
+    @DisplayName("Disjoint range resets the window")
+    void testDisjointRange() {
+        slide(LocalDate.of(2025, 7, 1), LocalDate.of(2025, 7, 31));
+        loads.clear();
+
+        RollingRewardsWindow.Sums result = slide(LocalDate.of(2025, 8, 5), LocalDate.of(2025, 8, 25));
+
+        assertEquals(1, loads.size());
+        assertEquals(260, result.totalRewards());
+        assertEquals(1, result.monthlyRewards().size());
+    }
+}
@@ -0,0 +1,198 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.modelmapper.ModelMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.infy.customerRewards.dto.CustomerPointsDTO;
+import com.infy.customerRewards.dto.LeaderboardEntryDTO;
+import com.infy.customerRewards.dto.TransactionDTO;
+import com.infy.customerRewards.repository.TransactionRepository;
+import com.infy.customerRewards.utility.IdempotencyKeys;
+import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.RewardEventOutbox;
+import com.infy.customerRewards.utility.RewardLeaderboard;
+import com.infy.customerRewards.utility.ShardRing;
+import com.infy.customerRewards.utility.ShardRouter;
+import com.infy.customerRewards.utility.ShardRoutingDataSource;
+import com.infy.customerRewards.utility.TransactionJournal;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Routes customers across three shards, each an embedded H2 database.
+ */
+class ShardRoutingTest {
+
+    @TempDir
+    Path directory;
+
+    private List<DataSource> databases;
+    private ShardRoutingDataSource routing;
+    private DataSource dataSource;
+    private JdbcTemplate jdbc;
+    private ShardRouter router;
+
+    @BeforeEach
+    void setUp() {
+        databases = new ArrayList<>();
+        for (int shard = 0; shard < 3; shard++) {
+            // date is a keyword in H2 but not in MySQL
+            DataSource database = new DriverManagerDataSource(
+                    "jdbc:h2:mem:shard-" + UUID.randomUUID() + ";NON_KEYWORDS=DATE;DB_CLOSE_DELAY=-1", "sa", "");
+            JdbcTemplate shardJdbc = new JdbcTemplate(database);
+            shardJdbc.execute("create table customers (id bigint auto_increment primary key, cust_name varchar(100))");
+            shardJdbc.execute("create table transactions (id bigint auto_increment primary key, customer_id bigint not null, "
+                    + "date date not null, product varchar(100) not null, amount decimal(10,2) not null)");
+            TestSchema.create(shardJdbc, "journal_checkpoint", "ingest_keys");
+            databases.add(database);
+        }
+        routing = new ShardRoutingDataSource(new ArrayList<>(databases));
+        dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbc = new JdbcTemplate(dataSource);
+        router = new ShardRouter(3, 128);
+    }
+
+    @AfterEach
+    void tearDown() {
+        router.close();
+        databases.forEach(database -> new JdbcTemplate(database).execute("shutdown"));
+    }
+
+    private long countOn(int shard, String table) {
+        return new JdbcTemplate(databases.get(shard)).queryForObject("select count(*) from " + table, Long.class);
+    }
+
+    @Test
+    @DisplayName("The ring spreads keys evenly and a new shard only takes keys from the others")
+    void testConsistentHashing() {
+        ShardRing three = new ShardRing(3, 128);
+        ShardRing four = new ShardRing(4, 128);
+        int[] counts = new int[3];
+        int moved = 0;
+        for (long key = 1; key <= 30_000; key++) {
+            int before = three.shardFor(key);
+            int after = four.shardFor(key);
+            counts[before]++;
+            if (before != after) {
+                moved++;
+                assertEquals(3, after);
+            }
+        }
+        for (int count : counts) {
+            assertTrue(count > 8_000 && count < 12_000, "uneven shard: " + Arrays.toString(counts));
+        }
+        assertTrue(moved > 6_000 && moved < 9_000, "moved " + moved);
+    }
+
+    @Test
+    @DisplayName("Startup fails if a shard's customer ID range cannot be reserved")
+    void testFailedIdRangeReservation() {
+        new JdbcTemplate(databases.get(2)).execute("drop table customers");
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, routing::reserveCustomerIdRanges);
+        assertTrue(failure.getMessage().contains("shard 2"));
+    }
+
+    @Test
+    @DisplayName("New customers get IDs from their shard's range and are routed back to it")
+    void testCustomerIdsEncodeShard() {
+        routing.reserveCustomerIdRanges();
+
+        Map<Integer, List<Long>> ids = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            int shard = router.allocateShard();
+            long id = router.onShard(shard, () -> {
+                jdbc.update("insert into customers (cust_name) values ('Customer')");
+                return jdbc.queryForObject("select max(id) from customers", Long.class);
+            });
+            ids.computeIfAbsent(shard, s -> new ArrayList<>()).add(id);
+        }
+
+        assertEquals(3, ids.size());
+        ids.forEach((shard, created) -> {
+            assertEquals(ShardRouter.firstCustomerId(shard), created.get(0));
+            created.forEach(id -> assertEquals(shard, router.shardOf(id)));
+            assertEquals(created.size(), countOn(shard, "customers"));
+        });
+        // IDs from before sharding stay on shard 0, the database they were created in
+        assertEquals(0, router.shardOf(42L));
+        assertEquals(0, router.shardOf(ShardRouter.firstCustomerId(0) - 1));
+        assertEquals(0, ShardRouter.single().shardOf(ShardRouter.firstCustomerId(2)));
+    }
+
+    @Test
+    @DisplayName("Journaled transactions are flushed to the shard of each customer with a checkpoint per shard")
+    void testJournalFlushPerShard() {
+        long[] customers = { ShardRouter.firstCustomerId(0), ShardRouter.firstCustomerId(1), ShardRouter.firstCustomerId(2) };
+        IdempotencyKeys keys = new IdempotencyKeys(jdbc, router, true, 1000, 0.01, 7);
+        keys.load();
+        TransactionJournal journal = new TransactionJournal(jdbc, new DataSourceTransactionManager(dataSource),
+                event -> { }, keys, mock(RewardEventOutbox.class), router, directory.toString(), true, 100, 1 << 20, 5);
+        journal.start();
+        TransactionDTO tx = new TransactionDTO();
+        tx.setDate(LocalDate.of(2025, 10, 1));
+        tx.setAmount(120.0);
+        tx.setProduct("Product");
+        for (int i = 0; i < 6; i++) {
+            long customerId = customers[i % 3];
+            String key = "key-" + i;
+            router.onShard(router.shardOf(customerId),
+                    () -> keys.claim(customerId, key, List.of(tx, tx), () -> journal.append(customerId, key, List.of(tx, tx))));
+        }
+
+        journal.flush();
+        journal.stop();
+
+        for (int shard = 0; shard < 3; shard++) {
+            assertEquals(4, countOn(shard, "transactions"));
+            assertEquals(2, countOn(shard, "ingest_keys"));
+            assertEquals(List.of(customers[shard]), new JdbcTemplate(databases.get(shard))
+                    .queryForList("select distinct customer_id from transactions", Long.class));
+        }
+        assertEquals(List.of(8L, 10L, 12L), router.fanOut(shard ->
+                jdbc.queryForObject("select sequence from journal_checkpoint", Long.class)));
+    }
+
+    @Test
+    @DisplayName("Reports query every shard in parallel and merge the results")
+    void testFanOut() {
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        when(transactionRepository.sumPointsByCustomer(any(), any(), any())).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            long shard = ShardRouter.currentShard();
+            return List.of(new CustomerPointsDTO(ShardRouter.firstCustomerId((int) shard), 100 * (shard + 1)),
+                    new CustomerPointsDTO(ShardRouter.firstCustomerId((int) shard) + 1, 10 * (shard + 1)));
+        });
+        RewardLeaderboard leaderboard = new RewardLeaderboard(transactionRepository, jdbc,
+                new RewardCalculator(new ModelMapper()), router, 1, 30_000);
+
+        leaderboard.load();
+
+        List<LeaderboardEntryDTO> entries = leaderboard.page(YearMonth.now(), 0, 10).getEntries();
+        assertEquals(6, entries.size());
+        assertEquals(List.of(300L, 200L, 100L, 30L, 20L, 10L),
+                entries.stream().map(LeaderboardEntryDTO::getPoints).toList());
+        assertEquals(ShardRouter.firstCustomerId(2), entries.get(0).getCustomerId());
+        assertEquals(3, threads.size());
+        assertNull(ShardRouter.currentShard());
+    }
+}
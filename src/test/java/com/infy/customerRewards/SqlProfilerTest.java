@@ -0,0 +1,196 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.h2.jdbcx.JdbcDataSource;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.infy.customerRewards.dto.SqlProfileDTO;
+import com.infy.customerRewards.dto.SqlShapeStatsDTO;
+import com.infy.customerRewards.utility.ProfilingDataSource;
+import com.infy.customerRewards.utility.SqlProfiler;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL profiling through a ProfilingDataSource over an embedded H2 database.
+ */
+class SqlProfilerTest {
+
+    private static final String ENDPOINT = "/api/rewards/customers/{customerId}/transactions";
+
+    private final JdbcDataSource h2 = new JdbcDataSource();
+
+    @BeforeEach
+    void createTable() {
+        h2.setURL("jdbc:h2:mem:profile-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        h2.setUser("sa");
+        JdbcTemplate jdbc = new JdbcTemplate(h2);
+        jdbc.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, customer_id BIGINT, amount DECIMAL(10, 2), note VARCHAR(50))");
+        for (int i = 1; i <= 30; i++) {
+            jdbc.update("INSERT INTO transactions VALUES (?, ?, ?, ?)", i, i % 3, i * 10.5, "t" + i);
+        }
+    }
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static SqlProfiler profiler(Duration slowThreshold, Duration window) {
+        return new SqlProfiler(true, slowThreshold, window);
+    }
+
+    private static SqlShapeStatsDTO shape(SqlProfileDTO profile, String shape) {
+        return profile.getTop().stream().filter(stats -> stats.getShape().equals(shape)).findFirst()
+                .orElseThrow(() -> new AssertionError(shape + " not in " + profile.getTop()));
+    }
+
+    @Test
+    @DisplayName("Literals and value lists are replaced so that statements of one shape are grouped")
+    void testShapes() {
+        SqlProfiler profiler = profiler(Duration.ofSeconds(1), Duration.ofMinutes(1));
+        assertEquals("SELECT * FROM transactions WHERE customer_id = ? AND note = ?",
+                profiler.shape("SELECT *\n  FROM transactions WHERE customer_id = 42 AND note = 'it''s'"));
+        assertEquals("SELECT * FROM transactions WHERE id IN (?...)",
+                profiler.shape("SELECT * FROM transactions WHERE id IN (1, 2, 3)"));
+        assertEquals("SELECT * FROM transactions WHERE id IN (?...)",
+                profiler.shape("SELECT * FROM transactions WHERE id IN (?, ?, ?, ?, ?)"));
+        assertEquals("INSERT INTO transactions VALUES (?...), ...",
+                profiler.shape("INSERT INTO transactions VALUES (1, 2, 3.5, 'a'), (4, 5, 6.5, 'b'), (7, 8, 9.5, 'c')"));
+        assertEquals("SELECT t1.amount FROM transactions t1 WHERE t1.id = ?",
+                profiler.shape("SELECT t1.amount FROM transactions t1 WHERE t1.id = 7"));
+        assertEquals("(unknown)", profiler.shape(null));
+    }
+
+    @Test
+    @DisplayName("Queries and updates are timed with the rows they fetch or update, per shape and endpoint")
+    void testProfile() {
+        SqlProfiler profiler = profiler(Duration.ofSeconds(10), Duration.ofMinutes(1));
+        DataSource dataSource = (DataSource) profiler.postProcessAfterInitialization(h2, "dataSource");
+        assertInstanceOf(ProfilingDataSource.class, dataSource);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rewards/customers/1/transactions");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, ENDPOINT);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        for (int customerId = 0; customerId < 3; customerId++) {
+            assertEquals(10, jdbc.queryForList("SELECT id FROM transactions WHERE customer_id = ?", Long.class,
+                    customerId).size());
+        }
+        RequestContextHolder.resetRequestAttributes();
+        assertEquals(30, jdbc.update("UPDATE transactions SET note = 'x'"));
+        jdbc.execute("SELECT COUNT(*) FROM transactions WHERE customer_id = 1");
+
+        SqlProfileDTO profile = profiler.getProfile(10, "executions");
+        assertTrue(profile.isEnabled());
+        assertEquals(5, profile.getExecutions());
+        assertEquals(3, profile.getShapes());
+
+        SqlShapeStatsDTO select = profile.getTop().get(0);
+        assertEquals("SELECT id FROM transactions WHERE customer_id = ?", select.getShape());
+        assertEquals(3, select.getExecutions());
+        assertEquals(30, select.getRows());
+        assertEquals(10, select.getMeanRows());
+        assertTrue(select.getMaxMillis() <= select.getTotalMillis());
+        assertEquals(Set.of("GET " + ENDPOINT), select.getEndpointMillis().keySet());
+
+        SqlShapeStatsDTO update = shape(profile, "UPDATE transactions SET note = ?");
+        assertEquals(30, update.getRows());
+        assertEquals(Set.of("thread " + Thread.currentThread().getName()), update.getEndpointMillis().keySet());
+        assertEquals(1, shape(profile, "SELECT COUNT(*) FROM transactions WHERE customer_id = ?").getExecutions());
+
+        assertEquals(1, profiler.getProfile(1, "total").getTop().size());
+        assertThrows(IllegalArgumentException.class, () -> profiler.getProfile(1, "name"));
+    }
+
+    @Test
+    @DisplayName("A Hikari pool stays a HikariDataSource while its connections are profiled")
+    void testHikariKeepsItsType() {
+        SqlProfiler profiler = profiler(Duration.ofSeconds(10), Duration.ofMinutes(1));
+        HikariDataSource pool = new HikariDataSource();
+        pool.setDataSource(h2);
+        pool.setPoolName("profiled");
+        try {
+            Object bean = profiler.postProcessAfterInitialization(pool, "dataSource");
+            HikariDataSource profiled = assertInstanceOf(HikariDataSource.class, bean);
+            assertEquals("profiled", profiled.getPoolName());
+
+            assertEquals(30, new JdbcTemplate(profiled).queryForObject("SELECT COUNT(*) FROM transactions", Integer.class));
+            assertEquals(1, profiler.getProfile(10, "executions").getExecutions());
+            assertSame(pool, profiler.postProcessAfterInitialization(pool, "otherDataSource"));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Shapes are ordered by the requested figure, most expensive first")
+    void testOrder() {
+        SqlProfiler profiler = profiler(Duration.ofSeconds(10), Duration.ofMinutes(1));
+        for (int i = 0; i < 5; i++) {
+            profiler.record("SELECT * FROM customers WHERE id = " + i, "GET /a", 1_000_000, 1);
+        }
+        profiler.record("SELECT * FROM transactions", "GET /b", 8_000_000, 500);
+
+        assertEquals("SELECT * FROM transactions", profiler.getProfile(1, "total").getTop().get(0).getShape());
+        assertEquals("SELECT * FROM transactions", profiler.getProfile(1, "mean").getTop().get(0).getShape());
+        assertEquals("SELECT * FROM transactions", profiler.getProfile(1, "max").getTop().get(0).getShape());
+        assertEquals("SELECT * FROM transactions", profiler.getProfile(1, "rows").getTop().get(0).getShape());
+        assertEquals("SELECT * FROM customers WHERE id = ?", profiler.getProfile(1, "executions").getTop().get(0).getShape());
+        assertEquals(5.0, profiler.getProfile(2, "total").getTop().get(1).getTotalMillis(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Executions older than the window drop out of the profile")
+    void testWindow() throws Exception {
+        SqlProfiler profiler = profiler(Duration.ofSeconds(10), Duration.ofMillis(200));
+        profiler.record("SELECT 1", "GET /a", 1000, 1);
+        assertEquals(1, profiler.getProfile(10, "total").getExecutions());
+
+        Thread.sleep(300);
+        assertEquals(0, profiler.getProfile(10, "total").getExecutions());
+        profiler.record("SELECT 2", "GET /a", 1000, 1);
+        assertEquals(1, profiler.getProfile(10, "total").getExecutions());
+    }
+
+    @Test
+    @DisplayName("Only statements above the threshold are logged, by shape without their values")
+    void testSlowLog() {
+        Logger logger = (Logger) LoggerFactory.getLogger(SqlProfiler.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            SqlProfiler profiler = profiler(Duration.ofMillis(50), Duration.ofMinutes(1));
+            profiler.record("SELECT * FROM customers WHERE email = 'someone@example.com'", "GET /a", 10_000_000, 1);
+            profiler.record("SELECT * FROM customers WHERE email = 'someone@example.com'", "GET /a", 80_000_000, 1);
+
+            List<ILoggingEvent> warnings = appender.list;
+            assertEquals(1, warnings.size());
+            String message = warnings.get(0).getFormattedMessage();
+            assertTrue(message.contains("SELECT * FROM customers WHERE email = ?"), message);
+            assertTrue(message.contains("80 ms"), message);
+            assertFalse(message.contains("someone@example.com"), message);
+        } finally {
+            logger.detachAppender(appender);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.infy.customerRewards.service.RewardService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Startup time of the application against an embedded database, with the default configuration
+ * and with the fast-start profile, written to target/startup/report.properties for comparison between builds.
+ * Tagged "startup" and run by the fast-start build: {@code mvn package -Pfast-start};
+ * -Dstartup.budget-ms fails the build when the fast-start startup takes longer.
+ */
+@Tag("startup")
+class StartupTimeBenchmarkTest {
+
+    private static final Path REPORT_DIRECTORY = Path.of("target/startup");
+
+    // Command-line arguments, which take precedence over application.properties
+    private static final List<String> ARGUMENTS = List.of(
+            "--spring.datasource.url=jdbc:h2:mem:startup-" + UUID.randomUUID() + ";NON_KEYWORDS=DATE,MONTH;DB_CLOSE_DELAY=-1",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+            "--server.port=0",
+            "--logging.file.name=target/startup/application.log");
+
+    /**
+     * Time to a started application and the number of singletons it created.
+     */
+    private record Startup(long millis, int singletons) {
+    }
+
+    private static Startup start(String profile, String ddlAuto, List<String> createdBeans) {
+        List<String> arguments = new ArrayList<>(ARGUMENTS);
+        arguments.add("--spring.jpa.hibernate.ddl-auto=" + ddlAuto);
+        long start = System.nanoTime();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CustomerRewardsApplication.class)
+                .profiles(profile)
+                .run(arguments.toArray(String[]::new))) {
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            String[] singletons = context.getBeanFactory().getSingletonNames();
+            createdBeans.addAll(Arrays.asList(singletons));
+            assertNotNull(context.getBean(RewardService.class));
+            return new Startup(millis, singletons.length);
+        }
+    }
+
+    @Test
+    @DisplayName("The fast-start profile starts with fewer beans and keeps scheduled and preloaded ones eager")
+    void testStartupTime() throws Exception {
+        // Creates the schema and loads the classes, so that both measured starts find the same JVM state
+        start("default", "create", new ArrayList<>());
+
+        List<String> defaultBeans = new ArrayList<>();
+        Startup standard = start("default", "validate", defaultBeans);
+        List<String> fastStartBeans = new ArrayList<>();
+        Startup fastStart = start("fast-start", "validate", fastStartBeans);
+
+        Files.createDirectories(REPORT_DIRECTORY);
+        Files.writeString(REPORT_DIRECTORY.resolve("report.properties"),
+                "startup.default.millis=" + standard.millis() + "\n"
+                        + "startup.default.singletons=" + standard.singletons() + "\n"
+                        + "startup.fast-start.millis=" + fastStart.millis() + "\n"
+                        + "startup.fast-start.singletons=" + fastStart.singletons() + "\n");
+
+        assertTrue(fastStart.singletons() < standard.singletons(),
+                fastStart.singletons() + " singletons with fast-start, " + standard.singletons() + " without");
+        assertTrue(fastStartBeans.contains("rewardLeaderboard"), "preloaded bean created lazily");
+        assertTrue(fastStartBeans.contains("transactionJournal"), "scheduled bean created lazily");
+        assertFalse(fastStartBeans.contains("rewardController"), "controller created eagerly");
+        assertTrue(defaultBeans.contains("rewardController"));
+
+        long budget = Long.getLong("startup.budget-ms", Long.MAX_VALUE);
+        assertTrue(fastStart.millis() <= budget, "fast start took " + fastStart.millis() + " ms, budget " + budget + " ms");
+    }
+}
@@ -0,0 +1,173 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.infy.customerRewards.utility.BulkLoadFileSink;
+import com.infy.customerRewards.utility.MultiRowInsertSink;
+import com.infy.customerRewards.utility.SyntheticDataGenerator;
+import com.infy.customerRewards.utility.SyntheticRowSink;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Shape of the synthetic datasets and loading them into an embedded H2 database and bulk files.
+ */
+class SyntheticDataGeneratorTest {
+
+    private static final LocalDate FROM = LocalDate.of(2023, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Keeps the generated rows in memory.
+     */
+    private static class CollectingSink implements SyntheticRowSink {
+        final List<Long> customers = new ArrayList<>();
+        final Set<Long> customerIds = new HashSet<>();
+        final Map<Long, Integer> transactionsPerCustomer = new HashMap<>();
+        final List<LocalDate> dates = new ArrayList<>();
+        final List<Double> amounts = new ArrayList<>();
+
+        @Override
+        public void customer(long id, String custName, String phoneNo) {
+            customers.add(id);
+            customerIds.add(id);
+        }
+
+        @Override
+        public void transaction(long customerId, LocalDate date, String product, double amount) {
+            assertTrue(customerIds.contains(customerId), "transaction before its customer");
+            transactionsPerCustomer.merge(customerId, 1, Integer::sum);
+            dates.add(date);
+            amounts.add(amount);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static CollectingSink generate(int customers, long transactions, double zipfExponent, long seed) {
+        CollectingSink sink = new CollectingSink();
+        long generated = new SyntheticDataGenerator(customers, transactions, zipfExponent, FROM, TO, seed)
+                .generate(1001, sink);
+        assertEquals(generated, sink.dates.size());
+        return sink;
+    }
+
+    @Test
+    @DisplayName("Generates consecutive customers, each with transactions, and about the requested volume")
+    void testVolume() {
+        CollectingSink sink = generate(1000, 50_000, 1.0, 7);
+
+        assertEquals(1000, sink.customers.size());
+        assertEquals(1001, sink.customers.get(0));
+        assertEquals(2000, sink.customers.get(999));
+        assertEquals(1000, sink.transactionsPerCustomer.size());
+        assertEquals(50_000, sink.dates.size(), 50_000 * 0.05);
+        assertTrue(sink.dates.stream().allMatch(date -> !date.isBefore(FROM) && !date.isAfter(TO)));
+        assertEquals(sink.dates, generate(1000, 50_000, 1.0, 7).dates, "same seed, same rows");
+    }
+
+    @Test
+    @DisplayName("Customer activity is Zipfian, with the heavy customers scattered over the IDs")
+    void testZipfianActivity() {
+        List<Integer> counts = new ArrayList<>(generate(1000, 50_000, 1.0, 7).transactionsPerCustomer.values());
+        counts.sort(Comparator.reverseOrder());
+        long topOnePercent = counts.subList(0, 10).stream().mapToLong(Integer::longValue).sum();
+        assertTrue(topOnePercent > 50_000 * 0.3, "top 1% hold " + topOnePercent);
+
+        Map<Long, Integer> perCustomer = generate(1000, 50_000, 1.0, 7).transactionsPerCustomer;
+        long heaviest = perCustomer.entrySet().stream().max(Map.Entry.comparingByValue()).orElseThrow().getKey();
+        assertNotEquals(1001, heaviest);
+
+        List<Integer> even = new ArrayList<>(generate(1000, 50_000, 0, 7).transactionsPerCustomer.values());
+        assertTrue(Collections.max(even) <= 51 && Collections.min(even) >= 49, "even spread " + even);
+    }
+
+    @Test
+    @DisplayName("Dates peak in the holidays and on weekends")
+    void testSeasonalDates() {
+        List<LocalDate> dates = generate(500, 100_000, 1.0, 3).dates;
+
+        long december = dates.stream().filter(date -> date.getMonth() == Month.DECEMBER).count();
+        long february = dates.stream().filter(date -> date.getMonth() == Month.FEBRUARY).count();
+        assertTrue(december > 2 * february, "December " + december + ", February " + february);
+
+        long weekend = dates.stream().filter(date -> date.getDayOfWeek().getValue() >= DayOfWeek.SATURDAY.getValue()).count();
+        double weekendPerDay = weekend / 2.0;
+        double weekdayPerDay = (dates.size() - weekend) / 5.0;
+        assertTrue(weekendPerDay > weekdayPerDay * 1.1, "weekend " + weekendPerDay + ", weekday " + weekdayPerDay);
+    }
+
+    @Test
+    @DisplayName("Amounts are long-tailed and clustered around the points thresholds")
+    void testAmounts() {
+        List<Double> amounts = generate(500, 100_000, 1.0, 3).amounts;
+
+        long nearThresholds = amounts.stream()
+                .filter(amount -> Math.abs(amount - 50) <= 5 || Math.abs(amount - 100) <= 5).count();
+        assertTrue(nearThresholds > amounts.size() * 0.3, "near thresholds " + nearThresholds);
+        assertTrue(amounts.stream().anyMatch(amount -> amount > 1000), "no long tail");
+        assertTrue(amounts.stream().allMatch(amount -> amount >= 0.5 && amount == Math.round(amount * 100) / 100.0));
+    }
+
+    @Test
+    @DisplayName("Multi-row inserts load every row and move the customer ID counter past them")
+    void testMultiRowInserts() {
+        // date is a keyword in H2 but not in MySQL
+        DriverManagerDataSource database = new DriverManagerDataSource(
+                "jdbc:h2:mem:synthetic-" + UUID.randomUUID() + ";NON_KEYWORDS=DATE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(database);
+        jdbc.execute("create table customers (id bigint auto_increment primary key, cust_name varchar(100), "
+                + "phone_no varchar(100))");
+        jdbc.execute("create table transactions (id bigint auto_increment primary key, customer_id bigint not null, "
+                + "date date not null, product varchar(100) not null, amount decimal(10,2) not null)");
+        try {
+            long generated;
+            try (MultiRowInsertSink sink = new MultiRowInsertSink(database, 100, 3)) {
+                generated = new SyntheticDataGenerator(1234, 10_000, 1.0, FROM, TO, 5).generate(1, sink);
+            }
+
+            assertEquals(1234, jdbc.queryForObject("select count(*) from customers", Long.class));
+            assertEquals(generated, jdbc.queryForObject("select count(*) from transactions", Long.class));
+            assertEquals(0, jdbc.queryForObject(
+                    "select count(*) from transactions t where not exists (select 1 from customers c where c.id = t.customer_id)",
+                    Long.class));
+            jdbc.update("insert into customers (cust_name) values ('New')");
+            assertEquals(1235, jdbc.queryForObject("select id from customers where cust_name = 'New'", Long.class));
+        } finally {
+            jdbc.execute("shutdown");
+        }
+    }
+
+    @Test
+    @DisplayName("Bulk files hold one line per row and a LOAD DATA script")
+    void testBulkLoadFiles() throws Exception {
+        long generated;
+        try (BulkLoadFileSink sink = new BulkLoadFileSink(directory)) {
+            generated = new SyntheticDataGenerator(200, 2_000, 1.0, FROM, TO, 5).generate(1, sink);
+        }
+
+        assertEquals(200, Files.readAllLines(directory.resolve("customers.tsv")).size());
+        List<String> transactions = Files.readAllLines(directory.resolve("transactions.tsv"));
+        assertEquals(generated, transactions.size());
+        assertEquals(4, transactions.get(0).split("\t").length);
+        String script = Files.readString(directory.resolve("load.sql"));
+        assertTrue(script.contains("LOAD DATA LOCAL INFILE '" + directory.toAbsolutePath().resolve("transactions.tsv")));
+        assertTrue(script.contains("INTO TABLE customers"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.infy.customerRewards;
+
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Tables of tableScript.sql, created in the test databases from the script itself.
+ */
+final class TestSchema {
+
+    private TestSchema() {
+    }
+
+    /**
+     * Runs the CREATE TABLE and INSERT statements of tables in tableScript.sql.
+     *
+     * @param jdbc template on the test database
+     * @param tables the names of the tables
+     */
+    static void create(JdbcTemplate jdbc, String... tables) {
+        String script;
+        try (InputStream in = TestSchema.class.getResourceAsStream("/tableScript.sql")) {
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String[] statements = script.replaceAll("(?m)^--.*$", "").split(";");
+        for (String table : tables) {
+            Pattern statementOf = Pattern.compile("(?is)\\s*(CREATE TABLE|INSERT INTO)\\s+" + table + "\\b.*");
+            boolean created = false;
+            for (String statement : statements) {
+                if (statementOf.matcher(statement).matches()) {
+                    jdbc.execute(statement.trim());
+                    created = true;
+                }
+            }
+            if (!created) {
+                throw new IllegalArgumentException("tableScript.sql has no table " + table);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.infy.customerRewards;
+
+
+import com.infy.customerRewards.entity.Transaction;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Transactions shared by the tests of the components that consume recorded or loaded transactions.
+ */
+final class TestTransactions {
+
+    private TestTransactions() {
+    }
+
+    /**
+     * Builds an unsaved transaction without customer.
+     *
+     * @param date the transaction date
+     * @param amount the transaction amount
+     * @return the transaction
+     */
+    static Transaction tx(LocalDate date, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setDate(date);
+        transaction.setAmount(amount);
+        transaction.setProduct("Product");
+        return transaction;
+    }
+
+    /**
+     * Creates an in-memory database holding an empty transactions table.
+     *
+     * @return a template on the database
+     */
+    static JdbcTemplate transactionsTable() {
+        // date is a keyword in H2 but not in MySQL
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:transactions-" + UUID.randomUUID() + ";NON_KEYWORDS=DATE;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbc.execute("create table transactions (id bigint auto_increment primary key, customer_id bigint not null, "
+                + "date date not null, product varchar(100) not null, amount decimal(10,2) not null)");
+        return jdbc;
+    }
+
+    /**
+     * Saves transactions of a customer, as any instance would.
+     *
+     * @param jdbc template on the transactions table
+     * @param customerId the customer of the transactions
+     * @param transactions the transactions
+     */
+    static void insert(JdbcTemplate jdbc, long customerId, List<Transaction> transactions) {
+        jdbc.batchUpdate("insert into transactions (customer_id, date, product, amount) values (?, ?, ?, ?)",
+                transactions.stream().map(transaction -> new Object[] {
+                        customerId, transaction.getDate(), transaction.getProduct(), transaction.getAmount() }).toList());
+    }
+}
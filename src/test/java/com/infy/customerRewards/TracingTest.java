@@ -0,0 +1,266 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.*;
+import org.modelmapper.ModelMapper;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.infy.customerRewards.dto.RewardView;
+import com.infy.customerRewards.entity.Customer;
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.repository.CustomerRepository;
+import com.infy.customerRewards.repository.TransactionRepository;
+import com.infy.customerRewards.serviceImpl.RewardServiceImpl;
+import com.infy.customerRewards.utility.FinishedSpan;
+import com.infy.customerRewards.utility.InProcessRewardsCacheTier;
+import com.infy.customerRewards.utility.RepositoryObservationInterceptor;
+import com.infy.customerRewards.utility.ResponseEncodingObservation;
+import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.SpanExporter;
+import com.infy.customerRewards.utility.SpanRecordingHandler;
+import com.infy.customerRewards.utility.TracingConfig;
+import com.infy.customerRewards.utility.TransactionArchive;
+import com.infy.customerRewards.utility.TwoLevelRewardsCache;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Spans of the rewards stages, trace propagation and sampling, exported to memory.
+ */
+@ExtendWith(SpringExtension.class)
+class TracingTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String CALLER_SPAN_ID = "00f067aa0ba902b7";
+
+    private final InMemorySpanExporter exporter = new InMemorySpanExporter(100);
+    private final ObservationRegistry registry = registry(1.0);
+
+    @InjectMocks
+    private RewardServiceImpl rewardService;
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private Environment env;
+
+    @Mock
+    private TransactionArchive transactionArchive;
+
+    @Spy
+    private RewardCalculator rewardCalculator = new RewardCalculator(new ModelMapper(), registry);
+
+    @Spy
+    private TwoLevelRewardsCache rewardsCache = new TwoLevelRewardsCache(new InProcessRewardsCacheTier(1000), false, 100,
+            Duration.ofSeconds(5), Duration.ofMinutes(10));
+
+    private ObservationRegistry registry(double probability) {
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new SpanRecordingHandler(probability, List.of(exporter)));
+        return observationRegistry;
+    }
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = new Customer();
+        customer.setId(1L);
+        customer.setCustName("John Doe");
+        Transaction transaction = new Transaction();
+        transaction.setAmount(120.0);
+        transaction.setDate(LocalDate.of(2025, 8, 10));
+        transaction.setProduct("Product A");
+        transaction.setCustomer(customer);
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(customer));
+        when(transactionRepository.findByCustomerIdAndDateBetween(eq(1L), any(), any())).thenReturn(List.of(transaction));
+
+        ReflectionTestUtils.setField(rewardService, "observationRegistry", registry);
+        ReflectionTestUtils.setField(rewardService, "customerRepository",
+                observed(customerRepository, CustomerRepository.class));
+        ReflectionTestUtils.setField(rewardService, "transactionRepository",
+                observed(transactionRepository, TransactionRepository.class));
+    }
+
+    /**
+     * Proxies a repository as TracingConfig does for the Spring Data repositories.
+     */
+    private <T> T observed(T repository, Class<T> type) {
+        ProxyFactory proxyFactory = new ProxyFactory(repository);
+        proxyFactory.addInterface(type);
+        proxyFactory.addAdvice(new RepositoryObservationInterceptor(() -> registry, type.getSimpleName()));
+        return type.cast(proxyFactory.getProxy());
+    }
+
+    private static Observation request(ObservationRegistry registry, String traceparent) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/rewards/customers/1/rewards");
+        if (traceparent != null) {
+            request.addHeader(SpanRecordingHandler.TRACEPARENT, traceparent);
+        }
+        ServerRequestObservationContext context = new ServerRequestObservationContext(request, new MockHttpServletResponse());
+        return Observation.createNotStarted("http.server.requests", () -> context, registry).start();
+    }
+
+    private static Map<String, FinishedSpan> byName(List<FinishedSpan> spans) {
+        return spans.stream().collect(Collectors.toMap(FinishedSpan::name, span -> span));
+    }
+
+    @Test
+    @DisplayName("A rewards call has a span per stage, within the request's span")
+    void testRewardStages() {
+        Observation request = request(registry, null);
+        try (Observation.Scope scope = request.openScope()) {
+            rewardService.getRewardsForCustomer(1L, LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 31),
+                    RewardView.FULL, false);
+        } finally {
+            request.stop();
+        }
+
+        Map<String, FinishedSpan> spans = byName(exporter.getSpans());
+        assertEquals(Set.of("http.server.requests", "RewardService.getRewardsForCustomer", "CustomerRepository.findById",
+                "TransactionRepository.findByCustomerIdAndDateBetween", "RewardCalculator.calculateRewards",
+                "RewardService.buildRewardResponse"), spans.keySet());
+        FinishedSpan root = spans.get("http.server.requests");
+        assertNull(root.parentSpanId());
+        FinishedSpan service = spans.get("RewardService.getRewardsForCustomer");
+        assertEquals(root.spanId(), service.parentSpanId());
+        assertEquals("FULL", service.tags().get("view"));
+        assertEquals("1", service.tags().get("customer.id"));
+        for (String stage : List.of("CustomerRepository.findById", "TransactionRepository.findByCustomerIdAndDateBetween",
+                "RewardCalculator.calculateRewards", "RewardService.buildRewardResponse")) {
+            assertEquals(service.spanId(), spans.get(stage).parentSpanId(), stage);
+        }
+        assertEquals("findById", spans.get("CustomerRepository.findById").tags().get("method"));
+        assertEquals("1", spans.get("RewardCalculator.calculateRewards").tags().get("transactions"));
+        assertEquals(1, exporter.getSpans().stream().map(FinishedSpan::traceId).distinct().count());
+        assertTrue(service.duration().compareTo(root.duration()) <= 0);
+    }
+
+    @Test
+    @DisplayName("Failed stages carry their error")
+    void testError() {
+        when(customerRepository.findById(2L)).thenThrow(new IllegalStateException("database down"));
+        assertThrows(IllegalStateException.class, () -> rewardService.getRewardsForCustomer(2L,
+                LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 31), RewardView.FULL, false));
+
+        Map<String, FinishedSpan> spans = byName(exporter.getSpans());
+        assertTrue(spans.get("CustomerRepository.findById").error().contains("database down"));
+        assertTrue(spans.get("RewardService.getRewardsForCustomer").error().contains("database down"));
+    }
+
+    @Test
+    @DisplayName("Requests continue the caller's trace from the traceparent header")
+    void testPropagation() {
+        Observation request = request(registry, "00-" + TRACE_ID + "-" + CALLER_SPAN_ID + "-01");
+        try (Observation.Scope scope = request.openScope()) {
+            Observation.createNotStarted("child", registry).observe(() -> { });
+        } finally {
+            request.stop();
+        }
+
+        List<FinishedSpan> spans = exporter.getSpans(TRACE_ID);
+        assertEquals(2, spans.size());
+        Map<String, FinishedSpan> byName = byName(spans);
+        assertEquals(CALLER_SPAN_ID, byName.get("http.server.requests").parentSpanId());
+        assertEquals(byName.get("http.server.requests").spanId(), byName.get("child").parentSpanId());
+        assertTrue(byName.get("child").spanId().matches("[0-9a-f]{16}"));
+    }
+
+    @Test
+    @DisplayName("New traces are sampled with the configured probability, continued traces as the caller decided")
+    void testSampling() {
+        ObservationRegistry never = registry(0.0);
+        request(never, null).stop();
+        assertTrue(exporter.getSpans().isEmpty());
+        request(never, "00-" + TRACE_ID + "-" + CALLER_SPAN_ID + "-01").stop();
+        assertEquals(1, exporter.getSpans(TRACE_ID).size());
+
+        exporter.clear();
+        request(registry, "00-" + TRACE_ID + "-" + CALLER_SPAN_ID + "-00").stop();
+        assertTrue(exporter.getSpans().isEmpty());
+        request(registry, "00-" + TRACE_ID + "-garbage-01").stop();
+        request(registry, "00-00000000000000000000000000000000-" + CALLER_SPAN_ID + "-01").stop();
+        assertEquals(2, exporter.getSpans().size());
+        for (FinishedSpan span : exporter.getSpans()) {
+            assertNull(span.parentSpanId());
+            assertNotEquals(TRACE_ID, span.traceId());
+            assertTrue(span.traceId().matches("[0-9a-f]{32}"));
+        }
+    }
+
+    @Test
+    @DisplayName("Response encoding is a span of the request, ending once the request completes")
+    void testResponseEncoding() {
+        ResponseEncodingObservation encoding = new ResponseEncodingObservation(registry);
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+        assertFalse(encoding.supports(null, MappingJackson2HttpMessageConverter.class));
+
+        Observation request = request(registry, null);
+        try (Observation.Scope scope = request.openScope()) {
+            assertTrue(encoding.supports(null, MappingJackson2HttpMessageConverter.class));
+            encoding.beforeBodyWrite("body", null, MediaType.APPLICATION_JSON, MappingJackson2HttpMessageConverter.class,
+                    new ServletServerHttpRequest(servletRequest), null);
+            encoding.afterCompletion(servletRequest, null, null, null);
+        } finally {
+            request.stop();
+        }
+
+        Map<String, FinishedSpan> spans = byName(exporter.getSpans());
+        FinishedSpan encode = spans.get("encode application/json");
+        assertNotNull(encode, spans.keySet().toString());
+        assertEquals(spans.get("http.server.requests").spanId(), encode.parentSpanId());
+        assertEquals("MappingJackson2HttpMessageConverter", encode.tags().get("converter"));
+    }
+
+    @Test
+    @DisplayName("The in-memory exporter keeps the most recent spans")
+    void testExporterCapacity() {
+        InMemorySpanExporter small = new InMemorySpanExporter(2);
+        for (int i = 0; i < 3; i++) {
+            small.export(new FinishedSpan(TRACE_ID, "span" + i, null, "span" + i, null, null, Map.of(), null));
+        }
+        assertEquals(List.of("span1", "span2"), small.getSpans().stream().map(FinishedSpan::name).toList());
+    }
+
+    @Test
+    @DisplayName("Spans are recorded on the application's registry only when tracing is enabled")
+    void testTracingEnabled() {
+        StaticListableBeanFactory exporters = new StaticListableBeanFactory(Map.of("exporter", exporter));
+        ObservationRegistry disabled = ObservationRegistry.create();
+        TracingConfig.spanRecordingPostProcessor(exporters.getBeanProvider(SpanExporter.class), false, 1.0)
+                .postProcessAfterInitialization(disabled, "observationRegistry");
+        ObservationRegistry enabled = ObservationRegistry.create();
+        TracingConfig.spanRecordingPostProcessor(exporters.getBeanProvider(SpanExporter.class), true, 1.0)
+                .postProcessAfterInitialization(enabled, "observationRegistry");
+
+        Observation.start("rewards.disabled", disabled).stop();
+        Observation.start("rewards.enabled", enabled).stop();
+        Observation.start("spring.security.filterchains", enabled).stop();
+
+        assertEquals(List.of("rewards.enabled"), exporter.getSpans().stream().map(FinishedSpan::name).toList());
+    }
+}
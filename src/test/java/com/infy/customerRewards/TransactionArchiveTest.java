@@ -0,0 +1,271 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.infy.customerRewards.entity.Customer;
+import com.infy.customerRewards.entity.Transaction;
+import com.infy.customerRewards.repository.TransactionRepository;
+import com.infy.customerRewards.utility.ArchiveSegment;
+import com.infy.customerRewards.utility.TransactionArchive;
+import com.infy.customerRewards.utility.TransactionsArchivedEvent;
+
+import jakarta.persistence.EntityManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(SpringExtension.class)
+class TransactionArchiveTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2019, 3);
+    private static final int CUSTOMERS = 500;
+    private static final int PER_CUSTOMER = 20;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @TempDir
+    Path directory;
+
+    @TempDir
+    Path otherDirectory;
+
+    @TempDir
+    Path sharedDirectory;
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private TransactionArchive archive;
+    private List<Transaction> rows;
+    private List<Long> deletedIds;
+
+    @BeforeEach
+    void setUp() {
+        rows = new ArrayList<>();
+        long id = 1;
+        for (long customerId = 1; customerId <= CUSTOMERS; customerId++) {
+            Customer customer = new Customer();
+            customer.setId(customerId);
+            for (int i = 0; i < PER_CUSTOMER; i++) {
+                Transaction tx = new Transaction();
+                tx.setId(id++);
+                tx.setCustomer(customer);
+                tx.setDate(MONTH.atDay(1 + i));
+                tx.setAmount(i % 2 == 0 ? 120.0 + customerId : 49.99 - i);
+                tx.setProduct("Product " + (i % 7));
+                rows.add(tx);
+            }
+        }
+        when(transactionRepository.streamByDateBetweenOrderByCustomer(MONTH.atDay(1), MONTH.atEndOfMonth()))
+                .thenAnswer(invocation -> rows.stream());
+        deletedIds = new ArrayList<>();
+        when(transactionRepository.deleteArchived(eq(MONTH.atDay(1)), eq(MONTH.atEndOfMonth()), anyList()))
+                .thenAnswer(invocation -> {
+                    List<Long> ids = invocation.getArgument(2);
+                    deletedIds.addAll(ids);
+                    return ids.size();
+                });
+
+        // the shared segment table, as in tableScript.sql
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:archive-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE archive_segments (archive_month CHAR(7) NOT NULL PRIMARY KEY, "
+                + "row_count BIGINT NOT NULL, file_name VARCHAR(255) NOT NULL, created_at TIMESTAMP NOT NULL)");
+        transactionManager = new DataSourceTransactionManager(dataSource);
+
+        archive = archive(directory);
+    }
+
+    private TransactionArchive archive(Path cache) {
+        return new TransactionArchive(transactionRepository, entityManager, jdbcTemplate, transactionManager,
+                eventPublisher, cache.toString(), sharedDirectory.toString(), true, 18, 84);
+    }
+
+    @Test
+    @DisplayName("Archiving a month stores its segment in the shared directory and deletes exactly the archived rows")
+    void testArchiveMonth() throws Exception {
+        assertFalse(archive.isArchived(MONTH));
+
+        archive.archiveMonth(MONTH);
+
+        assertTrue(Files.exists(directory.resolve("transactions-2019-03.seg")));
+        assertEquals(CUSTOMERS * PER_CUSTOMER, jdbcTemplate.queryForObject(
+                "select row_count from archive_segments where archive_month = '2019-03'", Long.class));
+        String fileName = jdbcTemplate.queryForObject(
+                "select file_name from archive_segments where archive_month = '2019-03'", String.class);
+        assertEquals(Files.size(directory.resolve("transactions-2019-03.seg")), Files.size(sharedDirectory.resolve(fileName)));
+        assertEquals(rows.stream().map(Transaction::getId).toList(), deletedIds);
+        verify(transactionRepository, times(CUSTOMERS * PER_CUSTOMER / 1000))
+                .deleteArchived(eq(MONTH.atDay(1)), eq(MONTH.atEndOfMonth()), anyList());
+        verify(entityManager, times(CUSTOMERS * PER_CUSTOMER)).detach(any());
+        verify(eventPublisher).publishEvent(new TransactionsArchivedEvent(MONTH));
+        assertTrue(archive.isArchived(MONTH));
+        assertFalse(archive.isArchived(MONTH.plusMonths(1)));
+    }
+
+    @Test
+    @DisplayName("Archived transactions of a customer are read back with all their columns")
+    void testLoadCustomer() {
+        archive.archiveMonth(MONTH);
+
+        List<Transaction> loaded = archive.load(321L, LocalDate.of(2019, 1, 1), LocalDate.of(2019, 12, 31));
+
+        List<Transaction> expected = rows.subList(320 * PER_CUSTOMER, 321 * PER_CUSTOMER);
+        assertEquals(PER_CUSTOMER, loaded.size());
+        for (int i = 0; i < PER_CUSTOMER; i++) {
+            assertEquals(expected.get(i).getId(), loaded.get(i).getId());
+            assertEquals(expected.get(i).getDate(), loaded.get(i).getDate());
+            assertEquals(expected.get(i).getAmount(), loaded.get(i).getAmount(), 0.0001);
+            assertEquals(expected.get(i).getProduct(), loaded.get(i).getProduct());
+        }
+        assertTrue(archive.load(CUSTOMERS + 1L, MONTH.atDay(1), MONTH.atEndOfMonth()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Date bounds are applied within the archived month")
+    void testLoadDateRange() {
+        archive.archiveMonth(MONTH);
+
+        List<Transaction> loaded = archive.load(7L, LocalDate.of(2019, 3, 5), LocalDate.of(2019, 3, 9));
+
+        assertEquals(5, loaded.size());
+        assertEquals(LocalDate.of(2019, 3, 5), loaded.get(0).getDate());
+        assertEquals(LocalDate.of(2019, 3, 9), loaded.get(4).getDate());
+    }
+
+    @Test
+    @DisplayName("Every archived row is visited with its customer, date and amount")
+    void testForEachArchivedRow() {
+        archive.archiveMonth(MONTH);
+
+        List<Transaction> visited = new ArrayList<>();
+        archive.forEachArchivedRow((customerId, date, amount) -> {
+            Customer customer = new Customer();
+            customer.setId(customerId);
+            Transaction tx = new Transaction();
+            tx.setCustomer(customer);
+            tx.setDate(date);
+            tx.setAmount(amount);
+            visited.add(tx);
+        });
+
+        assertEquals(rows.size(), visited.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i).getCustomer().getId(), visited.get(i).getCustomer().getId());
+            assertEquals(rows.get(i).getDate(), visited.get(i).getDate());
+            assertEquals(rows.get(i).getAmount(), visited.get(i).getAmount(), 0.0001);
+        }
+    }
+
+    @Test
+    @DisplayName("Segments are compressed, split into indexed blocks and found again after a restart")
+    void testSegmentFormat() throws Exception {
+        archive.archiveMonth(MONTH);
+
+        Path file = directory.resolve("transactions-2019-03.seg");
+        ArchiveSegment segment = ArchiveSegment.open(MONTH, file);
+        assertEquals(CUSTOMERS * PER_CUSTOMER, segment.getRowCount());
+        assertEquals(3, segment.getBlockCount());
+        assertTrue(Files.size(file) < CUSTOMERS * PER_CUSTOMER * 8L, "segment should take under 8 bytes per row");
+
+        TransactionArchive reopened = archive(directory);
+        assertTrue(reopened.isArchived(MONTH));
+        assertEquals(PER_CUSTOMER, reopened.load(500L, MONTH.atDay(1), MONTH.atEndOfMonth()).size());
+    }
+
+    @Test
+    @DisplayName("An already archived month is neither rewritten nor deleted from again")
+    void testArchiveMonthTwice() {
+        archive.archiveMonth(MONTH);
+        int deleted = deletedIds.size();
+        when(transactionRepository.countByDateBetween(MONTH.atDay(1), MONTH.atEndOfMonth())).thenReturn(3L);
+
+        archive.archiveMonth(MONTH);
+
+        verify(transactionRepository, times(1)).streamByDateBetweenOrderByCustomer(any(), any());
+        assertEquals(deleted, deletedIds.size());
+        verify(transactionRepository).countByDateBetween(MONTH.atDay(1), MONTH.atEndOfMonth());
+    }
+
+    @Test
+    @DisplayName("A failed archive run leaves the month in the database and no segment behind")
+    void testFailedArchiveRollsBack() throws Exception {
+        when(transactionRepository.deleteArchived(any(), any(), anyList())).thenThrow(new IllegalStateException("lock wait timeout"));
+
+        assertThrows(IllegalStateException.class, () -> archive.archiveMonth(MONTH));
+
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from archive_segments", Integer.class));
+        assertFalse(Files.exists(directory.resolve("transactions-2019-03.seg")));
+        assertFalse(Files.exists(directory.resolve("transactions-2019-03.seg.staged")));
+        try (Stream<Path> shared = Files.list(sharedDirectory)) {
+            assertEquals(0, shared.count());
+        }
+        assertFalse(archive.isArchived(MONTH));
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("Other instances pick up a month archived elsewhere from the shared table")
+    void testOtherInstance() {
+        TransactionArchive other = archive(otherDirectory);
+
+        archive.archiveMonth(MONTH);
+        assertFalse(other.isArchived(MONTH));
+        other.refresh();
+
+        assertTrue(other.isArchived(MONTH));
+        assertTrue(Files.exists(otherDirectory.resolve("transactions-2019-03.seg")));
+        assertEquals(PER_CUSTOMER, other.load(42L, MONTH.atDay(1), MONTH.atEndOfMonth()).size());
+        verify(eventPublisher, times(2)).publishEvent(new TransactionsArchivedEvent(MONTH));
+
+        other.archiveMonth(MONTH);
+        verify(transactionRepository, times(1)).streamByDateBetweenOrderByCustomer(any(), any());
+    }
+
+    @Test
+    @DisplayName("A month archived elsewhere is served from the archive before the next refresh")
+    void testArchivedBeforeRefresh() {
+        TransactionArchive other = archive(otherDirectory);
+
+        archive.archiveMonth(MONTH);
+
+        assertFalse(other.isArchived(MONTH));
+        assertEquals(PER_CUSTOMER, other.load(42L, MONTH.atDay(1), MONTH.atEndOfMonth()).size());
+        assertTrue(other.isArchived(MONTH));
+    }
+
+    @Test
+    @DisplayName("Months are served from the archive only if the shared table lists them")
+    void testArchivedPerMonth() {
+        archive.archiveMonth(MONTH);
+
+        // a month listed by the shared table as the reader's transaction saw it, then deleted elsewhere
+        jdbcTemplate.update("delete from archive_segments");
+        assertTrue(archive.load(42L, MONTH.atDay(1), MONTH.atEndOfMonth()).isEmpty());
+        assertTrue(archive.load(42L, LocalDate.now().minusMonths(1), LocalDate.now()).isEmpty());
+    }
+}
@@ -0,0 +1,390 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.infy.customerRewards.dto.TransactionDTO;
+import com.infy.customerRewards.exception.CustomException;
+import com.infy.customerRewards.utility.IdempotencyKeys;
+import com.infy.customerRewards.utility.IsolatingEventMulticaster;
+import com.infy.customerRewards.utility.RewardEventOutbox;
+import com.infy.customerRewards.utility.ShardRouter;
+import com.infy.customerRewards.utility.TransactionJournal;
+import com.infy.customerRewards.utility.TransactionsRecordedEvent;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+
+class TransactionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private List<TransactionsRecordedEvent> events;
+    private RewardEventOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        // date is a keyword in H2 but not in MySQL
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:journal-" + UUID.randomUUID() + ";NON_KEYWORDS=DATE;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        createTransactionsTable();
+        TestSchema.create(jdbc, "journal_checkpoint", "ingest_keys");
+        events = Collections.synchronizedList(new ArrayList<>());
+        outbox = mock(RewardEventOutbox.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("shutdown");
+    }
+
+    private void createTransactionsTable() {
+        jdbc.execute("create table transactions (id bigint auto_increment primary key, customer_id bigint not null, "
+                + "date date not null, product varchar(100) not null, amount decimal(10,2) not null)");
+    }
+
+    private IdempotencyKeys keys() {
+        IdempotencyKeys keys = new IdempotencyKeys(jdbc, ShardRouter.single(), true, 1000, 0.01, 7);
+        keys.load();
+        return keys;
+    }
+
+    private TransactionJournal journal(long segmentBytes) {
+        return journal(keys(), segmentBytes);
+    }
+
+    private TransactionJournal journal(IdempotencyKeys keys, long segmentBytes) {
+        return journal(keys, directory, segmentBytes, event -> events.add((TransactionsRecordedEvent) event));
+    }
+
+    private TransactionJournal journal(IdempotencyKeys keys, Path journalDirectory, long segmentBytes,
+                                       ApplicationEventPublisher publisher) {
+        TransactionJournal journal = new TransactionJournal(jdbc, new DataSourceTransactionManager(dataSource), publisher,
+                keys, outbox, ShardRouter.single(), journalDirectory.toString(), true, 100, segmentBytes, 5);
+        journal.start();
+        return journal;
+    }
+
+    private List<Path> segments() throws Exception {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("journal-")).toList();
+        }
+    }
+
+    private TransactionDTO tx(LocalDate date, double amount) {
+        TransactionDTO tx = new TransactionDTO();
+        tx.setDate(date);
+        tx.setAmount(amount);
+        tx.setProduct("Product");
+        return tx;
+    }
+
+    private int rows() {
+        return jdbc.queryForObject("select count(*) from transactions", Integer.class);
+    }
+
+    @Test
+    @DisplayName("Concurrent appends are acknowledged, then flushed in batches and published")
+    void testAppendAndFlush() throws Exception {
+        TransactionJournal journal = journal(4096);
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> acks = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                long customerId = 1 + i % 4;
+                acks.add(clients.submit(() -> journal.append(customerId, null,
+                        List.of(tx(LocalDate.of(2025, 10, 1), 120.25), tx(LocalDate.of(2025, 10, 2), 60.0)))));
+            }
+            Set<Long> sequences = new HashSet<>();
+            for (Future<Long> ack : acks) {
+                sequences.add(ack.get());
+            }
+            assertEquals(400, sequences.size());
+        } finally {
+            clients.shutdown();
+        }
+        assertEquals(800, journal.getUnflushedCount());
+        assertEquals(0, rows());
+
+        journal.flush();
+
+        assertEquals(0, journal.getUnflushedCount());
+        assertEquals(800, rows());
+        assertEquals(800L, jdbc.queryForObject("select sequence from journal_checkpoint", Long.class));
+        assertEquals(0, new BigDecimal("72100.00").compareTo(
+                jdbc.queryForObject("select sum(amount) from transactions", BigDecimal.class)));
+        assertEquals(800, events.stream().mapToInt(event -> event.transactions().size()).sum());
+        assertEquals(1, segments().size());
+        journal.stop();
+    }
+
+    @Test
+    @DisplayName("Reward events are written in the flush transaction, so a failed outbox write rolls the batch back")
+    void testOutboxInFlushTransaction() throws Exception {
+        TransactionJournal journal = journal(1 << 20);
+        journal.append(1L, null, List.of(tx(LocalDate.of(2025, 10, 1), 120.0)));
+        doThrow(new DataAccessResourceFailureException("outbox unavailable")).when(outbox).record(any());
+
+        journal.flush();
+        assertEquals(1, journal.getUnflushedCount());
+        assertEquals(0, rows());
+        assertTrue(events.isEmpty());
+
+        reset(outbox);
+        journal.flush();
+        assertEquals(1, rows());
+        verify(outbox).record(any());
+        assertEquals(1, events.size());
+        journal.stop();
+    }
+
+    @Test
+    @DisplayName("Unflushed transactions are replayed once after a restart, torn records are dropped")
+    void testReplayAfterFailedFlush() throws Exception {
+        TransactionJournal journal = journal(1 << 20);
+        journal.append(1L, null, List.of(tx(LocalDate.of(2025, 10, 1), 120.0)));
+        journal.flush();
+        journal.append(2L, null, List.of(tx(LocalDate.of(2025, 10, 2), 75.0), tx(LocalDate.of(2025, 10, 3), 200.0)));
+
+        // the database is unavailable while shutting down, so the last append stays in the journal only
+        jdbc.execute("drop table transactions");
+        journal.stop();
+        createTransactionsTable();
+        Files.write(segments().get(0), new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        TransactionJournal restarted = journal(1 << 20);
+        assertEquals(2, restarted.getUnflushedCount());
+        restarted.flush();
+
+        assertEquals(2, rows());
+        assertEquals(List.of(2L, 2L), jdbc.queryForList("select customer_id from transactions", Long.class));
+        long next = restarted.append(3L, null, List.of(tx(LocalDate.of(2025, 10, 4), 10.0)));
+        assertEquals(4L, next);
+        restarted.stop();
+        assertEquals(3, rows());
+    }
+
+    @Test
+    @DisplayName("Incomplete transactions and appends to a disabled journal are rejected")
+    void testRejected() {
+        TransactionJournal disabled = new TransactionJournal(jdbc, new DataSourceTransactionManager(dataSource),
+                event -> { }, new IdempotencyKeys(jdbc, ShardRouter.single(), false, 1000, 0.01, 7), outbox, ShardRouter.single(),
+                directory.toString(), false, 100, 4096, 5);
+        disabled.start();
+        assertThrows(CustomException.class, () -> disabled.append(1L, null, List.of(tx(LocalDate.now(), 10.0))));
+
+        TransactionJournal journal = journal(4096);
+        TransactionDTO incomplete = tx(LocalDate.now(), 10.0);
+        incomplete.setProduct(null);
+        assertThrows(CustomException.class, () -> journal.append(1L, null, List.of(incomplete)));
+        assertThrows(CustomException.class, () -> journal.append(1L, null, List.of()));
+        TransactionDTO longProduct = tx(LocalDate.now(), 10.0);
+        longProduct.setProduct("x".repeat(101));
+        assertThrows(CustomException.class, () -> journal.append(1L, null, List.of(longProduct)));
+        assertThrows(CustomException.class, () -> journal.append(1L, null, List.of(tx(LocalDate.now(), 1e9))));
+        assertThrows(CustomException.class, () -> journal.append(1L, null, List.of(tx(LocalDate.now(), Double.NaN))));
+        journal.stop();
+        assertThrows(CustomException.class, () -> journal.append(1L, null, List.of(tx(LocalDate.now(), 10.0))));
+    }
+
+    @Test
+    @DisplayName("A transaction the database rejects is dead-lettered and the rest of its batch is flushed")
+    void testDeadLetter() throws Exception {
+        jdbc.execute("alter table transactions add constraint small_amounts check (amount < 1000)");
+        TransactionJournal journal = journal(1 << 20);
+        journal.append(1L, null, List.of(tx(LocalDate.of(2025, 10, 1), 120.0), tx(LocalDate.of(2025, 10, 2), 60.0)));
+        journal.append(2L, null, List.of(tx(LocalDate.of(2025, 10, 3), 5000.0)));
+        journal.append(3L, null, List.of(tx(LocalDate.of(2025, 10, 4), 75.0)));
+
+        journal.flush();
+
+        assertEquals(0, journal.getUnflushedCount());
+        assertEquals(List.of(1L, 1L, 3L), jdbc.queryForList("select customer_id from transactions order by id", Long.class));
+        assertEquals(4L, jdbc.queryForObject("select sequence from journal_checkpoint", Long.class));
+        assertTrue(Files.size(directory.resolve("dead-letters.log")) > 0);
+        assertEquals(Set.of(1L, 3L), new HashSet<>(events.stream().map(TransactionsRecordedEvent::customerId).toList()));
+        journal.stop();
+    }
+
+    @Test
+    @DisplayName("Journals sharing a database keep separate checkpoints")
+    void testCheckpointPerJournal() throws Exception {
+        TransactionJournal first = journal(1 << 20);
+        TransactionJournal second = journal(keys(), Files.createDirectory(directory.resolve("second")), 1 << 20,
+                event -> { });
+        first.append(1L, null, List.of(tx(LocalDate.of(2025, 10, 1), 120.0), tx(LocalDate.of(2025, 10, 2), 60.0)));
+        second.append(2L, null, List.of(tx(LocalDate.of(2025, 10, 3), 75.0)));
+        first.flush();
+        second.flush();
+        first.stop();
+        second.stop();
+
+        assertEquals(List.of(1L, 2L), jdbc.queryForList("select sequence from journal_checkpoint order by sequence", Long.class));
+        // restarting the first journal replays nothing
+        TransactionJournal restarted = journal(1 << 20);
+        assertEquals(0, restarted.getUnflushedCount());
+        restarted.stop();
+        assertEquals(3, rows());
+    }
+
+    @Test
+    @DisplayName("A failing listener does not stop the other listeners")
+    void testFailingListener() {
+        IsolatingEventMulticaster multicaster = new IsolatingEventMulticaster();
+        multicaster.addApplicationListener(ApplicationListener.forPayload((TransactionsRecordedEvent recorded) -> {
+            throw new IllegalStateException("listener failed");
+        }));
+        multicaster.addApplicationListener(ApplicationListener.forPayload((TransactionsRecordedEvent recorded) -> events.add(recorded)));
+        TransactionJournal journal = journal(keys(), directory, 1 << 20,
+                event -> multicaster.multicastEvent(new PayloadApplicationEvent<>(this, event)));
+        journal.append(1L, null, List.of(tx(LocalDate.of(2025, 10, 1), 120.0)));
+        journal.append(2L, null, List.of(tx(LocalDate.of(2025, 10, 2), 60.0)));
+
+        journal.flush();
+
+        assertEquals(2, rows());
+        assertEquals(0, journal.getUnflushedCount());
+        assertEquals(List.of(1L, 2L), events.stream().map(TransactionsRecordedEvent::customerId).toList());
+        journal.stop();
+    }
+
+    @Test
+    @DisplayName("A repeated idempotency key is ingested once, before and after the flush and across a restart")
+    void testIdempotencyKeys() {
+        IdempotencyKeys keys = keys();
+        TransactionJournal journal = journal(keys, 1 << 20);
+        List<TransactionDTO> sale = List.of(tx(LocalDate.of(2025, 10, 1), 120.0), tx(LocalDate.of(2025, 10, 1), 80.0));
+
+        IdempotencyKeys.Claim first = keys.claim(1L, "pos-1-0001", sale, () -> journal.append(1L, "pos-1-0001", sale));
+        IdempotencyKeys.Claim retry = keys.claim(1L, "pos-1-0001", sale, () -> journal.append(1L, "pos-1-0001", sale));
+        assertFalse(first.duplicate());
+        assertTrue(retry.duplicate());
+        assertEquals(first.sequence(), retry.sequence());
+
+        // the key is restored from the journal after a restart without a flush
+        jdbc.execute("drop table transactions");
+        journal.stop();
+        createTransactionsTable();
+        IdempotencyKeys restartedKeys = keys();
+        TransactionJournal restarted = journal(restartedKeys, 1 << 20);
+        assertTrue(restartedKeys.claim(1L, "pos-1-0001", sale, () -> fail("appended twice")).duplicate());
+
+        restarted.flush();
+        assertEquals(2, rows());
+        assertEquals(first.sequence(), jdbc.queryForObject(
+                "select sequence from ingest_keys where idempotency_key = 'pos-1-0001'", Long.class));
+        IdempotencyKeys.Claim afterFlush = restartedKeys.claim(1L, "pos-1-0001", sale, () -> fail("appended twice"));
+        assertTrue(afterFlush.duplicate());
+        assertEquals(1, restartedKeys.getStats().getDatabaseLookups());
+
+        List<TransactionDTO> next = List.of(tx(LocalDate.of(2025, 10, 2), 60.0));
+        assertFalse(restartedKeys.claim(1L, "pos-1-0002", next,
+                () -> restarted.append(1L, "pos-1-0002", next)).duplicate());
+        restarted.stop();
+        assertEquals(3, rows());
+    }
+
+    @Test
+    @DisplayName("Keys are scoped by customer and a key reused with different transactions is rejected")
+    void testKeyScopeAndPayload() {
+        IdempotencyKeys keys = keys();
+        TransactionJournal journal = journal(keys, 1 << 20);
+        List<TransactionDTO> sale = List.of(tx(LocalDate.of(2025, 10, 1), 120.0));
+        List<TransactionDTO> other = List.of(tx(LocalDate.of(2025, 10, 1), 99.0));
+
+        assertFalse(keys.claim(1L, "order-1", sale, () -> journal.append(1L, "order-1", sale)).duplicate());
+        assertFalse(keys.claim(2L, "order-1", sale, () -> journal.append(2L, "order-1", sale)).duplicate());
+        assertThrows(CustomException.class, () -> keys.claim(1L, "order-1", other, () -> fail("appended")));
+
+        journal.flush();
+        assertEquals(2, rows());
+        assertThrows(CustomException.class, () -> keys.claim(1L, "order-1", other, () -> fail("appended")));
+        assertTrue(keys.claim(1L, "order-1", sale, () -> fail("appended twice")).duplicate());
+        journal.stop();
+    }
+
+    @Test
+    @DisplayName("A key ingested on two instances before either flushed is stored once and its transactions inserted once")
+    void testKeyOnTwoInstances() throws Exception {
+        IdempotencyKeys firstKeys = keys();
+        IdempotencyKeys secondKeys = keys();
+        TransactionJournal first = journal(firstKeys, 1 << 20);
+        TransactionJournal second = journal(secondKeys, Files.createDirectory(directory.resolve("second")), 1 << 20,
+                event -> events.add((TransactionsRecordedEvent) event));
+        List<TransactionDTO> sale = List.of(tx(LocalDate.of(2025, 10, 1), 120.0), tx(LocalDate.of(2025, 10, 1), 80.0));
+        firstKeys.claim(1L, "pos-1-0001", sale, () -> first.append(1L, "pos-1-0001", sale));
+        secondKeys.claim(1L, "pos-1-0001", sale, () -> second.append(1L, "pos-1-0001", sale));
+        second.append(1L, null, List.of(tx(LocalDate.of(2025, 10, 2), 10.0)));
+
+        first.flush();
+        second.flush();
+
+        assertEquals(0, second.getUnflushedCount());
+        assertEquals(3, rows());
+        assertEquals(1, jdbc.queryForObject("select count(*) from ingest_keys", Integer.class));
+        assertEquals(3, events.stream().mapToInt(event -> event.transactions().size()).sum());
+        first.stop();
+        second.stop();
+    }
+
+    @Test
+    @DisplayName("A retry waiting for a failed original request takes the key over")
+    void testRetryAfterFailedOriginal() throws Exception {
+        IdempotencyKeys keys = keys();
+        TransactionJournal journal = journal(keys, 1 << 20);
+        List<TransactionDTO> sale = List.of(tx(LocalDate.of(2025, 10, 1), 120.0));
+        CountDownLatch originalAppending = new CountDownLatch(1);
+        ExecutorService clients = Executors.newSingleThreadExecutor();
+        try {
+            Future<IdempotencyKeys.Claim> original = clients.submit(() -> keys.claim(1L, "pos-1-0001", sale, () -> {
+                originalAppending.countDown();
+                try {
+                    Thread.sleep(100); // while the retry waits for it
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("journal write failed");
+            }));
+            originalAppending.await();
+            IdempotencyKeys.Claim retry = keys.claim(1L, "pos-1-0001", sale, () -> journal.append(1L, "pos-1-0001", sale));
+
+            assertFalse(retry.duplicate());
+            assertThrows(ExecutionException.class, original::get);
+        } finally {
+            clients.shutdown();
+        }
+        journal.flush();
+        assertEquals(1, rows());
+        journal.stop();
+    }
+}
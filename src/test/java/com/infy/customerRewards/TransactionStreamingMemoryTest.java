@@ -0,0 +1,181 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infy.customerRewards.controller.RewardController;
+import com.infy.customerRewards.service.RewardService;
+import com.infy.customerRewards.serviceImpl.RewardServiceImpl;
+import com.infy.customerRewards.utility.IdempotencyKeys;
+import com.infy.customerRewards.utility.RewardCalculator;
+import com.infy.customerRewards.utility.RewardEventOutbox;
+import com.infy.customerRewards.utility.RewardLeaderboard;
+import com.infy.customerRewards.utility.RollingRewardsWindow;
+import com.infy.customerRewards.utility.ShardRouter;
+import com.infy.customerRewards.utility.TransactionArchive;
+import com.infy.customerRewards.utility.TransactionJournal;
+import com.infy.customerRewards.utility.TwoLevelRewardsCache;
+
+import io.micrometer.observation.ObservationRegistry;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that streaming the transactions of a heavy customer keeps the live heap bounded.
+ * The controller writes through the real RewardServiceImpl, so rows are read from H2 with the repository's
+ * fetch size and detached from the persistence context as they are written. The heap high-water mark is
+ * sampled after a full GC at regular intervals while the response is written; holding the whole list,
+ * the managed entities or the whole JSON document in memory would make it grow with the transaction count.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.url=jdbc:h2:mem:streaming;NON_KEYWORDS=DATE,MONTH;LAZY_QUERY_EXECUTION=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.main.banner-mode=off"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ RewardServiceImpl.class, RewardCalculator.class, TransactionStreamingMemoryTest.Observations.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransactionStreamingMemoryTest {
+
+    private static final int TRANSACTIONS = 200_000;
+    private static final int SAMPLE_EVERY = 40_000;
+    private static final long MAX_LIVE_HEAP_GROWTH = 32L * 1024 * 1024;
+
+    @Autowired
+    private RewardService rewardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private RollingRewardsWindow rollingRewardsWindow;
+
+    @MockitoBean
+    private TransactionArchive transactionArchive;
+
+    @MockitoBean
+    private RewardLeaderboard rewardLeaderboard;
+
+    @MockitoBean
+    private TransactionJournal transactionJournal;
+
+    @MockitoBean
+    private IdempotencyKeys idempotencyKeys;
+
+    @MockitoBean
+    private ShardRouter shardRouter;
+
+    @MockitoBean
+    private TwoLevelRewardsCache rewardsCache;
+
+    @MockitoBean
+    private RewardEventOutbox rewardEventOutbox;
+
+    private final RewardController rewardController = new RewardController();
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    static class Observations {
+        @Bean
+        ObservationRegistry observationRegistry() {
+            return ObservationRegistry.NOOP;
+        }
+    }
+
+    /**
+     * The mappers are injected as plain instances: a Mockito spy would record every serialized DTO.
+     */
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(rewardController, "rewardService", rewardService);
+        ReflectionTestUtils.setField(rewardController, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(rewardController, "cborConverter", new MappingJackson2CborHttpMessageConverter());
+
+        jdbcTemplate.update("delete from transactions");
+        jdbcTemplate.update("delete from customers");
+        jdbcTemplate.update("insert into customers (id, cust_name, phone_no) values (1, 'Heavy', '0000000000')");
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        List<Object[]> rows = new ArrayList<>(10_000);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            rows.add(new Object[] { Date.valueOf(start.plusDays(i % 2000)), "Product " + (i % 100), 20.0 + (i % 300) });
+            if (rows.size() == 10_000) {
+                jdbcTemplate.batchUpdate("insert into transactions (customer_id, date, product, amount) values (1, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    private long liveHeap() {
+        System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    @Test
+    @DisplayName("Streaming two hundred thousand transactions keeps the live heap bounded")
+    void testHeapHighWaterMarkIsBounded() throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        long baseline = liveHeap();
+
+        ResponseEntity<StreamingResponseBody> response = rewardController.getCustomerTransactions(1L, new HttpHeaders());
+        response.getBody().writeTo(out);
+
+        long growth = out.highWaterMark - baseline;
+        assertEquals(TRANSACTIONS / SAMPLE_EVERY, out.objects / SAMPLE_EVERY, "the heap should have been sampled while writing");
+        assertTrue(out.count > TRANSACTIONS * 50L, "all transactions should have been written, got " + out.count + " bytes");
+        assertTrue(growth < MAX_LIVE_HEAP_GROWTH, "live heap grew by " + growth + " bytes while streaming");
+    }
+
+    /**
+     * Discards the response while counting its size, sampling the live heap every SAMPLE_EVERY transactions.
+     */
+    private final class CountingOutputStream extends OutputStream {
+        private long count;
+        private long objects;
+        private long highWaterMark;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '}' && ++objects % SAMPLE_EVERY == 0) {
+                    highWaterMark = Math.max(highWaterMark, liveHeap());
+                }
+            }
+            count += len;
+        }
+    }
+}
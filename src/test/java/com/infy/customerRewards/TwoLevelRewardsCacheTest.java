@@ -0,0 +1,173 @@
+package com.infy.customerRewards;
+
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import com.infy.customerRewards.dto.MonthlyRewardDTO;
+import com.infy.customerRewards.dto.RewardResponseDTO;
+import com.infy.customerRewards.utility.InProcessRewardsCacheTier;
+import com.infy.customerRewards.utility.TransactionsRecordedEvent;
+import com.infy.customerRewards.utility.TwoLevelRewardsCache;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two instances of the rewards cache sharing one in-process tier, as two application instances
+ * would share a remote one.
+ */
+class TwoLevelRewardsCacheTest {
+
+    private InProcessRewardsCacheTier tier;
+    private TwoLevelRewardsCache first;
+    private TwoLevelRewardsCache second;
+    private AtomicInteger calculations;
+    private int points;
+
+    @BeforeEach
+    void setUp() {
+        tier = new InProcessRewardsCacheTier(1000);
+        first = cache(Duration.ofMinutes(1));
+        second = cache(Duration.ofMinutes(1));
+        calculations = new AtomicInteger();
+        points = 100;
+    }
+
+    private TwoLevelRewardsCache cache(Duration versionTtl) {
+        return new TwoLevelRewardsCache(tier, true, 100, versionTtl, Duration.ofMinutes(10));
+    }
+
+    private RewardResponseDTO calculate() {
+        calculations.incrementAndGet();
+        return RewardResponseDTO.builder()
+                .customerId(1L)
+                .custName("John Doe")
+                .totalRewards(points)
+                .monthlyRewards(List.of(MonthlyRewardDTO.builder().year(2025).month("JANUARY").points(points).build()))
+                .build();
+    }
+
+    private int read(TwoLevelRewardsCache cache) {
+        return cache.get(1L, "2025-01-01:2025-03-31:FULL:false", this::calculate).getTotalRewards();
+    }
+
+    @Test
+    @DisplayName("A miss is calculated once, then served by the shared tier and the near cache")
+    void testLevels() {
+        assertEquals(100, read(first));
+        assertEquals(100, read(second));
+        assertEquals(100, read(second));
+        assertEquals(100, read(first));
+
+        assertEquals(1, calculations.get());
+        assertEquals(1, first.getStats().getMisses());
+        assertEquals(1, second.getStats().getRemoteHits());
+        assertEquals(1, second.getStats().getNearHits());
+        assertEquals(1, first.getStats().getNearHits());
+        assertEquals(List.of(MonthlyRewardDTO.builder().year(2025).month("JANUARY").points(100).build()),
+                second.get(1L, "2025-01-01:2025-03-31:FULL:false", this::calculate).getMonthlyRewards());
+    }
+
+    @Test
+    @DisplayName("Recorded transactions invalidate the customer's entries in every instance")
+    void testInvalidationBroadcast() {
+        read(first);
+        read(second);
+
+        points = 250;
+        first.onTransactionsRecorded(new TransactionsRecordedEvent(1L, List.of()));
+
+        assertEquals(250, read(second));
+        assertEquals(250, read(first));
+        assertEquals(2, calculations.get());
+        assertEquals(1, second.getStats().getInvalidations());
+    }
+
+    @Test
+    @DisplayName("A value calculated while the transactions changed is not served afterwards")
+    void testChangeDuringCalculation() {
+        RewardResponseDTO stale = first.get(1L, "key", () -> {
+            RewardResponseDTO response = calculate();
+            second.invalidate(1L);
+            return response;
+        });
+        assertEquals(100, stale.getTotalRewards());
+
+        points = 250;
+        assertEquals(250, first.get(1L, "key", this::calculate).getTotalRewards());
+        assertEquals(250, second.get(1L, "key", this::calculate).getTotalRewards());
+        assertEquals(2, calculations.get());
+    }
+
+    @Test
+    @DisplayName("A missed broadcast is caught up once the near version expires")
+    void testMissedBroadcast() throws Exception {
+        TwoLevelRewardsCache deaf = new TwoLevelRewardsCache(new InProcessRewardsCacheTier(1000) {
+            @Override
+            public byte[] get(String key) {
+                return tier.get(key);
+            }
+
+            @Override
+            public void put(String key, byte[] value, Duration ttl) {
+                tier.put(key, value, ttl);
+            }
+
+            @Override
+            public long version(long customerId) {
+                return tier.version(customerId);
+            }
+        }, true, 100, Duration.ofSeconds(1), Duration.ofMinutes(10));
+        assertEquals(100, read(deaf));
+
+        points = 250;
+        first.invalidate(1L);
+        assertEquals(100, read(deaf));
+
+        Thread.sleep(1100);
+        assertEquals(250, read(deaf));
+    }
+
+    @Test
+    @DisplayName("The in-process tier drops expired values first and keeps at most its maximum")
+    void testInProcessTierBound() {
+        InProcessRewardsCacheTier bounded = new InProcessRewardsCacheTier(10);
+        for (int i = 0; i < 5; i++) {
+            bounded.put("expired-" + i, new byte[] { 1 }, Duration.ZERO);
+        }
+        for (int i = 0; i < 10; i++) {
+            bounded.put("live-" + i, new byte[] { 2 }, Duration.ofMinutes(1));
+        }
+        assertEquals(10, bounded.size());
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(bounded.get("live-" + i));
+        }
+
+        bounded.put("one-more", new byte[] { 3 }, Duration.ofMinutes(1));
+        assertEquals(10, bounded.size());
+    }
+
+    @Test
+    @DisplayName("Enabling the cache without a shared tier fails")
+    void testEnabledWithoutTier() {
+        assertThrows(IllegalStateException.class,
+                () -> new TwoLevelRewardsCache(null, true, 100, Duration.ofMinutes(1), Duration.ofMinutes(10)));
+        assertNotNull(new TwoLevelRewardsCache(null, false, 100, Duration.ofMinutes(1), Duration.ofMinutes(10)));
+    }
+
+    @Test
+    @DisplayName("A disabled cache calculates every time")
+    void testDisabled() {
+        TwoLevelRewardsCache disabled = new TwoLevelRewardsCache(tier, false, 100, Duration.ofMinutes(1), Duration.ofMinutes(10));
+
+        disabled.get(1L, "key", this::calculate);
+        disabled.get(1L, "key", this::calculate);
+
+        assertEquals(2, calculations.get());
+        assertEquals(0, tier.size());
+    }
+}
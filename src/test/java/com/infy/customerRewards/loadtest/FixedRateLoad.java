@@ -0,0 +1,143 @@
+package com.infy.customerRewards.loadtest;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: each workload issues requests at a fixed arrival rate,
+ * whatever the response times, from its own dispatcher thread onto a shared worker pool.
+ * Latency is measured from the time a request was due rather than from when a worker
+ * got to send it, so that a slow server shows up as queueing delay in the percentiles
+ * instead of silently lowering the request rate (coordinated omission).
+ */
+final class FixedRateLoad {
+
+    /** Latencies above an hour are recorded as an hour */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(1);
+
+    /**
+     * A request of a workload.
+     */
+    @FunctionalInterface
+    interface Operation {
+        /**
+         * @param sequence the number of the request within its workload
+         * @return true if the request succeeded
+         */
+        boolean call(long sequence) throws Exception;
+    }
+
+    /**
+     * @param name the name the workload is reported under
+     * @param ratePerSecond the number of requests issued per second
+     * @param operation the request
+     */
+    record Workload(String name, double ratePerSecond, Operation operation) {
+    }
+
+    /**
+     * Latencies and outcome counts of one workload.
+     */
+    static final class Result {
+        final LatencyHistogram latencies = new LatencyHistogram(HIGHEST_TRACKABLE_MICROS);
+        final LongAdder errors = new LongAdder();
+        final double targetRate;
+        volatile double elapsedSeconds;
+
+        Result(double targetRate) {
+            this.targetRate = targetRate;
+        }
+
+        double throughput() {
+            return elapsedSeconds == 0 ? 0 : latencies.getTotalCount() / elapsedSeconds;
+        }
+    }
+
+    private final int concurrency;
+
+    FixedRateLoad(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Runs the workloads side by side for the given time and waits for their outstanding requests.
+     *
+     * @param workloads the workloads to run
+     * @param duration how long requests are issued
+     * @return the results by workload name, in the order of the workloads
+     * @throws InterruptedException if interrupted while waiting for the requests
+     */
+    Map<String, Result> run(List<Workload> workloads, Duration duration) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, daemonThreads("load-worker"));
+        Map<String, Result> results = new LinkedHashMap<>();
+        List<Thread> dispatchers = new ArrayList<>();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (Workload workload : workloads) {
+            Result result = new Result(workload.ratePerSecond());
+            results.put(workload.name(), result);
+            Thread dispatcher = new Thread(() -> dispatch(workload, result, workers, start, end),
+                    "load-dispatcher-" + workload.name());
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+            dispatchers.add(dispatcher);
+        }
+        for (Thread dispatcher : dispatchers) {
+            dispatcher.join();
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            workers.shutdownNow();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        results.values().forEach(result -> result.elapsedSeconds = elapsedSeconds);
+        return results;
+    }
+
+    private static void dispatch(Workload workload, Result result, ExecutorService workers, long start, long end) {
+        long interval = (long) (1e9 / workload.ratePerSecond());
+        for (long sequence = 0; ; sequence++) {
+            long due = start + sequence * interval;
+            if (due >= end) {
+                return;
+            }
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            long request = sequence;
+            workers.execute(() -> {
+                boolean succeeded;
+                try {
+                    succeeded = workload.operation().call(request);
+                } catch (Exception e) {
+                    succeeded = false;
+                }
+                result.latencies.record((System.nanoTime() - due) / 1000);
+                if (!succeeded) {
+                    result.errors.increment();
+                }
+            });
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,99 @@
+package com.infy.customerRewards.loadtest;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram in microseconds with HdrHistogram's log-linear bucket layout:
+ * every power of two is split into 64 equal sub-buckets, so any recorded value is
+ * reported with a relative error below 1/64 (two significant digits) across the whole
+ * trackable range, in a fixed and small number of counters.
+ * Safe for concurrent recording from the load generator's worker threads.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    /**
+     * @param highestTrackableValue the largest value kept apart, larger ones are recorded as this value
+     */
+    LatencyHistogram(long highestTrackableValue) {
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(bucketIndex(highestTrackableValue) + 1);
+    }
+
+    void record(long value) {
+        long clamped = Math.max(0, Math.min(value, highestTrackableValue));
+        counts.incrementAndGet(bucketIndex(clamped));
+        totalCount.increment();
+        totalValue.add(clamped);
+        maxValue.accumulateAndGet(clamped, Math::max);
+    }
+
+    long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    long getMaxValue() {
+        return maxValue.get();
+    }
+
+    double getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalValue.sum() / count;
+    }
+
+    /**
+     * Returns the value below or at which the given percentage of the recorded values fall,
+     * as the highest value equivalent to its bucket and never above the recorded maximum.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the value at the percentile, 0 if nothing was recorded
+     */
+    long getValueAtPercentile(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int index = 0; index < counts.length(); index++) {
+            seen += counts.get(index);
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(index), getMaxValue());
+            }
+        }
+        return getMaxValue();
+    }
+
+    /**
+     * Values below 128 have a bucket each; above, the bucket is the top seven bits of the value
+     * within its power of two.
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) ((value >>> shift) - SUB_BUCKET_HALF);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,90 @@
+package com.infy.customerRewards.loadtest;
+
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bucket layout and percentiles of the load test's latency histogram, and the
+ * report comparison between two runs.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Every value falls in a bucket whose upper bound is within 1/64 of it")
+    void testBucketPrecision() {
+        for (long value = 0; value < 10_000_000; value = value < 1000 ? value + 1 : value + value / 97) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long upper = LatencyHistogram.highestEquivalentValue(index);
+            assertTrue(upper >= value, "upper bound below " + value);
+            assertTrue(upper - value <= value / 64, "bucket of " + value + " too wide: " + upper);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.highestEquivalentValue(index - 1) < value, "previous bucket holds " + value);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Percentiles of a uniform distribution")
+    void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(3_600_000_000L);
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(100_000, histogram.getTotalCount());
+        assertEquals(100_000, histogram.getMaxValue());
+        assertEquals(50_000.5, histogram.getMean(), 0.001);
+        assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 / 64.0);
+        assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 / 64.0);
+        assertEquals(99_900, histogram.getValueAtPercentile(99.9), 99_900 / 64.0);
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+        assertEquals(0, new LatencyHistogram(1000).getValueAtPercentile(99));
+    }
+
+    @Test
+    @DisplayName("Values above the trackable range are recorded at its top")
+    void testClamping() {
+        LatencyHistogram histogram = new LatencyHistogram(1000);
+        histogram.record(5_000);
+        histogram.record(-1);
+
+        assertEquals(1000, histogram.getMaxValue());
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+        assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+    @Test
+    @DisplayName("The report lists each workload's percentiles and compares with a baseline report")
+    void testReportComparison() throws Exception {
+        LoadTestSettings settings = new LoadTestSettings(10, 5, 0, 12, 1,
+                Duration.ZERO, Duration.ofSeconds(10), 4, Map.of("history", 10.0), Path.of("unused"), null);
+        FixedRateLoad.Result result = new FixedRateLoad.Result(10);
+        for (int i = 1; i <= 100; i++) {
+            result.latencies.record(i * 1000L);
+        }
+        result.elapsedSeconds = 10;
+        LoadTestReport report = new LoadTestReport(settings, new SyntheticDataset(1, 10, 50),
+                Map.of("history", result));
+
+        Path directory = Files.createTempDirectory("load-test");
+        Path baseline = directory.resolve("baseline.properties");
+        Files.writeString(baseline, "history.latency_ms.p99=49.500\nhistory.errors=0\n");
+        Path file = report.write(directory, baseline);
+
+        Map<String, String> lines = LoadTestReport.read(file);
+        assertEquals("10", lines.get("dataset.customers"));
+        assertEquals("10.00", lines.get("history.throughput_per_s"));
+        assertEquals("100", lines.get("history.requests"));
+        assertEquals(99.0, Double.parseDouble(lines.get("history.latency_ms.p99")), 99.0 / 64);
+        assertTrue(lines.containsKey("history.latency_ms.p99.9"));
+        String comparison = Files.readString(directory.resolve(LoadTestReport.COMPARISON_FILE));
+        assertTrue(comparison.matches("(?s).*history\\.latency_ms\\.p99 +49\\.500 +99\\.\\d{3} +\\+10[01]\\.\\d%.*"), comparison);
+    }
+}
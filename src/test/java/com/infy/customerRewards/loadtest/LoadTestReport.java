@@ -0,0 +1,120 @@
+package com.infy.customerRewards.loadtest;
+
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Report of a load test run as one {@code key=value} line per setting and metric, in a fixed order
+ * and with fixed units, so that the reports of two builds can be compared with a plain diff.
+ * Given the report of a previous build, the relative change of every metric is listed next to it.
+ */
+final class LoadTestReport {
+
+    static final String REPORT_FILE = "report.properties";
+    static final String COMPARISON_FILE = "comparison.txt";
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+    private final Map<String, String> lines = new LinkedHashMap<>();
+
+    LoadTestReport(LoadTestSettings settings, SyntheticDataset dataset, Map<String, FixedRateLoad.Result> results) {
+        lines.put("dataset.customers", Long.toString(dataset.customers()));
+        lines.put("dataset.transactions", Long.toString(dataset.transactions()));
+        lines.put("dataset.zipf_exponent", format(settings.zipfExponent()));
+        lines.put("dataset.months", Integer.toString(settings.months()));
+        lines.put("run.duration_s", Long.toString(settings.duration().toSeconds()));
+        lines.put("run.warmup_s", Long.toString(settings.warmup().toSeconds()));
+        lines.put("run.concurrency", Integer.toString(settings.concurrency()));
+        results.forEach((name, result) -> {
+            LatencyHistogram latencies = result.latencies;
+            lines.put(name + ".target_per_s", format(result.targetRate));
+            lines.put(name + ".throughput_per_s", format(result.throughput()));
+            lines.put(name + ".requests", Long.toString(latencies.getTotalCount()));
+            lines.put(name + ".errors", Long.toString(result.errors.sum()));
+            lines.put(name + ".latency_ms.mean", millis(latencies.getMean()));
+            for (double percentile : PERCENTILES) {
+                lines.put(name + ".latency_ms.p" + format(percentile).replaceAll("\\.?0+$", ""),
+                        millis(latencies.getValueAtPercentile(percentile)));
+            }
+            lines.put(name + ".latency_ms.max", millis(latencies.getMaxValue()));
+        });
+    }
+
+    Map<String, String> getLines() {
+        return lines;
+    }
+
+    /**
+     * Writes the report, and the comparison with the baseline report if there is one.
+     * The baseline is read first, so it may be the report file of the previous run in the same directory.
+     *
+     * @param directory the directory to write to
+     * @param baseline the report of a previous build, or null
+     * @return the report file
+     * @throws IOException if a file cannot be read or written
+     */
+    Path write(Path directory, Path baseline) throws IOException {
+        Map<String, String> previous = baseline == null ? null : read(baseline);
+        Files.createDirectories(directory);
+        Path report = directory.resolve(REPORT_FILE);
+        StringBuilder text = new StringBuilder();
+        lines.forEach((key, value) -> text.append(key).append('=').append(value).append('\n'));
+        Files.writeString(report, text);
+        if (previous != null) {
+            Files.writeString(directory.resolve(COMPARISON_FILE), compare(previous));
+        }
+        return report;
+    }
+
+    /**
+     * Lists every metric of this report with its baseline value and the relative change.
+     *
+     * @param baseline the lines of the baseline report
+     * @return the comparison as an aligned table
+     */
+    String compare(Map<String, String> baseline) {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "%-36s %14s %14s %9s%n",
+                "metric", "baseline", "current", "change"));
+        lines.forEach((key, value) -> {
+            String before = baseline.getOrDefault(key, "-");
+            String change = "";
+            try {
+                double previous = Double.parseDouble(before);
+                double current = Double.parseDouble(value);
+                if (previous != 0) {
+                    change = String.format(Locale.ROOT, "%+.1f%%", (current - previous) / previous * 100);
+                }
+            } catch (NumberFormatException e) {
+                change = before.equals(value) ? "" : "changed";
+            }
+            text.append(String.format(Locale.ROOT, "%-36s %14s %14s %9s%n", key, before, value, change));
+        });
+        return text.toString();
+    }
+
+    static Map<String, String> read(Path report) throws IOException {
+        Map<String, String> lines = new LinkedHashMap<>();
+        List<String> text = Files.readAllLines(report);
+        for (String line : text) {
+            int separator = line.indexOf('=');
+            if (separator > 0 && !line.startsWith("#")) {
+                lines.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+        }
+        return lines;
+    }
+
+    private static String millis(double micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / 1000);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
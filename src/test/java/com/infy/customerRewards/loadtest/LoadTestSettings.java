@@ -0,0 +1,62 @@
+package com.infy.customerRewards.loadtest;
+
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from system properties so that they can be given on
+ * the Maven command line, e.g. {@code mvn test -Pload-test -Dload.customers=50000 -Dload.rate.history=200}.
+ *
+ * @param customers number of customers seeded before the run
+ * @param transactionsPerCustomer mean number of transactions seeded per customer
+ * @param zipfExponent exponent of the Zipf distribution of the transactions over the customers, 0 for an even spread
+ * @param months number of months, up to the current one, the seeded transactions are dated in
+ * @param seed seed of the random generators, so that two builds run the same dataset and requests
+ * @param warmup time the workloads run before latencies are recorded
+ * @param duration time the workloads run while latencies are recorded
+ * @param concurrency number of worker threads sending requests
+ * @param rates requests per second of each workload, workloads with a rate of 0 are not run
+ * @param reportDirectory directory the report is written to
+ * @param baseline report of a previous build to compare with, optional
+ */
+record LoadTestSettings(int customers, int transactionsPerCustomer, double zipfExponent, int months, long seed,
+                        Duration warmup, Duration duration, int concurrency, Map<String, Double> rates,
+                        Path reportDirectory, Path baseline) {
+
+    static final String CREATE = "create";
+    static final String HISTORY = "history";
+    static final String REWARDS_MONTH = "rewards-month";
+    static final String REWARDS_QUARTER = "rewards-quarter";
+    static final String REWARDS_YEAR = "rewards-year";
+
+    static LoadTestSettings fromSystemProperties() {
+        Map<String, Double> rates = new LinkedHashMap<>();
+        rates.put(CREATE, Double.parseDouble(property("rate." + CREATE, "2")));
+        rates.put(HISTORY, Double.parseDouble(property("rate." + HISTORY, "20")));
+        rates.put(REWARDS_MONTH, Double.parseDouble(property("rate." + REWARDS_MONTH, "40")));
+        rates.put(REWARDS_QUARTER, Double.parseDouble(property("rate." + REWARDS_QUARTER, "20")));
+        rates.put(REWARDS_YEAR, Double.parseDouble(property("rate." + REWARDS_YEAR, "10")));
+        String baseline = property("baseline", "");
+        return new LoadTestSettings(
+                Integer.parseInt(property("customers", "2000")),
+                Integer.parseInt(property("transactions-per-customer", "25")),
+                Double.parseDouble(property("zipf-exponent", "1.0")),
+                Integer.parseInt(property("months", "12")),
+                Long.parseLong(property("seed", "42")),
+                DurationStyle.detectAndParse(property("warmup", "10s")),
+                DurationStyle.detectAndParse(property("duration", "30s")),
+                Integer.parseInt(property("concurrency", "64")),
+                rates,
+                Path.of(property("report-directory", "target/load-test")),
+                baseline.isEmpty() ? null : Path.of(baseline));
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("load." + name, defaultValue);
+    }
+}
@@ -0,0 +1,193 @@
+package com.infy.customerRewards.loadtest;
+
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.web.SecurityFilterChain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.infy.customerRewards.CustomerRewardsApplication;
+import com.infy.customerRewards.dto.CustomerDTO;
+import com.infy.customerRewards.dto.TransactionDTO;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test of the REST API: boots the application on a random port against an embedded
+ * database seeded with a synthetic dataset, drives the create, history and rewards workloads
+ * at fixed arrival rates over HTTP and writes the latency percentiles and throughput of each
+ * to target/load-test/report.properties.
+ * Tagged "load" and only run by the load-test profile: {@code mvn test -Pload-test}; see
+ * {@link LoadTestSettings} for the settings, and -Dload.baseline=path/to/report.properties to
+ * compare with the report of a previous build.
+ */
+@Tag("load")
+@Import(RewardsLoadTest.LoadTestSecurity.class)
+@SpringBootTest(classes = CustomerRewardsApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.datasource.url=jdbc:h2:mem:loadtest;NON_KEYWORDS=DATE,MONTH;DB_CLOSE_DELAY=-1",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.username=sa",
+                "spring.datasource.password=",
+                "spring.jpa.hibernate.ddl-auto=create",
+                "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "spring.jpa.show-sql=false",
+                "logging.level.org.hibernate.SQL=warn",
+                "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=warn",
+                "logging.file.name=target/load-test/application.log"
+        })
+class RewardsLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RewardsLoadTest.class);
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Opens every endpoint without sessions or CSRF tokens. The application has no authentication
+     * scheme wired yet, and hashing credentials on every request would dominate the measured latencies.
+     */
+    @TestConfiguration
+    static class LoadTestSecurity {
+        @Bean
+        SecurityFilterChain loadTestSecurityFilterChain(HttpSecurity http) throws Exception {
+            return http.csrf(AbstractHttpConfigurer::disable)
+                    .authorizeHttpRequests(requests -> requests.anyRequest().permitAll())
+                    .build();
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(REQUEST_TIMEOUT)
+            .build();
+
+    @Test
+    @DisplayName("Mixed workloads at fixed arrival rates complete without errors and are reported")
+    void testMixedWorkloads() throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        long seedStart = System.nanoTime();
+        SyntheticDataset dataset = SyntheticDataset.seed(jdbcTemplate, settings);
+        log.info("Seeded {} customers with {} transactions in {} ms", dataset.customers(), dataset.transactions(),
+                (System.nanoTime() - seedStart) / 1_000_000);
+
+        List<FixedRateLoad.Workload> workloads = workloads(settings, dataset);
+        FixedRateLoad load = new FixedRateLoad(settings.concurrency());
+        if (!settings.warmup().isZero()) {
+            load.run(workloads, settings.warmup());
+        }
+        Map<String, FixedRateLoad.Result> results = load.run(workloads, settings.duration());
+
+        LoadTestReport report = new LoadTestReport(settings, dataset, results);
+        Path file = report.write(settings.reportDirectory(), settings.baseline());
+        log.info("Load test report written to {}:\n{}", file.toAbsolutePath(), report.getLines());
+
+        results.forEach((name, result) -> {
+            assertTrue(result.latencies.getTotalCount() > 0, name + " issued no requests");
+            assertEquals(0, result.errors.sum(), name + " had failed requests");
+        });
+    }
+
+    private List<FixedRateLoad.Workload> workloads(LoadTestSettings settings, SyntheticDataset dataset) {
+        LocalDate today = LocalDate.now();
+        Map<String, FixedRateLoad.Operation> operations = new LinkedHashMap<>();
+        operations.put(LoadTestSettings.CREATE, sequence -> createCustomer(new Random(settings.seed() + sequence)));
+        operations.put(LoadTestSettings.HISTORY, sequence ->
+                get("/customers/" + customer(settings, dataset.firstCustomerId(), dataset.customers(), sequence)
+                        + "/transactions"));
+        operations.put(LoadTestSettings.REWARDS_MONTH, rewards(settings, today.minusMonths(1), today));
+        operations.put(LoadTestSettings.REWARDS_QUARTER, rewards(settings, today.minusMonths(3), today));
+        operations.put(LoadTestSettings.REWARDS_YEAR, rewards(settings, today.minusYears(1), today));
+
+        List<FixedRateLoad.Workload> workloads = new ArrayList<>();
+        operations.forEach((name, operation) -> {
+            double rate = settings.rates().get(name);
+            if (rate > 0) {
+                workloads.add(new FixedRateLoad.Workload(name, rate, operation));
+            }
+        });
+        return workloads;
+    }
+
+    /**
+     * Picks one of the given number of values from the request's sequence number, the same one in every build.
+     */
+    private static long customer(LoadTestSettings settings, long first, long count, long sequence) {
+        long hash = (settings.seed() + sequence) * 0x9E3779B97F4A7C15L;
+        return first + Math.floorMod(hash ^ (hash >>> 32), count);
+    }
+
+    /**
+     * Requests the rewards of a date range, for customers with transactions in the range only,
+     * as the application answers the others with an error.
+     */
+    private FixedRateLoad.Operation rewards(LoadTestSettings settings, LocalDate startDate, LocalDate endDate) {
+        long[] active = jdbcTemplate.queryForList(
+                        "select distinct customer_id from transactions where date between ? and ? order by customer_id",
+                        Long.class, startDate, endDate)
+                .stream().mapToLong(Long::longValue).toArray();
+        return sequence -> rewards(active[(int) customer(settings, 0, active.length, sequence)], startDate, endDate);
+    }
+
+    private boolean createCustomer(Random random) throws Exception {
+        CustomerDTO customer = new CustomerDTO();
+        customer.setCustName("Load " + random.nextInt(1_000_000));
+        customer.setPhoneNo(String.valueOf(9_000_000_000L + random.nextInt(1_000_000_000)));
+        List<TransactionDTO> transactions = new ArrayList<>();
+        for (int i = 1 + random.nextInt(5); i > 0; i--) {
+            TransactionDTO transaction = new TransactionDTO();
+            transaction.setDate(LocalDate.now().minusDays(random.nextInt(90)));
+            transaction.setAmount(Math.round((5 + random.nextDouble() * 295) * 100) / 100.0);
+            transaction.setProduct("Load product");
+            transactions.add(transaction);
+        }
+        customer.setTransactions(transactions);
+        HttpRequest request = request("/customers")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(customer)))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+    }
+
+    private boolean rewards(long customerId, LocalDate startDate, LocalDate endDate) throws Exception {
+        return get("/customers/" + customerId + "/rewards?startDate=" + startDate + "&endDate=" + endDate);
+    }
+
+    private boolean get(String path) throws Exception {
+        HttpRequest request = request(path).header("Accept", "application/json").GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/rewards" + path))
+                .timeout(REQUEST_TIMEOUT);
+    }
+}
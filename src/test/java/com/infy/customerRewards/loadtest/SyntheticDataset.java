@@ -0,0 +1,40 @@
+package com.infy.customerRewards.loadtest;
+
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.infy.customerRewards.utility.MultiRowInsertSink;
+import com.infy.customerRewards.utility.SyntheticDataGenerator;
+
+import java.time.LocalDate;
+
+/**
+ * Customers and transactions of the {@link SyntheticDataGenerator} inserted before a load test run.
+ *
+ * @param firstCustomerId the lowest seeded customer ID
+ * @param lastCustomerId the highest seeded customer ID
+ * @param transactions the number of seeded transactions
+ */
+record SyntheticDataset(long firstCustomerId, long lastCustomerId, long transactions) {
+
+    private static final int ROWS_PER_STATEMENT = 500;
+    private static final int STATEMENTS_PER_COMMIT = 20;
+
+    static SyntheticDataset seed(JdbcTemplate jdbcTemplate, LoadTestSettings settings) {
+        LocalDate today = LocalDate.now();
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(settings.customers(),
+                (long) settings.customers() * settings.transactionsPerCustomer(), settings.zipfExponent(),
+                today.minusMonths(settings.months()).plusDays(1), today, settings.seed());
+        long firstId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) + 1 from customers", Long.class);
+        long transactions;
+        try (MultiRowInsertSink sink = new MultiRowInsertSink(jdbcTemplate.getDataSource(), ROWS_PER_STATEMENT,
+                STATEMENTS_PER_COMMIT)) {
+            transactions = generator.generate(firstId, sink);
+        }
+        return new SyntheticDataset(firstId, firstId + settings.customers() - 1, transactions);
+    }
+
+    long customers() {
+        return lastCustomerId - firstCustomerId + 1;
+    }
+}